@@ -6,6 +6,7 @@ import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -37,6 +38,9 @@ public class MessageQueueConfig {
     public static final String SMS_SEND_ROUTING_KEY = "notification.sms";
     public static final String AUDIT_LOG_ROUTING_KEY = "log.audit";
 
+    // 监听器容器工厂名称常量
+    public static final String PAYMENT_NOTIFY_CONTAINER_FACTORY = "paymentNotifyContainerFactory";
+
     /**
      * 创建消息转换器
      * 将消息转换为JSON格式
@@ -106,6 +110,38 @@ public class MessageQueueConfig {
         return factory;
     }
 
+    /**
+     * 配置支付回调的批量监听器容器工厂
+     * 手动确认，按批次拉取消息，批次大小和预取数量可通过payment.notify.*配置
+     *
+     * @param connectionFactory 连接工厂
+     * @param batchSize 每批最多消息数
+     * @param prefetch 每个消费者的预取数量
+     * @param receiveTimeout 凑批等待时间（毫秒），超时后按已收到的消息处理
+     * @param concurrency 消费者数量
+     * @return SimpleRabbitListenerContainerFactory实例
+     */
+    @Bean(PAYMENT_NOTIFY_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory paymentNotifyContainerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${payment.notify.batch-size:200}") int batchSize,
+            @Value("${payment.notify.prefetch:500}") int prefetch,
+            @Value("${payment.notify.receive-timeout:100}") long receiveTimeout,
+            @Value("${payment.notify.concurrency:2}") int concurrency) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeout);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(concurrency);
+
+        return factory;
+    }
+
     // ==================== 交换机配置 ====================
 
     /**
@@ -0,0 +1,13 @@
+package org.backend.A_general.base.config.backend;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置类
+ * 开启@Scheduled注解支持，用于对账、清理等后台任务
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
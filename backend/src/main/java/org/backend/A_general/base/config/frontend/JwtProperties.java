@@ -41,6 +41,11 @@ public class JwtProperties {
      */
     private long refreshExpiration;
 
+    /**
+     * 推送流令牌过期时间（毫秒），只用于建立连接，浏览器的EventSource无法设置请求头，令牌随URL传递
+     */
+    private long streamTokenExpiration = 60000;
+
     /**
      * 初始化方法，在对象创建后自动调用
      * 用于检查并生成安全的JWT密钥
@@ -1,8 +1,15 @@
 package org.backend.A_general.base.controller;
 
 import org.backend.A_general.base.dto.BaseResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 控制器基类
@@ -101,4 +108,30 @@ public abstract class BaseController {
     protected <T> ResponseEntity<BaseResponse<T>> forbidden(String message) {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(BaseResponse.error(message));
     }
-}
\ No newline at end of file
+
+    /**
+     * 返回以附件形式分块下发的流式响应
+     * 开启gzip时边写边压缩，并在每次刷新时同步刷出已压缩的数据
+     *
+     * @param fileName    附件文件名，开启gzip时自动追加.gz后缀
+     * @param contentType 未压缩内容的类型
+     * @param gzip        是否压缩
+     * @param body        写出响应内容的回调
+     * @return ResponseEntity
+     */
+    protected ResponseEntity<StreamingResponseBody> streamAttachment(String fileName, MediaType contentType,
+                                                                     boolean gzip, StreamingResponseBody body) {
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename(gzip ? fileName + ".gz" : fileName, StandardCharsets.UTF_8)
+                .build();
+        StreamingResponseBody responseBody = !gzip ? body : out -> {
+            GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024, true);
+            body.writeTo(gzipOut);
+            gzipOut.finish();
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : contentType)
+                .body(responseBody);
+    }
+}
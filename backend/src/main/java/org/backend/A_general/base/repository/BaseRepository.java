@@ -17,6 +17,12 @@ import java.util.Optional;
  */
 @NoRepositoryBean
 public interface BaseRepository<T, ID extends Serializable> extends JpaRepository<T, ID>, JpaSpecificationExecutor<T> {
+
+    /**
+     * 流式查询的fetchSize提示值
+     * MySQL驱动在fetchSize为Integer.MIN_VALUE时使用只进游标逐行返回结果，而不是一次性加载整个结果集
+     */
+    String STREAM_FETCH_SIZE = "" + Integer.MIN_VALUE;
     
     /**
      * 批量保存实体
@@ -28,6 +28,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final String AUTHORIZATION_HEADER = "Authorization";
     private static final String BEARER_PREFIX = "Bearer ";
 
+    // 浏览器的EventSource无法设置请求头，推送流连接通过该URL参数携带推送流令牌
+    private static final String STREAM_TOKEN_PARAM = "token";
+
+    // 接受URL参数令牌的推送流路径（不含上下文路径）
+    private static final String STREAM_PATH = "/badges/stream";
+
     private final JwtTokenProvider jwtTokenProvider;
 
     @Autowired
@@ -55,11 +61,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         
         try {
-            // 从请求头中提取JWT令牌
+            // 从请求头中提取JWT令牌，推送流连接没有请求头时从URL参数中提取
             String jwt = extractJwtFromRequest(request);
+            boolean streamToken = false;
+            if (!StringUtils.hasText(jwt) && isStreamRequest(request)) {
+                jwt = request.getParameter(STREAM_TOKEN_PARAM);
+                streamToken = true;
+            }
 
-            // 验证令牌并设置认证信息
-            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt)) {
+            // 验证令牌并设置认证信息，推送流令牌只能用于推送流连接，访问令牌不能出现在URL中
+            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt)
+                    && jwtTokenProvider.isStreamToken(jwt) == streamToken) {
                 Authentication authentication = jwtTokenProvider.getAuthentication(jwt);
                 SecurityContextHolder.getContext().setAuthentication(authentication);
                 logger.debug("JWT令牌验证成功，设置认证信息");
@@ -86,6 +98,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * 判断是否为推送流连接请求
+     *
+     * @param request 请求对象
+     * @return 是否为推送流连接请求
+     */
+    private boolean isStreamRequest(HttpServletRequest request) {
+        return HttpMethod.GET.name().equals(request.getMethod()) && STREAM_PATH.equals(request.getServletPath());
+    }
+
     /**
      * 从请求头中提取JWT令牌
      *
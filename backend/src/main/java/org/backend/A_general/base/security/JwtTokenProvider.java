@@ -32,6 +32,26 @@ public class JwtTokenProvider {
         return jwtUtil.validateToken(token);
     }
 
+    /**
+     * 判断令牌是否为推送流令牌
+     *
+     * @param token JWT令牌
+     * @return 是否为推送流令牌
+     */
+    public boolean isStreamToken(String token) {
+        return JwtUtil.STREAM_SCOPE.equals(jwtUtil.getScopeFromToken(token));
+    }
+
+    /**
+     * 为用户生成推送流令牌
+     *
+     * @param userId 用户ID
+     * @return 推送流令牌
+     */
+    public String generateStreamToken(Long userId) {
+        return jwtUtil.generateStreamToken(userId);
+    }
+
     /**
      * 从JWT令牌中提取用户ID
      *
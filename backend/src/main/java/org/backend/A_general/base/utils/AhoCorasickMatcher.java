@@ -0,0 +1,351 @@
+package org.backend.A_general.base.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * 多模式字符串匹配器
+ * 基于双数组Trie实现的Aho–Corasick自动机，编译后不可变、线程安全，
+ * 一次扫描即可找出文本中所有词条，耗时只与文本长度和命中数有关，与词条数量无关。
+ * 词条按字面匹配，不区分大小写，不会被当作正则表达式解析
+ */
+public final class AhoCorasickMatcher {
+
+    private static final int ROOT = 0;
+
+    private static final AhoCorasickMatcher EMPTY = compile(List.of());
+
+    // 字符到稠密编码的映射，未出现在词条中的字符编码为0
+    private final char[] charCodes;
+
+    // 双数组：状态s经编码c转移到base[s] + c，且要求check[base[s] + c] == s
+    private final int[] base;
+    private final int[] check;
+
+    // 失败指针
+    private final int[] fail;
+
+    // 以该状态结尾的最长词条长度，包括沿失败指针可达的词条，0表示没有词条结尾
+    private final int[] matchLength;
+
+    private final int wordCount;
+
+    private AhoCorasickMatcher(char[] charCodes, int[] base, int[] check, int[] fail, int[] matchLength, int wordCount) {
+        this.charCodes = charCodes;
+        this.base = base;
+        this.check = check;
+        this.fail = fail;
+        this.matchLength = matchLength;
+        this.wordCount = wordCount;
+    }
+
+    /**
+     * 空匹配器，不匹配任何内容
+     *
+     * @return 空匹配器
+     */
+    public static AhoCorasickMatcher empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 编译词条列表，空白词条会被忽略
+     *
+     * @param words 词条
+     * @return 编译后的匹配器
+     */
+    public static AhoCorasickMatcher compile(Collection<String> words) {
+        // 1. 构建链式Trie，同时统计字符频率
+        TrieNode root = new TrieNode(0);
+        int[] frequency = new int[Character.MAX_VALUE + 1];
+        int wordCount = 0;
+        for (String word : words) {
+            if (word == null || word.isBlank()) {
+                continue;
+            }
+            TrieNode node = root;
+            for (int i = 0; i < word.length(); i++) {
+                char c = fold(word.charAt(i));
+                frequency[c]++;
+                node = node.children.computeIfAbsent(c, key -> new TrieNode(0));
+            }
+            if (node.wordLength == 0) {
+                node.wordLength = word.length();
+                wordCount++;
+            }
+        }
+
+        // 2. 高频字符分配小编码，使双数组更紧凑
+        char[] charCodes = new char[Character.MAX_VALUE + 1];
+        Integer[] byFrequency = new Integer[Character.MAX_VALUE + 1];
+        for (int i = 0; i < byFrequency.length; i++) {
+            byFrequency[i] = i;
+        }
+        Arrays.sort(byFrequency, (a, b) -> Integer.compare(frequency[b], frequency[a]));
+        int alphabetSize = 0;
+        for (Integer c : byFrequency) {
+            if (frequency[c] == 0) {
+                break;
+            }
+            charCodes[c] = (char) ++alphabetSize;
+        }
+
+        // 3. 按广度优先顺序把链式Trie转换为双数组
+        DoubleArrayBuilder builder = new DoubleArrayBuilder(Math.max(alphabetSize + 1, 1024));
+        root.state = ROOT;
+        builder.check[ROOT] = ROOT;
+        builder.used[ROOT] = true;
+        Deque<TrieNode> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            TrieNode node = queue.poll();
+            if (node.children.isEmpty()) {
+                continue;
+            }
+            int[] codes = node.children.keySet().stream().mapToInt(c -> charCodes[c]).sorted().toArray();
+            int nodeBase = builder.findBase(codes);
+            builder.base[node.state] = nodeBase;
+            for (var entry : node.children.entrySet()) {
+                TrieNode child = entry.getValue();
+                child.state = nodeBase + charCodes[entry.getKey()];
+                builder.claim(child.state, node.state);
+                queue.add(child);
+            }
+        }
+
+        int size = builder.maxState + 1;
+        int[] base = Arrays.copyOf(builder.base, size);
+        int[] check = Arrays.copyOf(builder.check, size);
+        boolean[] used = Arrays.copyOf(builder.used, size);
+        for (int i = 1; i < size; i++) {
+            if (!used[i]) {
+                check[i] = -1;
+            }
+        }
+
+        // 4. 广度优先计算失败指针和最长命中长度
+        int[] fail = new int[size];
+        int[] matchLength = new int[size];
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            TrieNode node = queue.poll();
+            for (var entry : node.children.entrySet()) {
+                TrieNode child = entry.getValue();
+                int code = charCodes[entry.getKey()];
+                int failState = ROOT;
+                if (node.state != ROOT) {
+                    int f = fail[node.state];
+                    while (true) {
+                        int t = transition(base, check, f, code);
+                        if (t >= 0) {
+                            failState = t;
+                            break;
+                        }
+                        if (f == ROOT) {
+                            break;
+                        }
+                        f = fail[f];
+                    }
+                }
+                fail[child.state] = failState;
+                matchLength[child.state] = child.wordLength > 0 ? child.wordLength : matchLength[failState];
+                queue.add(child);
+            }
+        }
+        return new AhoCorasickMatcher(charCodes, base, check, fail, matchLength, wordCount);
+    }
+
+    /**
+     * 判断文本是否包含任一词条
+     *
+     * @param text 文本
+     * @return 是否命中
+     */
+    public boolean containsAny(String text) {
+        if (text == null || wordCount == 0) {
+            return false;
+        }
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            if (matchLength[state] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 查找文本中命中的所有词条，同一位置结尾的多个词条只返回最长的一个
+     *
+     * @param text 文本
+     * @return 命中的词条原文，按出现顺序排列
+     */
+    public List<String> findAll(String text) {
+        List<String> hits = new ArrayList<>();
+        if (text == null || wordCount == 0) {
+            return hits;
+        }
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            int length = matchLength[state];
+            if (length > 0) {
+                hits.add(text.substring(i - length + 1, i + 1));
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * 将文本中命中的词条逐字替换为指定字符，重叠的词条会被整体替换
+     *
+     * @param text        文本
+     * @param replaceChar 替换字符
+     * @return 替换后的文本，没有命中时返回原文本
+     */
+    public String replace(String text, char replaceChar) {
+        if (text == null || wordCount == 0) {
+            return text;
+        }
+        char[] result = null;
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            int length = matchLength[state];
+            if (length > 0) {
+                if (result == null) {
+                    result = text.toCharArray();
+                }
+                // 较长的词条可能向前越过之前已替换的区间，整段重新替换
+                for (int j = i - length + 1; j <= i; j++) {
+                    result[j] = replaceChar;
+                }
+            }
+        }
+        return result == null ? text : new String(result);
+    }
+
+    /**
+     * 词条数量
+     *
+     * @return 去重后的词条数量
+     */
+    public int size() {
+        return wordCount;
+    }
+
+    private int next(int state, char c) {
+        int code = charCodes[fold(c)];
+        if (code == 0) {
+            return ROOT;
+        }
+        while (true) {
+            int t = transition(base, check, state, code);
+            if (t >= 0) {
+                return t;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    private static int transition(int[] base, int[] check, int state, int code) {
+        int t = base[state] + code;
+        if (t < check.length && t != ROOT && check[t] == state) {
+            return t;
+        }
+        return -1;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * 构建阶段使用的链式Trie节点
+     */
+    private static final class TrieNode {
+        private final TreeMap<Character, TrieNode> children = new TreeMap<>();
+        private int wordLength;
+        private int state;
+
+        private TrieNode(int wordLength) {
+            this.wordLength = wordLength;
+        }
+    }
+
+    /**
+     * 双数组构建器，数组按需扩容
+     */
+    private static final class DoubleArrayBuilder {
+        private int[] base;
+        private int[] check;
+        private boolean[] used;
+        private int maxState;
+        private int searchStart = 1;
+
+        private DoubleArrayBuilder(int initialSize) {
+            base = new int[initialSize];
+            check = new int[initialSize];
+            used = new boolean[initialSize];
+        }
+
+        /**
+         * 查找一个base值，使所有子节点编码对应的位置都空闲
+         */
+        private int findBase(int[] codes) {
+            // 以最小编码的子节点落在空闲位置为前提枚举候选值，跳过已占用的位置
+            int position = Math.max(searchStart, codes[0] + 1);
+            int occupied = 0;
+            while (true) {
+                ensureCapacity(position + 1);
+                if (used[position]) {
+                    occupied++;
+                    position++;
+                    continue;
+                }
+                int candidate = position - codes[0];
+                ensureCapacity(candidate + codes[codes.length - 1] + 1);
+                boolean fits = true;
+                for (int i = 1; i < codes.length; i++) {
+                    if (used[candidate + codes[i]]) {
+                        fits = false;
+                        break;
+                    }
+                }
+                if (fits) {
+                    // 扫过的区域已接近占满时，后续搜索直接从当前位置开始
+                    if (occupied >= (position - searchStart + 1) * 0.95) {
+                        searchStart = position;
+                    }
+                    return candidate;
+                }
+                position++;
+            }
+        }
+
+        private void claim(int state, int parent) {
+            used[state] = true;
+            check[state] = parent;
+            maxState = Math.max(maxState, state);
+        }
+
+        private void ensureCapacity(int size) {
+            if (size <= used.length) {
+                return;
+            }
+            int newSize = Math.max(size, used.length + (used.length >> 1));
+            base = Arrays.copyOf(base, newSize);
+            check = Arrays.copyOf(check, newSize);
+            used = Arrays.copyOf(used, newSize);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.backend.A_general.base.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 线程安全的布隆过滤器
+ * 以若干long值组合作为键，使用双重哈希生成k个位下标；
+ * mightContain返回false时键一定不存在，返回true时键可能存在
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * 按预期元素数量和误判率创建布隆过滤器
+     *
+     * @param expectedInsertions 预期插入的元素数量
+     * @param falsePositiveRate  期望的误判率，取值(0, 1)
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("预期元素数量必须大于0");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("误判率必须在0-1之间");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE, (optimalBits + 63) >>> 6);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * 加入一个键
+     *
+     * @param keyParts 组成键的long值
+     */
+    public void put(long... keyParts) {
+        long hash1 = hash(keyParts, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(keyParts, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * 判断键是否可能存在
+     *
+     * @param keyParts 组成键的long值
+     * @return false表示一定不存在，true表示可能存在
+     */
+    public boolean mightContain(long... keyParts) {
+        long hash1 = hash(keyParts, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(keyParts, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    private static long hash(long[] keyParts, long seed) {
+        long h = seed;
+        for (long part : keyParts) {
+            h = mix(h ^ mix(part + seed));
+        }
+        return h;
+    }
+
+    /**
+     * MurmurHash3的64位终结混淆函数
+     */
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
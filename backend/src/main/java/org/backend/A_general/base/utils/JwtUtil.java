@@ -33,6 +33,12 @@ public class JwtUtil {
     // 黑名单令牌在Redis中的前缀
     private static final String BLACKLIST_TOKEN_PREFIX = "blacklist_token:";
 
+    // 令牌用途声明，访问令牌没有该声明
+    private static final String SCOPE_CLAIM = "scope";
+
+    // 推送流令牌的用途，只能通过URL参数用于建立推送流连接
+    public static final String STREAM_SCOPE = "stream";
+
     // JWT属性配置类实例
     private final JwtProperties jwtProperties;
 
@@ -113,6 +119,41 @@ public class JwtUtil {
         return createToken(claims, String.valueOf(user.getId()), jwtProperties.getRefreshExpiration());
     }
 
+    /**
+     * 为用户生成推送流令牌
+     * 浏览器的EventSource无法设置请求头，令牌只能放在URL中，因此有效期很短且只能用于建立推送流连接
+     *
+     * @param userId 用户ID
+     * @return 生成的推送流令牌
+     */
+    public String generateStreamToken(Long userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("用户ID不能为空");
+        }
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("id", userId);
+        claims.put(SCOPE_CLAIM, STREAM_SCOPE);
+        return createToken(claims, String.valueOf(userId), jwtProperties.getStreamTokenExpiration());
+    }
+
+    /**
+     * 从JWT令牌中提取令牌用途
+     *
+     * @param token JWT令牌
+     * @return 令牌用途，访问令牌返回null
+     */
+    public String getScopeFromToken(String token) {
+        try {
+            Claims claims = Jwts.parser().verifyWith((SecretKey) getSigningKey())
+                    .build().parseSignedClaims(token)
+                    .getPayload();
+            return claims.get(SCOPE_CLAIM, String.class);
+        } catch (Exception e) {
+            logger.debug("从令牌获取用途失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 从JWT令牌中提取用户角色
      *
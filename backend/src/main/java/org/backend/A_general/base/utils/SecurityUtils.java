@@ -1,5 +1,7 @@
 package org.backend.A_general.base.utils;
 
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +15,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.Random;
@@ -35,6 +38,9 @@ public class SecurityUtils {
     public static final String SHA512 = "SHA-512";
     public static final String MD5 = "MD5";
 
+    // 按词表缓存编译好的敏感词匹配器，避免每次调用都重新编译
+    private static final LRUCache<List<String>, AhoCorasickMatcher> SENSITIVE_WORD_MATCHERS = CacheUtil.newLRUCache(16);
+
     // AES加密相关常量
     private static final int AES_KEY_SIZE = 256;
     private static final int GCM_IV_LENGTH = 12;
@@ -569,6 +575,7 @@ public class SecurityUtils {
 
     /**
      * 检查字符串是否包含敏感词
+     * 编译后的词表按内容缓存，词表由调用方长期持有时也可预先编译并使用{@link #containsSensitiveWord(String, AhoCorasickMatcher)}
      *
      * @param content        要检查的内容
      * @param sensitiveWords 敏感词列表
@@ -578,16 +585,27 @@ public class SecurityUtils {
         if (StringUtils.isBlank(content) || CollectionUtils.isEmpty(sensitiveWords)) {
             return false;
         }
-        for (String word : sensitiveWords) {
-            if (StringUtils.isNotBlank(word) && content.contains(word)) {
-                return true;
-            }
+        return containsSensitiveWord(content, sensitiveWordMatcher(sensitiveWords));
+    }
+
+    /**
+     * 使用预编译的匹配器检查字符串是否包含敏感词
+     *
+     * @param content 要检查的内容
+     * @param matcher 敏感词匹配器
+     * @return 是否包含敏感词
+     */
+    public static boolean containsSensitiveWord(String content, AhoCorasickMatcher matcher) {
+        if (StringUtils.isBlank(content) || matcher == null) {
+            return false;
         }
-        return false;
+        return matcher.containsAny(content);
     }
 
     /**
      * 过滤字符串中的敏感词
+     * 敏感词按字面匹配，编译后的词表按内容缓存，词表由调用方长期持有时也可预先编译并使用
+     * {@link #filterSensitiveWords(String, AhoCorasickMatcher, char)}
      *
      * @param content        要过滤的内容
      * @param sensitiveWords 敏感词列表
@@ -598,13 +616,39 @@ public class SecurityUtils {
         if (StringUtils.isBlank(content) || CollectionUtils.isEmpty(sensitiveWords)) {
             return content;
         }
-        String filteredContent = content;
-        for (String word : sensitiveWords) {
-            if (StringUtils.isNotBlank(word)) {
-                filteredContent = filteredContent.replaceAll(word, String.valueOf(replaceChar).repeat(word.length()));
-            }
+        return filterSensitiveWords(content, sensitiveWordMatcher(sensitiveWords), replaceChar);
+    }
+
+    /**
+     * 获取词表对应的匹配器，相同内容的词表只编译一次
+     *
+     * @param sensitiveWords 敏感词列表
+     * @return 编译后的匹配器
+     */
+    private static AhoCorasickMatcher sensitiveWordMatcher(List<String> sensitiveWords) {
+        // 复制一份作为键，调用方之后修改列表不会影响缓存
+        List<String> key = new ArrayList<>(sensitiveWords);
+        AhoCorasickMatcher matcher = SENSITIVE_WORD_MATCHERS.get(key);
+        if (matcher == null) {
+            matcher = AhoCorasickMatcher.compile(key);
+            SENSITIVE_WORD_MATCHERS.put(key, matcher);
+        }
+        return matcher;
+    }
+
+    /**
+     * 使用预编译的匹配器过滤字符串中的敏感词
+     *
+     * @param content     要过滤的内容
+     * @param matcher     敏感词匹配器
+     * @param replaceChar 替换字符
+     * @return 过滤后的内容
+     */
+    public static String filterSensitiveWords(String content, AhoCorasickMatcher matcher, char replaceChar) {
+        if (StringUtils.isBlank(content) || matcher == null) {
+            return content;
         }
-        return filteredContent;
+        return matcher.replace(content, replaceChar);
     }
 
     /**
@@ -4,11 +4,16 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.backend.A_general.base.controller.BaseController;
 import org.backend.A_general.base.dto.BaseResponse;
+import org.backend.A_general.base.exception.BusinessException;
+import org.backend.A_general.file.dto.TempSweepStats;
 import org.backend.A_general.file.service.ChunkUploadService;
+import org.backend.A_general.file.service.TempFileSweepService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -22,10 +27,24 @@ public class ChunkUploadController extends BaseController {
     private static final Logger logger = LoggerFactory.getLogger(ChunkUploadController.class);
 
     private final ChunkUploadService chunkUploadService;
+    private final TempFileSweepService tempFileSweepService;
 
     @Autowired
-    public ChunkUploadController(ChunkUploadService chunkUploadService) {
+    public ChunkUploadController(ChunkUploadService chunkUploadService, TempFileSweepService tempFileSweepService) {
         this.chunkUploadService = chunkUploadService;
+        this.tempFileSweepService = tempFileSweepService;
+    }
+
+    @GetMapping("/sweep/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "获取临时上传文件清理统计", description = "包括累计回收的字节数和删除的过期上传数")
+    public ResponseEntity<BaseResponse<TempSweepStats>> getSweepStats() {
+        try {
+            return super.success("查询成功", tempFileSweepService.getStats());
+        } catch (Exception e) {
+            logger.error("获取临时文件清理统计失败: {}", e.getMessage());
+            return super.failure("查询失败: " + e.getMessage());
+        }
     }
 
     @GetMapping("/{fileId}/status")
@@ -50,16 +69,22 @@ public class ChunkUploadController extends BaseController {
             @RequestParam("totalChunks") int totalChunks,
             @RequestParam("fileName") String fileName,
             @RequestParam("fileSize") long fileSize,
-            @RequestParam("fileType") String fileType) {
+            @RequestParam("fileType") String fileType,
+            @RequestParam(value = "chunkSize", required = false) Long chunkSize,
+            @RequestParam(value = "checksum", required = false) String checksum,
+            Authentication authentication) {
         try {
             logger.info("上传文件块: {} 块 {}/{}", fileId, chunkIndex + 1, totalChunks);
-            boolean success = chunkUploadService.uploadChunk(
-                    chunk, fileId, chunkIndex, totalChunks, fileName, fileSize, fileType);
+            boolean success = chunkUploadService.uploadChunk(chunk, fileId, chunkIndex, totalChunks, fileName,
+                    fileSize, fileType, chunkSize, checksum, getCurrentUserId(authentication));
             if (success) {
                 return super.success("文件块上传成功", true);
             } else {
                 return super.failure("文件块上传失败");
             }
+        } catch (BusinessException e) {
+            logger.warn("文件块上传被拒绝: {}", e.getMessage());
+            return super.failure(e.getStatus(), e.getMessage());
         } catch (Exception e) {
             logger.error("文件块上传失败: {}", e.getMessage());
             return super.failure("上传失败: " + e.getMessage());
@@ -71,15 +96,21 @@ public class ChunkUploadController extends BaseController {
     public ResponseEntity<BaseResponse<String>> mergeChunks(
             @RequestParam("fileId") String fileId,
             @RequestParam("fileName") String fileName,
-            @RequestParam("fileType") String fileType) {
+            @RequestParam("fileType") String fileType,
+            @RequestParam(value = "fileHash", required = false) String fileHash,
+            Authentication authentication) {
         try {
             logger.info("合并文件块: {}", fileId);
-            String fileUrl = chunkUploadService.mergeChunks(fileId, fileName, fileType);
+            String fileUrl = chunkUploadService.mergeChunks(fileId, fileName, fileType, fileHash,
+                    getCurrentUserId(authentication));
             if (fileUrl != null) {
                 return super.success("文件合并成功", fileUrl);
             } else {
                 return super.failure("文件合并失败");
             }
+        } catch (BusinessException e) {
+            logger.warn("文件合并被拒绝: {}", e.getMessage());
+            return super.failure(e.getStatus(), e.getMessage());
         } catch (Exception e) {
             logger.error("文件合并失败: {}", e.getMessage());
             return super.failure("合并失败: " + e.getMessage());
@@ -88,14 +119,22 @@ public class ChunkUploadController extends BaseController {
 
     @DeleteMapping("/{fileId}")
     @Operation(summary = "清理文件块")
-    public ResponseEntity<BaseResponse<Boolean>> cleanupChunks(@PathVariable String fileId) {
+    public ResponseEntity<BaseResponse<Boolean>> cleanupChunks(@PathVariable String fileId,
+                                                               Authentication authentication) {
         try {
             logger.info("清理文件块: {}", fileId);
-            chunkUploadService.cleanupChunks(fileId);
+            chunkUploadService.cleanupChunks(fileId, getCurrentUserId(authentication));
             return super.success("清理成功", true);
+        } catch (BusinessException e) {
+            logger.warn("清理文件块被拒绝: {}", e.getMessage());
+            return super.failure(e.getStatus(), e.getMessage());
         } catch (Exception e) {
             logger.error("清理文件块失败: {}", e.getMessage());
             return super.failure("清理失败: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private Long getCurrentUserId(Authentication authentication) {
+        return Long.parseLong(authentication.getName());
+    }
+}
@@ -2,25 +2,39 @@ package org.backend.A_general.file.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import lombok.Data;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.backend.A_general.base.controller.BaseController;
+import org.backend.A_general.base.exception.BusinessException;
 import org.backend.A_general.base.dto.BaseResponse;
+import org.backend.A_general.file.dto.FileCacheStats;
+import org.backend.A_general.file.dto.StorageUsage;
 import org.backend.A_general.file.entity.FileUpload;
+import org.backend.A_general.file.service.FileStorageService;
 import org.backend.A_general.file.service.FileUploadService;
+import org.backend.A_general.file.service.ImageDerivativeService;
+import org.backend.A_general.file.service.PublicFileCacheService;
+import org.backend.A_general.file.service.StorageQuotaService;
 import org.backend.A_general.file.util.FileSecurityUtils;
 import org.backend.A_general.file.util.FileUtils;
+import org.backend.A_general.file.util.RangeDownloadUtils;
 import org.backend.entity.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -30,15 +44,25 @@ public class FileUploadController extends BaseController {
     private static final Logger logger = LoggerFactory.getLogger(FileUploadController.class);
 
     private final FileUploadService fileUploadService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final PublicFileCacheService publicFileCacheService;
+    private final FileStorageService fileStorageService;
+    private final StorageQuotaService storageQuotaService;
 
     @Autowired
-    public FileUploadController(FileUploadService fileUploadService) {
+    public FileUploadController(FileUploadService fileUploadService, ImageDerivativeService imageDerivativeService,
+                                PublicFileCacheService publicFileCacheService, FileStorageService fileStorageService,
+                                StorageQuotaService storageQuotaService) {
         this.fileUploadService = fileUploadService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.publicFileCacheService = publicFileCacheService;
+        this.fileStorageService = fileStorageService;
+        this.storageQuotaService = storageQuotaService;
     }
 
     @PostMapping("/api/files/upload")
     @Operation(summary = "上传文件")
-    public ResponseEntity<BaseResponse<FileUpload>> uploadFile(@RequestParam("file") MultipartFile file, @RequestParam(required = false) String entityType, @RequestParam(required = false) Long entityId, Authentication authentication) {
+    public ResponseEntity<BaseResponse<FileUpload>> uploadFile(@RequestParam("file") MultipartFile file, @RequestParam(required = false) String entityType, @RequestParam(required = false) Long entityId, @RequestParam(required = false) String sha256, Authentication authentication) {
         try {
             // 参数验证
             if (file == null || file.isEmpty()) {
@@ -47,15 +71,91 @@ public class FileUploadController extends BaseController {
 
             Long userId = getCurrentUserId(authentication);
             User user = createUser(userId);
-            FileUpload uploadedFile = fileUploadService.uploadFile(file, entityType, entityId, false, user);
+            FileUpload uploadedFile = fileUploadService.uploadFile(file, entityType, entityId, false, user, sha256);
             logger.info("用户 {} 上传文件成功，文件ID: {}", userId, uploadedFile.getId());
             return super.success("文件上传成功", uploadedFile);
+        } catch (BusinessException e) {
+            logger.warn("文件上传被拒绝: {}", e.getMessage());
+            return super.failure(e.getStatus(), e.getMessage());
         } catch (Exception e) {
             logger.error("文件上传失败: {}", e.getMessage());
             return super.failure("文件上传失败: " + e.getMessage());
         }
     }
 
+    @GetMapping("/api/files/content/{sha256}")
+    @Operation(summary = "检查文件内容能否秒传", description = "当前用户已有该内容或该内容已公开时返回true，客户端可调用秒传接口，不必上传数据")
+    public ResponseEntity<BaseResponse<Boolean>> checkContent(@PathVariable String sha256, @RequestParam long size,
+                                                              Authentication authentication) {
+        try {
+            return super.success("查询成功", fileUploadService.hasContent(sha256, size, getCurrentUserId(authentication)));
+        } catch (Exception e) {
+            logger.error("检查文件内容失败: {}", e.getMessage());
+            return super.failure("查询失败: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/api/files/upload/instant")
+    @Operation(summary = "秒传文件", description = "引用当前用户已有的或已公开的相同内容创建文件记录")
+    public ResponseEntity<BaseResponse<FileUpload>> uploadByHash(@RequestParam String sha256, @RequestParam long size,
+                                                                 @RequestParam String fileName, @RequestParam String contentType,
+                                                                 @RequestParam(required = false) String entityType,
+                                                                 @RequestParam(required = false) Long entityId,
+                                                                 Authentication authentication) {
+        try {
+            Long userId = getCurrentUserId(authentication);
+            User user = createUser(userId);
+            FileUpload uploadedFile = fileUploadService.uploadByHash(sha256, size, fileName, contentType, entityType, entityId, false, user);
+            if (uploadedFile == null) {
+                return super.failure("文件内容不存在，请上传文件");
+            }
+            logger.info("用户 {} 秒传文件成功，文件ID: {}", userId, uploadedFile.getId());
+            return super.success("文件上传成功", uploadedFile);
+        } catch (BusinessException e) {
+            logger.warn("秒传文件被拒绝: {}", e.getMessage());
+            return super.failure(e.getStatus(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("秒传文件失败: {}", e.getMessage());
+            return super.failure("文件上传失败: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/api/files/upload/stream")
+    @Operation(summary = "流式上传文件", description = "请求体即文件内容，Content-Type为文件的MIME类型；" +
+            "不经过multipart缓冲，边接收边写入存储并计算哈希，超过大小上限或文件头与类型不符时立即中止")
+    public ResponseEntity<BaseResponse<FileUpload>> uploadStream(@RequestParam String fileName,
+                                                                 @RequestParam(required = false) String entityType,
+                                                                 @RequestParam(required = false) Long entityId,
+                                                                 @RequestParam(required = false) String sha256,
+                                                                 Authentication authentication,
+                                                                 HttpServletRequest request) {
+        try {
+            String contentType;
+            try {
+                MediaType mediaType = MediaType.parseMediaType(request.getContentType());
+                contentType = mediaType.getType() + "/" + mediaType.getSubtype();
+            } catch (RuntimeException e) {
+                return super.failure(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "缺少有效的Content-Type");
+            }
+            if (contentType.startsWith("multipart/")) {
+                return super.failure(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "请求体应为文件内容，multipart请使用/api/files/upload");
+            }
+
+            Long userId = getCurrentUserId(authentication);
+            User user = createUser(userId);
+            FileUpload uploadedFile = fileUploadService.uploadStream(request.getInputStream(),
+                    request.getContentLengthLong(), fileName, contentType, entityType, entityId, false, user, sha256);
+            logger.info("用户 {} 流式上传文件成功，文件ID: {}", userId, uploadedFile.getId());
+            return super.success("文件上传成功", uploadedFile);
+        } catch (BusinessException e) {
+            logger.warn("流式上传被拒绝: {}", e.getMessage());
+            return super.failure(e.getStatus(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("流式上传失败: {}", e.getMessage());
+            return super.failure("文件上传失败: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/api/upload/image")
     @Operation(summary = "上传图片文件")
     public ResponseEntity<BaseResponse<String>> uploadImage(@RequestParam("file") MultipartFile file, Authentication authentication) {
@@ -232,49 +332,95 @@ public class FileUploadController extends BaseController {
     }
 
     @GetMapping("/api/files/{fileId}/download")
-    @Operation(summary = "下载文件")
-    public ResponseEntity<Resource> downloadFile(@PathVariable Long fileId, Authentication authentication) {
+    @Operation(summary = "下载文件", description = "支持Range断点续传和多段下载，以及ETag/Last-Modified条件请求；" +
+            "图片可通过size指定avatar、card、detail或最长边像素，返回最接近的衍生尺寸")
+    public void downloadFile(@PathVariable Long fileId, @RequestParam(required = false) String size,
+                             Authentication authentication,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 参数验证
+        if (fileId == null || fileId <= 0) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        Long userId;
         try {
-            // 参数验证
-            if (fileId == null || fileId <= 0) {
-                return ResponseEntity.badRequest().build();
+            userId = getCurrentUserId(authentication);
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        // 缓存中只有公开文件，命中时不需要查询元数据和检查权限
+        String cacheKey = publicFileCacheService.cacheKey(fileId, size);
+        try {
+            if (publicFileCacheService.serve(cacheKey, request, response)) {
+                return;
             }
+        } catch (IOException e) {
+            logger.debug("文件传输中断，文件ID: {}, 原因: {}", fileId, e.getMessage());
+            return;
+        }
 
-            Long userId = getCurrentUserId(authentication);
+        FileUpload fileUpload = fileUploadService.getFileMetadata(fileId);
+        if (fileUpload == null) {
+            logger.warn("下载文件不存在，文件ID: {}", fileId);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
-            FileUpload fileUpload = fileUploadService.getFileById(fileId);
-            if (fileUpload == null) {
-                logger.warn("下载文件不存在，文件ID: {}", fileId);
-                return ResponseEntity.notFound().build();
-            }
+        // 使用FileSecurityUtils检查访问权限
+        if (!FileSecurityUtils.hasAccessPermission(fileUpload, userId)) {
+            logger.warn("用户 {} 无权限下载文件 {}", userId, fileId);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
-            // 使用FileSecurityUtils检查访问权限
-            if (!FileSecurityUtils.hasAccessPermission(fileUpload, userId)) {
-                logger.warn("用户 {} 无权限下载文件 {}", userId, fileId);
-                return ResponseEntity.notFound().build();
-            }
+        String contentType = fileUpload.getContentType() != null
+                ? fileUpload.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        String downloadName = fileUpload.getOriginalName();
+        String etagSuffix = "";
+        ImageDerivativeService.Derivative derivative = imageDerivativeService.select(fileUpload, size);
+        // 原文件可能已移入归档，由存储服务恢复
+        Path path = derivative != null ? derivative.path() : fileStorageService.resolve(fileUpload);
+        if (path == null) {
+            logger.warn("文件资源不存在，文件ID: {}", fileId);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (derivative != null) {
+            contentType = "png".equals(derivative.format()) ? MediaType.IMAGE_PNG_VALUE : MediaType.IMAGE_JPEG_VALUE;
+            downloadName = FileUtils.getFileNameWithoutExtension(downloadName) + "_"
+                    + derivative.size().name().toLowerCase() + "." + derivative.format();
+            etagSuffix = "-" + derivative.size().name().toLowerCase();
+        }
 
-            try {
-                // 使用FileUtils检查文件是否存在并获取资源
-                String filePath = fileUpload.getFilePath();
-                if (!FileUtils.fileExists(filePath)) {
-                    logger.warn("文件资源不存在，文件路径: {}", filePath);
-                    return ResponseEntity.notFound().build();
-                }
-
-                Resource resource = FileUtils.getFileResource(filePath);
-
-                logger.info("用户 {} 下载文件成功，文件ID: {}", userId, fileId);
-                return ResponseEntity.ok().contentType(MediaType.parseMediaType(fileUpload.getContentType()))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileUpload.getOriginalName() + "\"")
-                        .body(resource);
-            } catch (Exception e) {
-                logger.error("文件URL解析失败: {}", e.getMessage());
-                return ResponseEntity.badRequest().build();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            logger.warn("文件资源不存在，文件路径: {}", path);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Instant lastModified = attributes.lastModifiedTime().toInstant();
+        String cacheControl = Boolean.TRUE.equals(fileUpload.getIsPublic())
+                ? "public, max-age=3600" : "private, no-cache";
+        String contentHash = fileUpload.getContentHash() != null ? fileUpload.getContentHash() + etagSuffix : null;
+        RangeDownloadUtils.DownloadTarget target = new RangeDownloadUtils.DownloadTarget(path, attributes.size(),
+                contentType, downloadName,
+                RangeDownloadUtils.buildEtag(contentHash, attributes.size(), lastModified),
+                lastModified, cacheControl);
+        try {
+            RangeDownloadUtils.serve(request, response, target);
+            logger.debug("用户 {} 下载文件，文件ID: {}, 状态: {}", userId, fileId, response.getStatus());
+            if (Boolean.TRUE.equals(fileUpload.getIsPublic()) && response.getStatus() == HttpServletResponse.SC_OK) {
+                publicFileCacheService.offer(cacheKey, fileId, target);
             }
-        } catch (Exception e) {
-            logger.error("下载文件失败: {}", e.getMessage());
-            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            // 多数情况是客户端中途断开，例如播放器拖动进度条
+            logger.debug("文件传输中断，文件ID: {}, 原因: {}", fileId, e.getMessage());
         }
     }
 
@@ -299,16 +445,12 @@ public class FileUploadController extends BaseController {
     }
 
     @GetMapping("/api/files/stats")
-    @Operation(summary = "获取用户文件统计")
-    public ResponseEntity<BaseResponse<FileStats>> getUserFileStats(Authentication authentication) {
+    @Operation(summary = "获取用户文件统计", description = "文件数和大小读取自存储用量计数，同时返回配额")
+    public ResponseEntity<BaseResponse<StorageUsage>> getUserFileStats(Authentication authentication) {
         try {
             Long userId = getCurrentUserId(authentication);
-            User user = createUser(userId);
-            long fileCount = fileUploadService.countUserFiles(user);
-
-            FileStats stats = new FileStats();
-            stats.totalFiles = fileCount;
-            logger.info("用户 {} 获取文件统计成功，文件总数: {}", userId, fileCount);
+            StorageUsage stats = storageQuotaService.getUsage(userId);
+            logger.info("用户 {} 获取文件统计成功，文件总数: {}", userId, stats.getTotalFiles());
             return super.success("获取成功", stats);
         } catch (Exception e) {
             logger.error("获取文件统计失败: {}", e.getMessage());
@@ -316,6 +458,18 @@ public class FileUploadController extends BaseController {
         }
     }
 
+    @GetMapping("/api/files/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "获取公开文件缓存统计", description = "命中率、占用空间以及接纳、拒绝和淘汰次数")
+    public ResponseEntity<BaseResponse<FileCacheStats>> getFileCacheStats() {
+        try {
+            return super.success("获取成功", publicFileCacheService.getStats());
+        } catch (Exception e) {
+            logger.error("获取文件缓存统计失败: {}", e.getMessage());
+            return super.failure("获取文件缓存统计失败: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/api/files/entity/{entityType}/{entityId}/{fileType}")
     @Operation(summary = "根据实体类型、ID和文件类型获取文件")
     public ResponseEntity<BaseResponse<List<FileUpload>>> getEntityFilesByFileType(@PathVariable String entityType, @PathVariable Long entityId, @PathVariable String fileType) {
@@ -386,12 +540,4 @@ public class FileUploadController extends BaseController {
         user.setId(userId);
         return user;
     }
-
-    /**
-     * 文件统计信息
-     */
-    @Data
-    public static class FileStats {
-        private long totalFiles;
-    }
 }
\ No newline at end of file
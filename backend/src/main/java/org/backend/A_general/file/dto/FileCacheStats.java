@@ -0,0 +1,46 @@
+package org.backend.A_general.file.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 公开文件内存缓存统计DTO
+ * 用于观察缓存命中率和淘汰情况，调整容量和单文件上限
+ */
+@Data
+@Schema(description = "公开文件内存缓存统计DTO")
+public class FileCacheStats {
+
+    @Schema(description = "缓存是否启用")
+    private boolean enabled;
+
+    @Schema(description = "缓存容量（字节）")
+    private long capacityBytes;
+
+    @Schema(description = "已占用的容量（字节），按页计算")
+    private long usedBytes;
+
+    @Schema(description = "缓存的文件数")
+    private long entries;
+
+    @Schema(description = "命中次数")
+    private long hits;
+
+    @Schema(description = "未命中次数")
+    private long misses;
+
+    @Schema(description = "命中率")
+    private double hitRatio;
+
+    @Schema(description = "被接纳进入缓存的文件数")
+    private long admissions;
+
+    @Schema(description = "因访问频率低于淘汰对象而被拒绝的文件数")
+    private long rejections;
+
+    @Schema(description = "为腾出空间被淘汰的文件数")
+    private long evictions;
+
+    @Schema(description = "过期或被删除而移出缓存的文件数")
+    private long invalidations;
+}
@@ -0,0 +1,35 @@
+package org.backend.A_general.file.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.backend.entity.enums.FileType;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 用户存储用量DTO
+ * 配额为0表示不限制
+ */
+@Data
+@Schema(description = "用户存储用量DTO")
+public class StorageUsage {
+
+    @Schema(description = "文件总数")
+    private long totalFiles;
+
+    @Schema(description = "文件总大小（字节）")
+    private long totalBytes;
+
+    @Schema(description = "存储空间配额（字节）")
+    private long quotaBytes;
+
+    @Schema(description = "文件数配额")
+    private long quotaFiles;
+
+    @Schema(description = "按文件类型统计的文件数")
+    private Map<FileType, Long> filesByType = new EnumMap<>(FileType.class);
+
+    @Schema(description = "按文件类型统计的文件大小（字节）")
+    private Map<FileType, Long> bytesByType = new EnumMap<>(FileType.class);
+}
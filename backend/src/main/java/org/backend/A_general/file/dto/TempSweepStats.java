@@ -0,0 +1,42 @@
+package org.backend.A_general.file.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 临时上传文件清理统计DTO
+ * 累计值从服务启动开始计算
+ */
+@Data
+@Schema(description = "临时上传文件清理统计DTO")
+public class TempSweepStats {
+
+    @Schema(description = "清理是否启用")
+    private boolean enabled;
+
+    @Schema(description = "过期时间（分钟）")
+    private long expiryMinutes;
+
+    @Schema(description = "累计回收的字节数")
+    private long reclaimedBytes;
+
+    @Schema(description = "累计删除的过期上传数")
+    private long removedUploads;
+
+    @Schema(description = "累计删除的文件数")
+    private long removedFiles;
+
+    @Schema(description = "累计检查的上传数")
+    private long scannedUploads;
+
+    @Schema(description = "最近一次清理开始时间")
+    private LocalDateTime lastRunAt;
+
+    @Schema(description = "最近一次清理耗时（毫秒）")
+    private long lastRunMillis;
+
+    @Schema(description = "最近一次清理回收的字节数")
+    private long lastRunReclaimedBytes;
+}
@@ -0,0 +1,56 @@
+package org.backend.A_general.file.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.backend.A_general.base.entity.BaseEntity;
+
+import java.time.LocalDateTime;
+
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Entity
+@Table(name = "file_blobs")
+@Schema(description = "按内容寻址存储的文件数据")
+public class FileBlob extends BaseEntity {
+
+    @Column(name = "content_hash", nullable = false, unique = true, length = 64)
+    @Schema(description = "文件内容SHA-256哈希 (十六进制)")
+    private String contentHash;
+
+    @Column(name = "file_path", nullable = false)
+    @Schema(description = "文件路径")
+    private String filePath;
+
+    @Column(name = "file_size", nullable = false)
+    @Schema(description = "文件大小 (字节)")
+    private Long fileSize;
+
+    @Column(name = "ref_count", nullable = false)
+    @Schema(description = "引用该数据的文件记录数")
+    private Integer refCount;
+
+    @Column(name = "last_accessed_at")
+    @Schema(description = "最近一次下载时间，按批写入")
+    private LocalDateTime lastAccessedAt;
+
+    @Column(name = "archive_segment", length = 64)
+    @Schema(description = "归档段文件名，未归档时为空")
+    private String archiveSegment;
+
+    @Column(name = "archive_offset")
+    @Schema(description = "在归档段中的起始位置")
+    private Long archiveOffset;
+
+    @Column(name = "archive_length")
+    @Schema(description = "在归档段中压缩后的长度")
+    private Long archiveLength;
+
+    @Column(name = "archived_at")
+    @Schema(description = "移入归档的时间，原文件存在时为空")
+    private LocalDateTime archivedAt;
+
+}
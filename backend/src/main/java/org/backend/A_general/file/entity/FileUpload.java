@@ -44,6 +44,14 @@ public class FileUpload extends BaseEntity {
     @Schema(description = "内容类型")
     private String contentType;
 
+    @Column(name = "content_hash", length = 64)
+    @Schema(description = "文件内容SHA-256哈希 (十六进制)")
+    private String contentHash;
+
+    @Column(name = "derivatives")
+    @Schema(description = "已生成的图片衍生尺寸，逗号分隔，格式为 尺寸:宽x高:格式，如 CARD:480x360:jpg")
+    private String derivatives;
+
     @Column(name = "entity_type")
     @Schema(description = "关联实体类型")
     private String entityType;
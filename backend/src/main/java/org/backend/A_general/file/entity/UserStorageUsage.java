@@ -0,0 +1,38 @@
+package org.backend.A_general.file.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.backend.A_general.base.entity.BaseEntity;
+import org.backend.entity.enums.FileType;
+
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Entity
+@Table(name = "user_storage_usage", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "file_type"}))
+@Schema(description = "用户存储用量，由Redis计数定期写入")
+public class UserStorageUsage extends BaseEntity {
+
+    @Column(name = "user_id", nullable = false)
+    @Schema(description = "用户ID")
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "file_type", nullable = false, length = 50)
+    @Schema(description = "文件类型")
+    private FileType fileType;
+
+    @Column(name = "file_count", nullable = false)
+    @Schema(description = "文件数")
+    private Long fileCount = 0L;
+
+    @Column(name = "total_bytes", nullable = false)
+    @Schema(description = "文件总大小 (字节)")
+    private Long totalBytes = 0L;
+}
@@ -0,0 +1,85 @@
+package org.backend.A_general.file.repository;
+
+import org.backend.A_general.base.repository.BaseRepository;
+import org.backend.A_general.file.entity.FileBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FileBlobRepository extends BaseRepository<FileBlob, Long> {
+
+    Optional<FileBlob> findByContentHash(String contentHash);
+
+    boolean existsByContentHashAndFileSize(String contentHash, Long fileSize);
+
+    /**
+     * 新增数据记录，已存在时引用计数加一
+     * 语句会锁定该行直到事务结束，与释放引用互斥
+     *
+     * @return 1表示新增，2表示已存在
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO file_blobs (content_hash, file_path, file_size, ref_count, created_at, updated_at) " +
+            "VALUES (:contentHash, :filePath, :fileSize, 1, NOW(), NOW()) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, updated_at = NOW()", nativeQuery = true)
+    int upsertReference(@Param("contentHash") String contentHash, @Param("filePath") String filePath,
+                        @Param("fileSize") Long fileSize);
+
+    /**
+     * 大小一致时为已有数据增加一个引用
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount + 1, b.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE b.contentHash = :contentHash AND b.fileSize = :fileSize")
+    int incrementReference(@Param("contentHash") String contentHash, @Param("fileSize") Long fileSize);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount - 1, b.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE b.contentHash = :contentHash AND b.refCount > 0")
+    int decrementReference(@Param("contentHash") String contentHash);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM FileBlob b WHERE b.contentHash = :contentHash AND b.refCount = 0")
+    int deleteUnreferenced(@Param("contentHash") String contentHash);
+
+    /**
+     * 按ID顺序查找长时间未被下载且尚未归档的数据，从未下载过的按创建时间判断
+     */
+    @Query("SELECT b FROM FileBlob b WHERE b.id > :afterId AND b.archivedAt IS NULL AND b.refCount > 0 " +
+            "AND COALESCE(b.lastAccessedAt, b.createdAt) < :cutoff ORDER BY b.id")
+    List<FileBlob> findColdBlobs(@Param("afterId") Long afterId, @Param("cutoff") LocalDateTime cutoff,
+                                 Pageable pageable);
+
+    long countByArchiveSegment(String archiveSegment);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.lastAccessedAt = :accessedAt WHERE b.contentHash IN :contentHashes")
+    int updateLastAccessed(@Param("contentHashes") Collection<String> contentHashes,
+                           @Param("accessedAt") LocalDateTime accessedAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.archiveSegment = :segment, b.archiveOffset = :offset, " +
+            "b.archiveLength = :length, b.archivedAt = :archivedAt WHERE b.contentHash = :contentHash")
+    int markArchived(@Param("contentHash") String contentHash, @Param("segment") String segment,
+                     @Param("offset") Long offset, @Param("length") Long length,
+                     @Param("archivedAt") LocalDateTime archivedAt);
+
+    /**
+     * 原文件已恢复，保留归档位置，再次归档时直接删除原文件
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.archivedAt = NULL, b.lastAccessedAt = :accessedAt WHERE b.contentHash = :contentHash")
+    int markRestored(@Param("contentHash") String contentHash, @Param("accessedAt") LocalDateTime accessedAt);
+}
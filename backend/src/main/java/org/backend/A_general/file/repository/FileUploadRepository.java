@@ -5,9 +5,11 @@ import org.backend.entity.enums.FileType;
 import org.backend.A_general.file.entity.FileUpload;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -34,5 +36,48 @@ public interface FileUploadRepository extends BaseRepository<FileUpload, Long> {
 
     long countByUserIdAndDeletedFalse(Long userId);
 
+    @Query("SELECT COALESCE(SUM(f.fileSize), 0) FROM FileUpload f WHERE f.userId = :userId AND f.deleted = false")
+    long sumFileSizeByUserId(@Param("userId") Long userId);
+
+    /**
+     * 按文件类型统计用户的文件数和总大小
+     *
+     * @return 每行依次为文件类型、文件数、总大小
+     */
+    @Query("SELECT f.fileType, COUNT(f), COALESCE(SUM(f.fileSize), 0) FROM FileUpload f " +
+            "WHERE f.userId = :userId AND f.deleted = false GROUP BY f.fileType")
+    List<Object[]> sumUsageByUserId(@Param("userId") Long userId);
+
     long countByEntityTypeAndEntityIdAndDeletedFalse(String entityType, Long entityId);
-}
\ No newline at end of file
+
+    /**
+     * 判断用户能否引用指定内容：用户自己已有该内容的文件，或该内容已有公开的文件
+     */
+    @Query("SELECT COUNT(f) > 0 FROM FileUpload f WHERE f.contentHash = :contentHash AND f.fileSize = :fileSize " +
+            "AND f.deleted = false AND (f.userId = :userId OR f.isPublic = true)")
+    boolean existsReferenceableContent(@Param("contentHash") String contentHash, @Param("fileSize") long fileSize,
+                                       @Param("userId") Long userId);
+
+    /**
+     * 查找同一内容已生成衍生图片的文件记录，用于复用衍生图片
+     */
+    FileUpload findFirstByContentHashAndDerivativesIsNotNull(String contentHash);
+
+    /**
+     * 记录文件的图片衍生尺寸，由后台任务调用
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.derivatives = :derivatives WHERE f.id = :id")
+    int updateDerivatives(@Param("id") Long id, @Param("derivatives") String derivatives);
+
+    /**
+     * 按ID顺序查找数据存储之前上传的文件，这些文件没有内容哈希，直接存放在上传根目录
+     */
+    @Query("SELECT f FROM FileUpload f WHERE f.id > :afterId AND f.contentHash IS NULL AND f.deleted = false ORDER BY f.id")
+    List<FileUpload> findLegacyFiles(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.filePath = :filePath, f.contentHash = :contentHash WHERE f.id = :id")
+    int updateStorage(@Param("id") Long id, @Param("filePath") String filePath, @Param("contentHash") String contentHash);
+}
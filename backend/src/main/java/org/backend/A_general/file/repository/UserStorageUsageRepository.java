@@ -0,0 +1,34 @@
+package org.backend.A_general.file.repository;
+
+import org.backend.A_general.base.repository.BaseRepository;
+import org.backend.A_general.file.entity.UserStorageUsage;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface UserStorageUsageRepository extends BaseRepository<UserStorageUsage, Long> {
+
+    List<UserStorageUsage> findByUserId(Long userId);
+
+    /**
+     * 写入用户某类文件的用量，已存在时覆盖
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO user_storage_usage (user_id, file_type, file_count, total_bytes, created_at, updated_at) " +
+            "VALUES (:userId, :fileType, :fileCount, :totalBytes, NOW(), NOW()) " +
+            "ON DUPLICATE KEY UPDATE file_count = VALUES(file_count), total_bytes = VALUES(total_bytes), updated_at = NOW()",
+            nativeQuery = true)
+    int upsert(@Param("userId") Long userId, @Param("fileType") String fileType,
+               @Param("fileCount") long fileCount, @Param("totalBytes") long totalBytes);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserStorageUsage u WHERE u.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -28,23 +28,68 @@ public interface ChunkUploadService extends BaseService<FileUpload, Long> {
      * @param fileName 文件名
      * @param fileSize 文件大小
      * @param fileType 文件类型
+     * @param userId 上传用户ID
      * @return 是否上传成功
+     * @throws org.backend.A_general.base.exception.BusinessException 超过存储配额，或上传属于其他用户
      */
     boolean uploadChunk(MultipartFile chunk, String fileId, int chunkIndex, int totalChunks,
-                       String fileName, long fileSize, String fileType);
+                       String fileName, long fileSize, String fileType, Long userId);
 
     /**
-     * 合并文件块
+     * 上传文件块，指定分块大小时直接写入预分配文件的对应位置，分块可以并行上传，合并时无需复制数据。
+     * 上传的第一个分块写入之前按声明的文件大小预留配额，合并或清理时转为文件用量或释放
+     * @param chunk 文件块
+     * @param fileId 文件唯一标识
+     * @param chunkIndex 当前块索引
+     * @param totalChunks 总块数
+     * @param fileName 文件名
+     * @param fileSize 文件大小
+     * @param fileType 文件类型
+     * @param chunkSize 分块大小（最后一块除外），为null时按独立分块文件保存
+     * @param checksum 分块校验和，格式为"crc32c:十六进制值"或"sha256:十六进制值"，为null时不校验
+     * @param userId 上传用户ID
+     * @return 是否上传成功
+     * @throws IllegalArgumentException 校验和格式错误，或分块布局与已开始的上传不一致
+     * @throws org.backend.A_general.base.exception.BusinessException 超过存储配额，或上传属于其他用户
+     */
+    boolean uploadChunk(MultipartFile chunk, String fileId, int chunkIndex, int totalChunks,
+                       String fileName, long fileSize, String fileType, Long chunkSize, String checksum,
+                       Long userId);
+
+    /**
+     * 合并文件块，按文件头识别类型后保存文件记录，上传时的配额预留转为文件用量
      * @param fileId 文件唯一标识
      * @param fileName 文件名
      * @param fileType 文件类型
+     * @param userId 上传用户ID
      * @return 合并后的文件URL
+     * @throws org.backend.A_general.base.exception.BusinessException 超过存储配额、文件内容不属于允许的类型或上传属于其他用户
      */
-    String mergeChunks(String fileId, String fileName, String fileType);
+    String mergeChunks(String fileId, String fileName, String fileType, Long userId);
 
     /**
-     * 清理文件块
+     * 合并文件块，并用整个文件的SHA-256校验内容，按文件头识别类型后保存文件记录，上传时的配额预留转为文件用量
+     * @param fileId 文件唯一标识
+     * @param fileName 文件名
+     * @param fileType 文件类型
+     * @param fileHash 客户端计算的SHA-256（十六进制），为null时不校验
+     * @param userId 上传用户ID
+     * @return 合并后的文件URL
+     * @throws org.backend.A_general.base.exception.BusinessException 超过存储配额、文件内容不属于允许的类型或上传属于其他用户
+     */
+    String mergeChunks(String fileId, String fileName, String fileType, String fileHash, Long userId);
+
+    /**
+     * 清理文件块，并释放上传时预留的配额
      * @param fileId 文件唯一标识
      */
     void cleanupChunks(String fileId);
+
+    /**
+     * 由上传用户取消上传，清理文件块并释放上传时预留的配额
+     * @param fileId 文件唯一标识
+     * @param userId 当前用户ID
+     * @throws org.backend.A_general.base.exception.ForbiddenException 上传属于其他用户
+     */
+    void cleanupChunks(String fileId, Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package org.backend.A_general.file.service;
+
+import org.backend.A_general.file.entity.FileUpload;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 文本文档索引服务接口
+ * 文本文件上传后在后台生成旁路索引（行偏移和三字节组索引），搜索、预览和统计行数时直接使用
+ */
+public interface DocumentIndexService {
+
+    /**
+     * 提交索引生成任务，非文本文件、文件过大或队列已满时不生成
+     *
+     * @param fileUpload 已保存的文件记录
+     * @return 完成后得到是否生成了索引
+     */
+    CompletableFuture<Boolean> index(FileUpload fileUpload);
+}
@@ -0,0 +1,52 @@
+package org.backend.A_general.file.service;
+
+import org.backend.A_general.base.service.BaseService;
+import org.backend.A_general.file.entity.FileBlob;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 文件数据存储服务接口
+ * 文件数据按内容哈希存储，内容相同的文件记录共用一份数据，最后一个引用释放时删除数据
+ */
+public interface FileBlobService extends BaseService<FileBlob, Long> {
+
+    /**
+     * 保存已写入临时文件的数据并增加一个引用，数据已存在时丢弃临时文件
+     *
+     * @param tempFile    临时文件
+     * @param contentHash 内容SHA-256哈希
+     * @param fileSize    文件大小
+     * @return 数据的存储路径
+     * @throws IOException 移动文件失败
+     */
+    String store(Path tempFile, String contentHash, long fileSize) throws IOException;
+
+    /**
+     * 判断是否已存储指定内容的数据
+     *
+     * @param contentHash 内容SHA-256哈希
+     * @param fileSize    文件大小
+     * @return 是否已存储
+     */
+    boolean exists(String contentHash, long fileSize);
+
+    /**
+     * 为已存储的数据增加一个引用
+     *
+     * @param contentHash 内容SHA-256哈希
+     * @param fileSize    文件大小
+     * @return 数据的存储路径，数据不存在时返回null
+     */
+    String acquire(String contentHash, long fileSize);
+
+    /**
+     * 释放一个引用，最后一个引用释放时删除数据
+     *
+     * @param contentHash 内容SHA-256哈希
+     * @param filePath    文件记录保存的路径
+     * @return 路径属于数据存储并已释放时返回true，否则由调用方按普通文件处理
+     */
+    boolean release(String contentHash, String filePath);
+}
@@ -0,0 +1,35 @@
+package org.backend.A_general.file.service;
+
+import org.backend.A_general.file.entity.FileUpload;
+
+import java.nio.file.Path;
+
+/**
+ * 文件存储分层服务接口
+ * 长时间未被下载的文件数据压缩后打包进归档段，原文件删除；下载时从归档段恢复，对调用方透明。
+ * 同时负责把旧版本直接存放在上传根目录的文件迁移到按内容哈希分级存放的数据存储
+ */
+public interface FileStorageService {
+
+    /**
+     * 获取可读取的文件路径，数据已归档时先恢复，并记录本次访问
+     *
+     * @param fileUpload 文件记录
+     * @return 文件路径，文件不存在或恢复失败时返回null
+     */
+    Path resolve(FileUpload fileUpload);
+
+    /**
+     * 把超过冷数据天数未被下载的文件数据移入归档段
+     *
+     * @return 归档的文件数，已有归档在执行时返回-1
+     */
+    long archiveColdFiles();
+
+    /**
+     * 把旧版本上传的文件迁移到数据存储，计算内容哈希并按哈希分级存放
+     *
+     * @return 迁移的文件数，已有迁移在执行时返回-1
+     */
+    long migrateLegacyFiles();
+}
@@ -6,6 +6,8 @@ import org.backend.A_general.file.entity.FileUpload;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 
 public interface FileUploadService extends BaseService<FileUpload, Long> {
@@ -23,6 +25,82 @@ public interface FileUploadService extends BaseService<FileUpload, Long> {
      */
     FileUpload uploadFile(MultipartFile file, String entityType, Long entityId, boolean isPublic, User user) throws IOException;
 
+    /**
+     * 上传文件，并用客户端计算的SHA-256校验内容
+     *
+     * @param file         文件对象
+     * @param entityType   关联实体类型
+     * @param entityId     关联实体ID
+     * @param isPublic     是否公开
+     * @param user         用户对象
+     * @param expectedHash 客户端计算的SHA-256（十六进制），为null时不校验
+     * @return 上传的文件信息
+     * @throws IOException IO异常
+     */
+    FileUpload uploadFile(MultipartFile file, String entityType, Long entityId, boolean isPublic, User user,
+                          String expectedHash) throws IOException;
+
+    /**
+     * 流式上传文件，请求体直接写入存储，写入过程中计算哈希并检查大小和文件头
+     *
+     * @param in            请求体输入流
+     * @param contentLength 请求声明的长度，未知时为-1
+     * @param originalName  原始文件名
+     * @param contentType   文件MIME类型
+     * @param entityType    关联实体类型
+     * @param entityId      关联实体ID
+     * @param isPublic      是否公开
+     * @param user          用户对象
+     * @param expectedHash  客户端计算的SHA-256，为空时不校验
+     * @return 上传的文件信息
+     */
+    FileUpload uploadStream(InputStream in, long contentLength, String originalName, String contentType,
+                            String entityType, Long entityId, boolean isPublic, User user, String expectedHash);
+
+    /**
+     * 保存已完整接收到临时文件的上传，例如合并后的分块上传：按文件头识别类型，登记存储并保存文件记录。
+     * 调用前必须已在配额中预留1个文件和fileSize字节，失败时释放该预留
+     *
+     * @param tempPath     临时文件路径，成功时移入存储
+     * @param fileSize     文件大小
+     * @param contentHash  十六进制的SHA-256
+     * @param originalName 原始文件名
+     * @param contentType  客户端声明的MIME类型
+     * @param user         用户对象
+     * @return 上传的文件信息
+     * @throws org.backend.A_general.base.exception.BusinessException 文件内容不属于允许的类型
+     */
+    FileUpload saveReceivedFile(Path tempPath, long fileSize, String contentHash, String originalName,
+                                String contentType, User user);
+
+    /**
+     * 判断用户能否秒传指定内容，客户端据此决定是否需要上传数据
+     * 只有用户自己已有该内容的文件，或该内容已有公开的文件时才返回true，不透露其他用户的私有文件是否存在
+     *
+     * @param contentHash 文件内容SHA-256哈希
+     * @param fileSize    文件大小
+     * @param userId      用户ID
+     * @return 是否可以秒传
+     */
+    boolean hasContent(String contentHash, long fileSize, Long userId);
+
+    /**
+     * 引用已存储的内容创建文件记录，不需要上传数据
+     * 只知道哈希和大小不能证明持有内容，因此只允许引用用户自己已有的内容或已公开的内容
+     *
+     * @param contentHash  文件内容SHA-256哈希
+     * @param fileSize     文件大小
+     * @param originalName 原始文件名
+     * @param contentType  内容类型
+     * @param entityType   关联实体类型
+     * @param entityId     关联实体ID
+     * @param isPublic     是否公开
+     * @param user         用户对象
+     * @return 文件信息，内容不存在时返回null
+     */
+    FileUpload uploadByHash(String contentHash, long fileSize, String originalName, String contentType,
+                            String entityType, Long entityId, boolean isPublic, User user);
+
     /**
      * 根据用户获取文件列表
      *
@@ -57,6 +135,21 @@ public interface FileUploadService extends BaseService<FileUpload, Long> {
      */
     FileUpload getFileById(Long id);
 
+    /**
+     * 根据ID获取未删除文件的元数据，结果在本地缓存，供下载和条件请求使用
+     *
+     * @param id 文件ID
+     * @return 文件信息，文件不存在或已删除时返回null
+     */
+    FileUpload getFileMetadata(Long id);
+
+    /**
+     * 使文件的元数据缓存和公开文件缓存失效，文件存储位置变化后调用
+     *
+     * @param id 文件ID
+     */
+    void evictCache(Long id);
+
     /**
      * 根据用户获取文件列表
      *
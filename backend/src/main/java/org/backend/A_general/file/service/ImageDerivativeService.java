@@ -0,0 +1,50 @@
+package org.backend.A_general.file.service;
+
+import org.backend.A_general.file.entity.FileUpload;
+import org.backend.entity.enums.ImageDerivativeSize;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 图片衍生尺寸服务接口
+ * 图片上传后在后台生成头像、卡片、详情等尺寸，下载时按请求尺寸返回最接近的衍生图片
+ */
+public interface ImageDerivativeService {
+
+    /**
+     * 已生成的衍生图片
+     *
+     * @param size   衍生尺寸
+     * @param width  宽度
+     * @param height 高度
+     * @param format 图片格式
+     * @param path   文件路径
+     */
+    record Derivative(ImageDerivativeSize size, int width, int height, String format, Path path) {
+    }
+
+    /**
+     * 提交衍生图片生成任务，非图片文件或队列已满时不生成
+     *
+     * @param fileUpload 已保存的文件记录
+     * @return 完成后得到记录到文件上的衍生尺寸，未生成时为null
+     */
+    CompletableFuture<String> generate(FileUpload fileUpload);
+
+    /**
+     * 选择最接近请求尺寸的衍生图片
+     *
+     * @param fileUpload 文件记录
+     * @param size       请求尺寸，可以是尺寸名称或以像素表示的最长边
+     * @return 衍生图片，没有合适的衍生图片时返回null，由调用方返回原图
+     */
+    Derivative select(FileUpload fileUpload, String size);
+
+    /**
+     * 删除同一内容的全部衍生图片
+     *
+     * @param contentHash 内容SHA-256哈希
+     */
+    void deleteDerivatives(String contentHash);
+}
@@ -0,0 +1,58 @@
+package org.backend.A_general.file.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.backend.A_general.file.dto.FileCacheStats;
+import org.backend.A_general.file.util.RangeDownloadUtils;
+
+import java.io.IOException;
+
+/**
+ * 公开文件内存缓存服务接口
+ * 把访问频繁的小型公开文件连同响应头保存在堆外内存中，命中时不查询数据库也不读取磁盘
+ */
+public interface PublicFileCacheService {
+
+    /**
+     * 生成缓存键，只缓存原图和命名的衍生尺寸
+     *
+     * @param fileId 文件ID
+     * @param size   下载请求的尺寸参数
+     * @return 缓存键，不可缓存时返回null
+     */
+    String cacheKey(Long fileId, String size);
+
+    /**
+     * 尝试从缓存返回文件，Range请求不经过缓存
+     *
+     * @param key      缓存键
+     * @param request  HTTP请求
+     * @param response HTTP响应
+     * @return 是否已从缓存返回
+     * @throws IOException 写出响应失败
+     */
+    boolean serve(String key, HttpServletRequest request, HttpServletResponse response) throws IOException;
+
+    /**
+     * 提交从磁盘返回过的公开文件，由准入策略决定是否缓存
+     *
+     * @param key    缓存键
+     * @param fileId 文件ID
+     * @param target 下载文件
+     */
+    void offer(String key, Long fileId, RangeDownloadUtils.DownloadTarget target);
+
+    /**
+     * 移除文件的全部缓存
+     *
+     * @param fileId 文件ID
+     */
+    void invalidate(Long fileId);
+
+    /**
+     * 获取缓存统计
+     *
+     * @return 缓存统计
+     */
+    FileCacheStats getStats();
+}
@@ -0,0 +1,65 @@
+package org.backend.A_general.file.service;
+
+import org.backend.A_general.file.dto.StorageUsage;
+import org.backend.A_general.file.entity.FileUpload;
+import org.backend.entity.enums.FileType;
+
+/**
+ * 用户存储配额服务接口
+ * 按用户和文件类型维护文件数和字节数计数，上传写入数据前先在计数上预留，超过配额时拒绝；
+ * 计数保存在Redis中原子增减，定期写入数据库
+ */
+public interface StorageQuotaService {
+
+    /**
+     * 预留存储用量，超过配额时抛出异常，不做任何修改
+     *
+     * @param userId   用户ID
+     * @param fileType 文件类型
+     * @param files    文件数
+     * @param bytes    字节数
+     */
+    void reserve(Long userId, FileType fileType, long files, long bytes);
+
+    /**
+     * 立即释放预留的用量，用于写入失败的上传
+     *
+     * @param userId   用户ID
+     * @param fileType 文件类型
+     * @param files    文件数
+     * @param bytes    字节数
+     */
+    void release(Long userId, FileType fileType, long files, long bytes);
+
+    /**
+     * 当前事务回滚时释放预留的用量
+     *
+     * @param userId   用户ID
+     * @param fileType 文件类型
+     * @param files    文件数
+     * @param bytes    字节数
+     */
+    void releaseOnRollback(Long userId, FileType fileType, long files, long bytes);
+
+    /**
+     * 文件记录删除后释放其用量，在当前事务提交后生效
+     *
+     * @param fileUpload 已删除的文件记录
+     */
+    void recordDeletion(FileUpload fileUpload);
+
+    /**
+     * 获取用户的存储用量
+     *
+     * @param userId 用户ID
+     * @return 存储用量
+     */
+    StorageUsage getUsage(Long userId);
+
+    /**
+     * 把有变化的用户计数写入数据库
+     *
+     * @return 写入的用户数
+     */
+    int flush();
+}
@@ -0,0 +1,24 @@
+package org.backend.A_general.file.service;
+
+import org.backend.A_general.file.dto.TempSweepStats;
+
+/**
+ * 临时上传文件清理服务接口
+ * 删除超过system.upload.temp-file-expiry-minutes未更新的分块上传目录和未完成的上传临时文件
+ */
+public interface TempFileSweepService {
+
+    /**
+     * 执行一轮清理，每轮最多检查固定数量的上传，下一轮从上次停止的位置继续
+     *
+     * @return 本轮回收的字节数，清理未启用或已在执行时返回-1
+     */
+    long sweep();
+
+    /**
+     * 获取清理统计
+     *
+     * @return 清理统计
+     */
+    TempSweepStats getStats();
+}
@@ -1,45 +1,123 @@
 package org.backend.A_general.file.service.impl;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.backend.A_general.base.exception.BusinessException;
+import org.backend.A_general.base.exception.ForbiddenException;
 import org.backend.A_general.base.service.impl.BaseServiceImpl;
 import org.backend.A_general.file.entity.FileUpload;
 import org.backend.A_general.file.repository.FileUploadRepository;
 import org.backend.A_general.file.service.ChunkUploadService;
+import org.backend.A_general.file.service.FileUploadService;
+import org.backend.A_general.file.service.StorageQuotaService;
 import org.backend.A_general.file.util.FileUtils;
 import org.backend.A_general.file.util.FileUploadUtils;
+import org.backend.A_general.file.util.ChunkChecksum;
+import org.backend.A_general.file.util.ChunkUploadManifest;
 import org.backend.A_general.file.util.ChunkUploadUtils;
+import org.backend.entity.User;
+import org.backend.entity.enums.FileType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * 分块上传服务实现类
+ * 分块可按客户端提交的校验和边写边校验；整个文件的SHA-256在专用线程池上按分块顺序增量计算，
+ * 与后续分块的网络传输重叠，合并时只需补算尚未处理的分块
+ */
 @Service
 public class ChunkUploadServiceImpl extends BaseServiceImpl<FileUpload, Long, FileUploadRepository> implements ChunkUploadService {
 
     private static final Logger logger = LoggerFactory.getLogger(ChunkUploadServiceImpl.class);
 
+    // 计算整个文件摘要时的读取缓冲区大小
+    private static final int HASH_BUFFER_SIZE = 256 * 1024;
+
+    // 合并后的文件类型（FileType枚举基于文件用途，而非扩展名）
+    private static final FileType DEFAULT_FILE_TYPE = FileType.OTHER;
+
     @Value("${file.upload-dir:uploads}")
     private String uploadDir;
 
+    // 计算整个文件摘要的线程数
+    @Value("${file.upload.hash-threads:2}")
+    private int hashThreads;
+
+    // 摘要任务队列容量，队列满时推迟到合并时计算
+    @Value("${file.upload.hash-queue-capacity:1000}")
+    private int hashQueueCapacity;
+
+    private ThreadPoolExecutor hashExecutor;
+
+    private final FileUploadService fileUploadService;
+    private final StorageQuotaService storageQuotaService;
+
+    // 进行中的上传的增量摘要，键为文件唯一标识
+    private final Map<String, UploadHasher> hashers = new ConcurrentHashMap<>();
+
     /**
      * 构造函数
      *
      * @param fileUploadRepository 文件上传仓库
+     * @param fileUploadService    文件上传服务
+     * @param storageQuotaService  存储配额服务
      */
-    public ChunkUploadServiceImpl(FileUploadRepository fileUploadRepository) {
+    public ChunkUploadServiceImpl(FileUploadRepository fileUploadRepository, FileUploadService fileUploadService,
+                                  StorageQuotaService storageQuotaService) {
         super(fileUploadRepository);
+        this.fileUploadService = fileUploadService;
+        this.storageQuotaService = storageQuotaService;
+    }
+
+    @PostConstruct
+    public void startHashExecutor() {
+        hashExecutor = new ThreadPoolExecutor(hashThreads, hashThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(hashQueueCapacity),
+                Thread.ofPlatform().name("chunk-hash-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdownHashExecutor() {
+        hashExecutor.shutdownNow();
     }
 
     @Override
     public List<Integer> checkUploadStatus(String fileId) {
-        try {
-            Path chunkDir = getChunkDir(fileId);
+        Path chunkDir = getChunkDir(fileId);
+        try (ChunkUploadManifest manifest = ChunkUploadManifest.open(chunkDir)) {
+            if (manifest != null) {
+                return manifest.receivedChunks();
+            }
+            // 没有清单的上传按目录中的分块文件统计
             return ChunkUploadUtils.checkUploadStatus(chunkDir);
         } catch (Exception e) {
             // 记录异常但不抛出，返回空列表表示检查失败
@@ -50,11 +128,22 @@ public class ChunkUploadServiceImpl extends BaseServiceImpl<FileUpload, Long, Fi
 
     @Override
     public boolean uploadChunk(MultipartFile chunk, String fileId, int chunkIndex, int totalChunks, 
-                              String fileName, long fileSize, String fileType) {
+                              String fileName, long fileSize, String fileType, Long userId) {
+        return uploadChunk(chunk, fileId, chunkIndex, totalChunks, fileName, fileSize, fileType, null, null, userId);
+    }
+
+    @Override
+    public boolean uploadChunk(MultipartFile chunk, String fileId, int chunkIndex, int totalChunks,
+                              String fileName, long fileSize, String fileType, Long chunkSize, String checksum,
+                              Long userId) {
         if (chunk == null || chunk.isEmpty()) {
             return false;
         }
+        // 校验和格式错误时直接抛出，由调用方返回具体原因
+        ChunkChecksum chunkChecksum = ChunkChecksum.parse(checksum);
 
+        long reservedBytes = Math.max(fileSize, 0);
+        boolean reserved = false;
         try {
             // 验证文件类型
             if (!FileUploadUtils.isAllowedFileType(chunk.getContentType())) {
@@ -68,56 +157,349 @@ public class ChunkUploadServiceImpl extends BaseServiceImpl<FileUpload, Long, Fi
                 return false;
             }
 
-            // 保存分块文件
             Path chunkDir = getChunkDir(fileId);
-            return ChunkUploadUtils.saveChunk(chunk, chunkDir, chunkIndex);
+            if (chunkSize != null && (chunkSize <= 0 || fileSize <= 0
+                    || ChunkUploadUtils.calculateChunkCount(fileSize, chunkSize) != totalChunks)) {
+                // 直接写入模式，分块布局必须与声明的文件大小一致
+                logger.warn("分块布局无效: 文件大小 {}, 分块大小 {}, 总分块数: {}", fileSize, chunkSize, totalChunks);
+                return false;
+            }
+
+            // 新的上传在写入任何数据之前按声明的文件大小预留配额，超过配额时直接拒绝
+            if (!Files.exists(chunkDir.resolve(ChunkUploadManifest.MANIFEST_FILE))) {
+                storageQuotaService.reserve(userId, DEFAULT_FILE_TYPE, 1, reservedBytes);
+                reserved = true;
+            }
+
+            // 每个分块的布局都要与上传清单中记录的一致，不允许在同一上传中混用不同的布局
+            try (ChunkUploadManifest manifest = ChunkUploadManifest.openOrCreate(
+                    chunkDir, totalChunks, chunkSize != null ? chunkSize : 0, fileSize)) {
+                if (manifest == null) {
+                    throw new IllegalArgumentException("分块布局与已开始的上传不一致");
+                }
+                if (reserved && manifest.isCreated()) {
+                    // 预留记入上传目录后由合并或清理负责释放
+                    writeReservation(chunkDir, new Reservation(userId, reservedBytes));
+                    reserved = false;
+                }
+                checkOwner(chunkDir, userId);
+                if (manifest.isReceived(chunkIndex)) {
+                    // 重复上传的分块不再写入
+                    logger.info("分块已上传，跳过: {} 块 {}", fileId, chunkIndex);
+                    return true;
+                }
+
+                // 保存分块，写入完成后再记入清单，状态查询只会看到完整的分块
+                boolean saved = chunkSize != null
+                        ? ChunkUploadUtils.writeChunkAt(chunk, chunkDir, chunkIndex, chunkSize, fileSize, manifest.isCreated(), chunkChecksum)
+                        : ChunkUploadUtils.saveChunk(chunk, chunkDir, chunkIndex, chunkChecksum);
+                if (saved && manifest.markReceived(chunkIndex)) {
+                    scheduleHash(fileId, chunkDir);
+                }
+                return saved;
+            }
+        } catch (IllegalArgumentException | BusinessException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("上传文件块时发生错误: {}", e.getMessage(), e);
             return false;
+        } finally {
+            if (reserved) {
+                // 其他请求已创建该上传，或者记录预留失败
+                storageQuotaService.release(userId, DEFAULT_FILE_TYPE, 1, reservedBytes);
+            }
         }
     }
 
     @Override
-    public String mergeChunks(String fileId, String fileName, String fileType) {
+    public String mergeChunks(String fileId, String fileName, String fileType, Long userId) {
+        return mergeChunks(fileId, fileName, fileType, null, userId);
+    }
+
+    /**
+     * 合并和计算摘要期间不开启事务，大文件合并不会长时间占用数据库连接；
+     * 类型识别、登记存储和保存记录交给文件上传服务，与普通上传走同一流程
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String mergeChunks(String fileId, String fileName, String fileType, String fileHash, Long userId) {
+        Path chunkDir = getChunkDir(fileId);
+        // 先合并到临时文件，保存成功后移入存储
+        Path tempPath = Paths.get(uploadDir, FileUploadServiceImpl.TEMP_UPLOAD_DIR, UUID.randomUUID().toString());
+        // 直接写入模式的数据移出分块目录之后，清单与数据不再一致，失败时只能放弃整个上传
+        boolean committed = false;
         try {
-            Path chunkDir = getChunkDir(fileId);
-            
-            // 创建目标文件
-            String fileExtension = FileUtils.getFileExtension(fileName);
-            String uniqueFileName = fileId + (!fileExtension.isEmpty() ? "." + fileExtension : "");
-            
-            // 确保上传目录存在
-            FileUtils.createDirectory(uploadDir);
-            
-            String targetFilePath = Paths.get(uploadDir, uniqueFileName).toString();
-
-            // 合并文件块
-            boolean mergeSuccess = ChunkUploadUtils.mergeChunks(chunkDir, targetFilePath);
-            if (!mergeSuccess) {
-                throw new IOException("文件块合并失败");
-            }
-
-            // 清理临时文件块
-            ChunkUploadUtils.cleanupChunks(chunkDir);
+            checkOwner(chunkDir, userId);
+            Files.createDirectories(tempPath.getParent());
+            String tempFilePath = tempPath.toString();
+
+            String contentHash;
+            Reservation reservation;
+            try (ChunkUploadManifest manifest = ChunkUploadManifest.open(chunkDir)) {
+                if (manifest != null && !manifest.isComplete()) {
+                    throw new IOException("文件块不完整: 已收到 " + manifest.receivedCount() + "/" + manifest.getTotalChunks());
+                }
+                // 没有预留记录的旧上传在移动数据之前补充预留
+                reservation = ensureReservation(chunkDir, userId, manifest != null ? manifest.getFileSize() : 0);
+
+                // 补算尚未处理的分块，得到整个文件的摘要
+                contentHash = manifest != null ? finishHash(fileId, chunkDir, manifest) : null;
+                if (contentHash != null && fileHash != null && !contentHash.equalsIgnoreCase(fileHash)) {
+                    throw new IOException("文件校验失败，内容已损坏");
+                }
+
+                // 直接写入模式只需落盘并重命名，否则合并文件块
+                boolean mergeSuccess;
+                if (manifest != null && manifest.getChunkSize() > 0) {
+                    mergeSuccess = ChunkUploadUtils.commitDirectUpload(chunkDir, tempFilePath, manifest.getFileSize());
+                    committed = mergeSuccess;
+                } else {
+                    mergeSuccess = ChunkUploadUtils.mergeChunks(chunkDir, tempFilePath);
+                }
+                if (!mergeSuccess) {
+                    throw new IOException("文件块合并失败");
+                }
+                // 分块文件模式无法逐块校验大小，合并后按清单中声明的文件大小校验
+                if (manifest != null && manifest.getChunkSize() == 0 && manifest.getFileSize() > 0
+                        && Files.size(tempPath) != manifest.getFileSize()) {
+                    throw new IOException("合并后的文件大小与声明的不一致");
+                }
+            }
 
-            // 返回文件路径（实际应用中应该返回完整的访问URL）
-            return targetFilePath;
+            // 没有清单的旧上传在合并后计算摘要
+            if (contentHash == null) {
+                contentHash = hashFile(tempPath);
+                if (fileHash != null && !fileHash.equalsIgnoreCase(contentHash)) {
+                    throw new IOException("文件校验失败，内容已损坏");
+                }
+            }
+            logger.info("文件块合并完成: {}, SHA-256: {}", fileId, contentHash);
+
+            // 接管上传时的预留，此后无论成功与否都删除分块目录；
+            // 先删除预留记录，与并发的清理之间只有一方能够释放
+            Files.delete(chunkDir.resolve(ChunkUploadUtils.RESERVATION_FILE));
+            try {
+                long fileSize = Files.size(tempPath);
+                adjustReservation(reservation, fileSize);
+                User user = new User();
+                user.setId(userId);
+                FileUpload saved = fileUploadService.saveReceivedFile(tempPath, fileSize, contentHash, fileName,
+                        fileType, user);
+                // 返回文件路径（实际应用中应该返回完整的访问URL）
+                return saved.getFilePath();
+            } finally {
+                // 清单已在上面关闭并解除映射，再清理临时文件块
+                ChunkUploadUtils.cleanupChunks(chunkDir);
+            }
         } catch (IOException e) {
+            if (committed) {
+                cleanupChunks(fileId);
+            }
             logger.error("合并文件块时发生错误: {}", e.getMessage(), e);
             return null;
+        } catch (RuntimeException e) {
+            if (committed) {
+                cleanupChunks(fileId);
+            }
+            throw e;
+        } finally {
+            FileUtils.deleteFile(tempPath.toString());
         }
     }
 
     @Override
     public void cleanupChunks(String fileId) {
         try {
+            hashers.remove(fileId);
             Path chunkDir = getChunkDir(fileId);
+            // 先删除预留记录再释放，同一预留不会被释放两次
+            Reservation reservation = readReservation(chunkDir);
+            if (reservation != null && Files.deleteIfExists(chunkDir.resolve(ChunkUploadUtils.RESERVATION_FILE))) {
+                storageQuotaService.release(reservation.userId(), DEFAULT_FILE_TYPE, 1, reservation.bytes());
+            }
             ChunkUploadUtils.cleanupChunks(chunkDir);
         } catch (Exception ignored) {
             // 忽略清理过程中的异常
         }
     }
 
+    @Override
+    public void cleanupChunks(String fileId, Long userId) {
+        checkOwner(getChunkDir(fileId), userId);
+        cleanupChunks(fileId);
+    }
+
+    /**
+     * 上传已记录所属用户时，只允许该用户继续操作
+     */
+    private void checkOwner(Path chunkDir, Long userId) {
+        Reservation reservation = readReservation(chunkDir);
+        if (reservation != null && !reservation.userId().equals(userId)) {
+            throw new ForbiddenException("无权操作该上传");
+        }
+    }
+
+    /**
+     * 返回上传的配额预留，没有记录时按给定大小预留并记录
+     */
+    private Reservation ensureReservation(Path chunkDir, Long userId, long fileSize) throws IOException {
+        Reservation reservation = readReservation(chunkDir);
+        if (reservation != null) {
+            return reservation;
+        }
+        storageQuotaService.reserve(userId, DEFAULT_FILE_TYPE, 1, fileSize);
+        reservation = new Reservation(userId, fileSize);
+        try {
+            writeReservation(chunkDir, reservation);
+        } catch (IOException e) {
+            storageQuotaService.release(userId, DEFAULT_FILE_TYPE, 1, fileSize);
+            throw e;
+        }
+        return reservation;
+    }
+
+    /**
+     * 按合并后的实际大小调整预留，补充预留超过配额时释放整个预留
+     */
+    private void adjustReservation(Reservation reservation, long fileSize) {
+        long delta = fileSize - reservation.bytes();
+        if (delta > 0) {
+            try {
+                storageQuotaService.reserve(reservation.userId(), DEFAULT_FILE_TYPE, 0, delta);
+            } catch (RuntimeException e) {
+                storageQuotaService.release(reservation.userId(), DEFAULT_FILE_TYPE, 1, reservation.bytes());
+                throw e;
+            }
+        } else if (delta < 0) {
+            storageQuotaService.release(reservation.userId(), DEFAULT_FILE_TYPE, 0, -delta);
+        }
+    }
+
+    private static Reservation readReservation(Path chunkDir) {
+        Path file = chunkDir.resolve(ChunkUploadUtils.RESERVATION_FILE);
+        try {
+            String[] parts = Files.readString(file).trim().split(" ");
+            return new Reservation(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("读取上传的配额预留失败: {}, {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeReservation(Path chunkDir, Reservation reservation) throws IOException {
+        Files.writeString(chunkDir.resolve(ChunkUploadUtils.RESERVATION_FILE),
+                reservation.userId() + " " + reservation.bytes());
+    }
+
+    /**
+     * 上传开始时预留的配额：所属用户和预留的字节数（文件数固定为1）
+     */
+    private record Reservation(Long userId, long bytes) {
+    }
+
+    /**
+     * 分块写入完成后提交摘要任务，同一上传同时最多只有一个任务
+     */
+    private void scheduleHash(String fileId, Path chunkDir) {
+        UploadHasher hasher = hashers.computeIfAbsent(fileId, id -> new UploadHasher(chunkDir));
+        if (!hasher.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            hashExecutor.execute(() -> runHasher(fileId, hasher));
+        } catch (RejectedExecutionException e) {
+            // 线程池繁忙，留到后续分块或合并时再计算
+            hasher.scheduled.set(false);
+        }
+    }
+
+    private void runHasher(String fileId, UploadHasher hasher) {
+        try {
+            boolean pending;
+            do {
+                try (ChunkUploadManifest manifest = ChunkUploadManifest.open(hasher.chunkDir)) {
+                    if (manifest == null) {
+                        hasher.scheduled.set(false);
+                        return;
+                    }
+                    hasher.advance(manifest);
+                    hasher.scheduled.set(false);
+                    // 释放标记后再检查一次，避免遗漏期间到达的分块
+                    pending = hasher.hasPending(manifest);
+                }
+            } while (pending && hasher.scheduled.compareAndSet(false, true));
+        } catch (Exception e) {
+            logger.warn("计算文件摘要失败，合并时重新计算: {}, {}", fileId, e.getMessage());
+            hashers.remove(fileId, hasher);
+            hasher.scheduled.set(false);
+        }
+    }
+
+    /**
+     * 补算剩余分块并返回整个文件的SHA-256
+     */
+    private String finishHash(String fileId, Path chunkDir, ChunkUploadManifest manifest) throws IOException {
+        UploadHasher hasher = hashers.remove(fileId);
+        if (hasher == null) {
+            // 服务重启或摘要任务失败过，从头计算
+            hasher = new UploadHasher(chunkDir);
+        }
+        return hasher.finish(manifest);
+    }
+
+    private String hashFile(Path path) throws IOException {
+        MessageDigest digest = newSha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 单个上传的增量摘要
+     * SHA-256只能按顺序计算，这里记录下一个待处理的分块，连续到达的分块依次累加
+     */
+    private static final class UploadHasher {
+        private final Path chunkDir;
+        private final MessageDigest digest = newSha256();
+        private final ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile int nextChunk;
+
+        private UploadHasher(Path chunkDir) {
+            this.chunkDir = chunkDir;
+        }
+
+        synchronized void advance(ChunkUploadManifest manifest) throws IOException {
+            while (nextChunk < manifest.getTotalChunks() && manifest.isReceived(nextChunk)) {
+                ChunkUploadUtils.digestChunk(chunkDir, nextChunk, manifest, digest, buffer);
+                nextChunk++;
+            }
+        }
+
+        boolean hasPending(ChunkUploadManifest manifest) {
+            return nextChunk < manifest.getTotalChunks() && manifest.isReceived(nextChunk);
+        }
+
+        synchronized String finish(ChunkUploadManifest manifest) throws IOException {
+            advance(manifest);
+            if (nextChunk < manifest.getTotalChunks()) {
+                throw new IOException("文件块不完整，缺少分块 " + nextChunk);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+    }
+
     private Path getChunkDir(String fileId) {
         // 创建临时目录存储分块文件
         return ChunkUploadUtils.getChunkDir(uploadDir, fileId);
@@ -0,0 +1,114 @@
+package org.backend.A_general.file.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.backend.A_general.file.entity.FileUpload;
+import org.backend.A_general.file.service.DocumentIndexService;
+import org.backend.A_general.file.util.DocumentIndex;
+import org.backend.A_general.file.util.DocumentUtils;
+import org.backend.A_general.file.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文本文档索引服务实现类
+ * 索引与文件数据存放在同一目录，内容相同的文件记录共用；已有有效索引时不重复生成
+ */
+@Service
+public class DocumentIndexServiceImpl implements DocumentIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentIndexServiceImpl.class);
+
+    // 生成索引的线程数
+    @Value("${file.document.index-threads:1}")
+    private int indexThreads;
+
+    // 任务队列容量，队列满时跳过生成，搜索和预览直接读取文件
+    @Value("${file.document.index-queue-capacity:200}")
+    private int indexQueueCapacity;
+
+    // 生成索引的文件大小上限（MB），搜索以内存映射方式读取，不超过2GB
+    @Value("${file.document.index-max-size-mb:64}")
+    private long indexMaxSizeMb;
+
+    // 索引块的大小（KB），越小搜索时扫描的内容越少，索引越大
+    @Value("${file.document.index-block-kb:64}")
+    private int indexBlockKb;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(indexThreads, indexThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(indexQueueCapacity),
+                Thread.ofPlatform().name("document-index-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> index(FileUpload fileUpload) {
+        if (fileUpload.getFilePath() == null || !isTextDocument(fileUpload)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        Long fileSize = fileUpload.getFileSize();
+        if (fileSize != null && fileSize > Math.min(indexMaxSizeMb * 1024 * 1024, Integer.MAX_VALUE)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        Long id = fileUpload.getId();
+        Path document = Paths.get(fileUpload.getFilePath());
+        try {
+            return CompletableFuture.supplyAsync(() -> process(id, document), executor);
+        } catch (RejectedExecutionException e) {
+            logger.warn("文档索引任务队列已满，跳过生成: 文件ID {}", id);
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    private boolean process(Long id, Path document) {
+        try {
+            if (!Files.isRegularFile(document)) {
+                return false;
+            }
+            // 同一内容已生成过时直接复用
+            if (DocumentIndex.isFresh(document)) {
+                return true;
+            }
+            long startNanos = System.nanoTime();
+            DocumentIndex.build(document, indexBlockKb * 1024);
+            logger.debug("文档索引已生成: 文件ID {}, 耗时{}ms", id, (System.nanoTime() - startNanos) / 1_000_000);
+            return true;
+        } catch (Exception e) {
+            logger.warn("生成文档索引失败: 文件ID {}, {}", id, e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean isTextDocument(FileUpload fileUpload) {
+        String contentType = fileUpload.getContentType();
+        if (contentType != null) {
+            String type = contentType.toLowerCase(Locale.ROOT);
+            if (type.startsWith("text/") || type.startsWith("application/json") || type.startsWith("application/xml")) {
+                return true;
+            }
+        }
+        String name = fileUpload.getOriginalName() != null ? fileUpload.getOriginalName() : fileUpload.getFileName();
+        return name != null && DocumentUtils.isPreviewableDocument(FileUtils.getFileExtension(name));
+    }
+}
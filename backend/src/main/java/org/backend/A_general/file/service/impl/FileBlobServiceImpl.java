@@ -0,0 +1,200 @@
+package org.backend.A_general.file.service.impl;
+
+import org.backend.A_general.base.service.impl.BaseServiceImpl;
+import org.backend.A_general.file.entity.FileBlob;
+import org.backend.A_general.file.repository.FileBlobRepository;
+import org.backend.A_general.file.service.FileBlobService;
+import org.backend.A_general.file.service.ImageDerivativeService;
+import org.backend.A_general.file.util.DocumentIndex;
+import org.backend.A_general.file.util.StorageLayoutUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 文件数据存储服务实现类
+ * 数据保存在上传目录的blobs子目录下，按哈希前两级分目录存放，数据库记录引用计数。
+ * 增加和释放引用都先锁定数据行，并发上传相同内容的请求会等待释放提交后重新写入数据。
+ * 数据文件在事务提交后才删除，新写入的数据文件在事务回滚后删除
+ */
+@Service
+public class FileBlobServiceImpl extends BaseServiceImpl<FileBlob, Long, FileBlobRepository> implements FileBlobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileBlobServiceImpl.class);
+
+    // 数据存储目录名称
+    public static final String BLOB_DIR = "blobs";
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    private final ImageDerivativeService imageDerivativeService;
+
+    public FileBlobServiceImpl(FileBlobRepository fileBlobRepository, ImageDerivativeService imageDerivativeService) {
+        super(fileBlobRepository);
+        this.imageDerivativeService = imageDerivativeService;
+    }
+
+    @Override
+    public String store(Path tempFile, String contentHash, long fileSize) throws IOException {
+        Path blobPath = blobPath(contentHash);
+        int affected = repository.upsertReference(contentHash, blobPath.toString(), fileSize);
+        if (affected == 1 || !Files.exists(blobPath)) {
+            // 新数据，或数据文件丢失、已移入归档时用本次上传的内容补齐
+            Files.createDirectories(blobPath.getParent());
+            try {
+                Files.move(tempFile, blobPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, blobPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (affected == 1) {
+                // 新记录在回滚后不存在，删除本次写入的数据文件
+                Object fileKey = fileKey(blobPath);
+                onRollback(() -> deleteBlob(contentHash, blobPath, fileKey));
+            } else {
+                repository.markRestored(contentHash, LocalDateTime.now());
+            }
+        } else {
+            Files.deleteIfExists(tempFile);
+            logger.info("文件内容已存在，复用已有数据: {}", contentHash);
+        }
+        return blobPath.toString();
+    }
+
+    @Override
+    public boolean exists(String contentHash, long fileSize) {
+        return isValidHash(contentHash) && repository.existsByContentHashAndFileSize(contentHash, fileSize);
+    }
+
+    @Override
+    public String acquire(String contentHash, long fileSize) {
+        if (!isValidHash(contentHash) || repository.incrementReference(contentHash, fileSize) == 0) {
+            return null;
+        }
+        Path blobPath = blobPath(contentHash);
+        if (!Files.exists(blobPath) && !isArchived(contentHash)) {
+            // 记录存在但数据文件丢失，回滚引用并要求客户端重新上传
+            repository.decrementReference(contentHash);
+            logger.warn("文件数据丢失: {}", blobPath);
+            return null;
+        }
+        return blobPath.toString();
+    }
+
+    @Override
+    public boolean release(String contentHash, String filePath) {
+        if (!isValidHash(contentHash) || filePath == null || !blobPath(contentHash).toString().equals(filePath)) {
+            return false;
+        }
+        if (repository.decrementReference(contentHash) == 0) {
+            logger.warn("释放文件数据引用时记录不存在: {}", contentHash);
+            return true;
+        }
+        if (repository.deleteUnreferenced(contentHash) > 0) {
+            // 事务回滚时记录恢复，数据文件必须保留，因此提交后再删除
+            Path blobPath = Paths.get(filePath);
+            Object fileKey = fileKey(blobPath);
+            afterCommit(() -> deleteBlob(contentHash, blobPath, fileKey));
+        }
+        return true;
+    }
+
+    /**
+     * 删除数据文件及其索引和派生文件。
+     * 行锁释放后，相同内容的上传可能已写入新的数据文件，文件已被替换时保留
+     */
+    private void deleteBlob(String contentHash, Path blobPath, Object fileKey) {
+        if (!Objects.equals(fileKey, fileKey(blobPath))) {
+            logger.info("文件数据已重新写入，不再删除: {}", contentHash);
+            return;
+        }
+        try {
+            Files.deleteIfExists(blobPath);
+            Files.deleteIfExists(DocumentIndex.indexPath(blobPath));
+            imageDerivativeService.deleteDerivatives(contentHash);
+            logger.info("删除文件数据: {}", contentHash);
+        } catch (IOException e) {
+            logger.error("删除文件数据失败: {}, {}", blobPath, e.getMessage());
+        }
+    }
+
+    /**
+     * 文件的唯一标识，替换文件后会改变，文件不存在或系统不支持时返回null
+     */
+    private static Object fileKey(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private boolean isArchived(String contentHash) {
+        return repository.findByContentHash(contentHash)
+                .map(blob -> blob.getArchivedAt() != null)
+                .orElse(false);
+    }
+
+    /**
+     * 哈希参与构造路径，只接受64位小写十六进制
+     */
+    private static boolean isValidHash(String contentHash) {
+        if (contentHash == null || contentHash.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < contentHash.length(); i++) {
+            char c = contentHash.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Path blobPath(String contentHash) {
+        if (!isValidHash(contentHash)) {
+            throw new IllegalArgumentException("无效的内容哈希");
+        }
+        return StorageLayoutUtils.shardedPath(Paths.get(uploadDir, BLOB_DIR), contentHash, contentHash);
+    }
+}
@@ -0,0 +1,504 @@
+package org.backend.A_general.file.service.impl;
+
+import org.backend.A_general.file.entity.FileBlob;
+import org.backend.A_general.file.entity.FileUpload;
+import org.backend.A_general.file.repository.FileBlobRepository;
+import org.backend.A_general.file.repository.FileUploadRepository;
+import org.backend.A_general.file.service.FileBlobService;
+import org.backend.A_general.file.service.FileStorageService;
+import org.backend.A_general.file.service.FileUploadService;
+import org.backend.A_general.file.util.DocumentIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 文件存储分层服务实现类
+ * 冷数据按zlib压缩后依次追加到归档段文件（archive/segment-*.pack），在段中的偏移和压缩长度记录在file_blobs，
+ * 段旁的.idx文件按行记录同样的信息，数据库记录丢失时可据此重建。
+ * 一批数据写入并落盘后才更新数据库、删除原文件；恢复时校验大小和SHA-256，通过后原子替换。
+ * 归档位置在恢复后保留，内容按哈希寻址不会变化，再次变冷时直接删除原文件；
+ * 段内所有数据都被释放后整段删除
+ */
+@Service
+public class FileStorageServiceImpl implements FileStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageServiceImpl.class);
+
+    // 归档段存储目录名称
+    public static final String ARCHIVE_DIR = "archive";
+
+    private static final String SEGMENT_SUFFIX = ".pack";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    // 按哈希分段加锁，同一数据的归档和恢复互斥
+    private static final int LOCK_STRIPES = 64;
+
+    // 每次写入数据库的访问记录数
+    private static final int ACCESS_FLUSH_BATCH = 500;
+
+    private static final DateTimeFormatter SEGMENT_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final FileBlobRepository fileBlobRepository;
+    private final FileUploadRepository fileUploadRepository;
+    private final FileBlobService fileBlobService;
+    private final FileUploadService fileUploadService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    // 超过该天数未被下载的数据移入归档
+    @Value("${file.storage.cold-after-days:90}")
+    private int coldAfterDays;
+
+    // 单个归档段的大小上限（MB），写满后新建一段
+    @Value("${file.storage.segment-max-mb:256}")
+    private long segmentMaxMb;
+
+    // 压缩级别，0-9
+    @Value("${file.storage.compression-level:6}")
+    private int compressionLevel;
+
+    // 归档和迁移每批处理的文件数
+    @Value("${file.storage.batch-size:200}")
+    private int batchSize;
+
+    // 批间暂停时间（毫秒）
+    @Value("${file.storage.batch-pause-millis:50}")
+    private long batchPauseMillis;
+
+    // 等待写入数据库的访问记录，下载时只记入内存
+    private final Set<String> pendingAccesses = ConcurrentHashMap.newKeySet();
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final AtomicBoolean archiving = new AtomicBoolean(false);
+    private final AtomicBoolean migrating = new AtomicBoolean(false);
+
+    public FileStorageServiceImpl(FileBlobRepository fileBlobRepository, FileUploadRepository fileUploadRepository,
+                                  FileBlobService fileBlobService, FileUploadService fileUploadService,
+                                  PlatformTransactionManager transactionManager) {
+        this.fileBlobRepository = fileBlobRepository;
+        this.fileUploadRepository = fileUploadRepository;
+        this.fileBlobService = fileBlobService;
+        this.fileUploadService = fileUploadService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public Path resolve(FileUpload fileUpload) {
+        if (fileUpload.getFilePath() == null || fileUpload.getFilePath().isEmpty()) {
+            return null;
+        }
+        Path path = Paths.get(fileUpload.getFilePath());
+        String contentHash = fileUpload.getContentHash();
+        if (contentHash == null) {
+            return Files.exists(path) ? path : null;
+        }
+        pendingAccesses.add(contentHash);
+        if (Files.exists(path)) {
+            return path;
+        }
+        try {
+            return restore(contentHash, path) ? path : null;
+        } catch (IOException e) {
+            logger.error("从归档恢复文件失败: {}, {}", contentHash, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 定期把内存中的访问记录写入数据库
+     */
+    @Scheduled(fixedDelayString = "${file.storage.access-flush-interval:60000}")
+    public void flushAccesses() {
+        if (pendingAccesses.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<String> batch = new ArrayList<>(ACCESS_FLUSH_BATCH);
+        Iterator<String> iterator = pendingAccesses.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            iterator.remove();
+            if (batch.size() == ACCESS_FLUSH_BATCH || !iterator.hasNext()) {
+                try {
+                    fileBlobRepository.updateLastAccessed(batch, now);
+                } catch (Exception e) {
+                    logger.warn("写入文件访问时间失败: {}", e.getMessage());
+                }
+                batch = new ArrayList<>(ACCESS_FLUSH_BATCH);
+            }
+        }
+    }
+
+    @Override
+    public long archiveColdFiles() {
+        if (!archiving.compareAndSet(false, true)) {
+            logger.warn("文件归档正在执行，跳过本次触发");
+            return -1;
+        }
+        SegmentWriter writer = null;
+        try {
+            // 先写入最近的访问记录，避免刚被下载的文件被归档
+            flushAccesses();
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(coldAfterDays);
+            logger.info("开始归档冷数据: 截止时间={}", cutoff);
+            long archived = 0;
+            long afterId = 0;
+            while (true) {
+                List<FileBlob> blobs = fileBlobRepository.findColdBlobs(afterId, cutoff, PageRequest.of(0, batchSize));
+                if (blobs.isEmpty()) {
+                    break;
+                }
+                afterId = blobs.get(blobs.size() - 1).getId();
+
+                // 先把整批写入归档段并落盘，再逐个更新记录、删除原文件
+                List<ArchivedBlob> batch = new ArrayList<>(blobs.size());
+                for (FileBlob blob : blobs) {
+                    Path source = Paths.get(blob.getFilePath());
+                    if (!Files.isRegularFile(source)) {
+                        continue;
+                    }
+                    if (blob.getArchiveSegment() != null) {
+                        batch.add(new ArchivedBlob(blob.getContentHash(), source, blob.getArchiveSegment(),
+                                blob.getArchiveOffset(), blob.getArchiveLength()));
+                        continue;
+                    }
+                    if (writer == null || writer.position >= segmentMaxMb * 1024 * 1024) {
+                        if (writer != null) {
+                            writer.close();
+                        }
+                        writer = SegmentWriter.create(archiveDir(), compressionLevel);
+                    }
+                    long offset = writer.position;
+                    writer.append(blob.getContentHash(), source, blob.getFileSize());
+                    batch.add(new ArchivedBlob(blob.getContentHash(), source, writer.name, offset,
+                            writer.position - offset));
+                }
+                if (writer != null) {
+                    writer.force();
+                }
+                LocalDateTime archivedAt = LocalDateTime.now();
+                for (ArchivedBlob entry : batch) {
+                    synchronized (lockFor(entry.contentHash)) {
+                        fileBlobRepository.markArchived(entry.contentHash, entry.segment, entry.offset,
+                                entry.length, archivedAt);
+                        Files.deleteIfExists(entry.source);
+                        // 恢复后的文件修改时间不同，原索引已失效
+                        Files.deleteIfExists(DocumentIndex.indexPath(entry.source));
+                    }
+                    archived++;
+                }
+
+                if (blobs.size() < batchSize) {
+                    break;
+                }
+                Thread.sleep(batchPauseMillis);
+            }
+            removeUnusedSegments(writer != null ? writer.name : null);
+            logger.info("冷数据归档完成: 归档数量={}", archived);
+            return archived;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("冷数据归档被中断");
+            return 0;
+        } catch (IOException e) {
+            logger.error("冷数据归档失败: {}", e.getMessage(), e);
+            return 0;
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    logger.warn("关闭归档段失败: {}", e.getMessage());
+                }
+            }
+            archiving.set(false);
+        }
+    }
+
+    @Override
+    public long migrateLegacyFiles() {
+        if (!migrating.compareAndSet(false, true)) {
+            logger.warn("文件迁移正在执行，跳过本次触发");
+            return -1;
+        }
+        try {
+            logger.info("开始迁移旧版本上传的文件");
+            long migrated = 0;
+            long afterId = 0;
+            while (true) {
+                List<FileUpload> files = fileUploadRepository.findLegacyFiles(afterId, PageRequest.of(0, batchSize));
+                if (files.isEmpty()) {
+                    break;
+                }
+                for (FileUpload file : files) {
+                    afterId = file.getId();
+                    if (migrate(file)) {
+                        migrated++;
+                    }
+                }
+                if (files.size() < batchSize) {
+                    break;
+                }
+                Thread.sleep(batchPauseMillis);
+            }
+            logger.info("旧版本文件迁移完成: 迁移数量={}", migrated);
+            return migrated;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("文件迁移被中断");
+            return 0;
+        } finally {
+            migrating.set(false);
+        }
+    }
+
+    /**
+     * 迁移单个文件：通过硬链接交给数据存储，记录更新提交后再删除原文件，
+     * 任何一步失败原文件和记录都保持不变
+     */
+    private boolean migrate(FileUpload file) {
+        Path source = file.getFilePath() != null ? Paths.get(file.getFilePath()) : null;
+        if (source == null || !Files.isRegularFile(source)) {
+            logger.warn("旧文件不存在，跳过迁移: 文件ID {}, {}", file.getId(), file.getFilePath());
+            return false;
+        }
+        Path temp = Paths.get(uploadDir, FileUploadServiceImpl.TEMP_UPLOAD_DIR, UUID.randomUUID().toString());
+        try {
+            String contentHash = hashFile(source);
+            long fileSize = Files.size(source);
+            Files.createDirectories(temp.getParent());
+            try {
+                Files.createLink(temp, source);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(source, temp);
+            }
+            String blobPath = transactionTemplate.execute(status -> {
+                try {
+                    String path = fileBlobService.store(temp, contentHash, fileSize);
+                    fileUploadRepository.updateStorage(file.getId(), path, contentHash);
+                    return path;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            fileUploadService.evictCache(file.getId());
+            if (blobPath != null && !Paths.get(blobPath).equals(source)) {
+                Files.deleteIfExists(source);
+            }
+            logger.debug("文件已迁移: 文件ID {}, {} -> {}", file.getId(), source, blobPath);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.error("迁移文件失败: 文件ID {}, {}", file.getId(), e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 临时文件由后续清理处理
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 从归档段解压到原路径，校验通过后原子替换
+     */
+    private boolean restore(String contentHash, Path target) throws IOException {
+        synchronized (lockFor(contentHash)) {
+            if (Files.exists(target)) {
+                return true;
+            }
+            FileBlob blob = fileBlobRepository.findByContentHash(contentHash).orElse(null);
+            if (blob == null || blob.getArchiveSegment() == null || !target.toString().equals(blob.getFilePath())) {
+                logger.warn("文件数据不存在且没有归档: {}", contentHash);
+                return false;
+            }
+
+            Path segment = archiveDir().resolve(blob.getArchiveSegment());
+            Path temp = target.resolveSibling(target.getFileName() + ".restore");
+            Files.createDirectories(target.getParent());
+            MessageDigest digest = newSha256();
+            long size;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                channel.position(blob.getArchiveOffset());
+                // zlib流自带结束标记，读到该段数据的末尾即停止
+                try (InputStream in = new InflaterInputStream(Channels.newInputStream(channel), new Inflater(), 65536);
+                     OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                    size = in.transferTo(out);
+                }
+            }
+            if (size != blob.getFileSize() || !contentHash.equals(HexFormat.of().formatHex(digest.digest()))) {
+                Files.deleteIfExists(temp);
+                logger.error("归档数据校验失败: {}, 段 {}", contentHash, blob.getArchiveSegment());
+                return false;
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            fileBlobRepository.markRestored(contentHash, LocalDateTime.now());
+            logger.info("文件已从归档恢复: {}", contentHash);
+            return true;
+        }
+    }
+
+    /**
+     * 删除不再被任何数据引用的归档段，跳过本次写入的段和一天内创建的段，避免与其他实例正在写入的段冲突
+     */
+    private void removeUnusedSegments(String activeSegment) throws IOException {
+        Path dir = archiveDir();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        Instant threshold = Instant.now().minus(1, ChronoUnit.DAYS);
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : segments) {
+                String name = segment.getFileName().toString();
+                if (name.equals(activeSegment)
+                        || Files.getLastModifiedTime(segment).toInstant().isAfter(threshold)
+                        || fileBlobRepository.countByArchiveSegment(name) > 0) {
+                    continue;
+                }
+                Files.deleteIfExists(segment);
+                Files.deleteIfExists(dir.resolve(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX));
+                logger.info("归档段已无引用，删除: {}", name);
+            }
+        }
+    }
+
+    private Path archiveDir() {
+        return Paths.get(uploadDir, ARCHIVE_DIR);
+    }
+
+    private Object lockFor(String contentHash) {
+        return locks[Math.floorMod(contentHash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static String hashFile(Path path) throws IOException {
+        MessageDigest digest = newSha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record ArchivedBlob(String contentHash, Path source, String segment, long offset, long length) {
+    }
+
+    /**
+     * 归档段写入器，数据依次追加，每条数据在索引文件中记录一行：哈希 偏移 压缩长度 原始大小
+     */
+    private static final class SegmentWriter implements Closeable {
+
+        final String name;
+        final FileChannel channel;
+        final BufferedWriter index;
+        final int level;
+        long position;
+
+        private SegmentWriter(String name, FileChannel channel, BufferedWriter index, int level) {
+            this.name = name;
+            this.channel = channel;
+            this.index = index;
+            this.level = level;
+        }
+
+        static SegmentWriter create(Path dir, int level) throws IOException {
+            Files.createDirectories(dir);
+            String base = "segment-" + LocalDateTime.now().format(SEGMENT_TIME_FORMAT) + "-"
+                    + UUID.randomUUID().toString().substring(0, 8);
+            FileChannel channel = FileChannel.open(dir.resolve(base + SEGMENT_SUFFIX),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            BufferedWriter index = Files.newBufferedWriter(dir.resolve(base + INDEX_SUFFIX), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            return new SegmentWriter(base + SEGMENT_SUFFIX, channel, index, level);
+        }
+
+        void append(String contentHash, Path source, long fileSize) throws IOException {
+            long offset = position;
+            Deflater deflater = new Deflater(level);
+            try (InputStream in = Files.newInputStream(source)) {
+                // 不关闭输出流，关闭会连带关闭段文件
+                DeflaterOutputStream out = new DeflaterOutputStream(Channels.newOutputStream(channel), deflater, 65536);
+                in.transferTo(out);
+                out.finish();
+                out.flush();
+            } finally {
+                deflater.end();
+            }
+            position = channel.position();
+            index.write(contentHash + " " + offset + " " + (position - offset) + " " + fileSize);
+            index.newLine();
+        }
+
+        void force() throws IOException {
+            index.flush();
+            channel.force(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                index.close();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -1,9 +1,21 @@
 package org.backend.A_general.file.service.impl;
 
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import jakarta.annotation.PostConstruct;
+import org.backend.A_general.base.config.backend.SystemProperties;
+import org.backend.A_general.base.exception.BusinessException;
 import org.backend.A_general.base.service.impl.BaseServiceImpl;
 import org.backend.A_general.file.entity.FileUpload;
 import org.backend.A_general.file.repository.FileUploadRepository;
+import org.backend.A_general.file.service.DocumentIndexService;
+import org.backend.A_general.file.service.FileBlobService;
 import org.backend.A_general.file.service.FileUploadService;
+import org.backend.A_general.file.service.ImageDerivativeService;
+import org.backend.A_general.file.service.PublicFileCacheService;
+import org.backend.A_general.file.service.StorageQuotaService;
+import org.backend.A_general.file.util.ContentSniffer;
+import org.backend.A_general.file.util.DocumentIndex;
 import org.backend.A_general.file.util.FileRepositoryUtils;
 import org.backend.A_general.file.util.FileSecurityUtils;
 import org.backend.A_general.file.util.FileUploadUtils;
@@ -13,11 +25,26 @@ import org.backend.entity.enums.FileType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class FileUploadServiceImpl extends BaseServiceImpl<FileUpload, Long, FileUploadRepository> implements FileUploadService {
@@ -25,14 +52,71 @@ public class FileUploadServiceImpl extends BaseServiceImpl<FileUpload, Long, Fil
     @Value("${file.upload-dir:uploads}")
     private String uploadDir;
 
-    public FileUploadServiceImpl(FileUploadRepository fileUploadRepository) {
+    // 单个文件大小上限（MB），流式上传在读取过程中检查
+    @Value("${system.upload.max-file-size:10}")
+    private long maxFileSizeMb;
+
+    // 文件元数据缓存容量
+    @Value("${file.download.metadata-cache-size:10000}")
+    private int metadataCacheSize;
+
+    // 文件元数据缓存有效期（秒），多实例部署时决定删除操作在其他实例上生效的最长延迟
+    @Value("${file.download.metadata-cache-ttl-seconds:300}")
+    private long metadataCacheTtlSeconds;
+
+    // 文件元数据缓存，下载和304响应不必每次查询数据库
+    private LRUCache<Long, FileUpload> metadataCache;
+
+    // 按system.upload.allowed-types编译的文件类型识别器，文件记录的类型以识别结果为准
+    private ContentSniffer contentSniffer;
+
+    private final FileBlobService fileBlobService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final PublicFileCacheService publicFileCacheService;
+    private final DocumentIndexService documentIndexService;
+    private final StorageQuotaService storageQuotaService;
+    private final SystemProperties systemProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    public FileUploadServiceImpl(FileUploadRepository fileUploadRepository, FileBlobService fileBlobService,
+                                 ImageDerivativeService imageDerivativeService,
+                                 PublicFileCacheService publicFileCacheService,
+                                 DocumentIndexService documentIndexService,
+                                 StorageQuotaService storageQuotaService,
+                                 SystemProperties systemProperties,
+                                 PlatformTransactionManager transactionManager) {
         super(fileUploadRepository);
+        this.fileBlobService = fileBlobService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.publicFileCacheService = publicFileCacheService;
+        this.documentIndexService = documentIndexService;
+        this.storageQuotaService = storageQuotaService;
+        this.systemProperties = systemProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     private static final Logger logger = LoggerFactory.getLogger(FileUploadServiceImpl.class);
 
+    // 上传过程中的临时文件目录，与数据存储目录位于同一文件系统，完成后直接移动
+    public static final String TEMP_UPLOAD_DIR = "incoming";
+
+    // 上传文件的默认类型（FileType枚举基于文件用途，而非扩展名）
+    private static final FileType DEFAULT_FILE_TYPE = FileType.OTHER;
+
+    @PostConstruct
+    public void init() {
+        metadataCache = CacheUtil.newLRUCache(metadataCacheSize, TimeUnit.SECONDS.toMillis(metadataCacheTtlSeconds));
+        contentSniffer = ContentSniffer.compile(Arrays.asList(systemProperties.getUpload().getAllowedTypes()));
+    }
+
     @Override
     public FileUpload uploadFile(MultipartFile file, String entityType, Long entityId, boolean isPublic, User user) {
+        return uploadFile(file, entityType, entityId, isPublic, user, null);
+    }
+
+    @Override
+    public FileUpload uploadFile(MultipartFile file, String entityType, Long entityId, boolean isPublic, User user,
+                                 String expectedHash) {
         if (file.isEmpty()) {
             throw new RuntimeException("文件不能为空");
         }
@@ -51,32 +135,168 @@ public class FileUploadServiceImpl extends BaseServiceImpl<FileUpload, Long, Fil
         String uniqueFileName = FileUtils.generateUniqueFileName(originalFilename);
         String safeFileName = FileUploadUtils.generateSafeFilename(uniqueFileName);
 
-        // 构建完整文件路径
-        String filePath = Paths.get(uploadDir, safeFileName).toString();
+        // 写入数据之前先在配额中预留
+        storageQuotaService.reserve(user.getId(), DEFAULT_FILE_TYPE, 1, file.getSize());
+
+        // 先写入临时文件，同时计算内容哈希（用于去重和下载的ETag）并按文件头识别实际类型
+        Path tempPath = Paths.get(uploadDir, TEMP_UPLOAD_DIR, UUID.randomUUID().toString());
+        String contentHash;
+        String filePath;
+        try (InputStream in = file.getInputStream()) {
+            FileUploadUtils.StreamedFile saved = FileUploadUtils.saveStreamWithHash(in, tempPath, Long.MAX_VALUE,
+                    contentType, contentSniffer);
+            contentHash = saved.contentHash();
+            contentType = saved.contentType();
+            if (expectedHash != null && !expectedHash.isBlank() && !contentHash.equalsIgnoreCase(expectedHash.trim())) {
+                throw new RuntimeException("文件校验失败，内容已损坏");
+            }
+            // 内容相同的文件共用一份数据
+            filePath = fileBlobService.store(tempPath, contentHash, file.getSize());
+        } catch (IOException e) {
+            storageQuotaService.release(user.getId(), DEFAULT_FILE_TYPE, 1, file.getSize());
+            throw new RuntimeException("文件保存失败", e);
+        } catch (RuntimeException e) {
+            storageQuotaService.release(user.getId(), DEFAULT_FILE_TYPE, 1, file.getSize());
+            throw e;
+        } finally {
+            FileUtils.deleteFile(tempPath.toString());
+        }
+
+        return saveRecord(user, safeFileName, originalFilename, filePath, file.getSize(), contentType, contentHash,
+                entityType, entityId, isPublic);
+    }
+
+    /**
+     * 读取请求体期间不开启事务，慢速客户端不会长时间占用数据库连接；
+     * 数据完整接收后只在登记存储和保存记录时开启事务
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public FileUpload uploadStream(InputStream in, long contentLength, String originalName, String contentType,
+                                   String entityType, Long entityId, boolean isPublic, User user, String expectedHash) {
+        // 读取请求体之前先检查声明的类型和大小
+        if (!FileUploadUtils.isAllowedFileType(contentType)) {
+            throw new BusinessException("不支持的文件类型: " + contentType, "FILE_TYPE_NOT_ALLOWED",
+                    HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        }
+        long maxBytes = maxFileSizeMb * 1024 * 1024;
+        if (contentLength > maxBytes) {
+            throw new BusinessException("文件大小超过限制", "FILE_TOO_LARGE", HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+
+        String safeFileName = FileUploadUtils.generateSafeFilename(FileUtils.generateUniqueFileName(originalName));
+
+        // 读取请求体之前先在配额中预留，未声明长度时先只预留文件数，写入后按实际大小补充
+        long reservedBytes = Math.max(contentLength, 0);
+        storageQuotaService.reserve(user.getId(), DEFAULT_FILE_TYPE, 1, reservedBytes);
+
+        // 请求体直接写入与数据存储同一文件系统的临时文件，完成后移动到最终位置，不再复制
+        Path tempPath = Paths.get(uploadDir, TEMP_UPLOAD_DIR, UUID.randomUUID().toString());
+        FileUploadUtils.StreamedFile streamed;
+        try {
+            streamed = FileUploadUtils.saveStreamWithHash(in, tempPath, maxBytes, contentType, contentSniffer);
+            if (streamed.size() == 0) {
+                throw new RuntimeException("文件不能为空");
+            }
+            if (contentLength >= 0 && streamed.size() != contentLength) {
+                throw new RuntimeException("文件上传不完整");
+            }
+            if (contentLength < 0) {
+                storageQuotaService.reserve(user.getId(), DEFAULT_FILE_TYPE, 0, streamed.size());
+                reservedBytes = streamed.size();
+            }
+            if (expectedHash != null && !expectedHash.isBlank()
+                    && !streamed.contentHash().equalsIgnoreCase(expectedHash.trim())) {
+                throw new RuntimeException("文件校验失败，内容已损坏");
+            }
+        } catch (IOException e) {
+            storageQuotaService.release(user.getId(), DEFAULT_FILE_TYPE, 1, reservedBytes);
+            FileUtils.deleteFile(tempPath.toString());
+            throw new RuntimeException("文件保存失败", e);
+        } catch (RuntimeException e) {
+            storageQuotaService.release(user.getId(), DEFAULT_FILE_TYPE, 1, reservedBytes);
+            FileUtils.deleteFile(tempPath.toString());
+            throw e;
+        }
+
+        try {
+            return storeAndSaveRecord(tempPath, user, safeFileName, originalName, streamed.size(),
+                    streamed.contentType(), streamed.contentHash(), entityType, entityId, isPublic);
+        } finally {
+            FileUtils.deleteFile(tempPath.toString());
+        }
+    }
 
-        // 保存文件
-        if (!FileUploadUtils.saveMultipartFile(file, filePath)) {
-            throw new RuntimeException("文件保存失败");
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public FileUpload saveReceivedFile(Path tempPath, long fileSize, String contentHash, String originalName,
+                                       String contentType, User user) {
+        // 以文件头识别的类型为准，不属于允许的类型时拒绝
+        String detected;
+        try {
+            detected = FileUploadUtils.detectContentType(tempPath, contentType, contentSniffer);
+        } catch (IOException e) {
+            storageQuotaService.release(user.getId(), DEFAULT_FILE_TYPE, 1, fileSize);
+            throw new RuntimeException("文件保存失败", e);
+        }
+        if (detected == null) {
+            storageQuotaService.release(user.getId(), DEFAULT_FILE_TYPE, 1, fileSize);
+            throw new BusinessException("文件内容不属于允许的类型", "FILE_TYPE_MISMATCH",
+                    HttpStatus.UNSUPPORTED_MEDIA_TYPE);
         }
+        String safeFileName = FileUploadUtils.generateSafeFilename(FileUtils.generateUniqueFileName(originalName));
+        return storeAndSaveRecord(tempPath, user, safeFileName, originalName, fileSize, detected, contentHash,
+                null, null, false);
+    }
+
+    /**
+     * 在一个事务中登记存储并保存文件记录，失败时释放已预留的配额
+     */
+    private FileUpload storeAndSaveRecord(Path tempPath, User user, String safeFileName, String originalName,
+                                          long fileSize, String contentType, String contentHash, String entityType,
+                                          Long entityId, boolean isPublic) {
+        return transactionTemplate.execute(status -> {
+            // 内容相同的文件共用一份数据
+            String filePath;
+            try {
+                filePath = fileBlobService.store(tempPath, contentHash, fileSize);
+            } catch (IOException | RuntimeException e) {
+                // 保存记录之前失败，回滚时释放配额的回调尚未注册，这里直接释放
+                storageQuotaService.release(user.getId(), DEFAULT_FILE_TYPE, 1, fileSize);
+                throw e instanceof IOException ? new RuntimeException("文件保存失败", e) : (RuntimeException) e;
+            }
+            return saveRecord(user, safeFileName, originalName, filePath, fileSize, contentType, contentHash,
+                    entityType, entityId, isPublic);
+        });
+    }
 
-        // 设置默认文件类型为OTHER（FileType枚举基于文件用途，而非扩展名）
-        FileType fileType = FileType.OTHER;
+    /**
+     * 保存文件记录，事务提交后生成图片衍生尺寸；事务回滚时释放已预留的配额
+     */
+    private FileUpload saveRecord(User user, String safeFileName, String originalName, String filePath, long fileSize,
+                                  String contentType, String contentHash, String entityType, Long entityId,
+                                  boolean isPublic) {
+        FileType fileType = DEFAULT_FILE_TYPE;
+        storageQuotaService.releaseOnRollback(user.getId(), fileType, 1, fileSize);
 
         // 保存文件信息到数据库
         FileUpload fileUpload = new FileUpload();
         fileUpload.setUserId(user.getId());
         fileUpload.setFileName(safeFileName);
-        fileUpload.setOriginalName(originalFilename);
+        fileUpload.setOriginalName(originalName);
         fileUpload.setFilePath(filePath);
-        fileUpload.setFileSize(file.getSize());
+        fileUpload.setFileSize(fileSize);
         fileUpload.setContentType(contentType);
+        fileUpload.setContentHash(contentHash);
         fileUpload.setFileType(fileType);
         fileUpload.setEntityType(entityType);
         fileUpload.setEntityId(entityId);
         fileUpload.setIsPublic(isPublic);
         fileUpload.setDeleted(false);
 
-        return repository.save(fileUpload);
+        FileUpload saved = repository.save(fileUpload);
+        processAfterCommit(saved);
+        return saved;
     }
 
     // 保持原有方法以向后兼容
@@ -123,15 +343,15 @@ public class FileUploadServiceImpl extends BaseServiceImpl<FileUpload, Long, Fil
             throw new RuntimeException("文件不存在或无权限删除");
         }
 
-        // 删除物理文件
-        String filePath = fileUpload.getFilePath();
-        if (filePath != null && !filePath.isEmpty()) {
-            FileUtils.deleteFile(filePath);
-        }
-
         // 逻辑删除
         fileUpload.setDeleted(true);
         repository.save(fileUpload);
+
+        // 释放物理文件，共用的数据在最后一个引用释放时删除
+        releaseStorage(fileUpload);
+        storageQuotaService.recordDeletion(fileUpload);
+        metadataCache.remove(id);
+        publicFileCacheService.invalidate(id);
     }
 
     // 保持原有方法以向后兼容
@@ -141,15 +361,120 @@ public class FileUploadServiceImpl extends BaseServiceImpl<FileUpload, Long, Fil
             throw new RuntimeException("文件不存在或无权限删除");
         }
 
-        // 删除物理文件
+        // 逻辑删除
+        fileUpload.setDeleted(true);
+        repository.save(fileUpload);
+
+        // 释放物理文件，共用的数据在最后一个引用释放时删除
+        releaseStorage(fileUpload);
+        storageQuotaService.recordDeletion(fileUpload);
+        metadataCache.remove(fileId);
+        publicFileCacheService.invalidate(fileId);
+    }
+
+    /**
+     * 释放文件记录占用的存储，数据存储之外的旧文件直接删除
+     */
+    private void releaseStorage(FileUpload fileUpload) {
         String filePath = fileUpload.getFilePath();
-        if (filePath != null && !filePath.isEmpty()) {
+        if (filePath == null || filePath.isEmpty()) {
+            return;
+        }
+        if (!fileBlobService.release(fileUpload.getContentHash(), filePath)) {
             FileUtils.deleteFile(filePath);
+            FileUtils.deleteFile(DocumentIndex.indexPath(Paths.get(filePath)).toString());
         }
+    }
 
-        // 逻辑删除
-        fileUpload.setDeleted(true);
-        repository.save(fileUpload);
+    @Override
+    public boolean hasContent(String contentHash, long fileSize, Long userId) {
+        String hash = normalizeHash(contentHash);
+        return repository.existsReferenceableContent(hash, fileSize, userId) && fileBlobService.exists(hash, fileSize);
+    }
+
+    @Override
+    public FileUpload uploadByHash(String contentHash, long fileSize, String originalName, String contentType,
+                                   String entityType, Long entityId, boolean isPublic, User user) {
+        if (!FileUploadUtils.isAllowedFileType(contentType)) {
+            throw new RuntimeException("不支持的文件类型: " + contentType);
+        }
+        String hash = normalizeHash(contentHash);
+        // 其他用户的私有内容与不存在的内容同样处理，需要上传数据
+        if (!repository.existsReferenceableContent(hash, fileSize, user.getId())) {
+            return null;
+        }
+        // 秒传不写入数据，但同样计入用户的存储用量
+        storageQuotaService.reserve(user.getId(), DEFAULT_FILE_TYPE, 1, fileSize);
+        storageQuotaService.releaseOnRollback(user.getId(), DEFAULT_FILE_TYPE, 1, fileSize);
+        String filePath = fileBlobService.acquire(hash, fileSize);
+        if (filePath == null) {
+            storageQuotaService.release(user.getId(), DEFAULT_FILE_TYPE, 1, fileSize);
+            return null;
+        }
+        // 以已存储内容的文件头为准，数据已归档时沿用声明的类型
+        Path storedPath = Paths.get(filePath);
+        if (Files.isRegularFile(storedPath)) {
+            String detected;
+            try {
+                detected = FileUploadUtils.detectContentType(storedPath, contentType, contentSniffer);
+            } catch (IOException e) {
+                logger.warn("读取文件头失败，沿用声明的类型: {}", filePath, e);
+                detected = contentType;
+            }
+            if (detected == null) {
+                // 抛出异常后事务回滚，数据引用随之撤销，配额由回滚回调释放
+                throw new BusinessException("文件内容不属于允许的类型", "FILE_TYPE_MISMATCH",
+                        HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+            }
+            contentType = detected;
+        }
+
+        String safeFileName = FileUploadUtils.generateSafeFilename(FileUtils.generateUniqueFileName(originalName));
+        FileUpload fileUpload = new FileUpload();
+        fileUpload.setUserId(user.getId());
+        fileUpload.setFileName(safeFileName);
+        fileUpload.setOriginalName(originalName);
+        fileUpload.setFilePath(filePath);
+        fileUpload.setFileSize(fileSize);
+        fileUpload.setContentType(contentType);
+        fileUpload.setContentHash(hash);
+        fileUpload.setFileType(DEFAULT_FILE_TYPE);
+        fileUpload.setEntityType(entityType);
+        fileUpload.setEntityId(entityId);
+        fileUpload.setIsPublic(isPublic);
+        fileUpload.setDeleted(false);
+        FileUpload saved = repository.save(fileUpload);
+        processAfterCommit(saved);
+        return saved;
+    }
+
+    /**
+     * 事务提交后提交图片衍生尺寸生成和文本文档索引任务，衍生图片生成后使元数据缓存和文件缓存失效
+     */
+    private void processAfterCommit(FileUpload fileUpload) {
+        Runnable action = () -> {
+            imageDerivativeService.generate(fileUpload).thenAccept(derivatives -> {
+                if (derivatives != null) {
+                    metadataCache.remove(fileUpload.getId());
+                    publicFileCacheService.invalidate(fileUpload.getId());
+                }
+            });
+            documentIndexService.index(fileUpload);
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static String normalizeHash(String contentHash) {
+        return contentHash == null ? null : contentHash.trim().toLowerCase(Locale.ROOT);
     }
 
     @Override
@@ -157,6 +482,27 @@ public class FileUploadServiceImpl extends BaseServiceImpl<FileUpload, Long, Fil
         return repository.findById(id).orElse(null);
     }
 
+    @Override
+    public FileUpload getFileMetadata(Long id) {
+        // 不刷新访问时间，热点文件也会按有效期重新加载
+        FileUpload cached = metadataCache.get(id, false);
+        if (cached != null) {
+            return cached;
+        }
+        FileUpload fileUpload = repository.findById(id).orElse(null);
+        if (fileUpload == null || Boolean.TRUE.equals(fileUpload.getDeleted())) {
+            return null;
+        }
+        metadataCache.put(id, fileUpload);
+        return fileUpload;
+    }
+
+    @Override
+    public void evictCache(Long id) {
+        metadataCache.remove(id);
+        publicFileCacheService.invalidate(id);
+    }
+
     @Override
     public boolean canAccessFile(Long fileId, Long userId) {
         FileUpload fileUpload = repository.findById(fileId).orElse(null);
@@ -176,7 +522,7 @@ public class FileUploadServiceImpl extends BaseServiceImpl<FileUpload, Long, Fil
 
     @Override
     public long countUserFiles(User user) {
-        return FileRepositoryUtils.countUserFiles(repository, user.getId());
+        return storageQuotaService.getUsage(user.getId()).getTotalFiles();
     }
 
     @Override
@@ -0,0 +1,237 @@
+package org.backend.A_general.file.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.backend.A_general.file.entity.FileUpload;
+import org.backend.A_general.file.repository.FileUploadRepository;
+import org.backend.A_general.file.service.ImageDerivativeService;
+import org.backend.A_general.file.util.FileUploadUtils;
+import org.backend.A_general.file.util.MediaUtils;
+import org.backend.A_general.file.util.StorageLayoutUtils;
+import org.backend.entity.enums.ImageDerivativeSize;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片衍生尺寸服务实现类
+ * 每张图片只解码一次，从大到小依次生成各尺寸，较小的尺寸以上一个尺寸为源继续缩放。
+ * 衍生图片按内容哈希存放，内容相同的文件记录共用，最后一个引用释放时随数据一起删除
+ */
+@Service
+public class ImageDerivativeServiceImpl implements ImageDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeServiceImpl.class);
+
+    // 衍生图片存储目录名称
+    public static final String DERIVATIVE_DIR = "derivatives";
+
+    private static final String[] FORMATS = {"jpg", "png"};
+
+    private final FileUploadRepository fileUploadRepository;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    // 生成衍生图片的线程数
+    @Value("${file.image.derivative-threads:2}")
+    private int derivativeThreads;
+
+    // 任务队列容量，队列满时跳过生成，下载时返回原图
+    @Value("${file.image.derivative-queue-capacity:200}")
+    private int derivativeQueueCapacity;
+
+    // 允许解码的最大像素数，防止超大图片耗尽内存
+    @Value("${file.image.max-pixels:40000000}")
+    private long maxPixels;
+
+    // JPEG压缩质量
+    @Value("${file.image.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    private ThreadPoolExecutor executor;
+
+    public ImageDerivativeServiceImpl(FileUploadRepository fileUploadRepository) {
+        this.fileUploadRepository = fileUploadRepository;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(derivativeThreads, derivativeThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(derivativeQueueCapacity),
+                Thread.ofPlatform().name("image-derivative-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<String> generate(FileUpload fileUpload) {
+        if (fileUpload.getContentHash() == null || !FileUploadUtils.isImageFile(fileUpload.getContentType())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Long id = fileUpload.getId();
+        String contentHash = fileUpload.getContentHash();
+        Path source = Paths.get(fileUpload.getFilePath());
+        try {
+            return CompletableFuture.supplyAsync(() -> process(id, contentHash, source), executor);
+        } catch (RejectedExecutionException e) {
+            logger.warn("衍生图片任务队列已满，跳过生成: 文件ID {}", id);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private String process(Long id, String contentHash, Path source) {
+        try {
+            // 同一内容已生成过时直接复用
+            FileUpload existing = fileUploadRepository.findFirstByContentHashAndDerivativesIsNotNull(contentHash);
+            String derivatives = existing != null && allExist(contentHash, existing.getDerivatives())
+                    ? existing.getDerivatives()
+                    : render(contentHash, source);
+            if (derivatives == null) {
+                return null;
+            }
+            fileUploadRepository.updateDerivatives(id, derivatives);
+            logger.debug("衍生图片已生成: 文件ID {}, {}", id, derivatives);
+            return derivatives;
+        } catch (Exception e) {
+            logger.warn("生成衍生图片失败: 文件ID {}, {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 解码原图并生成各尺寸
+     *
+     * @return 衍生尺寸描述，原图小于所有尺寸时为空字符串，无法解码时为null
+     */
+    private String render(String contentHash, Path source) throws IOException {
+        int[] dimensions = MediaUtils.readImageSize(source);
+        if (dimensions == null) {
+            return null;
+        }
+        if ((long) dimensions[0] * dimensions[1] > maxPixels) {
+            logger.warn("图片像素过多，跳过生成衍生图片: {}x{}", dimensions[0], dimensions[1]);
+            return null;
+        }
+        BufferedImage current = ImageIO.read(source.toFile());
+        if (current == null) {
+            return null;
+        }
+        String format = current.getColorModel().hasAlpha() ? "png" : "jpg";
+        int originalEdge = Math.max(current.getWidth(), current.getHeight());
+
+        ImageDerivativeSize[] sizes = ImageDerivativeSize.values();
+        List<String> entries = new ArrayList<>(sizes.length);
+        for (int i = sizes.length - 1; i >= 0; i--) {
+            ImageDerivativeSize size = sizes[i];
+            if (originalEdge <= size.getMaxEdge()) {
+                // 原图已不大于该尺寸，直接返回原图
+                continue;
+            }
+            current = MediaUtils.scaleImage(current, size.getMaxEdge(), size.getMaxEdge());
+            Path target = derivativePath(contentHash, size, format);
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            MediaUtils.writeImage(current, temp, format, jpegQuality);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            entries.add(0, size.name() + ":" + current.getWidth() + "x" + current.getHeight() + ":" + format);
+        }
+        return String.join(",", entries);
+    }
+
+    @Override
+    public Derivative select(FileUpload fileUpload, String size) {
+        if (size == null || size.isBlank() || fileUpload.getContentHash() == null
+                || fileUpload.getDerivatives() == null || fileUpload.getDerivatives().isEmpty()) {
+            return null;
+        }
+        int requestedEdge;
+        try {
+            requestedEdge = ImageDerivativeSize.valueOf(size.trim().toUpperCase(Locale.ROOT)).getMaxEdge();
+        } catch (IllegalArgumentException e) {
+            try {
+                requestedEdge = Integer.parseInt(size.trim());
+            } catch (NumberFormatException ignored) {
+                return null;
+            }
+        }
+
+        // 选择不小于请求尺寸的最小衍生图片，都小于请求尺寸时返回原图
+        Derivative best = null;
+        for (Derivative derivative : parse(fileUpload.getContentHash(), fileUpload.getDerivatives())) {
+            int edge = Math.max(derivative.width(), derivative.height());
+            if (edge >= requestedEdge && (best == null || edge < Math.max(best.width(), best.height()))) {
+                best = derivative;
+            }
+        }
+        return best != null && Files.exists(best.path()) ? best : null;
+    }
+
+    @Override
+    public void deleteDerivatives(String contentHash) {
+        for (ImageDerivativeSize size : ImageDerivativeSize.values()) {
+            for (String format : FORMATS) {
+                try {
+                    Files.deleteIfExists(derivativePath(contentHash, size, format));
+                } catch (IOException e) {
+                    logger.warn("删除衍生图片失败: {}, {}", contentHash, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private List<Derivative> parse(String contentHash, String derivatives) {
+        List<Derivative> result = new ArrayList<>();
+        for (String entry : derivatives.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 3) {
+                continue;
+            }
+            try {
+                ImageDerivativeSize size = ImageDerivativeSize.valueOf(parts[0]);
+                int x = parts[1].indexOf('x');
+                int width = Integer.parseInt(parts[1].substring(0, x));
+                int height = Integer.parseInt(parts[1].substring(x + 1));
+                result.add(new Derivative(size, width, height, parts[2], derivativePath(contentHash, size, parts[2])));
+            } catch (RuntimeException e) {
+                logger.debug("忽略无效的衍生图片记录: {}", entry);
+            }
+        }
+        return result;
+    }
+
+    private boolean allExist(String contentHash, String derivatives) {
+        return parse(contentHash, derivatives).stream().allMatch(derivative -> Files.exists(derivative.path()));
+    }
+
+    private Path derivativePath(String contentHash, ImageDerivativeSize size, String format) {
+        return StorageLayoutUtils.shardedPath(Paths.get(uploadDir, DERIVATIVE_DIR), contentHash,
+                contentHash + "_" + size.name().toLowerCase(Locale.ROOT) + "." + format);
+    }
+}
@@ -0,0 +1,463 @@
+package org.backend.A_general.file.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.backend.A_general.file.dto.FileCacheStats;
+import org.backend.A_general.file.service.PublicFileCacheService;
+import org.backend.A_general.file.util.RangeDownloadUtils;
+import org.backend.entity.enums.ImageDerivativeSize;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 公开文件内存缓存服务实现类
+ * 缓存空间是按需分配的堆外内存块，切分成固定大小的页，文件内容按页存放，淘汰时页回收复用，不产生堆内垃圾。
+ * 容器内按LRU排序，空间不足时先找出要淘汰的文件，再用频率草图比较访问频率，
+ * 新文件比被淘汰的文件更常被访问才接纳（TinyLFU），避免偶发的大量冷文件冲掉热点文件。
+ * 响应头在放入缓存时生成，命中时直接写出
+ */
+@Service
+public class PublicFileCacheServiceImpl implements PublicFileCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PublicFileCacheServiceImpl.class);
+
+    // 每次向系统申请的堆外内存块大小
+    private static final int SLAB_BYTES = 4 * 1024 * 1024;
+
+    // 是否启用缓存
+    @Value("${file.cache.enabled:true}")
+    private boolean enabled;
+
+    // 缓存容量（MB）
+    @Value("${file.cache.capacity-mb:64}")
+    private int capacityMb;
+
+    // 页大小（KB），文件按页存放，最后一页的剩余空间不能被其他文件使用
+    @Value("${file.cache.page-size-kb:16}")
+    private int pageSizeKb;
+
+    // 可缓存的单个文件上限（KB）
+    @Value("${file.cache.max-entry-kb:256}")
+    private int maxEntryKb;
+
+    // 缓存有效期（秒），文件被替换时最迟在过期后生效
+    @Value("${file.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final Object lock = new Object();
+
+    // 按访问顺序排列，最久未访问的在最前
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    // 堆外内存块，按需分配，分配后不再释放
+    private ByteBuffer[] slabs;
+
+    private int pageSize;
+    private int pagesPerSlab;
+    private int totalPages;
+    private int allocatedPages;
+    private int[] freePages;
+    private int freeCount;
+    // 每次移除文件时递增，读取文件期间发生过移除则放弃放入，避免把已删除的文件放回缓存
+    private long invalidationEpoch;
+    private FrequencySketch sketch;
+
+    private long hits;
+    private long misses;
+    private long admissions;
+    private long rejections;
+    private long evictions;
+    private long invalidations;
+
+    @PostConstruct
+    public void init() {
+        pageSize = Math.max(1, pageSizeKb) * 1024;
+        pagesPerSlab = Math.max(1, SLAB_BYTES / pageSize);
+        totalPages = enabled
+                ? (int) Math.min(Integer.MAX_VALUE, (long) Math.max(0, capacityMb) * 1024 * 1024 / pageSize) : 0;
+        freePages = new int[totalPages];
+        slabs = new ByteBuffer[(totalPages + pagesPerSlab - 1) / pagesPerSlab];
+        // 频率草图按可容纳的最大文件数估算宽度
+        sketch = new FrequencySketch(Math.max(64, totalPages));
+        logger.info("公开文件缓存{}，容量: {}MB, 页大小: {}KB, 单文件上限: {}KB",
+                enabled ? "已启用" : "未启用", capacityMb, pageSizeKb, maxEntryKb);
+    }
+
+    @Override
+    public String cacheKey(Long fileId, String size) {
+        if (!enabled || fileId == null) {
+            return null;
+        }
+        if (size == null || size.isBlank()) {
+            return fileId + ":";
+        }
+        try {
+            return fileId + ":" + ImageDerivativeSize.valueOf(size.trim().toUpperCase(Locale.ROOT)).name();
+        } catch (IllegalArgumentException e) {
+            // 以像素指定的尺寸取值太分散，不缓存
+            return null;
+        }
+    }
+
+    @Override
+    public boolean serve(String key, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (key == null || totalPages == 0) {
+            return false;
+        }
+        sketch.increment(key);
+        if (request.getHeader(HttpHeaders.RANGE) != null) {
+            // 分段请求走磁盘，由RangeDownloadUtils处理
+            return false;
+        }
+
+        Entry entry = acquire(key);
+        if (entry == null) {
+            return false;
+        }
+        try {
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setHeader(HttpHeaders.ETAG, entry.etag);
+            response.setHeader(HttpHeaders.LAST_MODIFIED, entry.lastModifiedHeader);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, entry.cacheControl);
+            if (RangeDownloadUtils.isNotModified(request, entry.etag, entry.lastModified)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, entry.contentDisposition);
+            response.setContentType(entry.contentType);
+            response.setContentLengthLong(entry.length);
+            if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+                return true;
+            }
+
+            WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+            long remaining = entry.length;
+            for (int page : entry.pages) {
+                ByteBuffer buffer = pageBuffer(page, (int) Math.min(pageSize, remaining));
+                remaining -= buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            return true;
+        } finally {
+            release(entry);
+        }
+    }
+
+    @Override
+    public void offer(String key, Long fileId, RangeDownloadUtils.DownloadTarget target) {
+        long length = target.length();
+        if (key == null || totalPages == 0 || length <= 0 || length > (long) maxEntryKb * 1024) {
+            return;
+        }
+        int needed = (int) ((length + pageSize - 1) / pageSize);
+        long epoch;
+        synchronized (lock) {
+            epoch = invalidationEpoch;
+        }
+        int[] pages = reservePages(key, needed);
+        if (pages == null) {
+            return;
+        }
+
+        // 读取文件时页已归本次调用所有，不持有锁
+        boolean loaded = false;
+        try (FileChannel channel = FileChannel.open(target.path(), StandardOpenOption.READ)) {
+            if (channel.size() == length) {
+                long position = 0;
+                for (int page : pages) {
+                    ByteBuffer buffer = pageBuffer(page, (int) Math.min(pageSize, length - position));
+                    while (buffer.hasRemaining()) {
+                        int read = channel.read(buffer, position);
+                        if (read < 0) {
+                            break;
+                        }
+                        position += read;
+                    }
+                }
+                loaded = position == length;
+            }
+        } catch (IOException e) {
+            logger.debug("读取文件放入缓存失败: {}, {}", target.path(), e.getMessage());
+        }
+
+        Instant lastModified = target.lastModified().truncatedTo(ChronoUnit.SECONDS);
+        Entry entry = new Entry(key, fileId, pages, length, target.contentType(), target.etag(), lastModified,
+                RangeDownloadUtils.formatHttpDate(lastModified),
+                RangeDownloadUtils.contentDisposition(target.fileName()),
+                target.cacheControl() != null ? target.cacheControl() : "public, max-age=3600",
+                System.currentTimeMillis() + ttlSeconds * 1000);
+        synchronized (lock) {
+            if (!loaded || epoch != invalidationEpoch || entries.containsKey(key)) {
+                // 读取失败、期间有文件被移除，或并发请求已放入同一文件
+                freePages(pages);
+                return;
+            }
+            entries.put(key, entry);
+            admissions++;
+        }
+    }
+
+    @Override
+    public void invalidate(Long fileId) {
+        if (fileId == null) {
+            return;
+        }
+        synchronized (lock) {
+            invalidationEpoch++;
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (fileId.equals(entry.fileId)) {
+                    iterator.remove();
+                    retire(entry);
+                    invalidations++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public FileCacheStats getStats() {
+        FileCacheStats stats = new FileCacheStats();
+        synchronized (lock) {
+            stats.setEnabled(enabled && totalPages > 0);
+            stats.setCapacityBytes((long) totalPages * pageSize);
+            stats.setUsedBytes((long) (allocatedPages - freeCount) * pageSize);
+            stats.setEntries(entries.size());
+            stats.setHits(hits);
+            stats.setMisses(misses);
+            long requests = hits + misses;
+            stats.setHitRatio(requests == 0 ? 0.0 : (double) hits / requests);
+            stats.setAdmissions(admissions);
+            stats.setRejections(rejections);
+            stats.setEvictions(evictions);
+            stats.setInvalidations(invalidations);
+        }
+        return stats;
+    }
+
+    private Entry acquire(String key) {
+        synchronized (lock) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(key);
+                retire(entry);
+                invalidations++;
+                entry = null;
+            }
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            entry.readers++;
+            hits++;
+            return entry;
+        }
+    }
+
+    private void release(Entry entry) {
+        synchronized (lock) {
+            entry.readers--;
+            if (entry.retired && entry.readers == 0) {
+                freePages(entry.pages);
+            }
+        }
+    }
+
+    /**
+     * 为新文件预留页，空间不足时按LRU找出淘汰对象，新文件的访问频率高于所有淘汰对象才接纳
+     *
+     * @return 预留的页，不接纳时返回null
+     */
+    private int[] reservePages(String key, int needed) {
+        int candidateFrequency = sketch.frequency(key);
+        synchronized (lock) {
+            if (needed > totalPages || entries.containsKey(key)) {
+                return null;
+            }
+            int available = freeCount + (totalPages - allocatedPages);
+            if (available < needed) {
+                List<Entry> victims = new ArrayList<>();
+                for (Entry entry : entries.values()) {
+                    if (available >= needed) {
+                        break;
+                    }
+                    if (sketch.frequency(entry.key) >= candidateFrequency) {
+                        rejections++;
+                        return null;
+                    }
+                    victims.add(entry);
+                    // 正在被读取的页要等读取结束才回收，不计入可用空间
+                    if (entry.readers == 0) {
+                        available += entry.pages.length;
+                    }
+                }
+                if (available < needed) {
+                    rejections++;
+                    return null;
+                }
+                for (Entry victim : victims) {
+                    entries.remove(victim.key);
+                    retire(victim);
+                    evictions++;
+                }
+            }
+            int[] pages = new int[needed];
+            for (int i = 0; i < needed; i++) {
+                pages[i] = allocatePage();
+            }
+            return pages;
+        }
+    }
+
+    private void retire(Entry entry) {
+        entry.retired = true;
+        if (entry.readers == 0) {
+            freePages(entry.pages);
+        }
+    }
+
+    private int allocatePage() {
+        if (freeCount > 0) {
+            return freePages[--freeCount];
+        }
+        if (allocatedPages % pagesPerSlab == 0) {
+            int pages = Math.min(pagesPerSlab, totalPages - allocatedPages);
+            slabs[allocatedPages / pagesPerSlab] = ByteBuffer.allocateDirect(pages * pageSize);
+        }
+        return allocatedPages++;
+    }
+
+    private void freePages(int[] pages) {
+        for (int page : pages) {
+            freePages[freeCount++] = page;
+        }
+    }
+
+    /**
+     * 获取页对应的缓冲区视图，每次调用返回独立的位置和界限，可被多个线程同时使用
+     */
+    private ByteBuffer pageBuffer(int page, int length) {
+        int offset = (page % pagesPerSlab) * pageSize;
+        return slabs[page / pagesPerSlab].slice(offset, length);
+    }
+
+    /**
+     * 缓存的文件，响应头在放入时生成
+     */
+    private static final class Entry {
+        final String key;
+        final Long fileId;
+        final int[] pages;
+        final long length;
+        final String contentType;
+        final String etag;
+        final Instant lastModified;
+        final String lastModifiedHeader;
+        final String contentDisposition;
+        final String cacheControl;
+        final long expiresAt;
+        int readers;
+        boolean retired;
+
+        Entry(String key, Long fileId, int[] pages, long length, String contentType, String etag,
+              Instant lastModified, String lastModifiedHeader, String contentDisposition, String cacheControl,
+              long expiresAt) {
+            this.key = key;
+            this.fileId = fileId;
+            this.pages = pages;
+            this.length = length;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.lastModifiedHeader = lastModifiedHeader;
+            this.contentDisposition = contentDisposition;
+            this.cacheControl = cacheControl;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 访问频率草图（Count-Min Sketch）
+     * 4行4位计数器，取最小值作为估计频率；累计访问达到宽度的10倍时全部减半，使频率随时间衰减
+     */
+    private static final class FrequencySketch {
+
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int resetThreshold;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(Math.max(16, expectedEntries - 1)) << 1;
+            counters = new byte[SEEDS.length][width];
+            mask = width - 1;
+            resetThreshold = width * 10;
+        }
+
+        synchronized void increment(String key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                int index = index(hash, row);
+                if (counters[row][index] < 15) {
+                    counters[row][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= resetThreshold) {
+                for (byte[] row : counters) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] >>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        synchronized int frequency(String key) {
+            int hash = spread(key.hashCode());
+            int min = 15;
+            for (int row = 0; row < SEEDS.length; row++) {
+                min = Math.min(min, counters[row][index(hash, row)]);
+            }
+            return min;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xED5AD4BB;
+            hash ^= hash >>> 11;
+            return hash;
+        }
+    }
+}
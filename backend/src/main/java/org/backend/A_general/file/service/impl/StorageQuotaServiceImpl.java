@@ -0,0 +1,370 @@
+package org.backend.A_general.file.service.impl;
+
+import org.backend.A_general.base.exception.BusinessException;
+import org.backend.A_general.file.dto.StorageUsage;
+import org.backend.A_general.file.entity.FileUpload;
+import org.backend.A_general.file.entity.UserStorageUsage;
+import org.backend.A_general.file.repository.FileUploadRepository;
+import org.backend.A_general.file.repository.UserStorageUsageRepository;
+import org.backend.A_general.file.service.StorageQuotaService;
+import org.backend.A_general.file.util.FileUploadUtils;
+import org.backend.entity.enums.FileType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 用户存储配额服务实现类
+ * 每个用户一个Redis哈希，字段为总文件数、总字节数以及各文件类型的文件数和字节数，
+ * 检查配额和增加计数在同一个脚本中完成，并发上传不会同时越过配额。
+ * 计数不存在（首次访问或已过期）时按文件记录统计后写入；有变化的用户记入待写入集合，定期写入数据库。
+ * Redis不可用时按数据库统计检查配额，这期间的增减无法记入计数，恢复后删除这些用户的计数重新统计
+ */
+@Service
+public class StorageQuotaServiceImpl implements StorageQuotaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageQuotaServiceImpl.class);
+
+    private static final String USAGE_KEY_PREFIX = "file:usage:";
+    private static final String DIRTY_KEY = "file:usage-dirty";
+
+    private static final String FILES_FIELD = "files";
+    private static final String BYTES_FIELD = "bytes";
+
+    // 计数存在时检查配额并增加，返回1表示成功，0表示超过配额，-1表示计数不存在
+    private static final RedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+            "local files = tonumber(ARGV[3]) " +
+            "local bytes = tonumber(ARGV[4]) " +
+            "local maxFiles = tonumber(ARGV[5]) " +
+            "local maxBytes = tonumber(ARGV[6]) " +
+            "if maxFiles > 0 and files > 0 and tonumber(redis.call('HGET', KEYS[1], 'files') or '0') + files > maxFiles then return 0 end " +
+            "if maxBytes > 0 and bytes > 0 and tonumber(redis.call('HGET', KEYS[1], 'bytes') or '0') + bytes > maxBytes then return 0 end " +
+            "redis.call('HINCRBY', KEYS[1], 'files', files) " +
+            "redis.call('HINCRBY', KEYS[1], 'bytes', bytes) " +
+            "redis.call('HINCRBY', KEYS[1], 'files:' .. ARGV[2], files) " +
+            "redis.call('HINCRBY', KEYS[1], 'bytes:' .. ARGV[2], bytes) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[7]) " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    // 计数存在时直接增减，不检查配额；计数不存在时下次访问按文件记录统计，无需处理
+    private static final RedisScript<Long> ADJUST_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "redis.call('HINCRBY', KEYS[1], 'files', ARGV[3]) " +
+            "redis.call('HINCRBY', KEYS[1], 'bytes', ARGV[4]) " +
+            "redis.call('HINCRBY', KEYS[1], 'files:' .. ARGV[2], ARGV[3]) " +
+            "redis.call('HINCRBY', KEYS[1], 'bytes:' .. ARGV[2], ARGV[4]) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[5]) " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    // 计数不存在时写入统计结果，已被其他请求写入时不覆盖
+    private static final RedisScript<Long> SEED_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "for i = 2, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final FileUploadRepository fileUploadRepository;
+    private final UserStorageUsageRepository userStorageUsageRepository;
+
+    // 是否启用配额检查，关闭时仍然维护计数
+    @Value("${file.quota.enabled:true}")
+    private boolean enabled;
+
+    // 每个用户的存储空间配额（MB），0表示不限制
+    @Value("${file.quota.max-mb:1024}")
+    private long maxMb;
+
+    // 每个用户的文件数配额，0表示不限制
+    @Value("${file.quota.max-files:10000}")
+    private long maxFiles;
+
+    // 计数在Redis中的保留天数，每次增减后重新计时，过期后按文件记录重新统计
+    @Value("${file.quota.counter-ttl-days:7}")
+    private long counterTtlDays;
+
+    // 每次写入数据库的最多用户数
+    @Value("${file.quota.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    // Redis不可用期间发生过增减的用户，恢复后删除其计数
+    private final Set<Long> unsyncedUsers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    public StorageQuotaServiceImpl(RedisTemplate<String, String> redisTemplate,
+                                   FileUploadRepository fileUploadRepository,
+                                   UserStorageUsageRepository userStorageUsageRepository) {
+        this.redisTemplate = redisTemplate;
+        this.fileUploadRepository = fileUploadRepository;
+        this.userStorageUsageRepository = userStorageUsageRepository;
+    }
+
+    @Override
+    public void reserve(Long userId, FileType fileType, long files, long bytes) {
+        FileType type = fileType != null ? fileType : FileType.OTHER;
+        long quotaFiles = enabled ? maxFiles : 0;
+        long quotaBytes = enabled ? maxMb * 1024 * 1024 : 0;
+        Long result;
+        try {
+            result = execute(RESERVE_SCRIPT, userId, type.name(), String.valueOf(files), String.valueOf(bytes),
+                    String.valueOf(quotaFiles), String.valueOf(quotaBytes), String.valueOf(ttlSeconds()));
+            if (result != null && result < 0) {
+                seed(userId);
+                result = execute(RESERVE_SCRIPT, userId, type.name(), String.valueOf(files), String.valueOf(bytes),
+                        String.valueOf(quotaFiles), String.valueOf(quotaBytes), String.valueOf(ttlSeconds()));
+            }
+        } catch (Exception e) {
+            logger.warn("存储用量计数不可用，按数据库统计检查配额: 用户ID {}, {}", userId, e.getMessage());
+            unsyncedUsers.add(userId);
+            StorageUsage usage = countFromRecords(userId);
+            result = exceeds(usage, files, bytes, quotaFiles, quotaBytes) ? 0L : 1L;
+        }
+        if (result == null || result <= 0) {
+            throw new BusinessException("存储空间不足，已超过配额", "STORAGE_QUOTA_EXCEEDED", HttpStatus.INSUFFICIENT_STORAGE);
+        }
+    }
+
+    @Override
+    public void release(Long userId, FileType fileType, long files, long bytes) {
+        adjust(userId, fileType, -files, -bytes);
+    }
+
+    @Override
+    public void releaseOnRollback(Long userId, FileType fileType, long files, long bytes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    release(userId, fileType, files, bytes);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void recordDeletion(FileUpload fileUpload) {
+        Long userId = fileUpload.getUserId();
+        FileType fileType = fileUpload.getFileType();
+        long bytes = fileUpload.getFileSize() != null ? fileUpload.getFileSize() : 0;
+        Runnable action = () -> adjust(userId, fileType, -1, -bytes);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    @Override
+    public StorageUsage getUsage(Long userId) {
+        StorageUsage usage;
+        try {
+            Map<Object, Object> counters = redisTemplate.opsForHash().entries(usageKey(userId));
+            if (counters.isEmpty()) {
+                seed(userId);
+                counters = redisTemplate.opsForHash().entries(usageKey(userId));
+            }
+            usage = fromCounters(counters);
+        } catch (Exception e) {
+            logger.warn("读取存储用量计数失败，改为读取数据库: 用户ID {}, {}", userId, e.getMessage());
+            usage = fromRows(userStorageUsageRepository.findByUserId(userId));
+            if (usage == null) {
+                usage = countFromRecords(userId);
+            }
+        }
+        usage.setQuotaFiles(enabled ? maxFiles : 0);
+        usage.setQuotaBytes(enabled ? maxMb * 1024 * 1024 : 0);
+        return usage;
+    }
+
+    @Override
+    public int flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return 0;
+        }
+        int flushed = 0;
+        try {
+            resetUnsyncedUsers();
+            List<String> users;
+            while (!(users = popDirtyUsers()).isEmpty()) {
+                for (String user : users) {
+                    Long userId = Long.valueOf(user);
+                    try {
+                        Map<Object, Object> counters = redisTemplate.opsForHash().entries(usageKey(userId));
+                        if (!counters.isEmpty()) {
+                            writeRows(userId, fromCounters(counters));
+                            flushed++;
+                        }
+                    } catch (Exception e) {
+                        // 放回集合，下一轮重试
+                        redisTemplate.opsForSet().add(DIRTY_KEY, user);
+                        throw e;
+                    }
+                }
+                if (users.size() < flushBatchSize) {
+                    break;
+                }
+            }
+            if (flushed > 0) {
+                logger.debug("存储用量计数已写入数据库: 用户数 {}", flushed);
+            }
+        } catch (Exception e) {
+            logger.warn("写入存储用量计数失败: {}", e.getMessage());
+        } finally {
+            flushing.set(false);
+        }
+        return flushed;
+    }
+
+    private void adjust(Long userId, FileType fileType, long files, long bytes) {
+        if (userId == null || (files == 0 && bytes == 0)) {
+            return;
+        }
+        FileType type = fileType != null ? fileType : FileType.OTHER;
+        try {
+            execute(ADJUST_SCRIPT, userId, type.name(), String.valueOf(files), String.valueOf(bytes),
+                    String.valueOf(ttlSeconds()));
+        } catch (Exception e) {
+            logger.warn("更新存储用量计数失败: 用户ID {}, {}", userId, e.getMessage());
+            unsyncedUsers.add(userId);
+        }
+    }
+
+    private Long execute(RedisScript<Long> script, Long userId, String... args) {
+        String[] argv = new String[args.length + 1];
+        argv[0] = String.valueOf(userId);
+        System.arraycopy(args, 0, argv, 1, args.length);
+        return redisTemplate.execute(script, List.of(usageKey(userId), DIRTY_KEY), (Object[]) argv);
+    }
+
+    /**
+     * 按文件记录统计用量并写入计数，计数已存在时保持不变
+     */
+    private void seed(Long userId) {
+        StorageUsage usage = countFromRecords(userId);
+        List<String> argv = new ArrayList<>();
+        argv.add(String.valueOf(ttlSeconds()));
+        argv.add(FILES_FIELD);
+        argv.add(String.valueOf(usage.getTotalFiles()));
+        argv.add(BYTES_FIELD);
+        argv.add(String.valueOf(usage.getTotalBytes()));
+        for (FileType type : FileType.values()) {
+            argv.add(FILES_FIELD + ":" + type.name());
+            argv.add(String.valueOf(usage.getFilesByType().getOrDefault(type, 0L)));
+            argv.add(BYTES_FIELD + ":" + type.name());
+            argv.add(String.valueOf(usage.getBytesByType().getOrDefault(type, 0L)));
+        }
+        Long seeded = redisTemplate.execute(SEED_SCRIPT, List.of(usageKey(userId)), argv.toArray());
+        if (seeded != null && seeded > 0) {
+            redisTemplate.opsForSet().add(DIRTY_KEY, String.valueOf(userId));
+            logger.debug("存储用量计数已按文件记录初始化: 用户ID {}, 文件数 {}, 大小 {}", userId,
+                    usage.getTotalFiles(), FileUploadUtils.getFriendlyFileSize(usage.getTotalBytes()));
+        }
+    }
+
+    /**
+     * Redis恢复后删除不可用期间发生过增减的用户计数，下次访问时重新统计
+     */
+    private void resetUnsyncedUsers() {
+        for (Long userId : List.copyOf(unsyncedUsers)) {
+            redisTemplate.delete(usageKey(userId));
+            unsyncedUsers.remove(userId);
+            seed(userId);
+        }
+    }
+
+    private List<String> popDirtyUsers() {
+        List<String> users = redisTemplate.opsForSet().pop(DIRTY_KEY, flushBatchSize);
+        return users != null ? users : List.of();
+    }
+
+    private void writeRows(Long userId, StorageUsage usage) {
+        for (FileType type : FileType.values()) {
+            long files = usage.getFilesByType().getOrDefault(type, 0L);
+            long bytes = usage.getBytesByType().getOrDefault(type, 0L);
+            userStorageUsageRepository.upsert(userId, type.name(), files, bytes);
+        }
+    }
+
+    private StorageUsage countFromRecords(Long userId) {
+        StorageUsage usage = new StorageUsage();
+        for (Object[] row : fileUploadRepository.sumUsageByUserId(userId)) {
+            FileType type = row[0] != null ? (FileType) row[0] : FileType.OTHER;
+            long files = ((Number) row[1]).longValue();
+            long bytes = ((Number) row[2]).longValue();
+            usage.getFilesByType().merge(type, files, Long::sum);
+            usage.getBytesByType().merge(type, bytes, Long::sum);
+            usage.setTotalFiles(usage.getTotalFiles() + files);
+            usage.setTotalBytes(usage.getTotalBytes() + bytes);
+        }
+        return usage;
+    }
+
+    private static StorageUsage fromCounters(Map<Object, Object> counters) {
+        StorageUsage usage = new StorageUsage();
+        usage.setTotalFiles(parse(counters.get(FILES_FIELD)));
+        usage.setTotalBytes(parse(counters.get(BYTES_FIELD)));
+        for (FileType type : FileType.values()) {
+            usage.getFilesByType().put(type, parse(counters.get(FILES_FIELD + ":" + type.name())));
+            usage.getBytesByType().put(type, parse(counters.get(BYTES_FIELD + ":" + type.name())));
+        }
+        return usage;
+    }
+
+    private static StorageUsage fromRows(List<UserStorageUsage> rows) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        StorageUsage usage = new StorageUsage();
+        for (UserStorageUsage row : rows) {
+            usage.getFilesByType().put(row.getFileType(), row.getFileCount());
+            usage.getBytesByType().put(row.getFileType(), row.getTotalBytes());
+            usage.setTotalFiles(usage.getTotalFiles() + row.getFileCount());
+            usage.setTotalBytes(usage.getTotalBytes() + row.getTotalBytes());
+        }
+        return usage;
+    }
+
+    private static boolean exceeds(StorageUsage usage, long files, long bytes, long quotaFiles, long quotaBytes) {
+        return (quotaFiles > 0 && files > 0 && usage.getTotalFiles() + files > quotaFiles)
+                || (quotaBytes > 0 && bytes > 0 && usage.getTotalBytes() + bytes > quotaBytes);
+    }
+
+    private static long parse(Object value) {
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    private long ttlSeconds() {
+        return TimeUnit.DAYS.toSeconds(counterTtlDays);
+    }
+
+    private static String usageKey(Long userId) {
+        return USAGE_KEY_PREFIX + userId;
+    }
+}
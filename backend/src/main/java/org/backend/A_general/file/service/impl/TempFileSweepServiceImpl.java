@@ -0,0 +1,269 @@
+package org.backend.A_general.file.service.impl;
+
+import org.backend.A_general.file.dto.TempSweepStats;
+import org.backend.A_general.file.service.ChunkUploadService;
+import org.backend.A_general.file.service.TempFileSweepService;
+import org.backend.A_general.file.util.ChunkUploadUtils;
+import org.backend.A_general.file.util.FileUploadUtils;
+import org.backend.A_general.file.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 临时上传文件清理服务实现类
+ * 清理两个区域：分块上传目录（temp/&lt;fileId&gt;）和单文件上传的临时文件（incoming/）。
+ * 以目录内最新的修改时间作为上传的最后活动时间，超过过期时间的整个删除；删除前再检查一次，避免误删刚恢复的上传。
+ * 每轮最多检查固定数量的上传，按名称顺序记录位置，下一轮继续；
+ * 每次删除后按删除的文件数和字节数暂停，限制清理占用的磁盘IO
+ */
+@Service
+public class TempFileSweepServiceImpl implements TempFileSweepService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TempFileSweepServiceImpl.class);
+
+    private static final String[] AREAS = {ChunkUploadUtils.TEMP_DIR, FileUploadServiceImpl.TEMP_UPLOAD_DIR};
+
+    private final ChunkUploadService chunkUploadService;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    // 是否启用临时文件存储，启用时才按过期时间清理
+    @Value("${system.upload.use-temp-storage:true}")
+    private boolean useTempStorage;
+
+    // 临时文件过期时间（分钟）
+    @Value("${system.upload.temp-file-expiry-minutes:30}")
+    private long expiryMinutes;
+
+    // 每轮最多检查的上传数
+    @Value("${file.upload.sweep-batch-size:500}")
+    private int batchSize;
+
+    // 每秒最多删除的文件数
+    @Value("${file.upload.sweep-max-files-per-second:200}")
+    private int maxFilesPerSecond;
+
+    // 每秒最多回收的字节数（MB）
+    @Value("${file.upload.sweep-max-mb-per-second:64}")
+    private long maxMbPerSecond;
+
+    // 各区域下一轮开始的位置，空字符串表示从头开始
+    private final Map<String, String> cursors = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+    private final AtomicLong removedUploads = new AtomicLong();
+    private final AtomicLong removedFiles = new AtomicLong();
+    private final AtomicLong scannedUploads = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunMillis;
+    private volatile long lastRunReclaimedBytes;
+
+    public TempFileSweepServiceImpl(ChunkUploadService chunkUploadService) {
+        this.chunkUploadService = chunkUploadService;
+    }
+
+    @Override
+    public long sweep() {
+        if (!useTempStorage) {
+            return -1;
+        }
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("临时文件清理正在执行，跳过本次触发");
+            return -1;
+        }
+        long startNanos = System.nanoTime();
+        lastRunAt = LocalDateTime.now();
+        Round round = new Round(batchSize, Instant.now().minus(expiryMinutes, ChronoUnit.MINUTES));
+        try {
+            for (String area : AREAS) {
+                if (round.remaining <= 0) {
+                    break;
+                }
+                sweepArea(area, round);
+            }
+            if (round.removed > 0) {
+                logger.info("临时文件清理完成: 删除上传={}, 回收={}", round.removed, FileUploadUtils.getFriendlyFileSize(round.reclaimed));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("临时文件清理被中断");
+        } catch (IOException e) {
+            logger.error("临时文件清理失败: {}", e.getMessage());
+        } finally {
+            lastRunMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            lastRunReclaimedBytes = round.reclaimed;
+            running.set(false);
+        }
+        return round.reclaimed;
+    }
+
+    @Override
+    public TempSweepStats getStats() {
+        TempSweepStats stats = new TempSweepStats();
+        stats.setEnabled(useTempStorage);
+        stats.setExpiryMinutes(expiryMinutes);
+        stats.setReclaimedBytes(reclaimedBytes.get());
+        stats.setRemovedUploads(removedUploads.get());
+        stats.setRemovedFiles(removedFiles.get());
+        stats.setScannedUploads(scannedUploads.get());
+        stats.setLastRunAt(lastRunAt);
+        stats.setLastRunMillis(lastRunMillis);
+        stats.setLastRunReclaimedBytes(lastRunReclaimedBytes);
+        return stats;
+    }
+
+    private void sweepArea(String area, Round round) throws IOException, InterruptedException {
+        Path dir = Paths.get(uploadDir, area);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        // 只读取名称，检查和删除按预算进行
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                names.add(entry.getFileName().toString());
+            }
+        }
+        Collections.sort(names);
+
+        String cursor = cursors.getOrDefault(area, "");
+        int index = Collections.binarySearch(names, cursor);
+        index = index >= 0 ? index + 1 : -index - 1;
+        while (index < names.size() && round.remaining > 0) {
+            String name = names.get(index++);
+            round.remaining--;
+            scannedUploads.incrementAndGet();
+            Path entry = dir.resolve(name);
+            Usage usage = measure(entry);
+            if (usage == null || usage.lastModified.isAfter(round.cutoff)) {
+                continue;
+            }
+            // 测量期间上传可能恢复，删除前再确认一次
+            Usage latest = measure(entry);
+            if (latest == null || latest.lastModified.isAfter(round.cutoff)) {
+                continue;
+            }
+            if (!remove(area, name, entry)) {
+                continue;
+            }
+            round.removed++;
+            round.reclaimed += latest.bytes;
+            removedUploads.incrementAndGet();
+            removedFiles.addAndGet(latest.files);
+            reclaimedBytes.addAndGet(latest.bytes);
+            logger.debug("删除过期的临时上传: {}, {}", entry, FileUploadUtils.getFriendlyFileSize(latest.bytes));
+            throttle(latest);
+        }
+        // 本轮检查到末尾时下一轮从头开始
+        cursors.put(area, index < names.size() ? names.get(index - 1) : "");
+    }
+
+    private boolean remove(String area, String name, Path entry) {
+        if (ChunkUploadUtils.TEMP_DIR.equals(area)) {
+            // 通过分块上传服务删除，同时丢弃该上传的增量摘要状态
+            chunkUploadService.cleanupChunks(name);
+        } else if (Files.isDirectory(entry)) {
+            FileUtils.deleteDirectory(entry.toString());
+        } else {
+            try {
+                Files.deleteIfExists(entry);
+            } catch (IOException e) {
+                logger.warn("删除临时文件失败: {}, {}", entry, e.getMessage());
+            }
+        }
+        return !Files.exists(entry);
+    }
+
+    /**
+     * 按删除的文件数和字节数暂停，取两者中较长的时间
+     */
+    private void throttle(Usage usage) throws InterruptedException {
+        long byFiles = maxFilesPerSecond > 0 ? usage.files * 1000L / maxFilesPerSecond : 0;
+        long byBytes = maxMbPerSecond > 0 ? usage.bytes * 1000L / (maxMbPerSecond * 1024 * 1024) : 0;
+        long pause = Math.max(byFiles, byBytes);
+        if (pause > 0) {
+            Thread.sleep(pause);
+        }
+    }
+
+    /**
+     * 统计文件数、字节数和最新修改时间，目录已被删除时返回null
+     */
+    private static Usage measure(Path entry) {
+        Usage usage = new Usage();
+        try {
+            Files.walkFileTree(entry, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    usage.touch(attrs);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    usage.touch(attrs);
+                    usage.files++;
+                    usage.bytes += attrs.size();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            return null;
+        }
+        return usage.lastModified.equals(Instant.EPOCH) ? null : usage;
+    }
+
+    private static final class Usage {
+        long files;
+        long bytes;
+        Instant lastModified = Instant.EPOCH;
+
+        void touch(BasicFileAttributes attrs) {
+            Instant modified = attrs.lastModifiedTime().toInstant();
+            if (modified.isAfter(lastModified)) {
+                lastModified = modified;
+            }
+        }
+    }
+
+    private static final class Round {
+        int remaining;
+        final Instant cutoff;
+        long removed;
+        long reclaimed;
+
+        Round(int remaining, Instant cutoff) {
+            this.remaining = remaining;
+            this.cutoff = cutoff;
+        }
+    }
+}
@@ -4,8 +4,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Base64;
+import java.util.UUID;
 
 /**
  * Base64工具类
@@ -17,6 +26,12 @@ public class Base64Utils {
     private static final Logger logger = LoggerFactory.getLogger(Base64Utils.class);
     private static final Base64.Encoder ENCODER = Base64.getEncoder();
     private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+    // 不属于Base64字母表的字节，非ASCII字符按此字节交给解码器，使其报错而不是截断成有效字母
+    private static final int INVALID_BYTE = 0xFF;
+
+    // 流式编解码的缓冲区大小，为3的倍数
+    private static final int BUFFER_SIZE = 3 * 8 * 1024;
     
     /**
      * 将字符串编码为Base64
@@ -81,32 +96,127 @@ public class Base64Utils {
         }
     }
     
+    /**
+     * 将输入流编码为Base64写入输出流，只使用固定大小的缓冲区
+     *
+     * @param in  原始数据
+     * @param out Base64输出，调用结束后不会关闭
+     * @return 读取的原始字节数
+     * @throws IOException 读取或写入失败
+     */
+    public static long encode(InputStream in, OutputStream out) throws IOException {
+        // 关闭编码流才会写出末尾的填充，这里屏蔽对底层输出流的关闭
+        OutputStream encoder = ENCODER.wrap(new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.flush();
+            }
+        });
+        long count;
+        try (encoder) {
+            count = transfer(in, encoder);
+        }
+        return count;
+    }
+
+    /**
+     * 将输入流编码为Base64写入通道
+     *
+     * @param in      原始数据
+     * @param channel Base64输出，调用结束后不会关闭
+     * @return 读取的原始字节数
+     * @throws IOException 读取或写入失败
+     */
+    public static long encode(InputStream in, WritableByteChannel channel) throws IOException {
+        return encode(in, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * 将Base64输入流解码写入输出流，只使用固定大小的缓冲区
+     *
+     * @param in  Base64数据
+     * @param out 解码输出，调用结束后不会关闭
+     * @return 写出的字节数
+     * @throws IOException 读取或写入失败，或数据不是有效的Base64
+     */
+    public static long decode(InputStream in, OutputStream out) throws IOException {
+        try {
+            return transfer(DECODER.wrap(in), out);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("无效的Base64数据: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 将Base64输入流解码写入通道
+     *
+     * @param in      Base64数据
+     * @param channel 解码输出，调用结束后不会关闭
+     * @return 写出的字节数
+     * @throws IOException 读取或写入失败，或数据不是有效的Base64
+     */
+    public static long decode(InputStream in, WritableByteChannel channel) throws IOException {
+        return decode(in, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * 将文件编码为Base64写入输出流，适用于大文件
+     *
+     * @param filePath 文件路径
+     * @param out      Base64输出，调用结束后不会关闭
+     * @return 文件字节数
+     * @throws IOException 读取或写入失败
+     */
+    public static long encodeFile(Path filePath, OutputStream out) throws IOException {
+        try (InputStream in = Files.newInputStream(filePath)) {
+            return encode(in, out);
+        }
+    }
+
+    /**
+     * 计算指定字节数编码为Base64后的长度（含填充）
+     *
+     * @param length 原始字节数
+     * @return 编码后的长度
+     */
+    public static long encodedLength(long length) {
+        return (length + 2) / 3 * 4;
+    }
+
     /**
      * 将文件编码为Base64字符串
-     * 
+     * 按块编码到与结果等长的缓冲区，不再整体读入文件；大文件应使用{@link #encodeFile(Path, OutputStream)}
+     *
      * @param filePath 文件路径
      * @return Base64编码后的文件内容
      */
     public static String encodeFile(String filePath) {
         try {
-            File file = new File(filePath);
-            if (!file.exists() || !file.isFile()) {
+            Path path = Paths.get(filePath);
+            if (!Files.isRegularFile(path)) {
                 logger.warn("文件不存在或不是常规文件: {}", filePath);
                 return null;
             }
-            
-            byte[] fileContent = new byte[(int) file.length()];
-            try (FileInputStream fis = new FileInputStream(file)) {
-                fis.read(fileContent);
+
+            long encodedLength = encodedLength(Files.size(path));
+            if (encodedLength > Integer.MAX_VALUE - 8) {
+                logger.warn("文件过大，无法编码为字符串: {}", filePath);
+                return null;
             }
-            
-            return ENCODER.encodeToString(fileContent);
+            ExactSizeOutputStream out = new ExactSizeOutputStream((int) encodedLength);
+            encodeFile(path, out);
+            return out.toLatin1String();
         } catch (IOException e) {
             logger.error("文件编码为Base64失败: {}", e.getMessage());
             return null;
         }
     }
-    
+
     /**
      * 将Base64编码的字符串解码并保存为文件
      * 
@@ -118,33 +228,137 @@ public class Base64Utils {
         if (base64String == null || targetFilePath == null) {
             return false;
         }
-        
+        return decodeToFile(asInputStream(base64String), Paths.get(targetFilePath));
+    }
+
+    /**
+     * 将Base64输入流解码并保存为文件
+     * 先解码到同目录的临时文件，成功后再替换目标文件，解码失败时目标文件保持不变
+     *
+     * @param in             Base64数据
+     * @param targetFilePath 目标文件路径
+     * @return 保存是否成功
+     */
+    public static boolean decodeToFile(InputStream in, Path targetFilePath) {
         try {
-            byte[] decodedBytes = DECODER.decode(base64String);
-            
             // 确保目标目录存在
-            File targetFile = new File(targetFilePath);
-            File parentDir = targetFile.getParentFile();
-            if (parentDir != null && !parentDir.exists()) {
-                boolean dirCreated = parentDir.mkdirs();
-                if (!dirCreated) {
-                    logger.error("创建目标目录失败: {}", parentDir.getAbsolutePath());
-                    return false;
-                }
+            Path parentDir = targetFilePath.toAbsolutePath().getParent();
+            if (parentDir != null) {
+                Files.createDirectories(parentDir);
             }
-            
-            try (FileOutputStream fos = new FileOutputStream(targetFile)) {
-                fos.write(decodedBytes);
+
+            Path tempFile = targetFilePath.resolveSibling(
+                    targetFilePath.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(tempFile, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE)) {
+                    decode(in, out);
+                }
+                try {
+                    Files.move(tempFile, targetFilePath, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, targetFilePath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                    // 清理失败不影响返回结果
+                }
             }
-            
+
             logger.info("Base64解码并保存文件成功: {}", targetFilePath);
             return true;
-        } catch (IOException | IllegalArgumentException e) {
+        } catch (IOException e) {
             logger.error("Base64解码并保存文件失败: {}", e.getMessage());
             return false;
         }
     }
-    
+
+    /**
+     * 以输入流的形式读取字符串中的Base64字符，不复制整个字符串
+     * 非ASCII字符读作无效字节，解码时会被拒绝
+     *
+     * @param base64 Base64字符串
+     * @return 输入流
+     */
+    public static InputStream asInputStream(CharSequence base64) {
+        return new InputStream() {
+            private int position;
+
+            @Override
+            public int read() {
+                return position < base64.length() ? toByte(base64.charAt(position++)) : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                int available = base64.length() - position;
+                if (available <= 0) {
+                    return -1;
+                }
+                int count = Math.min(len, available);
+                for (int i = 0; i < count; i++) {
+                    b[off + i] = (byte) toByte(base64.charAt(position++));
+                }
+                return count;
+            }
+        };
+    }
+
+    private static int toByte(char c) {
+        return c > 0x7F ? INVALID_BYTE : c;
+    }
+
+    private static long transfer(InputStream in, OutputStream out) throws IOException {
+        // 缓冲区为3的倍数，整块读满时编码流不需要在块间保留余下的字节
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long count = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            count += read;
+        }
+        return count;
+    }
+
+    /**
+     * 预先按最终长度分配的输出缓冲区，避免扩容时的复制
+     */
+    private static final class ExactSizeOutputStream extends OutputStream {
+        private final byte[] bytes;
+        private int size;
+
+        ExactSizeOutputStream(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (size == bytes.length) {
+                throw new IOException("文件在编码过程中被修改");
+            }
+            bytes[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > bytes.length - size) {
+                throw new IOException("文件在编码过程中被修改");
+            }
+            System.arraycopy(b, off, bytes, size, len);
+            size += len;
+        }
+
+        String toLatin1String() {
+            return new String(bytes, 0, size, StandardCharsets.ISO_8859_1);
+        }
+    }
+
     /**
      * 检查字符串是否为有效的Base64编码
      * 
@@ -0,0 +1,123 @@
+package org.backend.A_general.file.util;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.zip.CRC32C;
+
+/**
+ * 分块校验和
+ * 在分块写入磁盘的同时累加计算，写完即可比对，不需要再次读取分块。
+ * 客户端以"算法:十六进制值"的形式提交，支持crc32c和sha256
+ */
+public final class ChunkChecksum {
+
+    public static final String CRC32C_ALGORITHM = "crc32c";
+    public static final String SHA256_ALGORITHM = "sha256";
+
+    private final String algorithm;
+    private final byte[] expected;
+    private final CRC32C crc;
+    private final MessageDigest digest;
+
+    private ChunkChecksum(String algorithm, byte[] expected, CRC32C crc, MessageDigest digest) {
+        this.algorithm = algorithm;
+        this.expected = expected;
+        this.crc = crc;
+        this.digest = digest;
+    }
+
+    /**
+     * 解析客户端提交的校验和
+     *
+     * @param value 校验和，如crc32c:1a2b3c4d或sha256:...
+     * @return 校验和，未提交时返回null
+     * @throws IllegalArgumentException 格式错误或算法不支持
+     */
+    public static ChunkChecksum parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        int separator = value.indexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("校验和格式错误，应为 算法:十六进制值");
+        }
+        String algorithm = value.substring(0, separator).trim().toLowerCase(Locale.ROOT);
+        byte[] expected;
+        try {
+            expected = HexFormat.of().parseHex(value.substring(separator + 1).trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("校验和不是有效的十六进制值");
+        }
+        switch (algorithm) {
+            case CRC32C_ALGORITHM -> {
+                if (expected.length != 4) {
+                    throw new IllegalArgumentException("CRC32C校验和长度应为4字节");
+                }
+                return new ChunkChecksum(algorithm, expected, new CRC32C(), null);
+            }
+            case SHA256_ALGORITHM -> {
+                if (expected.length != 32) {
+                    throw new IllegalArgumentException("SHA-256校验和长度应为32字节");
+                }
+                try {
+                    return new ChunkChecksum(algorithm, expected, null, MessageDigest.getInstance("SHA-256"));
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            default -> throw new IllegalArgumentException("不支持的校验算法: " + algorithm);
+        }
+    }
+
+    /**
+     * 累加计算一段数据，不改变缓冲区的位置
+     *
+     * @param buffer 待写入的数据
+     */
+    public void update(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate();
+        if (crc != null) {
+            crc.update(view);
+        } else {
+            digest.update(view);
+        }
+    }
+
+    /**
+     * 累加计算一段数据
+     *
+     * @param bytes  数据
+     * @param offset 起始位置
+     * @param length 长度
+     */
+    public void update(byte[] bytes, int offset, int length) {
+        if (crc != null) {
+            crc.update(bytes, offset, length);
+        } else {
+            digest.update(bytes, offset, length);
+        }
+    }
+
+    /**
+     * 比对计算结果与客户端提交的值
+     *
+     * @return 是否一致
+     */
+    public boolean matches() {
+        byte[] actual;
+        if (crc != null) {
+            long value = crc.getValue();
+            actual = new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        } else {
+            actual = digest.digest();
+        }
+        return MessageDigest.isEqual(actual, expected);
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+}
@@ -0,0 +1,349 @@
+package org.backend.A_general.file.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 分块上传清单
+ * 每个上传在分块目录下保存一个内存映射的小文件，记录分块布局和已收到分块的位图，
+ * 断点续传查询、重复分块判断和完整性判断都是位运算，不需要列出目录。
+ * 同一清单文件的读写按路径分段加锁，同一进程内不同实例之间也互斥。
+ * 每次打开都会映射一次文件，使用完毕后需要关闭以立即解除映射，关闭后不能再访问
+ */
+public final class ChunkUploadManifest implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkUploadManifest.class);
+
+    // 清单文件名
+    public static final String MANIFEST_FILE = "upload.manifest";
+
+    private static final int MAGIC = 0x43484B4D;
+    private static final int VERSION = 1;
+
+    // 文件头：魔数、版本、总分块数、已收到分块数、分块大小、文件大小，之后是位图
+    private static final int OFFSET_TOTAL_CHUNKS = 8;
+    private static final int OFFSET_RECEIVED = 12;
+    private static final int OFFSET_CHUNK_SIZE = 16;
+    private static final int OFFSET_FILE_SIZE = 24;
+    private static final int HEADER_SIZE = 32;
+
+    // 清单引入之前的直接写入模式使用的布局描述文件和分块完成标记
+    private static final String LEGACY_META_FILE = "upload.meta";
+    private static final String LEGACY_DONE_EXTENSION = ".done";
+
+    private static final Object[] LOCKS = new Object[64];
+
+    // 立即解除内存映射，不可用时等待GC回收映射
+    private static final MethodHandle INVOKE_CLEANER = lookupInvokeCleaner();
+
+    static {
+        for (int i = 0; i < LOCKS.length; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+
+    private final MappedByteBuffer buffer;
+    private final Object lock;
+    private final int totalChunks;
+    private final long chunkSize;
+    private final long fileSize;
+    private final boolean created;
+    private boolean closed;
+
+    private ChunkUploadManifest(MappedByteBuffer buffer, Object lock, boolean created) {
+        this.buffer = buffer;
+        this.lock = lock;
+        this.totalChunks = buffer.getInt(OFFSET_TOTAL_CHUNKS);
+        this.chunkSize = buffer.getLong(OFFSET_CHUNK_SIZE);
+        this.fileSize = buffer.getLong(OFFSET_FILE_SIZE);
+        this.created = created;
+    }
+
+    /**
+     * 打开上传清单，不存在时按给定布局创建
+     *
+     * @param chunkDir    分块存储目录
+     * @param totalChunks 总分块数
+     * @param chunkSize   分块大小，未知时为0
+     * @param fileSize    文件大小
+     * @return 上传清单；已有清单与给定布局不一致时返回null
+     * @throws IOException 读写清单失败
+     */
+    public static ChunkUploadManifest openOrCreate(Path chunkDir, int totalChunks, long chunkSize, long fileSize) throws IOException {
+        Path file = chunkDir.resolve(MANIFEST_FILE);
+        Object lock = lockFor(file);
+        synchronized (lock) {
+            if (!Files.exists(file)) {
+                Files.createDirectories(chunkDir);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + bitmapBytes(totalChunks));
+                    buffer.putInt(0, MAGIC);
+                    buffer.putInt(4, VERSION);
+                    buffer.putInt(OFFSET_TOTAL_CHUNKS, totalChunks);
+                    buffer.putInt(OFFSET_RECEIVED, 0);
+                    buffer.putLong(OFFSET_CHUNK_SIZE, chunkSize);
+                    buffer.putLong(OFFSET_FILE_SIZE, fileSize);
+                    // 清单引入之前开始的上传，按目录中已有的分块补齐位图
+                    int received = 0;
+                    for (int chunkIndex : existingChunks(chunkDir, chunkSize, fileSize)) {
+                        if (chunkIndex >= 0 && chunkIndex < totalChunks) {
+                            int position = HEADER_SIZE + (chunkIndex >>> 3);
+                            buffer.put(position, (byte) (buffer.get(position) | (1 << (chunkIndex & 7))));
+                            received++;
+                        }
+                    }
+                    buffer.putInt(OFFSET_RECEIVED, received);
+                    if (received > 0) {
+                        logger.info("按已有分块创建上传清单: {}, 已收到 {}/{}", chunkDir, received, totalChunks);
+                    }
+                    return new ChunkUploadManifest(buffer, lock, true);
+                } catch (FileAlreadyExistsException ignored) {
+                    // 其他进程刚创建了清单，按已有清单处理
+                }
+            }
+            ChunkUploadManifest manifest = map(file, lock);
+            if (manifest == null || manifest.totalChunks != totalChunks || manifest.fileSize != fileSize
+                    || manifest.chunkSize != chunkSize) {
+                logger.warn("分块布局与上传清单不一致: {}", chunkDir);
+                return null;
+            }
+            return manifest;
+        }
+    }
+
+    /**
+     * 打开已有的上传清单
+     *
+     * @param chunkDir 分块存储目录
+     * @return 上传清单，不存在或已损坏时返回null
+     * @throws IOException 读取清单失败
+     */
+    public static ChunkUploadManifest open(Path chunkDir) throws IOException {
+        Path file = chunkDir.resolve(MANIFEST_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Object lock = lockFor(file);
+        synchronized (lock) {
+            return map(file, lock);
+        }
+    }
+
+    private static ChunkUploadManifest map(Path file, Object lock) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                logger.warn("上传清单已损坏: {}", file);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            int totalChunks = buffer.getInt(OFFSET_TOTAL_CHUNKS);
+            if (buffer.getInt(0) != MAGIC || totalChunks < 0 || size < HEADER_SIZE + bitmapBytes(totalChunks)) {
+                logger.warn("上传清单已损坏: {}", file);
+                return null;
+            }
+            return new ChunkUploadManifest(buffer, lock, false);
+        }
+    }
+
+    /**
+     * 列出目录中清单引入之前已写入的分块：分块文件模式为N.part，
+     * 直接写入模式为N.done标记，且布局描述需与当前布局一致
+     */
+    private static List<Integer> existingChunks(Path chunkDir, long chunkSize, long fileSize) throws IOException {
+        if (chunkSize <= 0) {
+            return ChunkUploadUtils.checkUploadStatus(chunkDir);
+        }
+        List<Integer> chunks = new ArrayList<>();
+        Path metaFile = chunkDir.resolve(LEGACY_META_FILE);
+        if (!Files.exists(metaFile)) {
+            return chunks;
+        }
+        Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(metaFile)) {
+            meta.load(in);
+        }
+        if (!String.valueOf(chunkSize).equals(meta.getProperty("chunkSize"))
+                || !String.valueOf(fileSize).equals(meta.getProperty("fileSize"))) {
+            logger.warn("旧的分块布局与当前布局不一致，已写入的分块需要重传: {}", chunkDir);
+            return chunks;
+        }
+        int totalChunks = ChunkUploadUtils.calculateChunkCount(fileSize, chunkSize);
+        for (int i = 0; i < totalChunks; i++) {
+            if (Files.exists(chunkDir.resolve(i + LEGACY_DONE_EXTENSION))) {
+                chunks.add(i);
+            }
+        }
+        return chunks;
+    }
+
+    private static MethodHandle lookupInvokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("无法主动解除内存映射，上传清单将在GC时释放: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 解除内存映射，之后不能再访问清单
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (INVOKE_CLEANER != null) {
+                try {
+                    INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+                } catch (Throwable e) {
+                    logger.warn("解除上传清单内存映射失败: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("上传清单已关闭");
+        }
+    }
+
+    private static Object lockFor(Path file) {
+        return LOCKS[Math.floorMod(file.toAbsolutePath().normalize().hashCode(), LOCKS.length)];
+    }
+
+    private static int bitmapBytes(int totalChunks) {
+        return (totalChunks + 7) >>> 3;
+    }
+
+    /**
+     * 判断分块是否已收到
+     *
+     * @param chunkIndex 分块索引
+     * @return 是否已收到
+     */
+    public boolean isReceived(int chunkIndex) {
+        if (chunkIndex < 0 || chunkIndex >= totalChunks) {
+            return false;
+        }
+        synchronized (lock) {
+            ensureOpen();
+            return (buffer.get(HEADER_SIZE + (chunkIndex >>> 3)) & (1 << (chunkIndex & 7))) != 0;
+        }
+    }
+
+    /**
+     * 标记分块已收到
+     *
+     * @param chunkIndex 分块索引
+     * @return 是否为首次标记，重复标记返回false
+     */
+    public boolean markReceived(int chunkIndex) {
+        if (chunkIndex < 0 || chunkIndex >= totalChunks) {
+            return false;
+        }
+        int position = HEADER_SIZE + (chunkIndex >>> 3);
+        int bit = 1 << (chunkIndex & 7);
+        synchronized (lock) {
+            ensureOpen();
+            byte value = buffer.get(position);
+            if ((value & bit) != 0) {
+                return false;
+            }
+            buffer.put(position, (byte) (value | bit));
+            buffer.putInt(OFFSET_RECEIVED, buffer.getInt(OFFSET_RECEIVED) + 1);
+            return true;
+        }
+    }
+
+    /**
+     * 已收到的分块数
+     *
+     * @return 已收到的分块数
+     */
+    public int receivedCount() {
+        synchronized (lock) {
+            ensureOpen();
+            return buffer.getInt(OFFSET_RECEIVED);
+        }
+    }
+
+    /**
+     * 是否已收到全部分块
+     *
+     * @return 是否完整
+     */
+    public boolean isComplete() {
+        return receivedCount() == totalChunks;
+    }
+
+    /**
+     * 已收到的分块索引
+     *
+     * @return 升序排列的分块索引
+     */
+    public List<Integer> receivedChunks() {
+        List<Integer> chunks = new ArrayList<>();
+        synchronized (lock) {
+            ensureOpen();
+            for (int i = 0, bytes = bitmapBytes(totalChunks); i < bytes; i++) {
+                int value = buffer.get(HEADER_SIZE + i) & 0xFF;
+                while (value != 0) {
+                    int bit = Integer.numberOfTrailingZeros(value);
+                    chunks.add((i << 3) + bit);
+                    value &= value - 1;
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * 清单是否由本次调用创建
+     *
+     * @return 是否新建
+     */
+    public boolean isCreated() {
+        return created;
+    }
+
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+}
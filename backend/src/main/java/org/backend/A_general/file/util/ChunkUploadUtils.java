@@ -5,8 +5,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.*;
 import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.util.*;
 import java.util.Comparator;
 import java.util.stream.Collectors;
@@ -25,6 +30,15 @@ public class ChunkUploadUtils {
     
     // 临时目录名称
     public static final String TEMP_DIR = "temp";
+
+    // 直接写入模式下预分配的目标数据文件
+    public static final String DIRECT_DATA_FILE = "upload.data";
+
+    // 记录上传用户和已预留配额的文件，清理上传时据此释放配额
+    public static final String RESERVATION_FILE = "upload.quota";
+
+    // 分块写入时每次读写的缓冲区大小
+    private static final int DIRECT_WRITE_BUFFER_SIZE = 256 * 1024;
     
     /**
      * 获取分块存储目录
@@ -94,20 +108,47 @@ public class ChunkUploadUtils {
      * @return 是否保存成功
      */
     public static boolean saveChunk(MultipartFile chunk, Path chunkDir, int chunkIndex) {
+        return saveChunk(chunk, chunkDir, chunkIndex, null);
+    }
+
+    /**
+     * 保存文件分块，提供校验和时边写入边计算，校验失败的分块不会保留
+     *
+     * @param chunk 分块文件
+     * @param chunkDir 分块存储目录
+     * @param chunkIndex 分块索引
+     * @param checksum 客户端提交的校验和，可为null
+     * @return 是否保存成功
+     */
+    public static boolean saveChunk(MultipartFile chunk, Path chunkDir, int chunkIndex, ChunkChecksum checksum) {
         if (chunk == null || chunk.isEmpty() || chunkDir == null) {
             return false;
         }
         
+        Path chunkFilePath = chunkDir.resolve(chunkIndex + CHUNK_EXTENSION);
         try {
             // 确保分块目录存在
             FileUtils.createDirectory(chunkDir.toString());
             
-            // 构建分块文件路径
-            String chunkFileName = chunkIndex + CHUNK_EXTENSION;
-            Path chunkFilePath = chunkDir.resolve(chunkFileName);
-            
             // 保存分块文件
-            chunk.transferTo(chunkFilePath);
+            if (checksum == null) {
+                chunk.transferTo(chunkFilePath);
+            } else {
+                try (InputStream in = chunk.getInputStream();
+                     OutputStream out = Files.newOutputStream(chunkFilePath)) {
+                    byte[] buffer = new byte[DIRECT_WRITE_BUFFER_SIZE];
+                    int bytesRead;
+                    while ((bytesRead = in.read(buffer)) != -1) {
+                        checksum.update(buffer, 0, bytesRead);
+                        out.write(buffer, 0, bytesRead);
+                    }
+                }
+                if (!checksum.matches()) {
+                    logger.warn("分块 {} 校验失败，算法: {}", chunkIndex, checksum.getAlgorithm());
+                    Files.deleteIfExists(chunkFilePath);
+                    return false;
+                }
+            }
             logger.info("分块 {} 保存成功，大小: {}KB", chunkIndex, chunk.getSize() / 1024);
             return true;
         } catch (IOException e) {
@@ -116,6 +157,163 @@ public class ChunkUploadUtils {
         }
     }
     
+    /**
+     * 直接写入模式：把分块写入预分配的目标文件的chunkIndex * chunkSize处
+     * 每个分块使用定位写入，互不影响，同一文件的分块可以并行上传，合并时无需再复制数据。
+     * 预分配只会扩展文件，不会覆盖其他请求已经写入的数据
+     *
+     * @param chunk 分块文件
+     * @param chunkDir 分块存储目录
+     * @param chunkIndex 分块索引
+     * @param chunkSize 分块大小（最后一块除外）
+     * @param fileSize 文件总大小
+     * @param preallocate 是否按fileSize预分配目标文件，由创建上传清单的请求执行
+     * @param checksum 客户端提交的校验和，可为null
+     * @return 是否写入成功
+     */
+    public static boolean writeChunkAt(MultipartFile chunk, Path chunkDir, int chunkIndex, long chunkSize, long fileSize,
+                                       boolean preallocate, ChunkChecksum checksum) {
+        if (chunk == null || chunk.isEmpty() || chunkDir == null) {
+            return false;
+        }
+
+        long offset = chunkIndex * chunkSize;
+        long expectedLength = Math.min(chunkSize, fileSize - offset);
+        if (offset >= fileSize || chunk.getSize() != expectedLength) {
+            logger.warn("分块大小与布局不一致: 分块 {}, 实际大小 {}, 期望大小 {}", chunkIndex, chunk.getSize(), expectedLength);
+            return false;
+        }
+
+        try {
+            FileUtils.createDirectory(chunkDir.toString());
+            Path dataFile = chunkDir.resolve(DIRECT_DATA_FILE);
+            if (preallocate) {
+                try (RandomAccessFile file = new RandomAccessFile(dataFile.toFile(), "rw")) {
+                    if (file.length() < fileSize) {
+                        file.setLength(fileSize);
+                    }
+                }
+            }
+
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 ReadableByteChannel in = Channels.newChannel(chunk.getInputStream())) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(DIRECT_WRITE_BUFFER_SIZE, expectedLength));
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    if (written + buffer.remaining() > expectedLength) {
+                        logger.warn("分块 {} 的数据超出声明的大小", chunkIndex);
+                        return false;
+                    }
+                    if (checksum != null) {
+                        checksum.update(buffer);
+                    }
+                    while (buffer.hasRemaining()) {
+                        written += channel.write(buffer, offset + written);
+                    }
+                    buffer.clear();
+                }
+            }
+            if (written != expectedLength) {
+                logger.warn("分块 {} 写入不完整: 已写入 {}, 期望 {}", chunkIndex, written, expectedLength);
+                return false;
+            }
+            if (checksum != null && !checksum.matches()) {
+                // 已写入的区域不记入清单，重传时会被覆盖
+                logger.warn("分块 {} 校验失败，算法: {}", chunkIndex, checksum.getAlgorithm());
+                return false;
+            }
+            logger.info("分块 {} 直接写入成功，偏移: {}, 大小: {}KB", chunkIndex, offset, written / 1024);
+            return true;
+        } catch (IOException e) {
+            logger.error("直接写入文件分块时发生错误: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 把一个已写入的分块累加到整个文件的摘要中
+     * 分块刚写入不久，通常仍在页缓存中
+     *
+     * @param chunkDir 分块存储目录
+     * @param chunkIndex 分块索引
+     * @param manifest 上传清单
+     * @param digest 整个文件的摘要
+     * @param buffer 读取缓冲区
+     * @throws IOException 读取分块失败
+     */
+    public static void digestChunk(Path chunkDir, int chunkIndex, ChunkUploadManifest manifest,
+                                   MessageDigest digest, ByteBuffer buffer) throws IOException {
+        Path source;
+        long position;
+        long end;
+        if (manifest.getChunkSize() > 0) {
+            source = chunkDir.resolve(DIRECT_DATA_FILE);
+            position = chunkIndex * manifest.getChunkSize();
+            end = Math.min(position + manifest.getChunkSize(), manifest.getFileSize());
+        } else {
+            source = chunkDir.resolve(chunkIndex + CHUNK_EXTENSION);
+            position = 0;
+            end = Long.MAX_VALUE;
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            end = Math.min(end, channel.size());
+            while (position < end) {
+                buffer.clear();
+                if (end - position < buffer.capacity()) {
+                    buffer.limit((int) (end - position));
+                }
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("分块 " + chunkIndex + " 读取不完整");
+                }
+                buffer.flip();
+                digest.update(buffer);
+                position += read;
+            }
+        }
+    }
+
+    /**
+     * 完成直接写入模式的上传：把数据落盘并重命名为目标文件，分块是否齐全由调用方通过上传清单判断
+     *
+     * @param chunkDir 分块存储目录
+     * @param targetFilePath 目标文件路径
+     * @param fileSize 文件总大小
+     * @return 是否完成
+     */
+    public static boolean commitDirectUpload(Path chunkDir, String targetFilePath, long fileSize) {
+        if (chunkDir == null || targetFilePath == null) {
+            return false;
+        }
+
+        try {
+            Path dataFile = chunkDir.resolve(DIRECT_DATA_FILE);
+            try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.WRITE)) {
+                if (channel.size() != fileSize) {
+                    logger.error("目标文件大小异常: {}, 期望 {}", channel.size(), fileSize);
+                    return false;
+                }
+                channel.force(true);
+            }
+
+            Path targetPath = Paths.get(targetFilePath);
+            FileUtils.createDirectory(targetPath.getParent().toString());
+            try {
+                Files.move(dataFile, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                // 临时目录与上传目录不在同一文件系统
+                Files.move(dataFile, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            logger.info("直接写入上传完成，目标文件: {}", targetFilePath);
+            return true;
+        } catch (IOException e) {
+            logger.error("完成直接写入上传时发生错误: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
     /**
      * 合并文件分块
      * 
@@ -0,0 +1,279 @@
+package org.backend.A_general.file.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 文件内容类型识别器
+ * 根据文件开头的字节（魔数）判断实际类型，不信任客户端声明的Content-Type。
+ * 允许的扩展名对应的签名编译成一棵字节Trie，签名中可以有通配字节（如RIFF、ftyp容器中的长度字段），
+ * 一次遍历文件头即可找出最长的匹配签名；编译后不可变、线程安全。
+ * 同一签名可能对应多种类型（如doc和xls同为OLE复合文档），声明的类型在其中时采用声明的类型，否则取第一个。
+ * 没有签名的文本类型（txt、csv）以文件头不含NUL字节且是合法的UTF-8来识别
+ */
+public final class ContentSniffer {
+
+    // 识别时读取的文件头长度
+    public static final int HEADER_LENGTH = 512;
+
+    private static final int ANY = -1;
+
+    // 扩展名对应的签名，格式为十六进制字节，??表示任意字节
+    private static final Map<String, List<Signature>> SIGNATURES = new LinkedHashMap<>();
+
+    // 没有签名、按文本内容识别的扩展名
+    private static final Map<String, String> TEXT_TYPES = Map.of(
+            "txt", "text/plain",
+            "csv", "text/csv"
+    );
+
+    static {
+        signature("jpg", "image/jpeg", "FF D8 FF");
+        signature("jpeg", "image/jpeg", "FF D8 FF");
+        signature("png", "image/png", "89 50 4E 47 0D 0A 1A 0A");
+        signature("gif", "image/gif", "47 49 46 38 37 61");
+        signature("gif", "image/gif", "47 49 46 38 39 61");
+        signature("bmp", "image/bmp", "42 4D");
+        signature("webp", "image/webp", "52 49 46 46 ?? ?? ?? ?? 57 45 42 50");
+        signature("pdf", "application/pdf", "25 50 44 46 2D");
+        signature("doc", "application/msword", "D0 CF 11 E0 A1 B1 1A E1");
+        signature("xls", "application/vnd.ms-excel", "D0 CF 11 E0 A1 B1 1A E1");
+        signature("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", "50 4B 03 04");
+        signature("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "50 4B 03 04");
+        signature("mp3", "audio/mpeg", "49 44 33");
+        signature("mp3", "audio/mpeg", "FF FB");
+        signature("mp3", "audio/mpeg", "FF F3");
+        signature("mp3", "audio/mpeg", "FF F2");
+        signature("wav", "audio/wav", "52 49 46 46 ?? ?? ?? ?? 57 41 56 45");
+        signature("ogg", "audio/ogg", "4F 67 67 53");
+        signature("flac", "audio/flac", "66 4C 61 43");
+        signature("mp4", "video/mp4", "?? ?? ?? ?? 66 74 79 70");
+        signature("mov", "video/mov", "?? ?? ?? ?? 66 74 79 70 71 74 20 20");
+        signature("mov", "video/mov", "?? ?? ?? ?? 6D 6F 6F 76");
+        signature("avi", "video/avi", "52 49 46 46 ?? ?? ?? ?? 41 56 49 20");
+        signature("mkv", "video/mkv", "1A 45 DF A3");
+        signature("webm", "video/webm", "1A 45 DF A3");
+    }
+
+    private final Node root;
+    private final List<String> textTypes;
+
+    private ContentSniffer(Node root, List<String> textTypes) {
+        this.root = root;
+        this.textTypes = textTypes;
+    }
+
+    /**
+     * 按允许的扩展名编译识别器，没有已知签名的扩展名会被忽略
+     *
+     * @param extensions 扩展名，可以带或不带开头的点
+     * @return 识别器
+     */
+    public static ContentSniffer compile(Collection<String> extensions) {
+        Builder root = new Builder();
+        List<String> textTypes = new ArrayList<>();
+        for (String extension : extensions) {
+            if (extension == null || extension.isBlank()) {
+                continue;
+            }
+            String key = extension.trim().toLowerCase(Locale.ROOT);
+            key = key.startsWith(".") ? key.substring(1) : key;
+            for (Signature signature : SIGNATURES.getOrDefault(key, List.of())) {
+                root.insert(signature.pattern, 0, signature.contentType);
+            }
+            String textType = TEXT_TYPES.get(key);
+            if (textType != null && !textTypes.contains(textType)) {
+                textTypes.add(textType);
+            }
+        }
+        return new ContentSniffer(root.build(), List.copyOf(textTypes));
+    }
+
+    /**
+     * 识别文件的实际类型
+     *
+     * @param header       文件开头的字节
+     * @param length       有效长度
+     * @param declaredType 客户端声明的MIME类型，可以为null
+     * @return 实际的MIME类型，不属于允许的类型时返回null
+     */
+    public String detect(byte[] header, int length, String declaredType) {
+        String declared = declaredType != null ? declaredType.trim().toLowerCase(Locale.ROOT) : null;
+        if ("image/jpg".equals(declared)) {
+            declared = "image/jpeg";
+        }
+        // 短签名（如BMP的"BM"）可能恰好是文本的开头，声明为文本且内容确实是文本时以声明为准
+        if (declared != null && textTypes.contains(declared) && isText(header, length)) {
+            return declared;
+        }
+        String[] candidates = longestMatch(header, length);
+        if (candidates != null) {
+            return pick(candidates, declared);
+        }
+        if (!textTypes.isEmpty() && isText(header, length)) {
+            return pick(textTypes.toArray(String[]::new), declared);
+        }
+        return null;
+    }
+
+    private static String pick(String[] candidates, String declared) {
+        for (String candidate : candidates) {
+            if (candidate.equals(declared)) {
+                return candidate;
+            }
+        }
+        return candidates[0];
+    }
+
+    /**
+     * 沿字节边和通配边遍历，返回最深的带类型节点
+     */
+    private String[] longestMatch(byte[] header, int length) {
+        String[] best = null;
+        int bestDepth = -1;
+        Node[] stack = new Node[16];
+        int[] depths = new int[16];
+        int top = 0;
+        stack[top] = root;
+        depths[top++] = 0;
+        while (top > 0) {
+            Node node = stack[--top];
+            int depth = depths[top];
+            if (node.types != null && depth > bestDepth) {
+                best = node.types;
+                bestDepth = depth;
+            }
+            if (depth >= length) {
+                continue;
+            }
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                depths = Arrays.copyOf(depths, depths.length * 2);
+            }
+            int index = Arrays.binarySearch(node.keys, header[depth]);
+            if (index >= 0) {
+                stack[top] = node.children[index];
+                depths[top++] = depth + 1;
+            }
+            if (node.any != null) {
+                stack[top] = node.any;
+                depths[top++] = depth + 1;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 判断文件头是否为文本：不含NUL字节，且是合法的UTF-8（末尾被截断的多字节字符除外）
+     */
+    private static boolean isText(byte[] header, int length) {
+        if (length == 0) {
+            return false;
+        }
+        int i = 0;
+        while (i < length) {
+            int b = header[i] & 0xFF;
+            if (b == 0) {
+                return false;
+            }
+            int continuation;
+            if (b < 0x80) {
+                i++;
+                continue;
+            } else if (b >= 0xC2 && b <= 0xDF) {
+                continuation = 1;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                continuation = 2;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                continuation = 3;
+            } else {
+                return false;
+            }
+            for (int j = 1; j <= continuation; j++) {
+                if (i + j >= length) {
+                    return true;
+                }
+                if ((header[i + j] & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+            i += continuation + 1;
+        }
+        return true;
+    }
+
+    private static void signature(String extension, String contentType, String hex) {
+        String[] parts = hex.trim().split("\\s+");
+        int[] pattern = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            pattern[i] = "??".equals(parts[i]) ? ANY : Integer.parseInt(parts[i], 16);
+        }
+        SIGNATURES.computeIfAbsent(extension, k -> new ArrayList<>()).add(new Signature(pattern, contentType));
+    }
+
+    private record Signature(int[] pattern, String contentType) {
+    }
+
+    /**
+     * 编译后的Trie节点，字节边按有符号字节值排序，查找时二分
+     */
+    private static final class Node {
+        private final byte[] keys;
+        private final Node[] children;
+        private final Node any;
+        private final String[] types;
+
+        private Node(byte[] keys, Node[] children, Node any, String[] types) {
+            this.keys = keys;
+            this.children = children;
+            this.any = any;
+            this.types = types;
+        }
+    }
+
+    /**
+     * 编译期使用的可变节点
+     */
+    private static final class Builder {
+        private final TreeMap<Byte, Builder> children = new TreeMap<>();
+        private Builder any;
+        private final List<String> types = new ArrayList<>();
+
+        void insert(int[] pattern, int depth, String contentType) {
+            if (depth == pattern.length) {
+                if (!types.contains(contentType)) {
+                    types.add(contentType);
+                }
+                return;
+            }
+            Builder next;
+            if (pattern[depth] == ANY) {
+                if (any == null) {
+                    any = new Builder();
+                }
+                next = any;
+            } else {
+                next = children.computeIfAbsent((byte) pattern[depth], k -> new Builder());
+            }
+            next.insert(pattern, depth + 1, contentType);
+        }
+
+        Node build() {
+            byte[] keys = new byte[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Byte, Builder> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i++] = entry.getValue().build();
+            }
+            return new Node(keys, nodes, any != null ? any.build() : null,
+                    types.isEmpty() ? null : types.toArray(String[]::new));
+        }
+    }
+}
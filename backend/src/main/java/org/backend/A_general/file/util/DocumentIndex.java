@@ -0,0 +1,432 @@
+package org.backend.A_general.file.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 文本文档的旁路索引
+ * 与文档存放在同一目录（文件名加.tidx后缀），内存映射读取，包含：
+ * 每行的起始偏移，用于统计行数和按行定位；
+ * 按块（约64KB，按行对齐）记录出现过的三字节组（ASCII字母转小写），搜索时先用关键词的三字节组求交集，只扫描候选块；
+ * 文档开头若干行的内容，用于预览。
+ * 文档的大小或修改时间与索引记录不一致时视为过期，调用方回退到直接读取文件
+ */
+public final class DocumentIndex {
+
+    // 索引文件后缀
+    public static final String INDEX_SUFFIX = ".tidx";
+
+    private static final int MAGIC = 0x54494458;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4 + 4 + 4 + 4;
+
+    // 索引中保存的预览行数和字节数上限
+    private static final int PREVIEW_MAX_LINES = 100;
+    private static final int PREVIEW_MAX_BYTES = 16 * 1024;
+
+    private final int lineCount;
+    private final int blockCount;
+    private final int trigramCount;
+    private final int previewLines;
+    private final LongBuffer lineOffsets;
+    private final IntBuffer blockFirstLines;
+    private final IntBuffer trigramKeys;
+    private final IntBuffer postingStarts;
+    private final IntBuffer postings;
+    private final ByteBuffer preview;
+
+    private DocumentIndex(MappedByteBuffer buffer) {
+        buffer.position(4 + 4 + 8 + 8);
+        lineCount = buffer.getInt();
+        blockCount = buffer.getInt();
+        trigramCount = buffer.getInt();
+        previewLines = buffer.getInt();
+        int previewBytes = buffer.getInt();
+        int postingCount;
+
+        int position = HEADER_BYTES;
+        lineOffsets = buffer.slice(position, (lineCount + 1) * 8).asLongBuffer();
+        position += (lineCount + 1) * 8;
+        blockFirstLines = buffer.slice(position, (blockCount + 1) * 4).asIntBuffer();
+        position += (blockCount + 1) * 4;
+        trigramKeys = buffer.slice(position, trigramCount * 4).asIntBuffer();
+        position += trigramCount * 4;
+        postingStarts = buffer.slice(position, (trigramCount + 1) * 4).asIntBuffer();
+        position += (trigramCount + 1) * 4;
+        postingCount = postingStarts.get(trigramCount);
+        postings = buffer.slice(position, postingCount * 4).asIntBuffer();
+        position += postingCount * 4;
+        preview = buffer.slice(position, previewBytes);
+    }
+
+    /**
+     * 索引文件路径
+     *
+     * @param document 文档路径
+     * @return 索引文件路径
+     */
+    public static Path indexPath(Path document) {
+        return document.resolveSibling(document.getFileName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * 打开文档的索引
+     *
+     * @param document 文档路径
+     * @return 索引，不存在、已过期或格式不符时返回null
+     */
+    public static DocumentIndex open(Path document) {
+        Path indexPath = indexPath(document);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(document, BasicFileAttributes.class);
+            try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+                if (channel.size() < HEADER_BYTES) {
+                    return null;
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                        || buffer.getLong(8) != attributes.size()
+                        || buffer.getLong(16) != attributes.lastModifiedTime().toMillis()) {
+                    return null;
+                }
+                return new DocumentIndex(buffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 判断文档是否已有有效的索引
+     *
+     * @param document 文档路径
+     * @return 索引存在且未过期
+     */
+    public static boolean isFresh(Path document) {
+        return open(document) != null;
+    }
+
+    /**
+     * 读取文档并生成索引，先写入临时文件再原子替换
+     *
+     * @param document   文档路径
+     * @param blockBytes 索引块的目标大小（字节）
+     * @throws IOException 读取或写入失败
+     */
+    public static void build(Path document, int blockBytes) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(document, BasicFileAttributes.class);
+
+        LongList lineOffsets = new LongList();
+        IntList blockFirstLines = new IntList();
+        Map<Integer, IntList> postings = new HashMap<>();
+        BitSet blockTrigrams = new BitSet(1 << 24);
+        IntList blockKeys = new IntList();
+        byte[] preview = new byte[PREVIEW_MAX_BYTES];
+        int previewBytes = 0;
+        int previewLines = 0;
+
+        lineOffsets.add(0);
+        blockFirstLines.add(0);
+        long offset = 0;
+        long blockStart = 0;
+        int window = 0;
+        int windowLength = 0;
+        boolean previewOpen = true;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(document), 64 * 1024)) {
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (previewOpen) {
+                    if (previewBytes < preview.length) {
+                        preview[previewBytes++] = (byte) b;
+                    } else {
+                        previewOpen = false;
+                    }
+                }
+                if (b == '\n') {
+                    lineOffsets.add(offset);
+                    window = 0;
+                    windowLength = 0;
+                    if (previewOpen && ++previewLines >= PREVIEW_MAX_LINES) {
+                        previewOpen = false;
+                    }
+                    if (offset - blockStart >= blockBytes) {
+                        // 块在行尾结束，关键词不会跨块
+                        flushBlock(blockFirstLines.size() - 1, blockKeys, blockTrigrams, postings);
+                        blockFirstLines.add(lineOffsets.size() - 1);
+                        blockStart = offset;
+                    }
+                    continue;
+                }
+                window = ((window << 8) | lower(b)) & 0xFFFFFF;
+                if (++windowLength >= 3 && !blockTrigrams.get(window)) {
+                    blockTrigrams.set(window);
+                    blockKeys.add(window);
+                }
+            }
+        }
+        if (lineOffsets.get(lineOffsets.size() - 1) != offset) {
+            // 最后一行没有换行符
+            lineOffsets.add(offset);
+            if (previewOpen) {
+                previewLines++;
+            }
+        }
+        int lineCount = lineOffsets.size() - 1;
+        if (blockFirstLines.get(blockFirstLines.size() - 1) < lineCount) {
+            flushBlock(blockFirstLines.size() - 1, blockKeys, blockTrigrams, postings);
+            blockFirstLines.add(lineCount);
+        } else if (blockFirstLines.size() == 1) {
+            blockFirstLines.add(lineCount);
+        }
+        if (!previewOpen) {
+            // 预览只保存完整的行
+            previewBytes = (int) Math.min(previewBytes, lineOffsets.get(Math.min(previewLines, lineCount)));
+        }
+
+        int[] keys = postings.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        Path indexPath = indexPath(document);
+        Path temp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (OutputStream fileOut = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(attributes.size());
+            out.writeLong(attributes.lastModifiedTime().toMillis());
+            out.writeInt(lineCount);
+            out.writeInt(blockFirstLines.size() - 1);
+            out.writeInt(keys.length);
+            out.writeInt(previewLines);
+            out.writeInt(previewBytes);
+            for (int i = 0; i < lineOffsets.size(); i++) {
+                out.writeLong(lineOffsets.get(i));
+            }
+            for (int i = 0; i < blockFirstLines.size(); i++) {
+                out.writeInt(blockFirstLines.get(i));
+            }
+            for (int key : keys) {
+                out.writeInt(key);
+            }
+            int start = 0;
+            for (int key : keys) {
+                out.writeInt(start);
+                start += postings.get(key).size();
+            }
+            out.writeInt(start);
+            for (int key : keys) {
+                IntList list = postings.get(key);
+                for (int i = 0; i < list.size(); i++) {
+                    out.writeInt(list.get(i));
+                }
+            }
+            out.write(preview, 0, previewBytes);
+        }
+        try {
+            Files.move(temp, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void flushBlock(int block, IntList blockKeys, BitSet blockTrigrams, Map<Integer, IntList> postings) {
+        for (int i = 0; i < blockKeys.size(); i++) {
+            int key = blockKeys.get(i);
+            postings.computeIfAbsent(key, k -> new IntList()).add(block);
+            blockTrigrams.clear(key);
+        }
+        blockKeys.clear();
+    }
+
+    /**
+     * ASCII字母转小写，其他字节不变
+     */
+    public static int lower(int b) {
+        return b >= 'A' && b <= 'Z' ? b + 32 : b & 0xFF;
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * 行的起始偏移
+     *
+     * @param line 行号，从0开始
+     * @return 偏移
+     */
+    public long lineStart(int line) {
+        return lineOffsets.get(line);
+    }
+
+    /**
+     * 行的结束偏移，不含换行符
+     *
+     * @param line 行号，从0开始
+     * @return 偏移
+     */
+    public long lineEnd(int line) {
+        return lineOffsets.get(line + 1);
+    }
+
+    public int blockCount() {
+        return blockCount;
+    }
+
+    public int blockFirstLine(int block) {
+        return blockFirstLines.get(block);
+    }
+
+    public int blockEndLine(int block) {
+        return blockFirstLines.get(block + 1);
+    }
+
+    /**
+     * 找出可能包含关键词的块
+     *
+     * @param keyword 已转小写的关键词字节
+     * @return 升序的块编号，关键词不足3字节时返回null表示需要扫描全部
+     */
+    public int[] candidateBlocks(byte[] keyword) {
+        if (keyword.length < 3) {
+            return null;
+        }
+        int[] candidates = null;
+        for (int i = 0; i + 3 <= keyword.length; i++) {
+            int key = ((keyword[i] & 0xFF) << 16) | ((keyword[i + 1] & 0xFF) << 8) | (keyword[i + 2] & 0xFF);
+            int[] blocks = postingsOf(key);
+            candidates = candidates == null ? blocks : intersect(candidates, blocks);
+            if (candidates.length == 0) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 索引中保存的预览内容是否覆盖了指定行数
+     *
+     * @param maxLines 行数
+     * @return 预览内容的字节数，无法覆盖时返回-1
+     */
+    public int previewBytes(int maxLines) {
+        int lines = Math.min(maxLines, lineCount);
+        if (lines > previewLines) {
+            return -1;
+        }
+        return (int) lineOffsets.get(lines);
+    }
+
+    /**
+     * 读取索引中保存的预览内容
+     *
+     * @param length 字节数
+     * @return 内容
+     */
+    public byte[] previewContent(int length) {
+        byte[] bytes = new byte[length];
+        preview.get(0, bytes);
+        return bytes;
+    }
+
+    private int[] postingsOf(int key) {
+        int low = 0;
+        int high = trigramCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = trigramKeys.get(mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                int start = postingStarts.get(mid);
+                int[] blocks = new int[postingStarts.get(mid + 1) - start];
+                postings.get(start, blocks);
+                return blocks;
+            }
+        }
+        return new int[0];
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static final class IntList {
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -4,14 +4,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Base64;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 文档工具类
@@ -64,11 +70,23 @@ public class DocumentUtils {
         }
         
         try {
+            // 有索引时直接取索引中保存的开头内容，或按行偏移只读取需要的字节
+            DocumentIndex index = DocumentIndex.open(path);
+            if (index != null) {
+                int length = index.previewBytes(maxLines);
+                if (length >= 0) {
+                    return joinLines(index.previewContent(length));
+                }
+                long end = index.lineStart(Math.min(maxLines, index.lineCount()));
+                if (end <= Integer.MAX_VALUE) {
+                    return joinLines(readRange(path, (int) end));
+                }
+            }
             // 读取文件内容，限制行数
-            return Files.lines(path, StandardCharsets.UTF_8)
-                    .limit(maxLines)
-                    .collect(Collectors.joining("\n"));
-        } catch (IOException e) {
+            try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+                return lines.limit(maxLines).collect(Collectors.joining("\n"));
+            }
+        } catch (IOException | UncheckedIOException e) {
             logger.error("读取文档预览时发生错误: {}", e.getMessage(), e);
             return "无法读取文件内容";
         }
@@ -114,13 +132,21 @@ public class DocumentUtils {
             return "";
         }
         
-        try {
-            byte[] fileContent = Files.readAllBytes(path);
-            return Base64.getEncoder().encodeToString(fileContent);
-        } catch (IOException e) {
-            logger.error("转换文件为Base64时发生错误: {}", e.getMessage(), e);
-            return "";
-        }
+        // 按块编码，不再把整个文件读入内存
+        String base64 = Base64Utils.encodeFile(filePath);
+        return base64 != null ? base64 : "";
+    }
+
+    /**
+     * 将文件以Base64写入输出流，只占用固定大小的缓冲区，适用于大附件
+     *
+     * @param filePath 文件路径
+     * @param out      输出流，调用结束后不会关闭
+     * @return 文件字节数
+     * @throws IOException 读取或写入失败
+     */
+    public static long writeBase64(Path filePath, OutputStream out) throws IOException {
+        return Base64Utils.encodeFile(filePath, out);
     }
     
     /**
@@ -140,24 +166,36 @@ public class DocumentUtils {
             Path targetFilePath = Paths.get(targetPath);
             FileUtils.createDirectory(targetFilePath.getParent().toString());
             
-            // 解码并写入文件
-            byte[] decodedContent = Base64.getDecoder().decode(base64Content);
-            Files.write(targetFilePath, decodedContent);
-            return true;
-        } catch (IOException | IllegalArgumentException e) {
+            // 边解码边写入文件
+            return Base64Utils.decodeToFile(Base64Utils.asInputStream(base64Content), targetFilePath);
+        } catch (RuntimeException e) {
             logger.error("从Base64恢复文件时发生错误: {}", e.getMessage(), e);
             return false;
         }
     }
     
     /**
-     * 搜索文本文件中的关键词
+     * 搜索文本文件中的关键词，按字面匹配，忽略ASCII字母大小写
      * 
      * @param filePath 文件路径
      * @param keyword 关键词
      * @return 包含关键词的行号和内容列表
      */
     public static List<String> searchInTextFile(String filePath, String keyword) {
+        return searchInTextFile(filePath, keyword, false);
+    }
+    
+    /**
+     * 搜索文本文件中的关键词
+     * 文件以内存映射方式读取；按字面搜索且有索引时，只扫描索引中可能包含关键词的块。
+     * 正则搜索需要逐行解码，不使用索引
+     * 
+     * @param filePath 文件路径
+     * @param keyword 关键词
+     * @param regex 是否把关键词作为正则表达式（忽略大小写）
+     * @return 包含关键词的行号和内容列表
+     */
+    public static List<String> searchInTextFile(String filePath, String keyword, boolean regex) {
         if (filePath == null || filePath.isEmpty() || keyword == null || keyword.isEmpty()) {
             return List.of();
         }
@@ -167,23 +205,48 @@ public class DocumentUtils {
             return List.of();
         }
         
-        try {
-            // 编译关键词为正则表达式，忽略大小写
-            Pattern pattern = Pattern.compile(keyword, Pattern.CASE_INSENSITIVE);
-            
-            // 逐行搜索
-            List<String> results = new java.util.ArrayList<>();
-            try (BufferedReader reader = new BufferedReader(new FileReader(filePath, StandardCharsets.UTF_8))) {
-                String line;
-                int lineNum = 0;
-                while ((line = reader.readLine()) != null) {
-                    lineNum++;
-                    if (pattern.matcher(line).find()) {
-                        results.add("第" + lineNum + "行: " + line);
-                    }
+        LineFilter filter;
+        byte[] needle = null;
+        if (regex) {
+            try {
+                Pattern pattern = Pattern.compile(keyword, Pattern.CASE_INSENSITIVE);
+                filter = (data, start, end) -> pattern.matcher(decode(data, start, end)).find();
+            } catch (PatternSyntaxException e) {
+                logger.warn("搜索关键词不是有效的正则表达式: {}", e.getMessage());
+                return List.of();
+            }
+        } else {
+            needle = keyword.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < needle.length; i++) {
+                needle[i] = (byte) DocumentIndex.lower(needle[i]);
+            }
+            byte[] lowered = needle;
+            filter = (data, start, end) -> containsIgnoreCase(data, start, end, lowered);
+        }
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return List.of();
+            }
+            if (size > Integer.MAX_VALUE) {
+                logger.warn("文件超过内存映射的大小上限，无法搜索: {}", filePath);
+                return List.of();
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            List<String> results = new ArrayList<>();
+            DocumentIndex index = DocumentIndex.open(path);
+            int[] blocks = index != null && needle != null ? index.candidateBlocks(needle) : null;
+            if (blocks == null) {
+                scanLines(data, 0, (int) size, 0, filter, results);
+            } else {
+                for (int block : blocks) {
+                    int firstLine = index.blockFirstLine(block);
+                    int start = (int) index.lineStart(firstLine);
+                    int end = (int) index.lineStart(index.blockEndLine(block));
+                    scanLines(data, start, end, firstLine, filter, results);
                 }
             }
-            
             return results;
         } catch (IOException e) {
             logger.error("搜索文本文件时发生错误: {}", e.getMessage(), e);
@@ -192,7 +255,7 @@ public class DocumentUtils {
     }
     
     /**
-     * 计算文本文件的行数
+     * 计算文本文件的行数，有索引时直接读取索引
      * 
      * @param filePath 文件路径
      * @return 行数
@@ -207,11 +270,99 @@ public class DocumentUtils {
             return 0;
         }
         
-        try {
-            return (int) Files.lines(path).count();
+        DocumentIndex index = DocumentIndex.open(path);
+        if (index != null) {
+            return index.lineCount();
+        }
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            long lines = 0;
+            byte last = '\n';
+            while (channel.read(buffer.clear()) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    last = buffer.get();
+                    if (last == '\n') {
+                        lines++;
+                    }
+                }
+            }
+            // 最后一行没有换行符时也计入
+            return (int) (last == '\n' ? lines : lines + 1);
         } catch (IOException e) {
             logger.error("计算文件行数时发生错误: {}", e.getMessage(), e);
             return 0;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 逐行检查区间内的内容，行号从firstLine开始计数
+     */
+    private static void scanLines(ByteBuffer data, int start, int end, int firstLine, LineFilter filter, List<String> results) {
+        int lineNum = firstLine;
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && data.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && data.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            lineNum++;
+            if (filter.matches(data, lineStart, contentEnd)) {
+                results.add("第" + lineNum + "行: " + decode(data, lineStart, contentEnd));
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+    
+    private static boolean containsIgnoreCase(ByteBuffer data, int start, int end, byte[] needle) {
+        int last = end - needle.length;
+        int first = needle[0] & 0xFF;
+        for (int i = start; i <= last; i++) {
+            if (DocumentIndex.lower(data.get(i)) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < needle.length && DocumentIndex.lower(data.get(i + j)) == (needle[j] & 0xFF)) {
+                j++;
+            }
+            if (j == needle.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String decode(ByteBuffer data, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        data.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 读取文件开头指定字节数
+     */
+    private static byte[] readRange(Path path, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // 读满为止
+            }
+            return buffer.array();
+        }
+    }
+    
+    /**
+     * 把按行截取的内容转换为以换行符连接的文本，去掉行尾的回车和最后的换行
+     */
+    private static String joinLines(byte[] content) {
+        String text = new String(content, StandardCharsets.UTF_8).replace("\r\n", "\n");
+        return text.endsWith("\n") ? text.substring(0, text.length() - 1) : text;
+    }
+    
+    @FunctionalInterface
+    private interface LineFilter {
+        boolean matches(ByteBuffer data, int start, int end);
+    }
+}
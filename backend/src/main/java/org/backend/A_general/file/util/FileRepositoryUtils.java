@@ -120,8 +120,7 @@ public class FileRepositoryUtils {
             return 0;
         }
         
-        List<FileUpload> userFiles = repository.findByUserIdAndDeletedFalseOrderByCreatedAtDesc(userId);
-        return userFiles.stream().mapToLong(FileUpload::getFileSize).sum();
+        return repository.sumFileSizeByUserId(userId);
     }
     
     /**
@@ -1,13 +1,18 @@
 package org.backend.A_general.file.util;
 
+import org.backend.A_general.base.exception.BusinessException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
 import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
 
 /**
@@ -17,7 +22,7 @@ import java.util.List;
 public class FileUploadUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(FileUploadUtils.class);
-    
+
     // 允许上传的图片文件类型
     public static final List<String> ALLOWED_IMAGE_TYPES = Arrays.asList(
             "image/jpeg", "image/jpg", "image/png", "image/gif", "image/bmp", "image/webp"
@@ -103,6 +108,104 @@ public class FileUploadUtils {
         }
     }
     
+    /**
+     * 流式保存的结果
+     *
+     * @param contentHash 十六进制的SHA-256哈希
+     * @param size        文件大小（字节）
+     * @param contentType 按文件头识别出的MIME类型
+     */
+    public record StreamedFile(String contentHash, long size, String contentType) {
+    }
+
+    /**
+     * 把输入流直接写入指定路径，写入的同时计算SHA-256并累计大小。
+     * 先把文件头读入写入缓冲区，识别出实际类型后才创建目标文件，类型不允许时不写入任何数据；
+     * 文件头就是缓冲区的开头部分，识别后随其余内容一起写出，不重复读取。
+     * 超过大小上限时立即停止读取，并删除已写入的部分
+     *
+     * @param in          输入流，通常是请求体
+     * @param targetPath  目标文件路径
+     * @param maxBytes    大小上限（字节）
+     * @param contentType 声明的MIME类型
+     * @param sniffer     文件类型识别器
+     * @return 哈希、大小和实际类型
+     * @throws BusinessException 超过大小上限或类型不允许
+     * @throws IOException       读取或写入失败
+     */
+    public static StreamedFile saveStreamWithHash(InputStream in, Path targetPath, long maxBytes, String contentType,
+                                                  ContentSniffer sniffer) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        int buffered = 0;
+        int read = 0;
+        while (buffered < ContentSniffer.HEADER_LENGTH
+                && (read = in.read(buffer, buffered, buffer.length - buffered)) != -1) {
+            buffered += read;
+        }
+        if (buffered > maxBytes) {
+            throw new BusinessException("文件大小超过限制", "FILE_TOO_LARGE", HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+        // 空文件由调用方拒绝
+        String detectedType = buffered == 0 ? contentType : sniffer.detect(buffer, buffered, contentType);
+        if (detectedType == null) {
+            throw new BusinessException("文件内容不属于允许的类型", "FILE_TYPE_MISMATCH",
+                    HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        }
+
+        FileUtils.createDirectory(targetPath.getParent().toString());
+        long size = buffered;
+        boolean success = false;
+        try (OutputStream out = Files.newOutputStream(targetPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            digest.update(buffer, 0, buffered);
+            out.write(buffer, 0, buffered);
+            if (read != -1) {
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new BusinessException("文件大小超过限制", "FILE_TOO_LARGE", HttpStatus.PAYLOAD_TOO_LARGE);
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                Files.deleteIfExists(targetPath);
+            }
+        }
+        logger.info("文件保存成功: {}, 大小: {}KB, 类型: {}", targetPath, size / 1024, detectedType);
+        return new StreamedFile(HexFormat.of().formatHex(digest.digest()), size, detectedType);
+    }
+
+    /**
+     * 读取已存储文件的开头并识别实际类型
+     *
+     * @param path         文件路径
+     * @param declaredType 声明的MIME类型
+     * @param sniffer      文件类型识别器
+     * @return 实际的MIME类型，不属于允许的类型时返回null
+     * @throws IOException 读取失败
+     */
+    public static String detectContentType(Path path, String declaredType, ContentSniffer sniffer) throws IOException {
+        byte[] header = new byte[ContentSniffer.HEADER_LENGTH];
+        int length = 0;
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while (length < header.length && (read = in.read(header, length, header.length - length)) != -1) {
+                length += read;
+            }
+        }
+        return sniffer.detect(header, length, declaredType);
+    }
+
     /**
      * 合并文件分块
      * 
@@ -6,14 +6,20 @@ import org.slf4j.LoggerFactory;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Base64;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Iterator;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
 
 /**
  * 媒体工具类
@@ -55,19 +61,8 @@ public class MediaUtils {
                 return false;
             }
             
-            // 计算缩放比例，保持原图比例
-            int originalWidth = originalImage.getWidth();
-            int originalHeight = originalImage.getHeight();
-            double scale = Math.min((double) width / originalWidth, (double) height / originalHeight);
-            
-            int newWidth = (int) (originalWidth * scale);
-            int newHeight = (int) (originalHeight * scale);
-            
-            // 创建缩略图
-            BufferedImage thumbnail = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
-            Graphics2D g = thumbnail.createGraphics();
-            g.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
-            g.dispose();
+            // 按比例逐级缩放
+            BufferedImage thumbnail = scaleImage(originalImage, width, height);
             
             // 确保目标目录存在
             Path target = Paths.get(targetPath);
@@ -87,6 +82,106 @@ public class MediaUtils {
         }
     }
     
+    /**
+     * 按比例缩放图片，使其不超过指定宽高
+     * 缩小超过一半时先用双线性插值逐次减半，最后一步用双三次插值，
+     * 比一次性缩放保留更多细节，也比逐像素平均更快。不会放大图片
+     *
+     * @param source 源图片
+     * @param maxWidth 最大宽度
+     * @param maxHeight 最大高度
+     * @return 缩放后的图片，不透明图片为RGB，带透明通道的为ARGB
+     */
+    public static BufferedImage scaleImage(BufferedImage source, int maxWidth, int maxHeight) {
+        double scale = Math.min(1.0, Math.min((double) maxWidth / source.getWidth(), (double) maxHeight / source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            boolean finalStep = width / 2 < targetWidth || height / 2 < targetHeight;
+            width = finalStep ? targetWidth : width / 2;
+            height = finalStep ? targetHeight : height / 2;
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, finalStep
+                    ? RenderingHints.VALUE_INTERPOLATION_BICUBIC : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if (type == BufferedImage.TYPE_INT_RGB) {
+                // 透明区域按白色背景合成，避免转成RGB后变黑
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+            }
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    /**
+     * 读取图片尺寸，不解码像素数据
+     *
+     * @param path 图片路径
+     * @return 宽和高，无法识别时返回null
+     */
+    public static int[] readImageSize(Path path) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            logger.debug("读取图片尺寸失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 保存图片，JPEG按指定质量压缩
+     *
+     * @param image 图片
+     * @param target 目标路径
+     * @param format 图片格式，jpg或png
+     * @param quality JPEG压缩质量，0到1之间
+     * @throws IOException 写入失败
+     */
+    public static void writeImage(BufferedImage image, Path target, String format, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("不支持的图片格式: " + format);
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(Files.newOutputStream(target))) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed() && ("jpg".equals(format) || "jpeg".equals(format))) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+                if (param.canWriteProgressive()) {
+                    param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                }
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
     /**
      * 使用默认尺寸生成图片缩略图
      * 
@@ -121,17 +216,34 @@ public class MediaUtils {
                 return "";
             }
             
-            // 读取图片并转换为Base64
-            byte[] imageData = Files.readAllBytes(path);
-            String base64 = Base64.getEncoder().encodeToString(imageData);
-            
-            // 返回带前缀的数据URI格式
-            return "data:image/" + extension.toLowerCase() + ";base64," + base64;
+            // 前缀和Base64一起写入预先分配的缓冲区，返回数据URI格式
+            String prefix = "data:image/" + extension.toLowerCase() + ";base64,";
+            long length = prefix.length() + Base64Utils.encodedLength(Files.size(path));
+            if (length > Integer.MAX_VALUE - 8) {
+                return "";
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) length);
+            writeImageDataUri(path, out);
+            return out.toString(StandardCharsets.ISO_8859_1);
         } catch (IOException e) {
             logger.error("转换图片为Base64时发生错误: {}", e.getMessage(), e);
             return "";
         }
     }
+
+    /**
+     * 将图片以数据URI格式写入输出流，只占用固定大小的缓冲区
+     *
+     * @param imagePath 图片路径
+     * @param out       输出流，调用结束后不会关闭
+     * @return 图片字节数
+     * @throws IOException 读取或写入失败
+     */
+    public static long writeImageDataUri(Path imagePath, OutputStream out) throws IOException {
+        String extension = FileUtils.getFileExtension(imagePath.toString());
+        out.write(("data:image/" + extension.toLowerCase() + ";base64,").getBytes(StandardCharsets.ISO_8859_1));
+        return Base64Utils.encodeFile(imagePath, out);
+    }
     
     /**
      * 从Base64编码恢复图片
@@ -146,27 +258,23 @@ public class MediaUtils {
         }
         
         try {
-            // 移除data URI前缀
-            String base64Data = base64Image;
+            // 跳过data URI前缀，只包装原字符串的剩余部分，不复制
+            int start = 0;
             if (base64Image.startsWith("data:image/")) {
-                Pattern pattern = Pattern.compile("data:image/[^;]+;base64,(.*)");
-                Matcher matcher = pattern.matcher(base64Image);
-                if (matcher.find()) {
-                    base64Data = matcher.group(1);
+                int comma = base64Image.indexOf(";base64,");
+                if (comma > 0) {
+                    start = comma + ";base64,".length();
                 }
             }
-            
-            // 解码Base64数据
-            byte[] imageBytes = Base64.getDecoder().decode(base64Data);
-            
+            CharSequence base64Data = CharBuffer.wrap(base64Image, start, base64Image.length());
+
             // 确保目标目录存在
             Path target = Paths.get(targetPath);
             FileUtils.createDirectory(target.getParent().toString());
-            
-            // 写入文件
-            Files.write(target, imageBytes);
-            return true;
-        } catch (IOException | IllegalArgumentException e) {
+
+            // 边解码边写入文件
+            return Base64Utils.decodeToFile(Base64Utils.asInputStream(base64Data), target);
+        } catch (RuntimeException e) {
             logger.error("从Base64恢复图片时发生错误: {}", e.getMessage(), e);
             return false;
         }
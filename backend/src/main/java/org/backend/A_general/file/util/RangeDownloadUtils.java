@@ -0,0 +1,375 @@
+package org.backend.A_general.file.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 断点续传下载工具类
+ * 支持Range/多段Range、ETag和Last-Modified条件请求，文件内容经FileChannel.transferTo输出，
+ * 容器支持sendfile时整段响应直接交给容器由内核发送
+ */
+public class RangeDownloadUtils {
+
+    private static final Logger logger = LoggerFactory.getLogger(RangeDownloadUtils.class);
+
+    // Tomcat NIO连接器的sendfile请求属性
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // 小于该大小的响应直接写出，sendfile的额外开销不划算
+    private static final long SENDFILE_MIN_LENGTH = 48 * 1024;
+
+    // 单个请求最多接受的Range段数，防止大量小段放大请求
+    private static final int MAX_RANGES = 16;
+
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    /**
+     * 下载文件的描述信息
+     *
+     * @param path         文件路径
+     * @param length       文件长度
+     * @param contentType  内容类型
+     * @param fileName     下载时的文件名
+     * @param etag         ETag，带引号，弱ETag以W/开头
+     * @param lastModified 最后修改时间
+     * @param cacheControl Cache-Control响应头
+     */
+    public record DownloadTarget(Path path, long length, String contentType, String fileName,
+                                 String etag, Instant lastModified, String cacheControl) {
+    }
+
+    /**
+     * 由内容哈希生成强ETag，没有哈希时由长度和修改时间生成弱ETag
+     *
+     * @param contentHash  内容哈希
+     * @param length       文件长度
+     * @param lastModified 最后修改时间
+     * @return ETag
+     */
+    public static String buildEtag(String contentHash, long length, Instant lastModified) {
+        if (contentHash != null && !contentHash.isEmpty()) {
+            return "\"" + contentHash + "\"";
+        }
+        return "W/\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified.toEpochMilli()) + "\"";
+    }
+
+    /**
+     * 处理下载请求并写出响应
+     *
+     * @param request  HTTP请求
+     * @param response HTTP响应
+     * @param target   下载文件
+     * @throws IOException 读取文件或写出响应失败
+     */
+    public static void serve(HttpServletRequest request, HttpServletResponse response, DownloadTarget target) throws IOException {
+        long length = target.length();
+        Instant lastModified = target.lastModified().truncatedTo(ChronoUnit.SECONDS);
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, target.etag());
+        response.setHeader(HttpHeaders.LAST_MODIFIED, formatHttpDate(lastModified));
+        if (target.cacheControl() != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, target.cacheControl());
+        }
+
+        if (isNotModified(request, target.etag(), lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && !isIfRangeSatisfied(request, target.etag(), lastModified)) {
+            // If-Range不匹配说明客户端缓存的片段已过期，返回完整内容
+            rangeHeader = null;
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(target.fileName()));
+        boolean headOnly = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        if (rangeHeader == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(target.contentType());
+            response.setContentLengthLong(length);
+            if (!headOnly) {
+                writeRange(request, response, target.path(), 0, length);
+            }
+            return;
+        }
+
+        List<long[]> ranges = parseRanges(rangeHeader, length);
+        if (ranges == null) {
+            // 格式错误的Range头按规范忽略
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(target.contentType());
+            response.setContentLengthLong(length);
+            if (!headOnly) {
+                writeRange(request, response, target.path(), 0, length);
+            }
+            return;
+        }
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long[] range = ranges.getFirst();
+            response.setContentType(target.contentType());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range, length));
+            response.setContentLengthLong(range[1] - range[0] + 1);
+            if (!headOnly) {
+                writeRange(request, response, target.path(), range[0], range[1] + 1);
+            }
+            return;
+        }
+
+        writeMultipart(response, target, ranges, headOnly);
+    }
+
+    /**
+     * 解析Range请求头，重叠或相邻的段合并为一段
+     *
+     * @param header Range请求头
+     * @param length 文件长度
+     * @return 按起始位置排序的闭区间列表；格式错误返回null；没有可满足的段返回空列表
+     */
+    static List<long[]> parseRanges(String header, long length) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = header.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            String s = spec.trim();
+            int dash = s.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                long start;
+                long end;
+                if (dash == 0) {
+                    // 后缀形式：最后N个字节
+                    long suffix = Long.parseLong(s.substring(1));
+                    if (suffix <= 0) {
+                        continue;
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(s.substring(0, dash));
+                    if (dash == s.length() - 1) {
+                        // 省略结束位置时到文件末尾，起始位置超出文件时属于不可满足而不是格式错误
+                        end = length - 1;
+                    } else {
+                        end = Long.parseLong(s.substring(dash + 1));
+                        if (end < start) {
+                            return null;
+                        }
+                        end = Math.min(end, length - 1);
+                    }
+                }
+                if (start < length && start <= end) {
+                    ranges.add(new long[]{start, end});
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        ranges.sort(Comparator.comparingLong(r -> r[0]));
+        List<long[]> merged = new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged.getLast();
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 生成附件下载的Content-Disposition响应头，文件名按RFC 5987编码
+     *
+     * @param fileName 文件名
+     * @return 响应头的值
+     */
+    public static String contentDisposition(String fileName) {
+        return ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString();
+    }
+
+    /**
+     * 判断条件请求是否可以返回304
+     *
+     * @param request      HTTP请求
+     * @param etag         当前ETag
+     * @param lastModified 最后修改时间，精确到秒
+     * @return 客户端缓存是否仍然有效
+     */
+    public static boolean isNotModified(HttpServletRequest request, String etag, Instant lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // 存在If-None-Match时忽略If-Modified-Since，按弱比较判断
+            return matchesAny(ifNoneMatch, etag, false);
+        }
+        Instant since = parseHttpDate(request.getHeader(HttpHeaders.IF_MODIFIED_SINCE));
+        return since != null && !lastModified.isAfter(since);
+    }
+
+    private static boolean isIfRangeSatisfied(HttpServletRequest request, String etag, Instant lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range要求强比较
+            return matchesAny(ifRange, etag, true);
+        }
+        Instant date = parseHttpDate(ifRange);
+        return date != null && lastModified.equals(date);
+    }
+
+    private static boolean matchesAny(String header, String etag, boolean strong) {
+        if ("*".equals(header.trim())) {
+            return true;
+        }
+        if (strong && etag.startsWith("W/")) {
+            return false;
+        }
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : header.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/")) {
+                if (strong) {
+                    continue;
+                }
+                c = c.substring(2);
+            }
+            if (c.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 输出文件的[start, end)区间
+     * 容器支持sendfile时只设置请求属性，由容器在请求结束后调用sendfile发送
+     */
+    private static void writeRange(HttpServletRequest request, HttpServletResponse response,
+                                   Path path, long start, long end) throws IOException {
+        if (end - start >= SENDFILE_MIN_LENGTH && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end);
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            transfer(channel, Channels.newChannel(out), start, end);
+        }
+        out.flush();
+    }
+
+    private static void writeMultipart(HttpServletResponse response, DownloadTarget target,
+                                       List<long[]> ranges, boolean headOnly) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + target.contentType() + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range, target.length()) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + (range[1] - range[0] + 1);
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (headOnly) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel outChannel = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(target.path(), StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(partHeaders.get(i));
+                transfer(channel, outChannel, ranges.get(i)[0], ranges.get(i)[1] + 1);
+            }
+        }
+        out.write(closing);
+        out.flush();
+    }
+
+    private static void transfer(FileChannel channel, WritableByteChannel target, long start, long end) throws IOException {
+        long position = start;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                logger.warn("文件在传输过程中被截断: 期望结束位置={}, 实际位置={}", end, position);
+                throw new IOException("文件在传输过程中被截断");
+            }
+            position += transferred;
+        }
+    }
+
+    private static String contentRange(long[] range, long length) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + length;
+    }
+
+    /**
+     * 格式化为HTTP日期
+     *
+     * @param instant 时间
+     * @return RFC 1123格式的GMT时间
+     */
+    public static String formatHttpDate(Instant instant) {
+        return HTTP_DATE.format(ZonedDateTime.ofInstant(instant, ZoneId.of("GMT")));
+    }
+
+    private static Instant parseHttpDate(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value, HTTP_DATE).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.backend.A_general.file.util;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 文件存储目录布局工具类
+ * 文件按键的哈希前两级分散到 ab/cd/ 子目录，每级256个目录，
+ * 数百万文件时单个目录也只有几十个文件，目录遍历和备份不再受单目录文件数拖累
+ */
+public final class StorageLayoutUtils {
+
+    private StorageLayoutUtils() {
+    }
+
+    /**
+     * 计算文件在分级目录中的路径
+     *
+     * @param baseDir 存储目录
+     * @param key     文件键，内容哈希直接取前缀，其他键先计算SHA-256
+     * @param name    文件名
+     * @return 文件路径
+     */
+    public static Path shardedPath(Path baseDir, String key, String name) {
+        String prefix = isHexHash(key) ? key : sha256Hex(key);
+        return baseDir.resolve(prefix.substring(0, 2)).resolve(prefix.substring(2, 4)).resolve(name);
+    }
+
+    private static boolean isHexHash(String key) {
+        if (key == null || key.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String sha256Hex(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
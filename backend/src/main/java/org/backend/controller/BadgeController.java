@@ -0,0 +1,57 @@
+package org.backend.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.backend.A_general.base.controller.BaseController;
+import org.backend.A_general.base.dto.BaseResponse;
+import org.backend.A_general.base.security.JwtTokenProvider;
+import org.backend.service.BadgeCounterService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 角标计数控制器
+ * 以Server-Sent Events推送未读消息、未读通知和待确认预约数量，替代客户端轮询各个计数接口
+ */
+@RestController
+@RequestMapping("/badges")
+@RequiredArgsConstructor
+@Tag(name = "角标计数", description = "角标计数推送接口")
+public class BadgeController extends BaseController {
+
+    private final BadgeCounterService badgeCounterService;
+
+    private final JwtTokenProvider jwtTokenProvider;
+
+    /**
+     * 获取推送流令牌
+     * 浏览器的EventSource无法设置Authorization请求头，客户端先用访问令牌换取短期的推送流令牌，
+     * 再以/badges/stream?token=推送流令牌建立连接；推送流令牌不能用于其他接口。
+     * 令牌只在建立连接时校验，断线重连前需要重新获取
+     */
+    @PostMapping("/stream/token")
+    @Operation(summary = "获取推送流令牌", description = "有效期很短，只用于建立角标计数推送流连接")
+    public ResponseEntity<BaseResponse<String>> createStreamToken(Authentication authentication) {
+        Long userId = Long.parseLong(authentication.getName());
+        return super.success("获取成功", jwtTokenProvider.generateStreamToken(userId));
+    }
+
+    /**
+     * 打开当前用户的角标计数推送流
+     * 连接建立后推送一次badges事件，之后只在计数变化时推送，空闲时发送注释行作为心跳；
+     * 可以用Authorization请求头认证，也可以用token参数携带推送流令牌
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "订阅角标计数推送流")
+    public SseEmitter streamBadges(Authentication authentication) {
+        Long userId = Long.parseLong(authentication.getName());
+        return badgeCounterService.subscribe(userId);
+    }
+}
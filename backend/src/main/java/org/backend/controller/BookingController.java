@@ -10,10 +10,14 @@ import org.backend.dto.request.BookingRequest;
 import org.backend.dto.response.BookingResponse;
 import org.backend.entity.Booking;
 import org.backend.entity.User;
+import org.backend.entity.enums.ExportFormat;
 import org.backend.service.BookingService;
+import org.backend.service.DataExportService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Optional;
@@ -26,6 +30,8 @@ public class BookingController extends BaseController {
 
     private final BookingService bookingService;
 
+    private final DataExportService dataExportService;
+
     @GetMapping
     @Operation(summary = "获取当前用户的预约")
     public ResponseEntity<BaseResponse<List<Booking>>> getCurrentUserBookings(Authentication authentication) {
@@ -42,6 +48,19 @@ public class BookingController extends BaseController {
         return super.success("获取成功", bookings);
     }
 
+    @GetMapping("/export")
+    @Operation(summary = "流式导出当前用户的预约记录")
+    public ResponseEntity<StreamingResponseBody> exportBookings(
+            Authentication authentication,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean received,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        Long userId = Long.parseLong(authentication.getName());
+        String fileName = (received ? "received-bookings." : "bookings.") + format.getExtension();
+        return super.streamAttachment(fileName, MediaType.parseMediaType(format.getContentType()), gzip,
+                out -> dataExportService.exportBookings(userId, received, format, out));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "根据ID获取预约")
     public ResponseEntity<BaseResponse<Booking>> getBookingById(@PathVariable Long id) {
@@ -7,16 +7,22 @@ import lombok.RequiredArgsConstructor;
 import org.backend.A_general.base.controller.BaseController;
 import org.backend.A_general.base.dto.BaseResponse;
 import org.backend.dto.request.BatchNotificationRequest;
+import org.backend.dto.request.notification.NotificationBroadcastRequest;
+import org.backend.dto.response.notification.NotificationBroadcastProgress;
 import org.backend.dto.response.NotificationDTO;
 import org.backend.entity.Notification;
 import org.backend.entity.enums.NotificationType;
+import org.backend.service.NotificationBroadcastService;
 import org.backend.service.NotificationService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -31,6 +37,7 @@ import java.util.stream.Collectors;
 public class NotificationController extends BaseController {
 
     private final NotificationService notificationService;
+    private final NotificationBroadcastService notificationBroadcastService;
 
     /**
      * 获取当前用户的通知列表
@@ -46,7 +53,7 @@ public class NotificationController extends BaseController {
         Long userId = Long.parseLong(authentication.getName());
         Page<Notification> notifications = notificationService.getNotificationsByCondition(userId, isRead, type, pageable);
         List<NotificationDTO> notificationDTOs = notifications.stream()
-                .map(this::convertToDTO)
+                .map(notificationService::convertToDTO)
                 .collect(Collectors.toList());
         return success("获取成功", notificationDTOs);
     }
@@ -117,31 +124,68 @@ public class NotificationController extends BaseController {
      */
     @PostMapping("/delete-multiple")
     @Operation(summary = "批量删除通知")
-    public ResponseEntity<BaseResponse<Void>> deleteNotifications(
+    public ResponseEntity<BaseResponse<Integer>> deleteNotifications(
             Authentication authentication,
             @Valid @RequestBody BatchNotificationRequest request) {
         Long userId = Long.parseLong(authentication.getName());
-        boolean result = notificationService.deleteNotifications(request.getNotificationIds(), userId);
-        if (result) {
-            return success("删除成功");
+        int deleted = notificationService.deleteNotifications(request.getNotificationIds(), userId);
+        if (deleted > 0) {
+            return success("删除成功", deleted);
         } else {
-            return failure("删除失败，部分通知可能不存在或不属于该用户");
+            return failure("删除失败，通知不存在或不属于该用户");
         }
     }
 
     /**
-     * 将Notification实体转换为NotificationDTO
+     * 批量标记通知为已读
      */
-    private NotificationDTO convertToDTO(Notification notification) {
-        NotificationDTO dto = new NotificationDTO();
-        dto.setId(notification.getId());
-        dto.setTitle(notification.getTitle());
-        dto.setMessage(notification.getMessage());
-        dto.setType(notification.getType());
-        dto.setCreatedAt(notification.getCreatedAt());
-        dto.setDuration(notification.getDuration());
-        dto.setRead(notification.isRead());
-        dto.setTargetUrl(notification.getTargetUrl());
-        return dto;
+    @PutMapping("/mark-read-multiple")
+    @Operation(summary = "批量标记通知为已读")
+    public ResponseEntity<BaseResponse<Integer>> markMultipleAsRead(
+            Authentication authentication,
+            @Valid @RequestBody BatchNotificationRequest request) {
+        Long userId = Long.parseLong(authentication.getName());
+        int updated = notificationService.markAsRead(request.getNotificationIds(), userId);
+        return success("标记成功", updated);
+    }
+
+    /**
+     * 标记指定时间之前收到的通知为已读
+     * 前端可传入列表中最新一条通知的时间，避免把之后新到达的通知一并标记
+     */
+    @PutMapping("/mark-read-before")
+    @Operation(summary = "标记指定时间之前的通知为已读")
+    public ResponseEntity<BaseResponse<Integer>> markAsReadBefore(
+            Authentication authentication,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before) {
+        Long userId = Long.parseLong(authentication.getName());
+        int updated = notificationService.markAsReadBefore(userId, before);
+        return success("标记成功", updated);
+    }
+
+    /**
+     * 提交批量通知广播任务
+     * 通知在后台分批写入，返回的任务ID用于查询进度
+     */
+    @PostMapping("/broadcast")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "提交批量通知广播任务")
+    public ResponseEntity<BaseResponse<String>> broadcast(@Valid @RequestBody NotificationBroadcastRequest request) {
+        String taskId = notificationBroadcastService.submitBroadcast(request);
+        return success("广播任务已提交", taskId);
+    }
+
+    /**
+     * 查询批量通知广播任务进度
+     */
+    @GetMapping("/broadcast/{taskId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "查询批量通知广播任务进度")
+    public ResponseEntity<BaseResponse<NotificationBroadcastProgress>> getBroadcastProgress(@PathVariable String taskId) {
+        NotificationBroadcastProgress progress = notificationBroadcastService.getProgress(taskId);
+        if (progress == null) {
+            return notFound("广播任务不存在或已过期");
+        }
+        return success("获取成功", progress);
     }
-}
\ No newline at end of file
+}
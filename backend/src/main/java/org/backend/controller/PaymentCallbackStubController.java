@@ -0,0 +1,67 @@
+package org.backend.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.backend.A_general.base.controller.BaseController;
+import org.backend.A_general.base.dto.BaseResponse;
+import org.backend.entity.Payment;
+import org.backend.repository.PaymentRepository;
+import org.backend.service.impl.PaymentCallbackStubPublisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * 模拟支付回调控制器
+ * 仅在开发和测试环境且开启payment.stub.enabled时可用，只允许管理员调用，
+ * 用于在没有真实支付渠道时触发异步结算和压测回调管道
+ */
+@RestController
+@RequestMapping("/payments/stub")
+@RequiredArgsConstructor
+@Profile({"dev", "test"})
+@ConditionalOnProperty(name = "payment.stub.enabled", havingValue = "true")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "模拟支付回调", description = "开发环境的支付回调模拟与基准测试接口")
+public class PaymentCallbackStubController extends BaseController {
+
+    private final PaymentCallbackStubPublisher stubPublisher;
+    private final PaymentRepository paymentRepository;
+
+    @PostMapping("/notify/{transactionId}")
+    @Operation(summary = "投递模拟支付成功回调")
+    public ResponseEntity<BaseResponse<String>> notifyPaymentSuccess(@PathVariable String transactionId) {
+        Payment payment = paymentRepository.findByTransactionIdAndDeletedFalse(transactionId).orElse(null);
+        if (payment == null) {
+            return super.notFound("支付订单不存在");
+        }
+        stubPublisher.publishSuccess(transactionId, payment.getAmount());
+        return super.success("支付回调已投递");
+    }
+
+    @PostMapping("/benchmark")
+    @Operation(summary = "支付回调管道吞吐量基准测试")
+    public ResponseEntity<BaseResponse<Map<String, Object>>> runBenchmark(
+            @RequestParam(defaultValue = "10000") int count,
+            @RequestParam(defaultValue = "0.1") double duplicateRatio,
+            @RequestParam(defaultValue = "60000") long timeoutMillis,
+            @RequestParam Long bookingId) {
+        if (count <= 0 || count > 1_000_000) {
+            return super.failure("count必须在1-1000000之间");
+        }
+        if (duplicateRatio < 0 || duplicateRatio > 1) {
+            return super.failure("duplicateRatio必须在0-1之间");
+        }
+        try {
+            Map<String, Object> result = stubPublisher.runBenchmark(count, duplicateRatio, timeoutMillis, bookingId);
+            return super.success("基准测试完成", result);
+        } catch (IllegalArgumentException e) {
+            return super.failure(e.getMessage());
+        }
+    }
+}
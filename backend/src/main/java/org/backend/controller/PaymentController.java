@@ -5,17 +5,26 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.backend.A_general.base.controller.BaseController;
 import org.backend.A_general.base.dto.BaseResponse;
+import org.backend.dto.response.payment.PaymentCallbackStats;
 import org.backend.entity.Payment;
+import org.backend.entity.enums.ExportFormat;
 import org.backend.entity.enums.PaymentStatus;
 import org.backend.repository.PaymentRepository;
+import org.backend.entity.UserPaymentStats;
+import org.backend.service.DataExportService;
+import org.backend.service.PaymentCallbackService;
+import org.backend.service.PaymentService;
+import org.backend.service.PaymentStatsService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +38,14 @@ public class PaymentController extends BaseController {
 
     private final PaymentRepository paymentRepository;
 
+    private final PaymentCallbackService paymentCallbackService;
+
+    private final PaymentService paymentService;
+
+    private final PaymentStatsService paymentStatsService;
+
+    private final DataExportService dataExportService;
+
     @GetMapping
     @Operation(summary = "获取当前用户的支付记录")
     public ResponseEntity<BaseResponse<List<Payment>>> getCurrentUserPayments(Authentication authentication) {
@@ -47,6 +64,19 @@ public class PaymentController extends BaseController {
         return super.success("分页获取成功", payments);
     }
 
+    @GetMapping("/export")
+    @Operation(summary = "流式导出当前用户的支付记录")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            Authentication authentication,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean received,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        Long userId = Long.parseLong(authentication.getName());
+        String fileName = (received ? "received-payments." : "payments.") + format.getExtension();
+        return super.streamAttachment(fileName, MediaType.parseMediaType(format.getContentType()), gzip,
+                out -> dataExportService.exportPayments(userId, received, format, out));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "根据ID获取支付详情")
     public ResponseEntity<BaseResponse<Payment>> getPaymentById(@PathVariable Long id) {
@@ -79,16 +109,23 @@ public class PaymentController extends BaseController {
     public ResponseEntity<BaseResponse<Map<String, Object>>> getPaymentStats(Authentication authentication) {
         Long userId = Long.parseLong(authentication.getName());
 
-        Double totalSpent = paymentRepository.getTotalSpentByUser(userId);
-        Long successfulPayments = paymentRepository.countSuccessfulPaymentsByUser(userId);
+        UserPaymentStats userStats = paymentStatsService.getUserStats(userId);
 
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalSpent", totalSpent != null ? totalSpent : 0.0);
-        stats.put("successfulPayments", successfulPayments);
+        stats.put("totalSpent", userStats.getTotalSpent());
+        stats.put("successfulPayments", userStats.getSuccessfulCount());
+        stats.put("refundedTotal", userStats.getRefundedTotal());
 
         return super.success("获取成功", stats);
     }
 
+    @GetMapping("/callback/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "获取支付回调处理统计")
+    public ResponseEntity<BaseResponse<PaymentCallbackStats>> getCallbackStats() {
+        return super.success("获取成功", paymentCallbackService.getStats());
+    }
+
     @PostMapping("/create")
     @Operation(summary = "创建支付订单")
     public ResponseEntity<BaseResponse<Map<String, Object>>> createPayment(
@@ -129,11 +166,9 @@ public class PaymentController extends BaseController {
         }
 
         // 模拟支付处理
-        payment.setStatus(PaymentStatus.SUCCESS);
-        payment.setPaidAt(LocalDateTime.now());
-        payment.setUpdatedAt(LocalDateTime.now());
-
-        paymentRepository.save(payment);
+        if (!paymentService.settlePayment(payment)) {
+            return super.failure("支付订单状态已变更，无法重复支付");
+        }
         return super.success("支付成功");
     }
 
@@ -157,9 +192,9 @@ public class PaymentController extends BaseController {
             return super.failure("只有成功的支付才能退款");
         }
 
-        payment.setStatus(PaymentStatus.REFUNDED);
-        payment.setUpdatedAt(LocalDateTime.now());
-        paymentRepository.save(payment);
+        if (!paymentService.refundPayment(payment)) {
+            return super.failure("支付状态已变更，请刷新后重试");
+        }
 
         return super.success("退款申请已提交");
     }
@@ -184,9 +219,9 @@ public class PaymentController extends BaseController {
             return super.failure("只有待支付的订单才能取消");
         }
 
-        payment.setStatus(PaymentStatus.CANCELLED);
-        payment.setUpdatedAt(LocalDateTime.now());
-        paymentRepository.save(payment);
+        if (!paymentService.cancelPayment(payment)) {
+            return super.failure("支付状态已变更，请刷新后重试");
+        }
 
         return super.success("支付已取消");
     }
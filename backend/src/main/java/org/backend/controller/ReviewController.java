@@ -6,6 +6,8 @@ import org.backend.A_general.base.controller.BaseController;
 import org.backend.A_general.base.dto.BaseResponse;
 import org.backend.dto.request.ReviewRequest;
 import org.backend.dto.response.ReviewResponse;
+import org.backend.dto.response.review.ReviewFeedPage;
+import org.backend.dto.response.review.ReviewRatingHistogram;
 import org.backend.entity.Review;
 import org.backend.entity.User;
 import org.backend.entity.enums.ReviewType;
@@ -55,6 +57,32 @@ public class ReviewController extends BaseController {
         return super.success("分页获取成功", reviews);
     }
 
+    @GetMapping("/feed/{targetType}/{targetId}")
+    @Operation(summary = "游标分页获取评价流", description = "可按星级筛选，翻页时传入上一页返回的nextCursor")
+    public ResponseEntity<BaseResponse<ReviewFeedPage>> getReviewFeed(
+            @PathVariable ReviewType targetType,
+            @PathVariable Long targetId,
+            @RequestParam(required = false) Integer rating,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        if (rating != null && (rating < 1 || rating > 5)) {
+            return super.failure("评分必须在1-5之间");
+        }
+        try {
+            return super.success("获取成功", reviewService.getReviewFeed(targetId, targetType, rating, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return super.failure(e.getMessage());
+        }
+    }
+
+    @GetMapping("/histogram/{targetType}/{targetId}")
+    @Operation(summary = "获取评价星级分布")
+    public ResponseEntity<BaseResponse<ReviewRatingHistogram>> getRatingHistogram(
+            @PathVariable ReviewType targetType,
+            @PathVariable Long targetId) {
+        return super.success("获取成功", reviewService.getRatingHistogram(targetId, targetType));
+    }
+
     @GetMapping("/user")
     @Operation(summary = "获取当前用户的评价")
     public ResponseEntity<BaseResponse<List<Review>>> getCurrentUserReviews(Authentication authentication) {
@@ -78,12 +106,11 @@ public class ReviewController extends BaseController {
     @GetMapping("/service/{serviceId}/stats")
     @Operation(summary = "获取服务评价统计")
     public ResponseEntity<BaseResponse<ReviewStats>> getServiceReviewStats(@PathVariable Long serviceId) {
-        Double averageRating = reviewRepository.getAverageRating(serviceId, ReviewType.SERVICE);
-        Long reviewCount = reviewRepository.countByTargetIdAndTargetType(serviceId, ReviewType.SERVICE);
+        ReviewRatingHistogram histogram = reviewService.getRatingHistogram(serviceId, ReviewType.SERVICE);
 
         ReviewStats stats = new ReviewStats();
-        stats.setAverageRating(averageRating != null ? averageRating : 0.0);
-        stats.setReviewCount(reviewCount != null ? reviewCount : 0);
+        stats.setAverageRating(histogram.getAverageRating());
+        stats.setReviewCount(histogram.getReviewCount());
 
         return super.success("获取成功", stats);
     }
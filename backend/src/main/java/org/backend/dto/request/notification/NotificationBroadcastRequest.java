@@ -0,0 +1,46 @@
+package org.backend.dto.request.notification;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import org.backend.entity.enums.NotificationType;
+import org.backend.entity.enums.UserRole;
+
+import java.util.List;
+
+/**
+ * 批量通知广播请求DTO
+ * 接收人可以是指定的用户ID列表，也可以是按角色筛选的用户，两者都为空时发送给全部用户
+ */
+@Data
+@Schema(description = "批量通知广播请求DTO")
+public class NotificationBroadcastRequest {
+
+    @Schema(description = "通知标题")
+    @Size(max = 200, message = "通知标题不能超过200个字符")
+    private String title;
+
+    @Schema(description = "通知内容", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotBlank(message = "通知内容不能为空")
+    private String message;
+
+    @Schema(description = "通知类型", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull(message = "通知类型不能为空")
+    private NotificationType type;
+
+    @Schema(description = "显示时长(ms)，默认为5000ms")
+    private Integer duration;
+
+    @Schema(description = "点击通知后跳转的URL")
+    @Size(max = 500, message = "跳转URL不能超过500个字符")
+    private String targetUrl;
+
+    @Schema(description = "接收通知的用户ID列表，指定后忽略角色筛选")
+    @Size(max = 10000, message = "用户ID列表最多10000个，更大范围请按角色广播")
+    private List<Long> userIds;
+
+    @Schema(description = "接收通知的用户角色，为空且未指定用户ID时发送给全部用户")
+    private UserRole role;
+}
@@ -0,0 +1,33 @@
+package org.backend.dto.request.payment;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.backend.entity.enums.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 支付回调消息DTO
+ * 支付渠道的异步通知经网关转换后投递到payment.notify.queue的消息体
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "支付回调消息DTO")
+public class PaymentCallbackMessage {
+
+    @Schema(description = "交易ID，与Payment.transactionId对应")
+    private String transactionId;
+
+    @Schema(description = "渠道返回的支付结果，仅支持SUCCESS和FAILED")
+    private PaymentStatus status;
+
+    @Schema(description = "渠道实际支付金额，为空时不校验金额")
+    private BigDecimal amount;
+
+    @Schema(description = "渠道支付完成时间")
+    private LocalDateTime paidAt;
+}
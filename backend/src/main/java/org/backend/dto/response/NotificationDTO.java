@@ -39,6 +39,9 @@ public class NotificationDTO {
     @Schema(description = "点击通知后跳转的URL")
     private String targetUrl;
 
+    @Schema(description = "合并的通知条数")
+    private Integer count;
+
     /**
      * 设置时间戳（从LocalDateTime转换为Unix时间戳）
      * @param createdAt 创建时间
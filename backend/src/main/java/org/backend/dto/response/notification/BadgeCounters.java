@@ -0,0 +1,26 @@
+package org.backend.dto.response.notification;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 角标计数DTO
+ * 合并未读消息、未读通知和待确认预约数量，通过SSE推送给客户端
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "角标计数DTO")
+public class BadgeCounters {
+
+    @Schema(description = "未读消息数")
+    private long unreadMessages;
+
+    @Schema(description = "未读通知数")
+    private long unreadNotifications;
+
+    @Schema(description = "待确认预约数")
+    private long pendingBookings;
+}
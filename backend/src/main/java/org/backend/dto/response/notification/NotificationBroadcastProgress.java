@@ -0,0 +1,41 @@
+package org.backend.dto.response.notification;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 批量通知广播进度DTO
+ */
+@Data
+@Schema(description = "批量通知广播进度DTO")
+public class NotificationBroadcastProgress {
+
+    @Schema(description = "广播任务ID")
+    private String taskId;
+
+    @Schema(description = "任务状态：PENDING, RUNNING, COMPLETED, FAILED")
+    private String status;
+
+    @Schema(description = "已读取的接收人数量")
+    private long scanned;
+
+    @Schema(description = "已写入的通知数量")
+    private long inserted;
+
+    @Schema(description = "已提交的事务数")
+    private long committedChunks;
+
+    @Schema(description = "提交时间")
+    private LocalDateTime submittedAt;
+
+    @Schema(description = "开始执行时间")
+    private LocalDateTime startedAt;
+
+    @Schema(description = "结束时间")
+    private LocalDateTime finishedAt;
+
+    @Schema(description = "失败原因")
+    private String error;
+}
@@ -0,0 +1,34 @@
+package org.backend.dto.response.payment;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 支付回调处理统计DTO
+ * 用于观察回调消费管道的吞吐和去重情况
+ */
+@Data
+@Schema(description = "支付回调处理统计DTO")
+public class PaymentCallbackStats {
+
+    @Schema(description = "收到的回调总数")
+    private long received;
+
+    @Schema(description = "被去重丢弃的回调数（批内重复或近期已结算）")
+    private long duplicates;
+
+    @Schema(description = "格式无效或状态不支持的回调数")
+    private long invalid;
+
+    @Schema(description = "成功结算的支付数")
+    private long settled;
+
+    @Schema(description = "没有匹配到待支付订单的回调数")
+    private long unmatched;
+
+    @Schema(description = "处理的批次数")
+    private long batches;
+
+    @Schema(description = "处理失败并退回队列的批次数")
+    private long failedBatches;
+}
@@ -0,0 +1,36 @@
+package org.backend.dto.response.payment;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 用户支付统计偏差DTO
+ * 记录对账时发现的增量统计值与支付记录重新计算值之间的差异
+ */
+@Data
+@Schema(description = "用户支付统计偏差DTO")
+public class PaymentStatsDrift {
+
+    @Schema(description = "用户ID")
+    private Long userId;
+
+    @Schema(description = "统计表中的累计消费金额")
+    private BigDecimal storedTotalSpent;
+
+    @Schema(description = "重新计算的累计消费金额")
+    private BigDecimal actualTotalSpent;
+
+    @Schema(description = "统计表中的支付成功笔数")
+    private long storedSuccessfulCount;
+
+    @Schema(description = "重新计算的支付成功笔数")
+    private long actualSuccessfulCount;
+
+    @Schema(description = "统计表中的累计退款金额")
+    private BigDecimal storedRefundedTotal;
+
+    @Schema(description = "重新计算的累计退款金额")
+    private BigDecimal actualRefundedTotal;
+}
@@ -0,0 +1,34 @@
+package org.backend.dto.response.payment;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 支付统计对账报告DTO
+ */
+@Data
+@Schema(description = "支付统计对账报告DTO")
+public class PaymentStatsReconcileReport {
+
+    @Schema(description = "开始时间")
+    private LocalDateTime startedAt;
+
+    @Schema(description = "结束时间")
+    private LocalDateTime finishedAt;
+
+    @Schema(description = "扫描的支付记录数")
+    private long scannedPayments;
+
+    @Schema(description = "扫描的用户数")
+    private long scannedUsers;
+
+    @Schema(description = "存在偏差并已修正的用户数")
+    private long driftedUsers;
+
+    @Schema(description = "偏差明细，最多保留前100条")
+    private List<PaymentStatsDrift> drifts = new ArrayList<>();
+}
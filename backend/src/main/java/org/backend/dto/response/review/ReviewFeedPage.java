@@ -0,0 +1,29 @@
+package org.backend.dto.response.review;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.backend.entity.Review;
+
+import java.util.List;
+
+/**
+ * 评价流分页结果DTO
+ * 使用游标分页，翻页时把nextCursor原样传回即可，不执行COUNT查询
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "评价流分页结果DTO")
+public class ReviewFeedPage {
+
+    @Schema(description = "当前页的评价，按创建时间倒序")
+    private List<Review> items;
+
+    @Schema(description = "下一页游标，没有更多数据时为空")
+    private String nextCursor;
+
+    @Schema(description = "是否还有更多数据")
+    private boolean hasMore;
+}
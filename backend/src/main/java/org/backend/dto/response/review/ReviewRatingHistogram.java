@@ -0,0 +1,30 @@
+package org.backend.dto.response.review;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.backend.entity.enums.ReviewType;
+
+import java.util.Map;
+
+/**
+ * 评价星级分布DTO
+ */
+@Data
+@Schema(description = "评价星级分布DTO")
+public class ReviewRatingHistogram {
+
+    @Schema(description = "评价目标ID")
+    private Long targetId;
+
+    @Schema(description = "评价目标类型")
+    private ReviewType targetType;
+
+    @Schema(description = "评价总数")
+    private long reviewCount;
+
+    @Schema(description = "平均评分")
+    private double averageRating;
+
+    @Schema(description = "各星级的评价数，键为1-5星")
+    private Map<Integer, Long> distribution;
+}
@@ -0,0 +1,26 @@
+package org.backend.dto.response.webSocket;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.backend.dto.response.NotificationDTO;
+
+import java.util.List;
+
+/**
+ * WebSocket新通知响应DTO
+ * 同一用户短时间内收到的多条通知合并为一帧推送
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "WebSocket新通知响应DTO")
+public class WebSocketNotificationResponse {
+    @Schema(description = "消息类型")
+    private String type = "NEW_NOTIFICATIONS";
+    @Schema(description = "合并窗口内的新通知，按创建顺序排列")
+    private List<NotificationDTO> payload;
+    @Schema(description = "是否有未包含在本帧中的通知，为true时客户端应重新拉取通知列表")
+    private boolean refresh;
+}
@@ -58,6 +58,10 @@ public class Notification extends BaseEntity {
     @Schema(description = "点击通知后跳转的URL")
     private String targetUrl;
 
+    @Column(name = "digest_count")
+    @Schema(description = "合并的通知条数，同类型同目标的通知在合并窗口内合并为一条")
+    private Integer digestCount = 1;
+
     /**
      * 获取时间戳（转换为前端需要的Unix时间戳格式）
      * @return Unix时间戳
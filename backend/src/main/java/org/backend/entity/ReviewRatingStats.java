@@ -0,0 +1,53 @@
+package org.backend.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.backend.A_general.base.entity.BaseEntity;
+import org.backend.entity.enums.ReviewType;
+
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Entity
+@Table(name = "review_rating_stats")
+@Schema(description = "评价星级分布实体，由评价的创建、修改和删除增量维护")
+public class ReviewRatingStats extends BaseEntity {
+
+    @Column(name = "target_id", nullable = false)
+    @Schema(description = "评价目标ID")
+    private Long targetId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "target_type", length = 20, nullable = false)
+    @Schema(description = "评价目标类型")
+    private ReviewType targetType;
+
+    @Column(name = "star1", nullable = false)
+    @Schema(description = "1星评价数")
+    private Long star1 = 0L;
+
+    @Column(name = "star2", nullable = false)
+    @Schema(description = "2星评价数")
+    private Long star2 = 0L;
+
+    @Column(name = "star3", nullable = false)
+    @Schema(description = "3星评价数")
+    private Long star3 = 0L;
+
+    @Column(name = "star4", nullable = false)
+    @Schema(description = "4星评价数")
+    private Long star4 = 0L;
+
+    @Column(name = "star5", nullable = false)
+    @Schema(description = "5星评价数")
+    private Long star5 = 0L;
+
+    @Column(name = "review_count", nullable = false)
+    @Schema(description = "评价总数")
+    private Long reviewCount = 0L;
+
+    @Column(name = "rating_sum", nullable = false)
+    @Schema(description = "评分总和，用于计算平均分")
+    private Long ratingSum = 0L;
+}
@@ -0,0 +1,33 @@
+package org.backend.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.backend.A_general.base.entity.BaseEntity;
+
+import java.math.BigDecimal;
+
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Entity
+@Table(name = "user_payment_stats")
+@Schema(description = "用户支付统计实体，由支付状态流转增量维护")
+public class UserPaymentStats extends BaseEntity {
+
+    @Column(name = "user_id", nullable = false, unique = true)
+    @Schema(description = "用户ID")
+    private Long userId;
+
+    @Column(name = "total_spent", nullable = false, precision = 14, scale = 2)
+    @Schema(description = "累计消费金额（支付成功且未退款）")
+    private BigDecimal totalSpent = BigDecimal.ZERO;
+
+    @Column(name = "successful_count", nullable = false)
+    @Schema(description = "支付成功笔数（不含已退款）")
+    private Long successfulCount = 0L;
+
+    @Column(name = "refunded_total", nullable = false, precision = 14, scale = 2)
+    @Schema(description = "累计退款金额")
+    private BigDecimal refundedTotal = BigDecimal.ZERO;
+}
@@ -0,0 +1,7 @@
+package org.backend.entity.enums;
+
+public enum BadgeType {
+    UNREAD_MESSAGES,        // 未读消息
+    UNREAD_NOTIFICATIONS,   // 未读通知
+    PENDING_BOOKINGS        // 待确认预约
+}
@@ -0,0 +1,22 @@
+package org.backend.entity.enums;
+
+public enum ExportFormat {
+    CSV("text/csv;charset=UTF-8", "csv"),            // 逗号分隔，首行为表头
+    NDJSON("application/x-ndjson", "ndjson");        // 每行一个JSON对象
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
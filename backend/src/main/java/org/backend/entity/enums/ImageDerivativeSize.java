@@ -0,0 +1,20 @@
+package org.backend.entity.enums;
+
+/**
+ * 图片衍生尺寸，按最长边限制，保持原图比例
+ */
+public enum ImageDerivativeSize {
+    AVATAR(128),   // 头像、列表小图
+    CARD(480),     // 卡片、列表封面
+    DETAIL(1280);  // 详情页大图
+
+    private final int maxEdge;
+
+    ImageDerivativeSize(int maxEdge) {
+        this.maxEdge = maxEdge;
+    }
+
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+}
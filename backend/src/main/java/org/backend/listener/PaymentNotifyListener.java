@@ -0,0 +1,80 @@
+package org.backend.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import org.backend.A_general.base.config.backend.MessageQueueConfig;
+import org.backend.dto.request.payment.PaymentCallbackMessage;
+import org.backend.service.PaymentCallbackService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 支付回调消息监听器
+ * 批量消费payment.notify.queue，整批结算成功后一次性确认；
+ * 无法解析的消息单独拒绝进入死信队列，结算失败的批次退回队列重试一次
+ */
+@Component
+public class PaymentNotifyListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentNotifyListener.class);
+
+    private final PaymentCallbackService paymentCallbackService;
+    private final ObjectMapper objectMapper;
+
+    public PaymentNotifyListener(PaymentCallbackService paymentCallbackService, ObjectMapper objectMapper) {
+        this.paymentCallbackService = paymentCallbackService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 处理一批支付回调消息
+     *
+     * @param messages 原始消息列表
+     * @param channel  消息所在信道，用于手动确认
+     * @throws IOException 确认或拒绝消息失败
+     */
+    @RabbitListener(queues = MessageQueueConfig.PAYMENT_NOTIFY_QUEUE,
+            containerFactory = MessageQueueConfig.PAYMENT_NOTIFY_CONTAINER_FACTORY)
+    public void onPaymentNotify(List<Message> messages, Channel channel) throws IOException {
+        List<PaymentCallbackMessage> callbacks = new ArrayList<>(messages.size());
+        List<Message> accepted = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            try {
+                callbacks.add(objectMapper.readValue(message.getBody(), PaymentCallbackMessage.class));
+                accepted.add(message);
+            } catch (IOException e) {
+                logger.error("支付回调消息解析失败，转入死信队列: {}", e.getMessage());
+                channel.basicNack(deliveryTag(message), false, false);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            paymentCallbackService.settleCallbacks(callbacks);
+        } catch (Exception e) {
+            paymentCallbackService.recordFailedBatch();
+            logger.error("支付回调批次结算失败，数量: {}, 错误: {}", accepted.size(), e.getMessage());
+            // 首次失败退回队列重试，重复投递仍失败则转入死信队列
+            for (Message message : accepted) {
+                channel.basicNack(deliveryTag(message), false, !message.getMessageProperties().isRedelivered());
+            }
+            return;
+        }
+
+        // 同一批次来自同一信道，确认最后一条即可覆盖之前所有未确认的消息
+        channel.basicAck(deliveryTag(accepted.getLast()), true);
+    }
+
+    private long deliveryTag(Message message) {
+        return message.getMessageProperties().getDeliveryTag();
+    }
+}
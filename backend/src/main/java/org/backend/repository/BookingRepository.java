@@ -2,15 +2,22 @@ package org.backend.repository;
 
 import org.backend.A_general.base.repository.BaseRepository;
 import org.backend.entity.Booking;
+import jakarta.persistence.QueryHint;
 import org.backend.entity.enums.BookingStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface BookingRepository extends BaseRepository<Booking, Long> {
@@ -47,4 +54,28 @@ public interface BookingRepository extends BaseRepository<Booking, Long> {
     @Query("SELECT COUNT(b) FROM Booking b WHERE b.serviceId = :serviceId AND b.status IN ('PENDING', 'CONFIRMED', 'IN_PROGRESS') AND b.deleted = 0")
     long countActiveBookingsByServiceId(@Param("serviceId") Long serviceId);
 
+    @Query("SELECT COUNT(b) FROM Booking b WHERE (b.ownerId = :userId OR b.providerId = :userId) AND b.status = 'PENDING' AND b.deleted = 0")
+    long countPendingByUserId(@Param("userId") Long userId);
+
+    /**
+     * 流式读取用户发起的预约，用于导出，必须在只读事务内消费并关闭
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT b FROM Booking b WHERE b.ownerId = :ownerId AND b.deleted = 0 ORDER BY b.id")
+    Stream<Booking> streamByOwnerId(@Param("ownerId") Long ownerId);
+
+    /**
+     * 流式读取服务提供者收到的预约，用于导出，必须在只读事务内消费并关闭
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT b FROM Booking b WHERE b.providerId = :providerId AND b.deleted = 0 ORDER BY b.id")
+    Stream<Booking> streamByProviderId(@Param("providerId") Long providerId);
 }
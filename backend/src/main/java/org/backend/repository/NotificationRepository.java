@@ -10,6 +10,10 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
 /**
  * 通知仓库接口
  * 提供通知实体的数据库操作方法
@@ -61,11 +65,58 @@ public interface NotificationRepository extends BaseRepository<Notification, Lon
     long countByUserIdAndIsReadFalse(Long userId);
 
     /**
-     * 批量标记通知为已读
+     * 标记用户的所有未读通知为已读
+     * @param userId 用户ID
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.userId = :userId AND n.isRead = false")
+    int updateByUserIdAndIsReadFalseSetIsReadTrue(@Param("userId") Long userId);
+
+    /**
+     * 批量标记指定通知为已读，不属于该用户的通知会被忽略
      * @param userId 用户ID
+     * @param ids 通知ID列表
      * @return 更新的记录数
      */
-    int updateByUserIdAndIsReadFalseSetIsReadTrue(Long userId);
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.userId = :userId AND n.isRead = false AND n.id IN :ids")
+    int updateByUserIdAndIdInSetIsReadTrue(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    /**
+     * 标记用户在指定时间及之前收到的未读通知为已读
+     * @param userId 用户ID
+     * @param before 截止时间（含）
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.userId = :userId AND n.isRead = false AND n.createdAt <= :before")
+    int updateByUserIdAndCreatedAtNotAfterSetIsReadTrue(@Param("userId") Long userId, @Param("before") LocalDateTime before);
+
+    /**
+     * 查找合并窗口内同类型同目标的最新未读通知
+     * @param userId 用户ID
+     * @param type 通知类型
+     * @param targetUrl 跳转URL
+     * @param since 合并窗口起始时间
+     * @return 可合并的通知
+     */
+    Optional<Notification> findFirstByUserIdAndTypeAndTargetUrlAndIsReadFalseAndCreatedAtAfterOrderByCreatedAtDesc(
+            Long userId, NotificationType type, String targetUrl, LocalDateTime since);
+
+    /**
+     * 将新通知合并到已有的未读通知，计数加一并以新通知的内容和时间为准
+     * @param id 被合并的通知ID
+     * @param title 新标题
+     * @param message 新内容
+     * @param now 合并时间
+     * @return 更新的记录数，通知已被读取时为0
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Notification n SET n.digestCount = n.digestCount + 1, n.title = :title, n.message = :message, " +
+            "n.createdAt = :now, n.updatedAt = :now WHERE n.id = :id AND n.isRead = false")
+    int mergeIntoDigest(@Param("id") Long id, @Param("title") String title,
+                        @Param("message") String message, @Param("now") LocalDateTime now);
 
     /**
      * 标记单个通知为已读
@@ -84,4 +135,14 @@ public interface NotificationRepository extends BaseRepository<Notification, Lon
      * @return 删除的记录数
      */
     int deleteByIdAndUserId(Long id, Long userId);
+
+    /**
+     * 批量删除用户的通知，不属于该用户的通知会被忽略
+     * @param userId 用户ID
+     * @param ids 通知ID列表
+     * @return 删除的记录数
+     */
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.userId = :userId AND n.id IN :ids")
+    int deleteByUserIdAndIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
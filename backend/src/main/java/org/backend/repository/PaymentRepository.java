@@ -1,16 +1,27 @@
 package org.backend.repository;
 
+import jakarta.persistence.QueryHint;
 import org.backend.A_general.base.repository.BaseRepository;
 import org.backend.entity.Payment;
 import org.backend.entity.enums.PaymentStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface PaymentRepository extends BaseRepository<Payment, Long> {
@@ -29,8 +40,56 @@ public interface PaymentRepository extends BaseRepository<Payment, Long> {
     List<Payment> findByUserIdAndStatus(@Param("userId") Long userId, @Param("status") PaymentStatus status);
 
     @Query("SELECT SUM(p.amount) FROM Payment p WHERE p.userId = :userId AND p.status = 'SUCCESS' AND p.deleted = false")
-    Double getTotalSpentByUser(@Param("userId") Long userId);
+    BigDecimal getTotalSpentByUser(@Param("userId") Long userId);
 
     @Query("SELECT COUNT(p) FROM Payment p WHERE p.userId = :userId AND p.status = 'SUCCESS' AND p.deleted = false")
     Long countSuccessfulPaymentsByUser(@Param("userId") Long userId);
-}
\ No newline at end of file
+
+    @Query("SELECT SUM(p.amount) FROM Payment p WHERE p.userId = :userId AND p.status = 'REFUNDED' AND p.deleted = false")
+    BigDecimal getTotalRefundedByUser(@Param("userId") Long userId);
+
+    /**
+     * 条件更新支付状态，只有当前状态在expected之内时才会更新
+     * 返回1表示本次调用完成了状态流转，返回0表示订单已被其他请求处理
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Payment p SET p.status = :target, p.updatedAt = :now " +
+            "WHERE p.id = :id AND p.status IN :expected AND p.deleted = false")
+    int transitionStatus(@Param("id") Long id,
+                         @Param("expected") Collection<PaymentStatus> expected,
+                         @Param("target") PaymentStatus target,
+                         @Param("now") LocalDateTime now);
+
+    /**
+     * 条件更新为支付成功并记录支付时间
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Payment p SET p.status = org.backend.entity.enums.PaymentStatus.SUCCESS, p.paidAt = :paidAt, p.updatedAt = :paidAt " +
+            "WHERE p.id = :id AND p.status IN :expected AND p.deleted = false")
+    int markSucceeded(@Param("id") Long id,
+                      @Param("expected") Collection<PaymentStatus> expected,
+                      @Param("paidAt") LocalDateTime paidAt);
+
+    /**
+     * 流式读取用户支付的订单，用于导出，必须在只读事务内消费并关闭
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Payment p WHERE p.userId = :userId AND p.deleted = false ORDER BY p.id")
+    Stream<Payment> streamByUserId(@Param("userId") Long userId);
+
+    /**
+     * 流式读取服务提供者收到的支付（按预约关联），用于导出，必须在只读事务内消费并关闭
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Payment p, Booking b WHERE b.id = p.bookingId AND b.providerId = :providerId " +
+            "AND p.deleted = false ORDER BY p.id")
+    Stream<Payment> streamByProviderId(@Param("providerId") Long providerId);
+}
@@ -0,0 +1,37 @@
+package org.backend.repository;
+
+import org.backend.A_general.base.repository.BaseRepository;
+import org.backend.entity.ReviewRatingStats;
+import org.backend.entity.enums.ReviewType;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ReviewRatingStatsRepository extends BaseRepository<ReviewRatingStats, Long> {
+
+    Optional<ReviewRatingStats> findByTargetIdAndTargetType(Long targetId, ReviewType targetType);
+
+    /**
+     * 原子地调整某个星级的评价数，统计行不存在时自动创建
+     * delta为1表示新增一条该星级的评价，为-1表示移除一条
+     */
+    @Modifying
+    @Query(value = "INSERT INTO review_rating_stats (target_id, target_type, star1, star2, star3, star4, star5, " +
+            "review_count, rating_sum, created_at, updated_at) " +
+            "VALUES (:targetId, :targetType, IF(:rating = 1, :delta, 0), IF(:rating = 2, :delta, 0), " +
+            "IF(:rating = 3, :delta, 0), IF(:rating = 4, :delta, 0), IF(:rating = 5, :delta, 0), " +
+            ":delta, :rating * :delta, NOW(), NOW()) " +
+            "ON DUPLICATE KEY UPDATE star1 = star1 + VALUES(star1), star2 = star2 + VALUES(star2), " +
+            "star3 = star3 + VALUES(star3), star4 = star4 + VALUES(star4), star5 = star5 + VALUES(star5), " +
+            "review_count = review_count + VALUES(review_count), rating_sum = rating_sum + VALUES(rating_sum), " +
+            "updated_at = NOW()",
+            nativeQuery = true)
+    int applyDelta(@Param("targetId") Long targetId,
+                   @Param("targetType") String targetType,
+                   @Param("rating") int rating,
+                   @Param("delta") int delta);
+}
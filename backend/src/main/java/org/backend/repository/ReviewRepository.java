@@ -3,12 +3,14 @@ package org.backend.repository;
 import org.backend.A_general.base.repository.BaseRepository;
 import org.backend.entity.Review;
 import org.backend.entity.enums.ReviewType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -38,4 +40,54 @@ public interface ReviewRepository extends BaseRepository<Review, Long> {
     @Query("SELECT r FROM Review r WHERE r.targetType = :targetType AND r.rating >= :minRating AND r.deleted = false ORDER BY r.createdAt DESC")
     List<Review> findByTargetTypeAndRatingGreaterThanEqual(@Param("targetType") ReviewType targetType,
                                                            @Param("minRating") Integer minRating);
+
+    @Query("SELECT r FROM Review r WHERE r.targetId = :targetId AND r.targetType = :targetType " +
+            "AND r.rating >= :minRating AND r.deleted = false ORDER BY r.createdAt DESC")
+    List<Review> findByTargetIdAndTargetTypeAndRatingGreaterThanEqual(@Param("targetId") Long targetId,
+                                                                      @Param("targetType") ReviewType targetType,
+                                                                      @Param("minRating") Integer minRating);
+
+    /**
+     * 评价流首页，走(target_id, target_type, created_at)索引
+     */
+    @Query("SELECT r FROM Review r WHERE r.targetId = :targetId AND r.targetType = :targetType AND r.deleted = false " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Review> findFeedFirstPage(@Param("targetId") Long targetId,
+                                   @Param("targetType") ReviewType targetType,
+                                   Limit limit);
+
+    /**
+     * 评价流后续页，从游标(createdAt, id)之后继续读取
+     */
+    @Query("SELECT r FROM Review r WHERE r.targetId = :targetId AND r.targetType = :targetType AND r.deleted = false " +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Review> findFeedAfter(@Param("targetId") Long targetId,
+                               @Param("targetType") ReviewType targetType,
+                               @Param("createdAt") LocalDateTime createdAt,
+                               @Param("id") Long id,
+                               Limit limit);
+
+    /**
+     * 按星级筛选的评价流首页，走(target_id, target_type, rating, created_at)索引
+     */
+    @Query("SELECT r FROM Review r WHERE r.targetId = :targetId AND r.targetType = :targetType AND r.rating = :rating " +
+            "AND r.deleted = false ORDER BY r.createdAt DESC, r.id DESC")
+    List<Review> findFeedByRatingFirstPage(@Param("targetId") Long targetId,
+                                           @Param("targetType") ReviewType targetType,
+                                           @Param("rating") Integer rating,
+                                           Limit limit);
+
+    /**
+     * 按星级筛选的评价流后续页
+     */
+    @Query("SELECT r FROM Review r WHERE r.targetId = :targetId AND r.targetType = :targetType AND r.rating = :rating " +
+            "AND r.deleted = false AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Review> findFeedByRatingAfter(@Param("targetId") Long targetId,
+                                       @Param("targetType") ReviewType targetType,
+                                       @Param("rating") Integer rating,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package org.backend.repository;
+
+import jakarta.persistence.LockModeType;
+import org.backend.A_general.base.repository.BaseRepository;
+import org.backend.entity.UserPaymentStats;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserPaymentStatsRepository extends BaseRepository<UserPaymentStats, Long> {
+
+    Optional<UserPaymentStats> findByUserId(Long userId);
+
+    List<UserPaymentStats> findByUserIdIn(Collection<Long> userIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UserPaymentStats s WHERE s.userId = :userId")
+    Optional<UserPaymentStats> findByUserIdForUpdate(@Param("userId") Long userId);
+
+    /**
+     * 原子地累加用户支付统计，统计行不存在时自动创建
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_payment_stats (user_id, total_spent, successful_count, refunded_total, created_at, updated_at) " +
+            "VALUES (:userId, :spentDelta, :countDelta, :refundedDelta, NOW(), NOW()) " +
+            "ON DUPLICATE KEY UPDATE total_spent = total_spent + VALUES(total_spent), " +
+            "successful_count = successful_count + VALUES(successful_count), " +
+            "refunded_total = refunded_total + VALUES(refunded_total), updated_at = NOW()",
+            nativeQuery = true)
+    int applyDelta(@Param("userId") Long userId,
+                   @Param("spentDelta") BigDecimal spentDelta,
+                   @Param("countDelta") long countDelta,
+                   @Param("refundedDelta") BigDecimal refundedDelta);
+
+    /**
+     * 统计值不为零的用户ID，对账时用于发现已没有支付记录却仍有统计的用户
+     */
+    @Query("SELECT s.userId FROM UserPaymentStats s WHERE s.totalSpent <> 0 OR s.successfulCount <> 0 OR s.refundedTotal <> 0")
+    List<Long> findUserIdsWithNonZeroStats();
+}
@@ -0,0 +1,62 @@
+package org.backend.scheduler;
+
+import org.backend.A_general.file.service.FileStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文件存储分层任务
+ * 每晚把长时间未被下载的文件数据移入归档段；可选在启动后于后台迁移旧版本直接存放在上传根目录的文件
+ */
+@Component
+public class FileStorageTieringTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageTieringTask.class);
+
+    private final FileStorageService fileStorageService;
+
+    // 是否启用冷数据归档
+    @Value("${file.storage.tiering-enabled:true}")
+    private boolean tieringEnabled;
+
+    // 是否在启动后迁移旧文件，迁移完成后可关闭
+    @Value("${file.storage.migrate-on-startup:false}")
+    private boolean migrateOnStartup;
+
+    public FileStorageTieringTask(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+
+    /**
+     * 每晚执行一次归档
+     */
+    @Scheduled(cron = "${file.storage.tiering-cron:0 30 2 * * ?}")
+    public void scheduledArchive() {
+        if (!tieringEnabled) {
+            return;
+        }
+        fileStorageService.archiveColdFiles();
+    }
+
+    /**
+     * 启动完成后在后台线程迁移旧文件，不阻塞服务启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyFiles() {
+        if (!migrateOnStartup) {
+            return;
+        }
+        Thread.ofPlatform().name("file-migration").daemon(true).start(() -> {
+            try {
+                fileStorageService.migrateLegacyFiles();
+            } catch (Exception e) {
+                logger.error("旧文件迁移失败: {}", e.getMessage(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,126 @@
+package org.backend.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 通知保留期清理任务
+ * 每晚按创建时间顺序分小批清理超过保留期的已读通知，可选先归档到notifications_archive；
+ * 每批一个短事务，批间暂停，避免长时间持有行锁和造成主从延迟
+ */
+@Component
+public class NotificationRetentionTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationRetentionTask.class);
+
+    private static final String SELECT_EXPIRED_SQL = "SELECT id FROM notifications " +
+            "WHERE is_read = true AND created_at < ? ORDER BY created_at, id LIMIT ?";
+
+    private static final String ARCHIVE_SQL = "INSERT INTO notifications_archive " +
+            "(id, user_id, title, message, type, is_read, duration, target_url, digest_count, created_at, updated_at, archived_at) " +
+            "SELECT id, user_id, title, message, type, is_read, duration, target_url, digest_count, created_at, updated_at, ? " +
+            "FROM notifications WHERE is_read = true AND id IN (%s)";
+
+    private static final String DELETE_SQL = "DELETE FROM notifications WHERE is_read = true AND id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // 已读通知的保留天数
+    @Value("${notification.retention.read-retention-days:90}")
+    private int readRetentionDays;
+
+    // 是否在删除前归档
+    @Value("${notification.retention.archive:false}")
+    private boolean archive;
+
+    // 每批清理的通知数
+    @Value("${notification.retention.batch-size:500}")
+    private int batchSize;
+
+    // 批间暂停时间（毫秒）
+    @Value("${notification.retention.batch-pause-millis:50}")
+    private long batchPauseMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public NotificationRetentionTask(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 每晚执行一次清理
+     */
+    @Scheduled(cron = "${notification.retention.cron:0 0 4 * * ?}")
+    public void scheduledPurge() {
+        purge();
+    }
+
+    /**
+     * 清理超过保留期的已读通知
+     *
+     * @return 清理的通知数，已有清理在执行时返回-1
+     */
+    public long purge() {
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("通知清理正在执行，跳过本次触发");
+            return -1;
+        }
+        try {
+            Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(readRetentionDays));
+            logger.info("开始清理已读通知: 截止时间={}, 归档={}", cutoff, archive);
+            long purged = 0;
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_EXPIRED_SQL, Long.class, cutoff, batchSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                purged += purgeBatch(ids);
+                if (ids.size() < batchSize) {
+                    break;
+                }
+                Thread.sleep(batchPauseMillis);
+            }
+            logger.info("已读通知清理完成: 清理数量={}", purged);
+            return purged;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("通知清理被中断");
+            return 0;
+        } catch (Exception e) {
+            logger.error("通知清理失败: {}", e.getMessage(), e);
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int purgeBatch(List<Long> ids) {
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Integer deleted = transactionTemplate.execute(status -> {
+            if (archive) {
+                Object[] args = new Object[ids.size() + 1];
+                args[0] = Timestamp.valueOf(LocalDateTime.now());
+                for (int i = 0; i < ids.size(); i++) {
+                    args[i + 1] = ids.get(i);
+                }
+                jdbcTemplate.update(String.format(ARCHIVE_SQL, placeholders), args);
+            }
+            return jdbcTemplate.update(String.format(DELETE_SQL, placeholders), ids.toArray());
+        });
+        return deleted != null ? deleted : 0;
+    }
+}
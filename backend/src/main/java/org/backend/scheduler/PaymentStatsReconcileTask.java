@@ -0,0 +1,197 @@
+package org.backend.scheduler;
+
+import org.backend.dto.response.payment.PaymentStatsDrift;
+import org.backend.dto.response.payment.PaymentStatsReconcileReport;
+import org.backend.entity.UserPaymentStats;
+import org.backend.repository.UserPaymentStatsRepository;
+import org.backend.service.PaymentStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 用户支付统计对账任务
+ * 每晚按用户ID顺序流式读取支付记录重新计算统计，与增量维护的统计逐批比对，
+ * 发现偏差的用户在行锁保护下重新计算并修正，最后输出对账报告
+ */
+@Component
+public class PaymentStatsReconcileTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentStatsReconcileTask.class);
+
+    // 报告中最多保留的偏差明细数
+    private static final int MAX_REPORTED_DRIFTS = 100;
+
+    // 按用户ID排序流式读取，MySQL驱动在fetchSize为Integer.MIN_VALUE时逐行返回结果
+    private static final String STREAM_SQL = "SELECT user_id, status, amount FROM payments " +
+            "WHERE deleted = false AND status IN ('SUCCESS', 'REFUNDED') ORDER BY user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserPaymentStatsRepository userPaymentStatsRepository;
+    private final PaymentStatsService paymentStatsService;
+
+    @Value("${payment.stats.reconcile-chunk-size:500}")
+    private int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public PaymentStatsReconcileTask(JdbcTemplate jdbcTemplate,
+                                     UserPaymentStatsRepository userPaymentStatsRepository,
+                                     PaymentStatsService paymentStatsService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userPaymentStatsRepository = userPaymentStatsRepository;
+        this.paymentStatsService = paymentStatsService;
+    }
+
+    /**
+     * 每晚执行一次对账
+     */
+    @Scheduled(cron = "${payment.stats.reconcile-cron:0 30 3 * * ?}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * 执行一次全量对账
+     *
+     * @return 对账报告，已有对账在执行时返回null
+     */
+    public PaymentStatsReconcileReport reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("支付统计对账正在执行，跳过本次触发");
+            return null;
+        }
+        try {
+            PaymentStatsReconcileReport report = new PaymentStatsReconcileReport();
+            report.setStartedAt(LocalDateTime.now());
+            logger.info("开始支付统计对账");
+
+            Set<Long> seenUsers = new HashSet<>();
+            Map<Long, UserTotals> chunk = new LinkedHashMap<>();
+            UserTotals[] current = new UserTotals[1];
+
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(STREAM_SQL,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(Integer.MIN_VALUE);
+                return ps;
+            }, rs -> {
+                long userId = rs.getLong(1);
+                if (current[0] == null || current[0].userId != userId) {
+                    // 只在用户边界处比对，保证同一用户的记录已全部累计
+                    if (chunk.size() >= chunkSize) {
+                        compareChunk(chunk, report);
+                        chunk.clear();
+                    }
+                    current[0] = new UserTotals(userId);
+                    chunk.put(userId, current[0]);
+                    seenUsers.add(userId);
+                }
+                current[0].add(rs.getString(2), rs.getBigDecimal(3));
+                report.setScannedPayments(report.getScannedPayments() + 1);
+            });
+            compareChunk(chunk, report);
+
+            // 已没有有效支付记录、但统计仍不为零的用户
+            for (Long userId : userPaymentStatsRepository.findUserIdsWithNonZeroStats()) {
+                if (!seenUsers.contains(userId)) {
+                    repair(userId, report);
+                }
+            }
+
+            report.setScannedUsers(seenUsers.size());
+            report.setFinishedAt(LocalDateTime.now());
+            if (report.getDriftedUsers() > 0) {
+                logger.warn("支付统计对账完成，发现偏差: 扫描支付={}, 扫描用户={}, 偏差用户={}",
+                        report.getScannedPayments(), report.getScannedUsers(), report.getDriftedUsers());
+            } else {
+                logger.info("支付统计对账完成，未发现偏差: 扫描支付={}, 扫描用户={}",
+                        report.getScannedPayments(), report.getScannedUsers());
+            }
+            return report;
+        } catch (Exception e) {
+            logger.error("支付统计对账失败: {}", e.getMessage(), e);
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 批量读取一批用户的统计并与重新计算值比对
+     * 流式结果集占用当前连接，统计读取和修正走连接池中的其他连接
+     */
+    private void compareChunk(Map<Long, UserTotals> chunk, PaymentStatsReconcileReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<Long, UserPaymentStats> stored = userPaymentStatsRepository.findByUserIdIn(chunk.keySet()).stream()
+                .collect(Collectors.toMap(UserPaymentStats::getUserId, Function.identity()));
+        for (UserTotals totals : chunk.values()) {
+            if (!totals.matches(stored.get(totals.userId))) {
+                repair(totals.userId, report);
+            }
+        }
+    }
+
+    private void repair(Long userId, PaymentStatsReconcileReport report) {
+        // 比对时读到的统计可能已被并发的状态流转更新，以加锁后的重新计算结果为准
+        PaymentStatsDrift drift = paymentStatsService.repairUserStats(userId);
+        if (drift == null) {
+            return;
+        }
+        report.setDriftedUsers(report.getDriftedUsers() + 1);
+        List<PaymentStatsDrift> drifts = report.getDrifts();
+        if (drifts.size() < MAX_REPORTED_DRIFTS) {
+            drifts.add(drift);
+        }
+    }
+
+    /**
+     * 单个用户按支付记录重新计算的统计
+     */
+    private static class UserTotals {
+        private final long userId;
+        private BigDecimal totalSpent = BigDecimal.ZERO;
+        private long successfulCount;
+        private BigDecimal refundedTotal = BigDecimal.ZERO;
+
+        UserTotals(long userId) {
+            this.userId = userId;
+        }
+
+        void add(String status, BigDecimal amount) {
+            if ("SUCCESS".equals(status)) {
+                totalSpent = totalSpent.add(amount);
+                successfulCount++;
+            } else {
+                refundedTotal = refundedTotal.add(amount);
+            }
+        }
+
+        boolean matches(UserPaymentStats stats) {
+            if (stats == null) {
+                return false;
+            }
+            return stats.getTotalSpent().compareTo(totalSpent) == 0
+                    && stats.getSuccessfulCount() == successfulCount
+                    && stats.getRefundedTotal().compareTo(refundedTotal) == 0;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.backend.scheduler;
+
+import org.backend.A_general.file.service.StorageQuotaService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户存储用量写入任务
+ * 定期把Redis中有变化的用户存储用量计数写入数据库
+ */
+@Component
+public class StorageUsageFlushTask {
+
+    private final StorageQuotaService storageQuotaService;
+
+    public StorageUsageFlushTask(StorageQuotaService storageQuotaService) {
+        this.storageQuotaService = storageQuotaService;
+    }
+
+    /**
+     * 按固定间隔写入一次
+     */
+    @Scheduled(initialDelayString = "${file.quota.flush-interval:60000}",
+            fixedDelayString = "${file.quota.flush-interval:60000}")
+    public void scheduledFlush() {
+        storageQuotaService.flush();
+    }
+}
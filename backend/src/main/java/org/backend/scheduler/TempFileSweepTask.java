@@ -0,0 +1,28 @@
+package org.backend.scheduler;
+
+import org.backend.A_general.file.service.TempFileSweepService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 临时上传文件清理任务
+ * 定期清理超过system.upload.temp-file-expiry-minutes未更新的分块上传和上传临时文件，每轮处理有限数量，逐步清完
+ */
+@Component
+public class TempFileSweepTask {
+
+    private final TempFileSweepService tempFileSweepService;
+
+    public TempFileSweepTask(TempFileSweepService tempFileSweepService) {
+        this.tempFileSweepService = tempFileSweepService;
+    }
+
+    /**
+     * 按固定间隔执行一轮清理
+     */
+    @Scheduled(initialDelayString = "${file.upload.sweep-interval:300000}",
+            fixedDelayString = "${file.upload.sweep-interval:300000}")
+    public void scheduledSweep() {
+        tempFileSweepService.sweep();
+    }
+}
@@ -0,0 +1,37 @@
+package org.backend.service;
+
+import org.backend.entity.enums.BadgeType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 角标计数服务接口
+ * 为打开了SSE连接的用户在内存中维护角标计数，写操作提交后更新计数，计数变化时推送
+ */
+public interface BadgeCounterService {
+
+    /**
+     * 打开角标计数推送流
+     * 连接建立后先推送一次当前计数，之后只在计数变化时推送，空闲时定期发送心跳
+     *
+     * @param userId 用户ID
+     * @return SSE发射器
+     */
+    SseEmitter subscribe(Long userId);
+
+    /**
+     * 按增量调整计数，在当前事务提交后生效，没有打开推送流的用户直接忽略
+     *
+     * @param userId 用户ID
+     * @param type   计数类型
+     * @param delta  增量
+     */
+    void adjust(Long userId, BadgeType type, long delta);
+
+    /**
+     * 标记计数失效，在当前事务提交后从数据库重新统计，用于无法得知准确增量的写操作
+     *
+     * @param userId 用户ID
+     * @param type   计数类型
+     */
+    void invalidate(Long userId, BadgeType type);
+}
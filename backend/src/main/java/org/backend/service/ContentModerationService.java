@@ -0,0 +1,41 @@
+package org.backend.service;
+
+import java.util.List;
+
+/**
+ * 内容审核服务接口
+ * 基于可热更新的敏感词表检查和过滤用户提交的文本
+ */
+public interface ContentModerationService {
+
+    /**
+     * 判断文本是否包含敏感词
+     *
+     * @param content 文本
+     * @return 是否包含敏感词
+     */
+    boolean containsSensitiveWord(String content);
+
+    /**
+     * 查找文本中命中的敏感词
+     *
+     * @param content 文本
+     * @return 命中的敏感词，按出现顺序排列
+     */
+    List<String> findSensitiveWords(String content);
+
+    /**
+     * 将文本中的敏感词替换为掩码字符
+     *
+     * @param content 文本
+     * @return 过滤后的文本
+     */
+    String filter(String content);
+
+    /**
+     * 重新加载敏感词表
+     *
+     * @return 加载后的词条数量
+     */
+    int reload();
+}
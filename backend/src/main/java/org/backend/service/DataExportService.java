@@ -0,0 +1,37 @@
+package org.backend.service;
+
+import org.backend.entity.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 数据导出服务接口
+ * 以流式游标逐行读取并直接写出，导出内存占用与数据量无关
+ */
+public interface DataExportService {
+
+    /**
+     * 导出预约记录
+     *
+     * @param userId   用户ID
+     * @param received true导出作为服务提供者收到的预约，false导出自己发起的预约
+     * @param format   导出格式
+     * @param out      输出流，由调用方负责关闭
+     * @return 导出的行数
+     * @throws IOException 写出失败，通常是客户端中断了下载
+     */
+    long exportBookings(Long userId, boolean received, ExportFormat format, OutputStream out) throws IOException;
+
+    /**
+     * 导出支付记录
+     *
+     * @param userId   用户ID
+     * @param received true导出作为服务提供者收到的支付，false导出自己支付的订单
+     * @param format   导出格式
+     * @param out      输出流，由调用方负责关闭
+     * @return 导出的行数
+     * @throws IOException 写出失败，通常是客户端中断了下载
+     */
+    long exportPayments(Long userId, boolean received, ExportFormat format, OutputStream out) throws IOException;
+}
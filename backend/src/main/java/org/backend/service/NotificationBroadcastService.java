@@ -0,0 +1,27 @@
+package org.backend.service;
+
+import org.backend.dto.request.notification.NotificationBroadcastRequest;
+import org.backend.dto.response.notification.NotificationBroadcastProgress;
+
+/**
+ * 批量通知广播服务接口
+ * 面向大量接收人的通知在后台线程中分批写入，提交后立即返回任务ID
+ */
+public interface NotificationBroadcastService {
+
+    /**
+     * 提交一个广播任务
+     *
+     * @param request 广播请求
+     * @return 任务ID
+     */
+    String submitBroadcast(NotificationBroadcastRequest request);
+
+    /**
+     * 查询广播任务进度
+     *
+     * @param taskId 任务ID
+     * @return 任务进度，任务不存在或已过期时返回null
+     */
+    NotificationBroadcastProgress getProgress(String taskId);
+}
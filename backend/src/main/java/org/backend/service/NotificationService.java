@@ -2,11 +2,13 @@ package org.backend.service;
 
 import org.backend.A_general.base.service.BaseService;
 import org.backend.dto.response.BaseResponse;
+import org.backend.dto.response.NotificationDTO;
 import org.backend.entity.Notification;
 import org.backend.entity.enums.NotificationType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -55,6 +57,22 @@ public interface NotificationService extends BaseService<Notification, Long> {
      */
     boolean markAllAsRead(Long userId);
 
+    /**
+     * 批量标记通知为已读
+     * @param notificationIds 通知ID列表
+     * @param userId 用户ID
+     * @return 实际标记的通知数量
+     */
+    int markAsRead(List<Long> notificationIds, Long userId);
+
+    /**
+     * 标记指定时间之前收到的通知为已读
+     * @param userId 用户ID
+     * @param before 截止时间（含）
+     * @return 实际标记的通知数量
+     */
+    int markAsReadBefore(Long userId, LocalDateTime before);
+
     /**
      * 删除单个通知
      * @param notificationId 通知ID
@@ -67,12 +85,13 @@ public interface NotificationService extends BaseService<Notification, Long> {
      * 批量删除通知
      * @param notificationIds 通知ID列表
      * @param userId 用户ID
-     * @return 操作结果
+     * @return 实际删除的通知数量
      */
-    boolean deleteNotifications(List<Long> notificationIds, Long userId);
+    int deleteNotifications(List<Long> notificationIds, Long userId);
 
     /**
      * 创建并发送通知
+     * 事务提交后通过WebSocket推送给在线用户
      * @param userId 用户ID
      * @param title 标题
      * @param message 内容
@@ -92,4 +111,11 @@ public interface NotificationService extends BaseService<Notification, Long> {
      * @return 创建的通知
      */
     Notification createNotification(Long userId, String title, String message, NotificationType type, Integer duration, String targetUrl);
-}
\ No newline at end of file
+
+    /**
+     * 将通知实体转换为前端展示的DTO
+     * @param notification 通知实体
+     * @return 通知DTO
+     */
+    NotificationDTO convertToDTO(Notification notification);
+}
@@ -0,0 +1,35 @@
+package org.backend.service;
+
+import org.backend.dto.request.payment.PaymentCallbackMessage;
+import org.backend.dto.response.payment.PaymentCallbackStats;
+
+import java.util.List;
+
+/**
+ * 支付回调服务接口
+ * 负责将支付渠道的异步通知批量结算到支付记录
+ */
+public interface PaymentCallbackService {
+
+    /**
+     * 批量结算支付回调
+     * 按transactionId去重后，以条件更新的方式将待支付订单结算为成功或失败，
+     * 已经结算过的订单不会被重复更新
+     *
+     * @param callbacks 回调消息列表
+     * @return 实际结算的支付数量
+     */
+    int settleCallbacks(List<PaymentCallbackMessage> callbacks);
+
+    /**
+     * 记录一个处理失败的批次
+     */
+    void recordFailedBatch();
+
+    /**
+     * 获取回调处理统计
+     *
+     * @return 统计信息快照
+     */
+    PaymentCallbackStats getStats();
+}
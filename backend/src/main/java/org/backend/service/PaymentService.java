@@ -0,0 +1,34 @@
+package org.backend.service;
+
+import org.backend.entity.Payment;
+
+/**
+ * 支付服务接口
+ * 负责支付订单的状态流转，每次流转都在同一事务内同步更新用户支付统计
+ */
+public interface PaymentService {
+
+    /**
+     * 将待支付或处理中的订单结算为支付成功
+     *
+     * @param payment 支付订单
+     * @return 是否完成了状态流转，订单已被其他请求处理时返回false
+     */
+    boolean settlePayment(Payment payment);
+
+    /**
+     * 将支付成功的订单退款
+     *
+     * @param payment 支付订单
+     * @return 是否完成了状态流转，订单已被其他请求处理时返回false
+     */
+    boolean refundPayment(Payment payment);
+
+    /**
+     * 取消待支付的订单
+     *
+     * @param payment 支付订单
+     * @return 是否完成了状态流转，订单已被其他请求处理时返回false
+     */
+    boolean cancelPayment(Payment payment);
+}
@@ -0,0 +1,46 @@
+package org.backend.service;
+
+import org.backend.dto.response.payment.PaymentStatsDrift;
+import org.backend.entity.UserPaymentStats;
+
+import java.math.BigDecimal;
+
+/**
+ * 用户支付统计服务接口
+ * 维护按用户增量更新的支付统计，必须在支付状态流转的同一事务内调用
+ */
+public interface PaymentStatsService {
+
+    /**
+     * 记录支付成功
+     *
+     * @param userId 用户ID
+     * @param amount 支付成功的总金额
+     * @param count  支付成功的笔数
+     */
+    void recordSettled(Long userId, BigDecimal amount, long count);
+
+    /**
+     * 记录退款，消费金额和成功笔数相应减少
+     *
+     * @param userId 用户ID
+     * @param amount 退款金额
+     */
+    void recordRefunded(Long userId, BigDecimal amount);
+
+    /**
+     * 获取用户支付统计，单行读取
+     *
+     * @param userId 用户ID
+     * @return 用户支付统计，没有支付记录的用户返回全零统计
+     */
+    UserPaymentStats getUserStats(Long userId);
+
+    /**
+     * 锁定用户统计行后按支付记录重新计算并修正
+     *
+     * @param userId 用户ID
+     * @return 修正前的偏差，统计正确时返回null
+     */
+    PaymentStatsDrift repairUserStats(Long userId);
+}
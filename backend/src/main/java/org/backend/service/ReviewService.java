@@ -3,6 +3,8 @@ package org.backend.service;
 import org.backend.A_general.base.service.BaseService;
 import org.backend.dto.request.ReviewRequest;
 import org.backend.dto.response.ReviewResponse;
+import org.backend.dto.response.review.ReviewFeedPage;
+import org.backend.dto.response.review.ReviewRatingHistogram;
 import org.backend.entity.Review;
 import org.backend.entity.User;
 import org.backend.entity.enums.ReviewType;
@@ -40,6 +42,10 @@ public interface ReviewService extends BaseService<Review, Long> {
 
     boolean hasUserReviewedTarget(User user, Long targetId, ReviewType type);
 
+    ReviewFeedPage getReviewFeed(Long targetId, ReviewType type, Integer rating, String cursor, int size);
+
+    ReviewRatingHistogram getRatingHistogram(Long targetId, ReviewType type);
+
     List<Review> findAll();
 
     Page<Review> findAll(Pageable pageable);
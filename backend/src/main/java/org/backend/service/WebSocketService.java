@@ -1,5 +1,6 @@
 package org.backend.service;
 
+import org.backend.dto.response.NotificationDTO;
 import org.backend.dto.response.webSocket.WebSocketMessageResponse;
 import org.backend.dto.response.webSocket.WebSocketUserStatusResponse;
 import org.backend.entity.Message;
@@ -18,6 +19,21 @@ public interface WebSocketService {
      */
     void sendMessageToUser(String userId, WebSocketMessageResponse message);
 
+    /**
+     * 推送新通知给指定用户
+     * 同一用户在合并窗口内的多条通知合并为一帧发送到/queue/notifications，用户不在线时直接丢弃
+     * @param userId 用户ID
+     * @param notification 通知
+     */
+    void sendNotificationToUser(Long userId, NotificationDTO notification);
+
+    /**
+     * 通知指定用户重新拉取通知列表
+     * 用于无法逐条推送的批量写入，与新通知共用合并窗口
+     * @param userId 用户ID
+     */
+    void requestNotificationRefresh(Long userId);
+
     /**
      * 广播对话更新
      * @param userId 用户ID
@@ -0,0 +1,313 @@
+package org.backend.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.backend.dto.response.notification.BadgeCounters;
+import org.backend.entity.enums.BadgeType;
+import org.backend.repository.BookingRepository;
+import org.backend.repository.MessageRepository;
+import org.backend.repository.NotificationRepository;
+import org.backend.service.BadgeCounterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 角标计数服务实现类
+ * 只为打开了推送流的用户保存计数，每个用户一个小对象，推送流本身是异步请求，不占用线程；
+ * 计数在订阅时和写操作无法给出准确增量时从数据库统计，其余情况按增量更新。
+ * 统计期间若有增量到达则重新统计，直到统计前后没有并发修改为止；
+ * 增量在事务提交后才生效，若提交前后之间有统计写入了计数，该统计可能已包含这次修改，增量改为触发重新统计，
+ * 保证计数最终与数据库一致
+ */
+@Service
+public class BadgeCounterServiceImpl implements BadgeCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BadgeCounterServiceImpl.class);
+
+    private static final BadgeType[] TYPES = BadgeType.values();
+
+    private static final int ALL_TYPES_MASK = (1 << TYPES.length) - 1;
+
+    private static final String EVENT_NAME = "badges";
+
+    private final MessageRepository messageRepository;
+    private final NotificationRepository notificationRepository;
+    private final BookingRepository bookingRepository;
+
+    // 打开了推送流的用户，键为用户ID
+    private final Map<Long, UserBadges> tracked = new ConcurrentHashMap<>();
+
+    // 计数可能已变化、等待推送的用户
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("badge-counter").daemon(true).factory());
+
+    // 检查计数变化并推送的间隔（毫秒），同一用户在间隔内的多次变化合并为一次推送
+    @Value("${badge.stream.flush-interval-millis:500}")
+    private long flushIntervalMillis;
+
+    // 心跳间隔（毫秒），需小于代理和负载均衡的空闲超时
+    @Value("${badge.stream.heartbeat-interval-millis:25000}")
+    private long heartbeatIntervalMillis;
+
+    // 推送流的最长存活时间（毫秒），超时后由客户端重新连接
+    @Value("${badge.stream.timeout-millis:1800000}")
+    private long streamTimeoutMillis;
+
+    public BadgeCounterServiceImpl(MessageRepository messageRepository,
+                                   NotificationRepository notificationRepository,
+                                   BookingRepository bookingRepository) {
+        this.messageRepository = messageRepository;
+        this.notificationRepository = notificationRepository;
+        this.bookingRepository = bookingRepository;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flushDirtyUsers, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatIntervalMillis, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (UserBadges badges : tracked.values()) {
+            badges.emitters.forEach(SseEmitter::complete);
+        }
+    }
+
+    @Override
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        UserBadges badges = tracked.compute(userId, (id, existing) -> {
+            UserBadges entry = existing != null ? existing : new UserBadges();
+            entry.emitters.add(emitter);
+            // 新连接总要收到一次完整计数，顺带以数据库为准重新统计
+            entry.markStale(ALL_TYPES_MASK);
+            entry.lastSent = null;
+            return entry;
+        });
+        Runnable remove = () -> unsubscribe(userId, badges, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        dirtyUsers.add(userId);
+        logger.debug("用户打开角标推送流: userId={}, 当前连接数={}", userId, badges.emitters.size());
+        return emitter;
+    }
+
+    @Override
+    public void adjust(Long userId, BadgeType type, long delta) {
+        UserBadges tracking = userId != null ? tracked.get(userId) : null;
+        if (tracking == null || delta == 0) {
+            return;
+        }
+        // 在修改提交前记下统计写入的次数，提交后据此判断是否有统计可能已包含这次修改
+        long recounts = tracking.recounts(type.ordinal());
+        afterCommit(() -> {
+            UserBadges badges = tracked.get(userId);
+            if (badges == null) {
+                return;
+            }
+            if (badges != tracking || !badges.adjustIfNotRecounted(type.ordinal(), delta, recounts)) {
+                badges.markStale(1 << type.ordinal());
+            }
+            dirtyUsers.add(userId);
+        });
+    }
+
+    @Override
+    public void invalidate(Long userId, BadgeType type) {
+        if (userId == null || !tracked.containsKey(userId)) {
+            return;
+        }
+        afterCommit(() -> {
+            UserBadges badges = tracked.get(userId);
+            if (badges != null) {
+                badges.markStale(1 << type.ordinal());
+                dirtyUsers.add(userId);
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void unsubscribe(Long userId, UserBadges badges, SseEmitter emitter) {
+        tracked.computeIfPresent(userId, (id, entry) -> {
+            entry.emitters.remove(emitter);
+            return entry.emitters.isEmpty() ? null : entry;
+        });
+        logger.debug("用户关闭角标推送流: userId={}, 剩余连接数={}", userId, badges.emitters.size());
+    }
+
+    /**
+     * 重新统计失效的计数，并向计数有变化的用户推送
+     */
+    private void flushDirtyUsers() {
+        try {
+            Iterator<Long> iterator = dirtyUsers.iterator();
+            while (iterator.hasNext()) {
+                Long userId = iterator.next();
+                iterator.remove();
+                UserBadges badges = tracked.get(userId);
+                if (badges == null) {
+                    continue;
+                }
+                if (!recount(userId, badges)) {
+                    // 统计期间计数又被修改，下一轮重新统计
+                    dirtyUsers.add(userId);
+                    continue;
+                }
+                BadgeCounters counters = badges.changedSnapshot();
+                if (counters != null) {
+                    send(userId, badges, SseEmitter.event().name(EVENT_NAME).data(counters));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("推送角标计数失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从数据库统计失效的计数
+     *
+     * @return 所有计数是否都已有效
+     */
+    private boolean recount(Long userId, UserBadges badges) {
+        int mask;
+        long[] generations;
+        synchronized (badges) {
+            mask = badges.staleMask;
+            badges.staleMask = 0;
+            generations = badges.generations.clone();
+        }
+        for (BadgeType type : TYPES) {
+            int bit = 1 << type.ordinal();
+            if ((mask & bit) == 0) {
+                continue;
+            }
+            long value = count(userId, type);
+            synchronized (badges) {
+                if (badges.generations[type.ordinal()] == generations[type.ordinal()]) {
+                    badges.counts[type.ordinal()] = value;
+                    badges.recounts[type.ordinal()]++;
+                } else {
+                    badges.staleMask |= bit;
+                }
+            }
+        }
+        synchronized (badges) {
+            return badges.staleMask == 0;
+        }
+    }
+
+    private long count(Long userId, BadgeType type) {
+        return switch (type) {
+            case UNREAD_MESSAGES -> messageRepository.countByReceiverIdAndIsReadFalseAndDeletedFalse(userId);
+            case UNREAD_NOTIFICATIONS -> notificationRepository.countByUserIdAndIsReadFalse(userId);
+            case PENDING_BOOKINGS -> bookingRepository.countPendingByUserId(userId);
+        };
+    }
+
+    private void sendHeartbeats() {
+        try {
+            tracked.forEach((userId, badges) -> send(userId, badges, SseEmitter.event().comment("heartbeat")));
+        } catch (Exception e) {
+            logger.error("发送角标推送流心跳失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void send(Long userId, UserBadges badges, SseEmitter.SseEventBuilder event) {
+        for (SseEmitter emitter : badges.emitters) {
+            try {
+                emitter.send(event);
+            } catch (Exception e) {
+                // 客户端已断开，completeWithError会触发onError回调移除该连接
+                logger.debug("角标推送流已断开: userId={}, error={}", userId, e.getMessage());
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    /**
+     * 单个用户的角标计数和推送流
+     */
+    private static class UserBadges {
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private final long[] counts = new long[TYPES.length];
+        // 每次增量修改时递增，用于判断统计期间是否有并发修改
+        private final long[] generations = new long[TYPES.length];
+        // 每次统计结果写入计数时递增，用于判断增量提交前后是否有统计写入
+        private final long[] recounts = new long[TYPES.length];
+        private int staleMask;
+        private long[] lastSent;
+
+        synchronized long recounts(int index) {
+            return recounts[index];
+        }
+
+        /**
+         * 自记录以来没有统计写入时应用增量
+         *
+         * @return 是否已应用，返回false时计数可能已包含这次修改，需要重新统计
+         */
+        synchronized boolean adjustIfNotRecounted(int index, long delta, long expectedRecounts) {
+            if (recounts[index] != expectedRecounts) {
+                return false;
+            }
+            counts[index] = Math.max(0, counts[index] + delta);
+            generations[index]++;
+            return true;
+        }
+
+        synchronized void markStale(int mask) {
+            staleMask |= mask;
+            for (int i = 0; i < TYPES.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    generations[i]++;
+                }
+            }
+        }
+
+        /**
+         * 计数与上次推送不同时返回快照并记为已推送，否则返回null
+         */
+        synchronized BadgeCounters changedSnapshot() {
+            if (lastSent != null && Arrays.equals(lastSent, counts)) {
+                return null;
+            }
+            lastSent = counts.clone();
+            return new BadgeCounters(counts[BadgeType.UNREAD_MESSAGES.ordinal()],
+                    counts[BadgeType.UNREAD_NOTIFICATIONS.ordinal()],
+                    counts[BadgeType.PENDING_BOOKINGS.ordinal()]);
+        }
+    }
+}
@@ -5,8 +5,10 @@ import org.backend.dto.request.BookingRequest;
 import org.backend.dto.response.BookingResponse;
 import org.backend.entity.Booking;
 import org.backend.entity.User;
+import org.backend.entity.enums.BadgeType;
 import org.backend.entity.enums.BookingStatus;
 import org.backend.repository.BookingRepository;
+import org.backend.service.BadgeCounterService;
 import org.backend.service.BookingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,8 +24,11 @@ import java.util.Optional;
 public class BookingServiceImpl extends BaseServiceImpl<Booking, Long, BookingRepository> implements BookingService {
     private static final Logger logger = LoggerFactory.getLogger(BookingServiceImpl.class);
 
-    public BookingServiceImpl(BookingRepository bookingRepository) {
+    private final BadgeCounterService badgeCounterService;
+
+    public BookingServiceImpl(BookingRepository bookingRepository, BadgeCounterService badgeCounterService) {
         super(bookingRepository);
+        this.badgeCounterService = badgeCounterService;
     }
 
     @Override
@@ -150,6 +155,7 @@ public class BookingServiceImpl extends BaseServiceImpl<Booking, Long, BookingRe
             }
 
             Booking savedBooking = repository.save(booking);
+            invalidatePendingBadges(savedBooking);
 
             // 设置ID到请求对象中，以便返回
             bookingRequest.setId(savedBooking.getId());
@@ -176,7 +182,9 @@ public class BookingServiceImpl extends BaseServiceImpl<Booking, Long, BookingRe
 
         booking.setStatus(status.toUpperCase());
         booking.setUpdatedAt(LocalDateTime.now());
-        return repository.save(booking);
+        Booking savedBooking = repository.save(booking);
+        invalidatePendingBadges(savedBooking);
+        return savedBooking;
     }
 
     @Override
@@ -194,5 +202,14 @@ public class BookingServiceImpl extends BaseServiceImpl<Booking, Long, BookingRe
         booking.setStatus("CANCELLED");
         booking.setUpdatedAt(LocalDateTime.now());
         repository.save(booking);
+        invalidatePendingBadges(booking);
+    }
+
+    /**
+     * 预约状态变化后让双方的待确认预约角标重新统计
+     */
+    private void invalidatePendingBadges(Booking booking) {
+        badgeCounterService.invalidate(booking.getOwnerId(), BadgeType.PENDING_BOOKINGS);
+        badgeCounterService.invalidate(booking.getProviderId(), BadgeType.PENDING_BOOKINGS);
     }
 }
@@ -0,0 +1,134 @@
+package org.backend.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import org.backend.A_general.base.utils.AhoCorasickMatcher;
+import org.backend.A_general.base.utils.SecurityUtils;
+import org.backend.service.ContentModerationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 内容审核服务实现类
+ * 词表由类路径内置词表和可选的外部词表文件合并而成，编译为Aho–Corasick自动机后整体替换，
+ * 外部词表文件修改后会在下一次检查时自动重新加载，加载失败时继续使用旧词表
+ */
+@Service
+public class ContentModerationServiceImpl implements ContentModerationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentModerationServiceImpl.class);
+
+    // 类路径内置词表，每行一个词条，#开头的行为注释
+    private static final String BUILT_IN_WORDS = "sensitive-words.txt";
+
+    @Value("${moderation.sensitive-words-file:}")
+    private String sensitiveWordsFile;
+
+    @Value("${moderation.replace-char:*}")
+    private char replaceChar;
+
+    private volatile AhoCorasickMatcher matcher = AhoCorasickMatcher.empty();
+
+    // 外部词表文件最近一次加载时的修改时间
+    private volatile long loadedModifiedTime = -1;
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    @Override
+    public boolean containsSensitiveWord(String content) {
+        return SecurityUtils.containsSensitiveWord(content, matcher);
+    }
+
+    @Override
+    public List<String> findSensitiveWords(String content) {
+        return matcher.findAll(content);
+    }
+
+    @Override
+    public String filter(String content) {
+        return SecurityUtils.filterSensitiveWords(content, matcher, replaceChar);
+    }
+
+    @Override
+    public synchronized int reload() {
+        try {
+            List<String> words = new ArrayList<>();
+            ClassPathResource builtIn = new ClassPathResource(BUILT_IN_WORDS);
+            if (builtIn.exists()) {
+                try (InputStream in = builtIn.getInputStream()) {
+                    readWords(in, words);
+                }
+            }
+            Path external = externalFile();
+            long modifiedTime = -1;
+            if (external != null && Files.isRegularFile(external)) {
+                modifiedTime = Files.getLastModifiedTime(external).toMillis();
+                try (InputStream in = Files.newInputStream(external)) {
+                    readWords(in, words);
+                }
+            }
+
+            long start = System.nanoTime();
+            AhoCorasickMatcher compiled = AhoCorasickMatcher.compile(words);
+            matcher = compiled;
+            loadedModifiedTime = modifiedTime;
+            logger.info("敏感词表加载完成: 词条数={}, 编译耗时={}ms", compiled.size(), (System.nanoTime() - start) / 1_000_000);
+            return compiled.size();
+        } catch (IOException e) {
+            logger.error("敏感词表加载失败，继续使用旧词表: {}", e.getMessage());
+            return matcher.size();
+        }
+    }
+
+    /**
+     * 定期检查外部词表文件是否被修改，修改后自动重新加载
+     */
+    @Scheduled(fixedDelayString = "${moderation.reload-interval:30000}")
+    public void reloadIfChanged() {
+        Path external = externalFile();
+        if (external == null) {
+            return;
+        }
+        try {
+            long modifiedTime = Files.isRegularFile(external) ? Files.getLastModifiedTime(external).toMillis() : -1;
+            if (modifiedTime != loadedModifiedTime) {
+                logger.info("检测到敏感词表文件变更，重新加载: {}", external);
+                reload();
+            }
+        } catch (IOException e) {
+            logger.warn("检查敏感词表文件失败: {}", e.getMessage());
+        }
+    }
+
+    private Path externalFile() {
+        return sensitiveWordsFile == null || sensitiveWordsFile.isBlank() ? null : Paths.get(sensitiveWordsFile);
+    }
+
+    private void readWords(InputStream in, List<String> words) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String word = line.strip();
+            if (!word.isEmpty() && !word.startsWith("#")) {
+                words.add(word);
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package org.backend.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.backend.entity.Booking;
+import org.backend.entity.Payment;
+import org.backend.entity.enums.ExportFormat;
+import org.backend.repository.BookingRepository;
+import org.backend.repository.PaymentRepository;
+import org.backend.service.DataExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.TemporalAccessor;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 数据导出服务实现类
+ * 在只读事务内消费Repository返回的Stream，每写出一行就将实体从持久化上下文中分离，
+ * 并按固定行数刷新输出，使响应以分块方式持续下发
+ */
+@Service
+public class DataExportServiceImpl implements DataExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataExportServiceImpl.class);
+
+    // 每写出多少行刷新一次输出流
+    private static final int FLUSH_INTERVAL_ROWS = 1000;
+
+    // 写缓冲区大小
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private static final List<ExportColumn<Booking>> BOOKING_COLUMNS = List.of(
+            new ExportColumn<>("id", Booking::getId),
+            new ExportColumn<>("ownerId", Booking::getOwnerId),
+            new ExportColumn<>("providerId", Booking::getProviderId),
+            new ExportColumn<>("serviceId", Booking::getServiceId),
+            new ExportColumn<>("startDate", Booking::getStartDate),
+            new ExportColumn<>("endDate", Booking::getEndDate),
+            new ExportColumn<>("status", Booking::getStatus),
+            new ExportColumn<>("totalPrice", Booking::getTotalPrice),
+            new ExportColumn<>("specialRequirements", Booking::getSpecialRequirements),
+            new ExportColumn<>("createdAt", Booking::getCreatedAt),
+            new ExportColumn<>("updatedAt", Booking::getUpdatedAt)
+    );
+
+    private static final List<ExportColumn<Payment>> PAYMENT_COLUMNS = List.of(
+            new ExportColumn<>("id", Payment::getId),
+            new ExportColumn<>("bookingId", Payment::getBookingId),
+            new ExportColumn<>("userId", Payment::getUserId),
+            new ExportColumn<>("amount", Payment::getAmount),
+            new ExportColumn<>("currency", Payment::getCurrency),
+            new ExportColumn<>("paymentMethod", Payment::getPaymentMethod),
+            new ExportColumn<>("transactionId", Payment::getTransactionId),
+            new ExportColumn<>("status", Payment::getStatus),
+            new ExportColumn<>("description", Payment::getDescription),
+            new ExportColumn<>("paidAt", Payment::getPaidAt),
+            new ExportColumn<>("createdAt", Payment::getCreatedAt),
+            new ExportColumn<>("updatedAt", Payment::getUpdatedAt)
+    );
+
+    private final BookingRepository bookingRepository;
+    private final PaymentRepository paymentRepository;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public DataExportServiceImpl(BookingRepository bookingRepository,
+                                 PaymentRepository paymentRepository,
+                                 ObjectMapper objectMapper) {
+        this.bookingRepository = bookingRepository;
+        this.paymentRepository = paymentRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportBookings(Long userId, boolean received, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<Booking> rows = received
+                ? bookingRepository.streamByProviderId(userId)
+                : bookingRepository.streamByOwnerId(userId)) {
+            long count = write(rows, BOOKING_COLUMNS, format, out);
+            logger.info("预约导出完成: userId={}, received={}, format={}, rows={}", userId, received, format, count);
+            return count;
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportPayments(Long userId, boolean received, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<Payment> rows = received
+                ? paymentRepository.streamByProviderId(userId)
+                : paymentRepository.streamByUserId(userId)) {
+            long count = write(rows, PAYMENT_COLUMNS, format, out);
+            logger.info("支付导出完成: userId={}, received={}, format={}, rows={}", userId, received, format, count);
+            return count;
+        }
+    }
+
+    private <T> long write(Stream<T> rows, List<ExportColumn<T>> columns, ExportFormat format, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        if (format == ExportFormat.CSV) {
+            // 写入BOM，便于Excel正确识别UTF-8编码
+            writer.write('\uFEFF');
+            writeCsvLine(writer, columns.stream().map(ExportColumn::name).toList());
+        }
+
+        long count = 0;
+        try {
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                T row = iterator.next();
+                if (format == ExportFormat.CSV) {
+                    writeCsvLine(writer, columns.stream().map(column -> formatValue(column.getter().apply(row))).toList());
+                } else {
+                    writeJsonLine(writer, columns, row);
+                }
+                // 只读导出不需要脏检查，及时分离实体避免持久化上下文随行数增长
+                entityManager.detach(row);
+                if (++count % FLUSH_INTERVAL_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void writeCsvLine(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escapeCsv(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    private <T> void writeJsonLine(Writer writer, List<ExportColumn<T>> columns, T row) throws IOException {
+        writer.write('{');
+        for (int i = 0; i < columns.size(); i++) {
+            ExportColumn<T> column = columns.get(i);
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(objectMapper.writeValueAsString(column.name()));
+            writer.write(':');
+            writer.write(objectMapper.writeValueAsString(column.getter().apply(row)));
+        }
+        writer.write("}\n");
+    }
+
+    private String formatValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof TemporalAccessor) {
+            // 与JSON输出保持同一日期格式
+            try {
+                String json = objectMapper.writeValueAsString(value);
+                return json.substring(1, json.length() - 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return value.toString();
+    }
+
+    private String escapeCsv(String value) {
+        if (value.isEmpty()) {
+            return value;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        // 防止以公式字符开头的内容在表格软件中被当作公式执行
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@') {
+            if (!isNumeric(value)) {
+                value = "'" + value;
+            }
+        }
+        if (!quote) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private boolean isNumeric(String value) {
+        try {
+            new BigDecimal(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 导出列定义
+     *
+     * @param name   列名
+     * @param getter 取值函数
+     */
+    private record ExportColumn<T>(String name, Function<T, Object> getter) {
+    }
+}
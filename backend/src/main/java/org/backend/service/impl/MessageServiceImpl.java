@@ -5,9 +5,12 @@ import org.backend.dto.request.message.ImageMessageRequest;
 import org.backend.dto.request.message.VideoMessageRequest;
 import org.backend.entity.Message;
 import org.backend.entity.User;
+import org.backend.entity.enums.BadgeType;
 import org.backend.event.NewMessageEvent;
 import org.backend.repository.MessageRepository;
 import org.backend.repository.UserRepository;
+import org.backend.service.BadgeCounterService;
+import org.backend.service.ContentModerationService;
 import org.backend.service.MessageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +33,8 @@ public class MessageServiceImpl extends BaseServiceImpl<Message, Long, MessageRe
 
     private final UserRepository userRepository;
     private final ApplicationEventPublisher eventPublisher;
+    private final ContentModerationService contentModerationService;
+    private final BadgeCounterService badgeCounterService;
     
     // 用于存储用户屏蔽关系
     private static final Map<Long, Set<Long>> blockedUsers = new ConcurrentHashMap<>();
@@ -37,10 +42,14 @@ public class MessageServiceImpl extends BaseServiceImpl<Message, Long, MessageRe
     @Autowired
     public MessageServiceImpl(MessageRepository messageRepository,
                             UserRepository userRepository,
-                            ApplicationEventPublisher eventPublisher) {
+                            ApplicationEventPublisher eventPublisher,
+                            ContentModerationService contentModerationService,
+                            BadgeCounterService badgeCounterService) {
         super(messageRepository);
         this.userRepository = userRepository;
         this.eventPublisher = eventPublisher;
+        this.contentModerationService = contentModerationService;
+        this.badgeCounterService = badgeCounterService;
     }
 
     @Override
@@ -56,12 +65,15 @@ public class MessageServiceImpl extends BaseServiceImpl<Message, Long, MessageRe
             return null;
         }
 
+        // 过滤消息内容中的敏感词
+        message.setContent(contentModerationService.filter(message.getContent()));
         message.setCreatedAt(LocalDateTime.now());
         message.setUpdatedAt(LocalDateTime.now());
         message.setIsRead(false);
         message.setDeleted(false);
         
         Message savedMessage = super.save(message);
+        badgeCounterService.adjust(savedMessage.getReceiverId(), BadgeType.UNREAD_MESSAGES, 1);
         
         // 通过事件发布新消息通知
         eventPublisher.publishEvent(new NewMessageEvent(savedMessage));
@@ -123,6 +135,7 @@ public class MessageServiceImpl extends BaseServiceImpl<Message, Long, MessageRe
             });
             
             super.saveAll(messages);
+            badgeCounterService.adjust(userid, BadgeType.UNREAD_MESSAGES, -messages.size());
             logger.info("已将对话 {} 中的 {} 条消息标记为已读", conversationId, messages.size());
         } catch (NumberFormatException e) {
             logger.error("标记消息已读失败：无效的ID格式", e);
@@ -139,6 +152,8 @@ public class MessageServiceImpl extends BaseServiceImpl<Message, Long, MessageRe
             latestMessage.setIsRead(false);
             latestMessage.setUpdatedAt(LocalDateTime.now());
             super.save(latestMessage);
+            // 最新一条消息原本可能已读也可能未读，无法得知准确增量
+            badgeCounterService.invalidate(userId, BadgeType.UNREAD_MESSAGES);
         }
     }
 
@@ -150,9 +165,13 @@ public class MessageServiceImpl extends BaseServiceImpl<Message, Long, MessageRe
             Message message = optionalMessage.get();
             // 验证用户权限
             if (message.getSenderId().equals(userId) || message.getReceiverId().equals(userId)) {
+                boolean wasUnread = !message.getIsRead() && !message.getDeleted();
                 message.setDeleted(true);
                 message.setUpdatedAt(LocalDateTime.now());
                 super.save(message);
+                if (wasUnread) {
+                    badgeCounterService.adjust(message.getReceiverId(), BadgeType.UNREAD_MESSAGES, -1);
+                }
             }
         }
     }
@@ -0,0 +1,316 @@
+package org.backend.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.backend.dto.request.notification.NotificationBroadcastRequest;
+import org.backend.dto.response.notification.NotificationBroadcastProgress;
+import org.backend.entity.enums.BadgeType;
+import org.backend.service.BadgeCounterService;
+import org.backend.service.NotificationBroadcastService;
+import org.backend.service.WebSocketService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 批量通知广播服务实现类
+ * 接收人ID通过流式游标逐行读取，缓冲到一批后以多行INSERT写入，
+ * 每若干批提交一次事务，单个任务的内存占用与接收人总数无关；
+ * 任务在专用线程中执行，请求线程提交后立即返回
+ */
+@Service
+public class NotificationBroadcastServiceImpl implements NotificationBroadcastService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationBroadcastServiceImpl.class);
+
+    private static final String INSERT_SQL_PREFIX = "INSERT INTO notifications " +
+            "(user_id, title, message, type, is_read, duration, target_url, created_at, updated_at) VALUES ";
+
+    private static final String INSERT_ROW_PLACEHOLDER = "(?, ?, ?, ?, false, ?, ?, ?, ?)";
+
+    private static final int INSERT_COLUMNS = 8;
+
+    // 单条语句的占位符数量不能超过65535
+    private static final int MAX_ROWS_PER_STATEMENT = 65535 / INSERT_COLUMNS;
+
+    // MySQL驱动在fetchSize为Integer.MIN_VALUE时逐行返回结果
+    private static final String ALL_RECIPIENTS_SQL = "SELECT id FROM users WHERE deleted = 0";
+
+    private static final String ROLE_RECIPIENTS_SQL = "SELECT id FROM users WHERE deleted = 0 AND role = ?";
+
+    // 指定用户ID时过滤掉不存在或已注销的用户，避免外键约束使整批写入失败
+    private static final String EXISTING_RECIPIENTS_SQL = "SELECT id FROM users WHERE deleted = 0 AND id IN (%s)";
+
+    // 校验指定用户ID时每次查询的ID数量
+    private static final int ID_LIST_SLICE_SIZE = 1000;
+
+    private static final int DEFAULT_DURATION = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WebSocketService webSocketService;
+    private final BadgeCounterService badgeCounterService;
+    private final ExecutorService executor;
+
+    @Value("${notification.broadcast.batch-size:500}")
+    private int batchSize;
+
+    @Value("${notification.broadcast.batches-per-transaction:10}")
+    private int batchesPerTransaction;
+
+    @Value("${notification.broadcast.max-tracked-tasks:100}")
+    private int maxTrackedTasks;
+
+    // 按提交顺序保留最近的任务，超出上限时淘汰最早的已结束任务
+    private final Map<String, BroadcastTask> tasks = new LinkedHashMap<>();
+
+    public NotificationBroadcastServiceImpl(JdbcTemplate jdbcTemplate,
+                                            PlatformTransactionManager transactionManager,
+                                            WebSocketService webSocketService,
+                                            BadgeCounterService badgeCounterService,
+                                            @Value("${notification.broadcast.concurrency:1}") int concurrency) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.webSocketService = webSocketService;
+        this.badgeCounterService = badgeCounterService;
+        this.executor = Executors.newFixedThreadPool(Math.max(concurrency, 1),
+                Thread.ofPlatform().name("notification-broadcast-", 1).daemon(true).factory());
+    }
+
+    @Override
+    public String submitBroadcast(NotificationBroadcastRequest request) {
+        BroadcastTask task = new BroadcastTask(UUID.randomUUID().toString().replace("-", ""));
+        synchronized (tasks) {
+            tasks.put(task.taskId, task);
+            evictFinishedTasks();
+        }
+        try {
+            executor.execute(() -> runBroadcast(task, request));
+        } catch (RejectedExecutionException e) {
+            task.fail("广播服务正在关闭");
+            throw new IllegalStateException("广播服务正在关闭，无法提交任务", e);
+        }
+        logger.info("已提交通知广播任务: taskId={}, role={}, userIds={}", task.taskId, request.getRole(),
+                request.getUserIds() != null ? request.getUserIds().size() : null);
+        return task.taskId;
+    }
+
+    @Override
+    public NotificationBroadcastProgress getProgress(String taskId) {
+        BroadcastTask task;
+        synchronized (tasks) {
+            task = tasks.get(taskId);
+        }
+        return task != null ? task.toProgress() : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void evictFinishedTasks() {
+        var iterator = tasks.values().iterator();
+        while (tasks.size() > maxTrackedTasks && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 执行广播任务
+     * 已提交的事务不会因后续失败回滚，进度中的写入数量即实际送达的通知数
+     */
+    private void runBroadcast(BroadcastTask task, NotificationBroadcastRequest request) {
+        task.start();
+        try {
+            RecipientWriter writer = new RecipientWriter(task, request);
+            if (request.getUserIds() != null && !request.getUserIds().isEmpty()) {
+                writeListedRecipients(new ArrayList<>(new LinkedHashSet<>(request.getUserIds())), writer);
+            } else {
+                streamRecipients(request, writer);
+            }
+            writer.flush();
+            task.complete();
+            logger.info("通知广播任务完成: taskId={}, 写入={}, 事务数={}", task.taskId, task.inserted, task.committedChunks);
+        } catch (Exception e) {
+            task.fail(e.getMessage());
+            logger.error("通知广播任务失败: taskId={}, 已写入={}, 错误: {}", task.taskId, task.inserted, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 流式读取按角色筛选或全部的接收人
+     * 流式结果集占用当前连接，写入事务走连接池中的其他连接
+     */
+    private void streamRecipients(NotificationBroadcastRequest request, RecipientWriter writer) {
+        jdbcTemplate.query(con -> {
+            String sql = request.getRole() != null ? ROLE_RECIPIENTS_SQL : ALL_RECIPIENTS_SQL;
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            if (request.getRole() != null) {
+                ps.setString(1, request.getRole().name());
+            }
+            return ps;
+        }, rs -> {
+            writer.accept(rs.getLong(1));
+        });
+    }
+
+    private void writeListedRecipients(List<Long> userIds, RecipientWriter writer) {
+        for (int from = 0; from < userIds.size(); from += ID_LIST_SLICE_SIZE) {
+            List<Long> slice = userIds.subList(from, Math.min(from + ID_LIST_SLICE_SIZE, userIds.size()));
+            String placeholders = String.join(",", Collections.nCopies(slice.size(), "?"));
+            List<Long> existing = jdbcTemplate.queryForList(String.format(EXISTING_RECIPIENTS_SQL, placeholders),
+                    Long.class, slice.toArray());
+            for (Long userId : existing) {
+                writer.accept(userId);
+            }
+        }
+    }
+
+    private static String buildInsertSql(int rows) {
+        return INSERT_SQL_PREFIX + String.join(", ", Collections.nCopies(rows, INSERT_ROW_PLACEHOLDER));
+    }
+
+    /**
+     * 接收人缓冲区，攒满一个事务的接收人后分批写入并提交
+     */
+    private class RecipientWriter {
+        private final BroadcastTask task;
+        private final Object[] rowTemplate;
+        private final int rowsPerStatement;
+        private final String fullBatchSql;
+        private final long[] buffer;
+        private int buffered;
+
+        RecipientWriter(BroadcastTask task, NotificationBroadcastRequest request) {
+            this.task = task;
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            this.rowTemplate = new Object[]{
+                    null,
+                    request.getTitle(),
+                    request.getMessage(),
+                    request.getType().name(),
+                    request.getDuration() != null ? request.getDuration() : DEFAULT_DURATION,
+                    request.getTargetUrl(),
+                    now,
+                    now
+            };
+            this.rowsPerStatement = Math.max(1, Math.min(batchSize, MAX_ROWS_PER_STATEMENT));
+            this.fullBatchSql = buildInsertSql(rowsPerStatement);
+            this.buffer = new long[rowsPerStatement * Math.max(batchesPerTransaction, 1)];
+        }
+
+        void accept(long userId) {
+            buffer[buffered++] = userId;
+            task.scanned++;
+            if (buffered == buffer.length) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (buffered == 0) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < buffered; from += rowsPerStatement) {
+                    int rows = Math.min(rowsPerStatement, buffered - from);
+                    String sql = rows == rowsPerStatement ? fullBatchSql : buildInsertSql(rows);
+                    jdbcTemplate.update(sql, batchArgs(from, rows));
+                }
+            });
+            task.inserted += buffered;
+            task.committedChunks++;
+            // 多行INSERT拿不到逐条的通知ID，只提醒在线用户重新拉取
+            for (int i = 0; i < buffered; i++) {
+                webSocketService.requestNotificationRefresh(buffer[i]);
+                badgeCounterService.adjust(buffer[i], BadgeType.UNREAD_NOTIFICATIONS, 1);
+            }
+            buffered = 0;
+        }
+
+        private Object[] batchArgs(int from, int rows) {
+            Object[] args = new Object[rows * INSERT_COLUMNS];
+            for (int i = 0; i < rows; i++) {
+                int offset = i * INSERT_COLUMNS;
+                System.arraycopy(rowTemplate, 0, args, offset, INSERT_COLUMNS);
+                args[offset] = buffer[from + i];
+            }
+            return args;
+        }
+    }
+
+    /**
+     * 广播任务状态，只由执行线程写入，查询线程读取快照
+     */
+    private static class BroadcastTask {
+        private final String taskId;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile String status = "PENDING";
+        private volatile long scanned;
+        private volatile long inserted;
+        private volatile long committedChunks;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        BroadcastTask(String taskId) {
+            this.taskId = taskId;
+        }
+
+        void start() {
+            startedAt = LocalDateTime.now();
+            status = "RUNNING";
+        }
+
+        void complete() {
+            finishedAt = LocalDateTime.now();
+            status = "COMPLETED";
+        }
+
+        void fail(String message) {
+            error = message;
+            finishedAt = LocalDateTime.now();
+            status = "FAILED";
+        }
+
+        boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        NotificationBroadcastProgress toProgress() {
+            NotificationBroadcastProgress progress = new NotificationBroadcastProgress();
+            progress.setTaskId(taskId);
+            progress.setStatus(status);
+            progress.setScanned(scanned);
+            progress.setInserted(inserted);
+            progress.setCommittedChunks(committedChunks);
+            progress.setSubmittedAt(submittedAt);
+            progress.setStartedAt(startedAt);
+            progress.setFinishedAt(finishedAt);
+            progress.setError(error);
+            return progress;
+        }
+    }
+}
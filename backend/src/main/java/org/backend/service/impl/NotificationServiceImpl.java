@@ -1,20 +1,30 @@
 package org.backend.service.impl;
 
 import org.backend.A_general.base.service.impl.BaseServiceImpl;
+import org.backend.dto.response.NotificationDTO;
 import org.backend.entity.Notification;
+import org.backend.entity.enums.BadgeType;
 import org.backend.entity.enums.NotificationType;
 import org.backend.repository.NotificationRepository;
+import org.backend.service.BadgeCounterService;
 import org.backend.service.NotificationService;
+import org.backend.service.WebSocketService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.util.List;
-import java.util.Optional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.ToIntFunction;
 
 /**
  * 通知服务实现类
@@ -39,11 +49,29 @@ public class NotificationServiceImpl extends BaseServiceImpl<Notification, Long,
     }
 
     private final NotificationRepository notificationRepository;
+    private final WebSocketService webSocketService;
+    private final BadgeCounterService badgeCounterService;
+
+    // 批量操作时单条语句IN列表的最大长度
+    @Value("${notification.bulk.in-list-chunk-size:500}")
+    private int inListChunkSize;
+
+    // 是否合并同类型同目标的未读通知
+    @Value("${notification.digest.enabled:true}")
+    private boolean digestEnabled;
+
+    // 通知合并窗口（分钟）
+    @Value("${notification.digest.window-minutes:30}")
+    private long digestWindowMinutes;
 
     @Autowired
-    public NotificationServiceImpl(NotificationRepository notificationRepository) {
+    public NotificationServiceImpl(NotificationRepository notificationRepository,
+                                   WebSocketService webSocketService,
+                                   BadgeCounterService badgeCounterService) {
         super(notificationRepository);
         this.notificationRepository = notificationRepository;
+        this.webSocketService = webSocketService;
+        this.badgeCounterService = badgeCounterService;
     }
 
     @Override
@@ -73,6 +101,8 @@ public class NotificationServiceImpl extends BaseServiceImpl<Notification, Long,
     @Override
     public boolean markAsRead(Long notificationId, Long userId) {
         int updatedRows = notificationRepository.updateByIdAndUserIdSetIsReadTrue(notificationId, userId);
+        // 该通知原本可能已读，无法得知准确增量
+        badgeCounterService.invalidate(userId, BadgeType.UNREAD_NOTIFICATIONS);
         return updatedRows > 0;
     }
 
@@ -80,24 +110,63 @@ public class NotificationServiceImpl extends BaseServiceImpl<Notification, Long,
     @Override
     public boolean markAllAsRead(Long userId) {
         int updatedRows = notificationRepository.updateByUserIdAndIsReadFalseSetIsReadTrue(userId);
+        badgeCounterService.adjust(userId, BadgeType.UNREAD_NOTIFICATIONS, -updatedRows);
         return updatedRows > 0;
     }
 
+    @Transactional
+    @Override
+    public int markAsRead(List<Long> notificationIds, Long userId) {
+        int updatedRows = executeInChunks(notificationIds,
+                chunk -> notificationRepository.updateByUserIdAndIdInSetIsReadTrue(userId, chunk));
+        badgeCounterService.adjust(userId, BadgeType.UNREAD_NOTIFICATIONS, -updatedRows);
+        return updatedRows;
+    }
+
+    @Transactional
+    @Override
+    public int markAsReadBefore(Long userId, LocalDateTime before) {
+        int updatedRows = notificationRepository.updateByUserIdAndCreatedAtNotAfterSetIsReadTrue(userId, before);
+        badgeCounterService.adjust(userId, BadgeType.UNREAD_NOTIFICATIONS, -updatedRows);
+        return updatedRows;
+    }
+
     @Transactional
     @Override
     public boolean deleteNotification(Long notificationId, Long userId) {
         int deletedRows = notificationRepository.deleteByIdAndUserId(notificationId, userId);
+        badgeCounterService.invalidate(userId, BadgeType.UNREAD_NOTIFICATIONS);
         return deletedRows > 0;
     }
 
     @Transactional
     @Override
-    public boolean deleteNotifications(List<Long> notificationIds, Long userId) {
-        int totalDeleted = 0;
-        for (Long id : notificationIds) {
-            totalDeleted += notificationRepository.deleteByIdAndUserId(id, userId);
+    public int deleteNotifications(List<Long> notificationIds, Long userId) {
+        int deletedRows = executeInChunks(notificationIds,
+                chunk -> notificationRepository.deleteByUserIdAndIdIn(userId, chunk));
+        // 删除的通知中已读和未读的数量未知
+        badgeCounterService.invalidate(userId, BadgeType.UNREAD_NOTIFICATIONS);
+        return deletedRows;
+    }
+
+    /**
+     * 去重后按IN列表上限分块执行批量语句，每块一次数据库往返
+     * @param ids 通知ID列表
+     * @param statement 对一块ID执行的批量语句，返回影响的记录数
+     * @return 影响的记录总数
+     */
+    private int executeInChunks(List<Long> ids, ToIntFunction<List<Long>> statement) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
         }
-        return totalDeleted > 0;
+        List<Long> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        unique.removeIf(Objects::isNull);
+        int chunkSize = Math.max(inListChunkSize, 1);
+        int affected = 0;
+        for (int from = 0; from < unique.size(); from += chunkSize) {
+            affected += statement.applyAsInt(unique.subList(from, Math.min(from + chunkSize, unique.size())));
+        }
+        return affected;
     }
 
     @Override
@@ -107,6 +176,13 @@ public class NotificationServiceImpl extends BaseServiceImpl<Notification, Long,
 
     @Override
     public Notification createNotification(Long userId, String title, String message, NotificationType type, Integer duration, String targetUrl) {
+        Notification digest = mergeIntoDigest(userId, title, message, type, targetUrl);
+        if (digest != null) {
+            // 合并后未读通知条数不变，只推送更新后的通知
+            pushAfterCommit(digest);
+            return digest;
+        }
+
         Notification notification = new Notification();
         notification.setUserId(userId);
         notification.setTitle(title);
@@ -119,6 +195,66 @@ public class NotificationServiceImpl extends BaseServiceImpl<Notification, Long,
             notification.setTargetUrl(targetUrl);
         }
         notification.setRead(false);
-        return save(notification);
+        Notification saved = save(notification);
+        badgeCounterService.adjust(userId, BadgeType.UNREAD_NOTIFICATIONS, 1);
+        pushAfterCommit(saved);
+        return saved;
+    }
+
+    @Override
+    public NotificationDTO convertToDTO(Notification notification) {
+        NotificationDTO dto = new NotificationDTO();
+        dto.setId(notification.getId());
+        dto.setTitle(notification.getTitle());
+        dto.setMessage(notification.getMessage());
+        dto.setType(notification.getType());
+        dto.setCreatedAt(notification.getCreatedAt());
+        dto.setDuration(notification.getDuration());
+        dto.setRead(notification.isRead());
+        dto.setTargetUrl(notification.getTargetUrl());
+        dto.setCount(notification.getDigestCount());
+        return dto;
+    }
+
+    /**
+     * 将新通知合并到合并窗口内同类型同目标的未读通知
+     * 没有跳转URL的通知无法判断是否指向同一目标，不参与合并
+     * @return 合并后的通知，没有可合并的通知时返回null
+     */
+    private Notification mergeIntoDigest(Long userId, String title, String message, NotificationType type, String targetUrl) {
+        if (!digestEnabled || targetUrl == null) {
+            return null;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Optional<Notification> candidate = notificationRepository
+                .findFirstByUserIdAndTypeAndTargetUrlAndIsReadFalseAndCreatedAtAfterOrderByCreatedAtDesc(
+                        userId, type, targetUrl, now.minusMinutes(digestWindowMinutes));
+        if (candidate.isEmpty()) {
+            return null;
+        }
+        // 查询后通知可能已被读取，条件更新失败时按新通知插入
+        Long id = candidate.get().getId();
+        if (notificationRepository.mergeIntoDigest(id, title, message, now) == 0) {
+            return null;
+        }
+        return notificationRepository.findById(id).orElse(null);
+    }
+
+    /**
+     * 事务提交后再推送，避免客户端收到随后被回滚的通知
+     * @param notification 已保存的通知
+     */
+    private void pushAfterCommit(Notification notification) {
+        NotificationDTO dto = convertToDTO(notification);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            webSocketService.sendNotificationToUser(notification.getUserId(), dto);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                webSocketService.sendNotificationToUser(notification.getUserId(), dto);
+            }
+        });
     }
 }
\ No newline at end of file
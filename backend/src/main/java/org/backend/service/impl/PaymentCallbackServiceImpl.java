@@ -0,0 +1,302 @@
+package org.backend.service.impl;
+
+import org.backend.dto.request.payment.PaymentCallbackMessage;
+import org.backend.dto.response.payment.PaymentCallbackStats;
+import org.backend.entity.enums.PaymentStatus;
+import org.backend.service.PaymentCallbackService;
+import org.backend.service.PaymentStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 支付回调服务实现类
+ * 批内按transactionId去重，借助Redis跳过近期已结算的交易，
+ * 再通过一次JDBC批量条件更新完成结算，回调重复投递时不会重复结算
+ */
+@Service
+public class PaymentCallbackServiceImpl implements PaymentCallbackService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentCallbackServiceImpl.class);
+
+    // Redis键前缀，记录近期已结算的交易ID
+    private static final String SETTLED_KEY_PREFIX = "payment_callback:settled:";
+
+    // 已结算标记的保留时间（小时），覆盖支付渠道的重试窗口即可
+    private static final long SETTLED_KEY_TTL_HOURS = 24;
+
+    // 只更新仍处于待支付状态的订单，金额不一致时不结算
+    private static final String SETTLE_SQL = "UPDATE payments SET status = ?, paid_at = ?, updated_at = ? " +
+            "WHERE transaction_id = ? AND status IN ('PENDING', 'PROCESSING') AND deleted = false " +
+            "AND (? IS NULL OR amount = ?)";
+
+    private static final int[] SETTLE_ARG_TYPES = {
+            Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP, Types.VARCHAR, Types.DECIMAL, Types.DECIMAL
+    };
+
+    // 按用户汇总本批结算成功的订单，用于累加用户支付统计
+    private static final String SETTLED_TOTALS_SQL = "SELECT user_id, SUM(amount), COUNT(*) FROM payments " +
+            "WHERE status = 'SUCCESS' AND transaction_id IN (%s) GROUP BY user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final PaymentStatsService paymentStatsService;
+
+    // 处理统计
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+    private final AtomicLong settled = new AtomicLong();
+    private final AtomicLong unmatched = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    public PaymentCallbackServiceImpl(JdbcTemplate jdbcTemplate,
+                                      RedisTemplate<String, String> redisTemplate,
+                                      PaymentStatsService paymentStatsService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.paymentStatsService = paymentStatsService;
+    }
+
+    @Override
+    @Transactional
+    public int settleCallbacks(List<PaymentCallbackMessage> callbacks) {
+        if (callbacks == null || callbacks.isEmpty()) {
+            return 0;
+        }
+        // 本批统计在事务提交后才累加，批次失败重新投递时不会重复计数
+        BatchStats batch = new BatchStats();
+        batch.received = callbacks.size();
+
+        // 批内去重，同一交易保留最后一条回调
+        Map<String, PaymentCallbackMessage> unique = new LinkedHashMap<>();
+        for (PaymentCallbackMessage callback : callbacks) {
+            if (!isValid(callback)) {
+                batch.invalid++;
+                continue;
+            }
+            if (unique.put(callback.getTransactionId(), callback) != null) {
+                batch.duplicates++;
+            }
+        }
+
+        // 跨批去重，跳过近期已结算的交易
+        List<PaymentCallbackMessage> pending = filterRecentlySettled(unique);
+        batch.duplicates += unique.size() - pending.size();
+        if (pending.isEmpty()) {
+            recordStatsAfterCommit(batch);
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batchArgs = new ArrayList<>(pending.size());
+        for (PaymentCallbackMessage callback : pending) {
+            LocalDateTime paidAt = callback.getPaidAt() != null ? callback.getPaidAt() : now;
+            batchArgs.add(new Object[]{
+                    callback.getStatus().name(),
+                    callback.getStatus() == PaymentStatus.SUCCESS ? Timestamp.valueOf(paidAt) : null,
+                    Timestamp.valueOf(now),
+                    callback.getTransactionId(),
+                    callback.getAmount(),
+                    callback.getAmount()
+            });
+        }
+        int[] updateCounts = jdbcTemplate.batchUpdate(SETTLE_SQL, batchArgs, SETTLE_ARG_TYPES);
+
+        List<String> settledIds = new ArrayList<>(pending.size());
+        List<String> succeededIds = new ArrayList<>(pending.size());
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] > 0 || updateCounts[i] == Statement.SUCCESS_NO_INFO) {
+                PaymentCallbackMessage callback = pending.get(i);
+                settledIds.add(callback.getTransactionId());
+                if (callback.getStatus() == PaymentStatus.SUCCESS) {
+                    succeededIds.add(callback.getTransactionId());
+                }
+            }
+        }
+        recordSettledStats(succeededIds);
+        batch.settled = settledIds.size();
+        batch.unmatched = pending.size() - settledIds.size();
+        recordStatsAfterCommit(batch);
+        markSettledAfterCommit(settledIds);
+
+        logger.debug("支付回调批次处理完成: 收到={}, 待结算={}, 已结算={}", callbacks.size(), pending.size(), settledIds.size());
+        return settledIds.size();
+    }
+
+    @Override
+    public void recordFailedBatch() {
+        failedBatches.incrementAndGet();
+    }
+
+    @Override
+    public PaymentCallbackStats getStats() {
+        PaymentCallbackStats stats = new PaymentCallbackStats();
+        stats.setReceived(received.get());
+        stats.setDuplicates(duplicates.get());
+        stats.setInvalid(invalid.get());
+        stats.setSettled(settled.get());
+        stats.setUnmatched(unmatched.get());
+        stats.setBatches(batches.get());
+        stats.setFailedBatches(failedBatches.get());
+        return stats;
+    }
+
+    /**
+     * 在同一事务内将本批结算成功的订单按用户累加到支付统计
+     *
+     * @param transactionIds 本批由待支付流转为成功的交易ID
+     */
+    private void recordSettledStats(List<String> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(",", Collections.nCopies(transactionIds.size(), "?"));
+        List<Object[]> totals = jdbcTemplate.query(String.format(SETTLED_TOTALS_SQL, placeholders),
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getBigDecimal(2), rs.getLong(3)},
+                transactionIds.toArray());
+        for (Object[] row : totals) {
+            paymentStatsService.recordSettled((Long) row[0], (BigDecimal) row[1], (Long) row[2]);
+        }
+    }
+
+    /**
+     * 校验回调是否可以结算，只接受带交易ID的成功或失败通知
+     *
+     * @param callback 回调消息
+     * @return 是否有效
+     */
+    private boolean isValid(PaymentCallbackMessage callback) {
+        return callback != null
+                && callback.getTransactionId() != null
+                && !callback.getTransactionId().isEmpty()
+                && (callback.getStatus() == PaymentStatus.SUCCESS || callback.getStatus() == PaymentStatus.FAILED);
+    }
+
+    /**
+     * 过滤掉近期已结算的交易，一次MGET完成整批查询
+     * Redis不可用时不做过滤，依靠条件更新保证幂等
+     *
+     * @param unique 去重后的回调
+     * @return 仍需结算的回调
+     */
+    private List<PaymentCallbackMessage> filterRecentlySettled(Map<String, PaymentCallbackMessage> unique) {
+        List<PaymentCallbackMessage> pending = new ArrayList<>(unique.values());
+        if (pending.isEmpty()) {
+            return pending;
+        }
+        try {
+            List<String> keys = unique.keySet().stream().map(id -> SETTLED_KEY_PREFIX + id).toList();
+            List<String> marks = redisTemplate.opsForValue().multiGet(keys);
+            if (marks == null) {
+                return pending;
+            }
+            List<PaymentCallbackMessage> result = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                if (marks.get(i) == null) {
+                    result.add(pending.get(i));
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            logger.warn("查询支付回调去重标记失败，退化为数据库条件更新: {}", e.getMessage());
+            return pending;
+        }
+    }
+
+    /**
+     * 事务提交后再累加本批的处理统计，回滚的批次只计入失败批次
+     *
+     * @param batch 本批统计
+     */
+    private void recordStatsAfterCommit(BatchStats batch) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recordStats(batch);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recordStats(batch);
+            }
+        });
+    }
+
+    private void recordStats(BatchStats batch) {
+        batches.incrementAndGet();
+        received.addAndGet(batch.received);
+        duplicates.addAndGet(batch.duplicates);
+        invalid.addAndGet(batch.invalid);
+        settled.addAndGet(batch.settled);
+        unmatched.addAndGet(batch.unmatched);
+    }
+
+    /**
+     * 事务提交后再写入已结算标记，避免回滚时误判为重复回调
+     *
+     * @param transactionIds 已结算的交易ID
+     */
+    private void markSettledAfterCommit(List<String> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markSettled(transactionIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markSettled(transactionIds);
+            }
+        });
+    }
+
+    private void markSettled(List<String> transactionIds) {
+        try {
+            long ttlSeconds = TimeUnit.HOURS.toSeconds(SETTLED_KEY_TTL_HOURS);
+            byte[] value = "1".getBytes(StandardCharsets.UTF_8);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String transactionId : transactionIds) {
+                    byte[] key = (SETTLED_KEY_PREFIX + transactionId).getBytes(StandardCharsets.UTF_8);
+                    connection.stringCommands().setEx(key, ttlSeconds, value);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("写入支付回调去重标记失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 单个批次的处理统计
+     */
+    private static final class BatchStats {
+        private long received;
+        private long duplicates;
+        private long invalid;
+        private long settled;
+        private long unmatched;
+    }
+}
@@ -0,0 +1,195 @@
+package org.backend.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.backend.A_general.base.config.backend.MessageQueueConfig;
+import org.backend.dto.request.payment.PaymentCallbackMessage;
+import org.backend.dto.response.payment.PaymentCallbackStats;
+import org.backend.entity.enums.PaymentStatus;
+import org.backend.service.PaymentCallbackService;
+import org.backend.service.PaymentStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 模拟支付渠道回调发布器
+ * 用于开发和测试环境，在没有真实支付渠道时向payment.notify.queue投递回调，
+ * 并提供回调消费管道的吞吐量基准测试；除开发或测试环境外还需显式开启payment.stub.enabled
+ */
+@Service
+@Profile({"dev", "test"}) // 在开发和测试环境使用
+@ConditionalOnProperty(name = "payment.stub.enabled", havingValue = "true")
+public class PaymentCallbackStubPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentCallbackStubPublisher.class);
+
+    // 基准测试等待消费完成的轮询间隔（毫秒）
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    // 基准测试生成的支付订单交易ID前缀，测试结束后按前缀清理
+    private static final String BENCHMARK_TRANSACTION_PREFIX = "bench-";
+
+    // 基准测试订单的金额
+    private static final BigDecimal BENCHMARK_AMOUNT = new BigDecimal("1.00");
+
+    private static final String BENCHMARK_USER_SQL = "SELECT user_id FROM bookings WHERE id = ? AND deleted = false";
+
+    private static final String BENCHMARK_INSERT_SQL = "INSERT INTO payments (booking_id, user_id, amount, currency, " +
+            "payment_method, status, transaction_id, created_at, updated_at, deleted) " +
+            "VALUES (?, ?, ?, 'CNY', 'BENCHMARK', 'PENDING', ?, ?, ?, false)";
+
+    private static final String BENCHMARK_CLEANUP_SQL = "DELETE FROM payments WHERE transaction_id LIKE ?";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final PaymentCallbackService paymentCallbackService;
+    private final PaymentStatsService paymentStatsService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public PaymentCallbackStubPublisher(RabbitTemplate rabbitTemplate,
+                                        ObjectMapper objectMapper,
+                                        PaymentCallbackService paymentCallbackService,
+                                        PaymentStatsService paymentStatsService,
+                                        JdbcTemplate jdbcTemplate) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.paymentCallbackService = paymentCallbackService;
+        this.paymentStatsService = paymentStatsService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 投递一条支付回调
+     *
+     * @param callback 回调消息
+     */
+    public void publish(PaymentCallbackMessage callback) {
+        try {
+            Message message = MessageBuilder.withBody(objectMapper.writeValueAsBytes(callback))
+                    .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                    .setMessageId(callback.getTransactionId())
+                    .build();
+            rabbitTemplate.send(MessageQueueConfig.DIRECT_EXCHANGE, MessageQueueConfig.PAYMENT_NOTIFY_ROUTING_KEY, message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("支付回调序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 为指定交易投递一条支付成功回调
+     *
+     * @param transactionId 交易ID
+     * @param amount        支付金额，为空时不校验金额
+     */
+    public void publishSuccess(String transactionId, BigDecimal amount) {
+        publish(new PaymentCallbackMessage(transactionId, PaymentStatus.SUCCESS, amount, LocalDateTime.now()));
+        logger.info("已投递模拟支付成功回调: transactionId={}", transactionId);
+    }
+
+    /**
+     * 回调消费管道吞吐量基准测试
+     * 先在指定预约下生成待支付订单，再为这些订单投递count条支付成功回调（其中按duplicateRatio比例重复投递），
+     * 使回调走完整的结算路径；等待监听器全部消费后返回投递耗时、消费耗时和每秒处理数，
+     * 最后删除生成的订单并修正该用户的支付统计
+     *
+     * @param count          投递的回调数量
+     * @param duplicateRatio 重复回调比例，取值0-1
+     * @param timeoutMillis  等待消费完成的超时时间
+     * @param bookingId      生成的待支付订单所属的预约ID
+     * @return 基准测试结果
+     */
+    public Map<String, Object> runBenchmark(int count, double duplicateRatio, long timeoutMillis, Long bookingId) {
+        List<Long> userIds = jdbcTemplate.queryForList(BENCHMARK_USER_SQL, Long.class, bookingId);
+        if (userIds.isEmpty()) {
+            throw new IllegalArgumentException("预约不存在: " + bookingId);
+        }
+        Long userId = userIds.getFirst();
+
+        // 预先生成回调序列，重复回调沿用上一条的交易ID，只为不同的交易ID生成订单
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String prefix = BENCHMARK_TRANSACTION_PREFIX + UUID.randomUUID().toString().replace("-", "") + "-";
+        List<String> transactionIds = new ArrayList<>(count);
+        List<Object[]> orders = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < count; i++) {
+            if (!transactionIds.isEmpty() && random.nextDouble() < duplicateRatio) {
+                transactionIds.add(transactionIds.getLast());
+                continue;
+            }
+            String transactionId = prefix + orders.size();
+            transactionIds.add(transactionId);
+            orders.add(new Object[]{bookingId, userId, BENCHMARK_AMOUNT, transactionId, now, now});
+        }
+        jdbcTemplate.batchUpdate(BENCHMARK_INSERT_SQL, orders);
+
+        try {
+            return measure(transactionIds, orders.size(), timeoutMillis);
+        } finally {
+            int removed = jdbcTemplate.update(BENCHMARK_CLEANUP_SQL, prefix + "%");
+            paymentStatsService.repairUserStats(userId);
+            logger.info("支付回调基准测试订单已清理: {}", removed);
+        }
+    }
+
+    private Map<String, Object> measure(List<String> transactionIds, int orders, long timeoutMillis) {
+        int count = transactionIds.size();
+        PaymentCallbackStats before = paymentCallbackService.getStats();
+
+        long start = System.nanoTime();
+        for (String transactionId : transactionIds) {
+            publish(new PaymentCallbackMessage(transactionId, PaymentStatus.SUCCESS, BENCHMARK_AMOUNT, LocalDateTime.now()));
+        }
+        long publishNanos = System.nanoTime() - start;
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long consumed = 0;
+        while (System.currentTimeMillis() < deadline) {
+            consumed = paymentCallbackService.getStats().getReceived() - before.getReceived();
+            if (consumed >= count) {
+                break;
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        long totalNanos = System.nanoTime() - start;
+        PaymentCallbackStats after = paymentCallbackService.getStats();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("published", count);
+        result.put("orders", orders);
+        result.put("consumed", consumed);
+        result.put("completed", consumed >= count);
+        result.put("publishMillis", publishNanos / 1_000_000);
+        result.put("totalMillis", totalNanos / 1_000_000);
+        result.put("throughputPerSecond", totalNanos > 0 ? consumed * 1_000_000_000L / totalNanos : 0);
+        result.put("batches", after.getBatches() - before.getBatches());
+        result.put("duplicates", after.getDuplicates() - before.getDuplicates());
+        result.put("settled", after.getSettled() - before.getSettled());
+        result.put("unmatched", after.getUnmatched() - before.getUnmatched());
+        result.put("failedBatches", after.getFailedBatches() - before.getFailedBatches());
+        logger.info("支付回调基准测试完成: {}", result);
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package org.backend.service.impl;
+
+import org.backend.entity.Payment;
+import org.backend.entity.enums.PaymentStatus;
+import org.backend.repository.PaymentRepository;
+import org.backend.service.PaymentService;
+import org.backend.service.PaymentStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 支付服务实现类
+ * 状态流转使用条件更新，只有真正完成流转的请求才会更新用户支付统计，
+ * 并发请求或重复请求不会导致统计被重复累加
+ */
+@Service
+public class PaymentServiceImpl implements PaymentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentServiceImpl.class);
+
+    private static final Set<PaymentStatus> SETTLEABLE = EnumSet.of(PaymentStatus.PENDING, PaymentStatus.PROCESSING);
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentStatsService paymentStatsService;
+
+    public PaymentServiceImpl(PaymentRepository paymentRepository, PaymentStatsService paymentStatsService) {
+        this.paymentRepository = paymentRepository;
+        this.paymentStatsService = paymentStatsService;
+    }
+
+    @Override
+    @Transactional
+    public boolean settlePayment(Payment payment) {
+        LocalDateTime now = LocalDateTime.now();
+        if (paymentRepository.markSucceeded(payment.getId(), SETTLEABLE, now) == 0) {
+            logger.info("支付订单状态已变更，跳过结算: paymentId={}", payment.getId());
+            return false;
+        }
+        paymentStatsService.recordSettled(payment.getUserId(), payment.getAmount(), 1);
+        payment.setStatus(PaymentStatus.SUCCESS);
+        payment.setPaidAt(now);
+        payment.setUpdatedAt(now);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean refundPayment(Payment payment) {
+        if (!transition(payment, EnumSet.of(PaymentStatus.SUCCESS), PaymentStatus.REFUNDED)) {
+            return false;
+        }
+        paymentStatsService.recordRefunded(payment.getUserId(), payment.getAmount());
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean cancelPayment(Payment payment) {
+        // 待支付订单从未计入统计，取消时只需完成状态流转
+        return transition(payment, EnumSet.of(PaymentStatus.PENDING), PaymentStatus.CANCELLED);
+    }
+
+    private boolean transition(Payment payment, Set<PaymentStatus> expected, PaymentStatus target) {
+        LocalDateTime now = LocalDateTime.now();
+        if (paymentRepository.transitionStatus(payment.getId(), expected, target, now) == 0) {
+            logger.info("支付订单状态已变更，跳过{}: paymentId={}", target, payment.getId());
+            return false;
+        }
+        payment.setStatus(target);
+        payment.setUpdatedAt(now);
+        return true;
+    }
+}
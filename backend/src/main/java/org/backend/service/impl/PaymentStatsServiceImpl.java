@@ -0,0 +1,95 @@
+package org.backend.service.impl;
+
+import org.backend.dto.response.payment.PaymentStatsDrift;
+import org.backend.entity.UserPaymentStats;
+import org.backend.repository.PaymentRepository;
+import org.backend.repository.UserPaymentStatsRepository;
+import org.backend.service.PaymentStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+/**
+ * 用户支付统计服务实现类
+ * 统计通过INSERT ... ON DUPLICATE KEY UPDATE原子累加，
+ * 与支付状态的条件更新处于同一事务，两者同时提交或同时回滚
+ */
+@Service
+public class PaymentStatsServiceImpl implements PaymentStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentStatsServiceImpl.class);
+
+    private final UserPaymentStatsRepository userPaymentStatsRepository;
+    private final PaymentRepository paymentRepository;
+
+    public PaymentStatsServiceImpl(UserPaymentStatsRepository userPaymentStatsRepository,
+                                   PaymentRepository paymentRepository) {
+        this.userPaymentStatsRepository = userPaymentStatsRepository;
+        this.paymentRepository = paymentRepository;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSettled(Long userId, BigDecimal amount, long count) {
+        userPaymentStatsRepository.applyDelta(userId, amount, count, BigDecimal.ZERO);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRefunded(Long userId, BigDecimal amount) {
+        userPaymentStatsRepository.applyDelta(userId, amount.negate(), -1, amount);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserPaymentStats getUserStats(Long userId) {
+        return userPaymentStatsRepository.findByUserId(userId).orElseGet(() -> {
+            UserPaymentStats empty = new UserPaymentStats();
+            empty.setUserId(userId);
+            return empty;
+        });
+    }
+
+    @Override
+    @Transactional
+    public PaymentStatsDrift repairUserStats(Long userId) {
+        // 先确保统计行存在，再加锁；状态流转累加统计时也需要这把行锁，
+        // 因此锁住之后重新计算的结果不会与并发的增量更新相互覆盖
+        userPaymentStatsRepository.applyDelta(userId, BigDecimal.ZERO, 0, BigDecimal.ZERO);
+        UserPaymentStats stats = userPaymentStatsRepository.findByUserIdForUpdate(userId).orElseThrow();
+
+        BigDecimal actualSpent = orZero(paymentRepository.getTotalSpentByUser(userId));
+        long actualCount = paymentRepository.countSuccessfulPaymentsByUser(userId);
+        BigDecimal actualRefunded = orZero(paymentRepository.getTotalRefundedByUser(userId));
+
+        if (stats.getTotalSpent().compareTo(actualSpent) == 0
+                && stats.getSuccessfulCount() == actualCount
+                && stats.getRefundedTotal().compareTo(actualRefunded) == 0) {
+            return null;
+        }
+
+        PaymentStatsDrift drift = new PaymentStatsDrift();
+        drift.setUserId(userId);
+        drift.setStoredTotalSpent(stats.getTotalSpent());
+        drift.setActualTotalSpent(actualSpent);
+        drift.setStoredSuccessfulCount(stats.getSuccessfulCount());
+        drift.setActualSuccessfulCount(actualCount);
+        drift.setStoredRefundedTotal(stats.getRefundedTotal());
+        drift.setActualRefundedTotal(actualRefunded);
+
+        stats.setTotalSpent(actualSpent);
+        stats.setSuccessfulCount(actualCount);
+        stats.setRefundedTotal(actualRefunded);
+        userPaymentStatsRepository.save(stats);
+        logger.warn("用户支付统计存在偏差，已修正: {}", drift);
+        return drift;
+    }
+
+    private BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
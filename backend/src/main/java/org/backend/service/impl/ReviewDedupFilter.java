@@ -0,0 +1,88 @@
+package org.backend.service.impl;
+
+import org.backend.A_general.base.utils.BloomFilter;
+import org.backend.entity.enums.ReviewType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * 评价去重布隆过滤器
+ * 记录已评价过的(用户, 评价目标)组合，启动后从数据库流式预热；
+ * 过滤器判定"一定未评价"时创建评价可以跳过查重查询，最终的唯一性由数据库唯一索引保证
+ */
+@Component
+public class ReviewDedupFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReviewDedupFilter.class);
+
+    private static final String WARM_UP_SQL = "SELECT user_id, target_id, target_type FROM reviews WHERE deleted = false";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BloomFilter bloomFilter;
+
+    // 预热完成前过滤器中的数据不完整，此时一律判定为可能已评价
+    private volatile boolean ready = false;
+
+    public ReviewDedupFilter(JdbcTemplate jdbcTemplate,
+                             @Value("${review.dedup.expected-insertions:1000000}") long expectedInsertions,
+                             @Value("${review.dedup.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bloomFilter = new BloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    /**
+     * 应用启动完成后流式加载已有评价
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        long[] loaded = new long[1];
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(WARM_UP_SQL,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(Integer.MIN_VALUE);
+                return ps;
+            }, rs -> {
+                put(rs.getLong(1), rs.getLong(2), ReviewType.valueOf(rs.getString(3)));
+                loaded[0]++;
+            });
+            ready = true;
+            logger.info("评价去重过滤器预热完成: 评价数={}, 位数={}, 哈希函数数={}, 耗时={}ms",
+                    loaded[0], bloomFilter.getBitCount(), bloomFilter.getHashCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("评价去重过滤器预热失败，创建评价将始终执行查重查询: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录用户已评价某个目标
+     *
+     * @param userId     用户ID
+     * @param targetId   评价目标ID
+     * @param targetType 评价目标类型
+     */
+    public void put(Long userId, Long targetId, ReviewType targetType) {
+        bloomFilter.put(userId, targetId, targetType.ordinal());
+    }
+
+    /**
+     * 判断用户是否可能已评价过某个目标
+     *
+     * @param userId     用户ID
+     * @param targetId   评价目标ID
+     * @param targetType 评价目标类型
+     * @return false表示一定未评价，true表示可能已评价，需要查询确认
+     */
+    public boolean mightHaveReviewed(Long userId, Long targetId, ReviewType targetType) {
+        return !ready || bloomFilter.mightContain(userId, targetId, targetType.ordinal());
+    }
+}
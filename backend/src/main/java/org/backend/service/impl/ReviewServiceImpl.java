@@ -1,34 +1,68 @@
 package org.backend.service.impl;
 
+import org.backend.A_general.base.exception.BusinessException;
 import org.backend.A_general.base.service.impl.BaseServiceImpl;
 import org.backend.dto.request.ReviewRequest;
 import org.backend.dto.response.ReviewResponse;
+import org.backend.dto.response.review.ReviewFeedPage;
+import org.backend.dto.response.review.ReviewRatingHistogram;
 import org.backend.entity.Review;
+import org.backend.entity.ReviewRatingStats;
 import org.backend.entity.User;
 import org.backend.entity.enums.ReviewType;
+import org.backend.repository.ReviewRatingStatsRepository;
 import org.backend.repository.ReviewRepository;
+import org.backend.service.ContentModerationService;
 import org.backend.service.ReviewService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class ReviewServiceImpl extends BaseServiceImpl<Review, Long, ReviewRepository> implements ReviewService {
 
-    public ReviewServiceImpl(ReviewRepository reviewRepository) {
+    // 评价流单页最大条数
+    private static final int MAX_FEED_SIZE = 50;
+
+    private final ReviewRatingStatsRepository reviewRatingStatsRepository;
+    private final ReviewDedupFilter reviewDedupFilter;
+    private final TransactionTemplate transactionTemplate;
+    private final ContentModerationService contentModerationService;
+
+    public ReviewServiceImpl(ReviewRepository reviewRepository,
+                             ReviewRatingStatsRepository reviewRatingStatsRepository,
+                             ReviewDedupFilter reviewDedupFilter,
+                             PlatformTransactionManager transactionManager,
+                             ContentModerationService contentModerationService) {
         super(reviewRepository);
+        this.reviewRatingStatsRepository = reviewRatingStatsRepository;
+        this.reviewDedupFilter = reviewDedupFilter;
+        this.contentModerationService = contentModerationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ReviewResponse createReview(ReviewRequest reviewRequest, User user) {
         try {
-            // 检查用户是否已经评价过
-            boolean hasReviewed = hasUserReviewedTarget(user, reviewRequest.getServiceId(), ReviewType.SERVICE);
-            if (hasReviewed) {
+            // 布隆过滤器判定一定未评价时跳过查重查询，可能已评价时再查询确认
+            if (reviewDedupFilter.mightHaveReviewed(user.getId(), reviewRequest.getServiceId(), ReviewType.SERVICE)
+                    && hasUserReviewedTarget(user, reviewRequest.getServiceId(), ReviewType.SERVICE)) {
                 return ReviewResponse.error("您已经评价过了");
             }
 
@@ -39,20 +73,28 @@ public class ReviewServiceImpl extends BaseServiceImpl<Review, Long, ReviewRepos
 
             // 创建Review实体
             Review review = new Review();
-            review.setUserId(reviewRequest.getUserId());
+            review.setUserId(user.getId());
             review.setTargetId(reviewRequest.getServiceId());
             review.setTargetType(ReviewType.SERVICE);
             review.setRating(reviewRequest.getRating());
-            review.setComment(reviewRequest.getComment());
+            review.setComment(contentModerationService.filter(reviewRequest.getComment()));
             review.setCreatedAt(LocalDateTime.now());
             review.setUpdatedAt(LocalDateTime.now());
 
-            // 保存评价
-            Review savedReview = save(review);
+            // 保存评价，并发提交时由唯一索引拦截重复评价，违反约束的事务整体回滚
+            Review savedReview = transactionTemplate.execute(status -> {
+                Review saved = repository.saveAndFlush(review);
+                adjustRatingStats(saved, saved.getRating(), 1);
+                return saved;
+            });
+            reviewDedupFilter.put(savedReview.getUserId(), savedReview.getTargetId(), savedReview.getTargetType());
 
             // 设置ID到请求对象中，以便返回
             reviewRequest.setId(savedReview.getId());
             return ReviewResponse.success("评价创建成功", reviewRequest);
+        } catch (DataIntegrityViolationException e) {
+            reviewDedupFilter.put(user.getId(), reviewRequest.getServiceId(), ReviewType.SERVICE);
+            return ReviewResponse.error("您已经评价过了");
         } catch (Exception e) {
             return ReviewResponse.error("评价创建失败: " + e.getMessage());
         }
@@ -60,38 +102,38 @@ public class ReviewServiceImpl extends BaseServiceImpl<Review, Long, ReviewRepos
 
     @Override
     public ReviewResponse updateReview(Long id, ReviewRequest reviewRequest, User user) {
-        try {
-            // 查找评价
-            Optional<Review> optionalReview = findById(id);
-            if (!optionalReview.isPresent()) {
-                return ReviewResponse.error("评价不存在");
-            }
-
-            // 检查用户是否有权限修改
-            Review review = optionalReview.get();
-            if (!review.getUserId().equals(user.getId())) {
-                return ReviewResponse.error("您无权修改此评价");
-            }
+        // 查找评价，已删除的评价不再计入星级分布，不允许修改
+        Review review = findById(id)
+                .filter(r -> !Boolean.TRUE.equals(r.getDeleted()))
+                .orElseThrow(() -> new BusinessException("评价不存在", "REVIEW_NOT_FOUND", HttpStatus.NOT_FOUND));
+        // 检查用户是否有权限修改
+        if (!review.getUserId().equals(user.getId())) {
+            return ReviewResponse.error("您无权修改此评价");
+        }
 
-            // 验证评分范围
-            if (reviewRequest.getRating() < 1 || reviewRequest.getRating() > 5) {
-                return ReviewResponse.error("评分必须在1-5之间");
-            }
+        // 验证评分范围
+        if (reviewRequest.getRating() < 1 || reviewRequest.getRating() > 5) {
+            return ReviewResponse.error("评分必须在1-5之间");
+        }
 
-            // 更新评价
-            review.setRating(reviewRequest.getRating());
-            review.setComment(reviewRequest.getComment());
-            review.setUpdatedAt(LocalDateTime.now());
+        // 更新评价
+        Integer previousRating = review.getRating();
+        review.setRating(reviewRequest.getRating());
+        review.setComment(contentModerationService.filter(reviewRequest.getComment()));
+        review.setUpdatedAt(LocalDateTime.now());
 
-            // 保存更新
-            Review updatedReview = save(review);
+        // 保存更新
+        Review updatedReview = save(review);
 
-            // 设置ID到请求对象中，以便返回
-            reviewRequest.setId(updatedReview.getId());
-            return ReviewResponse.success("评价更新成功", reviewRequest);
-        } catch (Exception e) {
-            return ReviewResponse.error("评价更新失败: " + e.getMessage());
+        // 保存成功后再同步调整星级分布；任何异常都直接抛出，事务整体回滚，分布不会与评价不一致
+        if (!previousRating.equals(updatedReview.getRating())) {
+            adjustRatingStats(updatedReview, previousRating, -1);
+            adjustRatingStats(updatedReview, updatedReview.getRating(), 1);
         }
+
+        // 设置ID到请求对象中，以便返回
+        reviewRequest.setId(updatedReview.getId());
+        return ReviewResponse.success("评价更新成功", reviewRequest);
     }
 
     @Override
@@ -101,8 +143,12 @@ public class ReviewServiceImpl extends BaseServiceImpl<Review, Long, ReviewRepos
             Review review = optionalReview.get();
             // 检查用户是否有权限删除
             if (review.getUserId().equals(user.getId())) {
+                if (Boolean.TRUE.equals(review.getDeleted())) {
+                    return;
+                }
                 review.setDeleted(true);
                 save(review);
+                adjustRatingStats(review, review.getRating(), -1);
             } else {
                 throw new RuntimeException("您无权删除此评价");
             }
@@ -139,7 +185,7 @@ public class ReviewServiceImpl extends BaseServiceImpl<Review, Long, ReviewRepos
 
     @Override
     public List<Review> findByTargetIdAndType(Long targetId, ReviewType type, int minRating) {
-        return repository.findByTargetTypeAndRatingGreaterThanEqual(type, minRating);
+        return repository.findByTargetIdAndTargetTypeAndRatingGreaterThanEqual(targetId, type, minRating);
     }
 
     @Override
@@ -159,6 +205,87 @@ public class ReviewServiceImpl extends BaseServiceImpl<Review, Long, ReviewRepos
         return review != null;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ReviewFeedPage getReviewFeed(Long targetId, ReviewType type, Integer rating, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_FEED_SIZE));
+        // 多取一条用于判断是否还有下一页
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<Review> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = rating == null
+                    ? repository.findFeedFirstPage(targetId, type, limit)
+                    : repository.findFeedByRatingFirstPage(targetId, type, rating, limit);
+        } else {
+            FeedCursor position = FeedCursor.decode(cursor);
+            rows = rating == null
+                    ? repository.findFeedAfter(targetId, type, position.createdAt(), position.id(), limit)
+                    : repository.findFeedByRatingAfter(targetId, type, rating, position.createdAt(), position.id(), limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<Review> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? FeedCursor.encode(items.getLast()) : null;
+        return new ReviewFeedPage(items, nextCursor, hasMore);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ReviewRatingHistogram getRatingHistogram(Long targetId, ReviewType type) {
+        ReviewRatingStats stats = reviewRatingStatsRepository.findByTargetIdAndTargetType(targetId, type)
+                .orElseGet(ReviewRatingStats::new);
+
+        Map<Integer, Long> distribution = new LinkedHashMap<>();
+        distribution.put(1, stats.getStar1());
+        distribution.put(2, stats.getStar2());
+        distribution.put(3, stats.getStar3());
+        distribution.put(4, stats.getStar4());
+        distribution.put(5, stats.getStar5());
+
+        ReviewRatingHistogram histogram = new ReviewRatingHistogram();
+        histogram.setTargetId(targetId);
+        histogram.setTargetType(type);
+        histogram.setReviewCount(stats.getReviewCount());
+        histogram.setAverageRating(stats.getReviewCount() > 0
+                ? (double) stats.getRatingSum() / stats.getReviewCount() : 0.0);
+        histogram.setDistribution(distribution);
+        return histogram;
+    }
+
+    /**
+     * 调整评价目标的星级分布统计，与评价的写入处于同一事务
+     *
+     * @param review 评价
+     * @param rating 评分
+     * @param delta  1表示新增，-1表示移除
+     */
+    private void adjustRatingStats(Review review, int rating, int delta) {
+        reviewRatingStatsRepository.applyDelta(review.getTargetId(), review.getTargetType().name(), rating, delta);
+    }
+
+    /**
+     * 评价流游标，记录上一页最后一条评价的(createdAt, id)
+     */
+    private record FeedCursor(LocalDateTime createdAt, Long id) {
+
+        static String encode(Review review) {
+            String raw = review.getCreatedAt() + "|" + review.getId();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static FeedCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new FeedCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+        }
+    }
+
     @Override
     public List<Review> findAll() {
         return repository.findAll();
@@ -1,6 +1,9 @@
 package org.backend.service.impl;
 
+import jakarta.annotation.PreDestroy;
+import org.backend.dto.response.NotificationDTO;
 import org.backend.dto.response.webSocket.WebSocketMessageResponse;
+import org.backend.dto.response.webSocket.WebSocketNotificationResponse;
 import org.backend.dto.response.webSocket.WebSocketUserStatusResponse;
 import org.backend.entity.Message;
 import org.backend.entity.User;
@@ -9,12 +12,19 @@ import org.backend.service.WebSocketService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * WebSocket服务实现类
@@ -26,6 +36,7 @@ public class WebSocketServiceImpl implements WebSocketService {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketServiceImpl.class);
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry simpUserRegistry;
     private final UserService userService;
 
     // 存储用户连接状态
@@ -33,12 +44,102 @@ public class WebSocketServiceImpl implements WebSocketService {
     // 存储用户在线状态
     private final Map<String, String> userStatuses = new ConcurrentHashMap<>();
 
+    // 等待合并推送的通知，键为用户ID
+    private final Map<Long, PendingNotifications> pendingNotifications = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService notificationFlusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("notification-push").daemon(true).factory());
+
+    // 通知合并窗口（毫秒），窗口内同一用户的通知合并为一帧
+    @Value("${notification.push.coalesce-window-millis:200}")
+    private long coalesceWindowMillis;
+
+    // 每帧最多携带的通知数，超出时只通知客户端重新拉取
+    @Value("${notification.push.max-per-frame:20}")
+    private int maxNotificationsPerFrame;
+
     @Autowired
-    public WebSocketServiceImpl(SimpMessagingTemplate messagingTemplate, UserService userService) {
+    public WebSocketServiceImpl(SimpMessagingTemplate messagingTemplate,
+                                SimpUserRegistry simpUserRegistry,
+                                UserService userService) {
         this.messagingTemplate = messagingTemplate;
+        this.simpUserRegistry = simpUserRegistry;
         this.userService = userService;
     }
 
+    @PreDestroy
+    public void shutdown() {
+        notificationFlusher.shutdownNow();
+    }
+
+    /**
+     * 推送新通知给指定用户
+     * @param userId 用户ID
+     * @param notification 通知
+     */
+    public void sendNotificationToUser(Long userId, NotificationDTO notification) {
+        enqueueNotification(userId, notification);
+    }
+
+    /**
+     * 通知指定用户重新拉取通知列表
+     * @param userId 用户ID
+     */
+    public void requestNotificationRefresh(Long userId) {
+        enqueueNotification(userId, null);
+    }
+
+    /**
+     * 将通知加入用户的合并缓冲区，缓冲区新建时安排一次窗口结束后的推送
+     * @param userId 用户ID
+     * @param notification 通知，为null表示只要求客户端重新拉取
+     */
+    private void enqueueNotification(Long userId, NotificationDTO notification) {
+        // 用户没有活动的STOMP会话时消息无处投递，不必缓冲
+        if (userId == null || simpUserRegistry.getUser(userId.toString()) == null) {
+            return;
+        }
+        boolean[] created = new boolean[1];
+        pendingNotifications.compute(userId, (id, pending) -> {
+            if (pending == null) {
+                pending = new PendingNotifications();
+                created[0] = true;
+            }
+            pending.add(notification, maxNotificationsPerFrame);
+            return pending;
+        });
+        if (created[0]) {
+            try {
+                notificationFlusher.schedule(() -> flushNotifications(userId), coalesceWindowMillis, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                pendingNotifications.remove(userId);
+                logger.warn("安排通知推送失败: userId={}, error={}", userId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 推送用户合并窗口内的全部通知
+     * 先移除缓冲区再发送，发送期间到达的通知会开启新的窗口
+     * @param userId 用户ID
+     */
+    private void flushNotifications(Long userId) {
+        PendingNotifications pending = pendingNotifications.remove(userId);
+        if (pending == null) {
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSendToUser(
+                userId.toString(),
+                "/queue/notifications",
+                new WebSocketNotificationResponse("NEW_NOTIFICATIONS", pending.notifications, pending.refresh)
+            );
+            logger.debug("已推送通知给用户: userId={}, count={}, refresh={}",
+                    userId, pending.notifications.size(), pending.refresh);
+        } catch (Exception e) {
+            logger.error("推送通知给用户失败: userId={}, error={}", userId, e.getMessage());
+        }
+    }
+
     /**
      * 发送消息给指定用户
      * @param userId 用户ID
@@ -200,4 +301,20 @@ public class WebSocketServiceImpl implements WebSocketService {
         
         return response;
     }
-}
\ No newline at end of file
+
+    /**
+     * 单个用户等待合并推送的通知，只在ConcurrentHashMap.compute中修改
+     */
+    private static class PendingNotifications {
+        private final List<NotificationDTO> notifications = new ArrayList<>();
+        private boolean refresh;
+
+        void add(NotificationDTO notification, int maxPerFrame) {
+            if (notification == null || notifications.size() >= maxPerFrame) {
+                refresh = true;
+            } else {
+                notifications.add(notification);
+            }
+        }
+    }
+}
@@ -105,11 +105,38 @@ CREATE TABLE IF NOT EXISTS payments (
     deleted BOOLEAN DEFAULT FALSE COMMENT '是否已删除',
     FOREIGN KEY (booking_id) REFERENCES bookings(id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_transaction_id (transaction_id) COMMENT '交易ID唯一约束，支付回调按交易ID结算',
     INDEX idx_booking_id (booking_id) COMMENT '预约ID索引',
     INDEX idx_user_id (user_id) COMMENT '用户ID索引',
+    INDEX idx_user_status (user_id, status) COMMENT '用户状态索引，支付统计对账按用户顺序扫描',
     INDEX idx_status (status) COMMENT '状态索引'
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='支付信息表';
 
+-- 用户支付统计表
+CREATE TABLE IF NOT EXISTS user_payment_stats (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '统计唯一标识符',
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    total_spent DECIMAL(14,2) NOT NULL DEFAULT 0 COMMENT '累计消费金额（支付成功且未退款）',
+    successful_count BIGINT NOT NULL DEFAULT 0 COMMENT '支付成功笔数（不含已退款）',
+    refunded_total DECIMAL(14,2) NOT NULL DEFAULT 0 COMMENT '累计退款金额',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_user_id (user_id) COMMENT '用户ID唯一约束，统计按用户原子累加'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户支付统计表，由支付状态流转增量维护';
+
+-- 根据已有支付记录重建用户支付统计，可重复执行
+INSERT INTO user_payment_stats (user_id, total_spent, successful_count, refunded_total)
+SELECT user_id,
+       COALESCE(SUM(CASE WHEN status = 'SUCCESS' THEN amount END), 0),
+       SUM(status = 'SUCCESS'),
+       COALESCE(SUM(CASE WHEN status = 'REFUNDED' THEN amount END), 0)
+FROM payments
+WHERE deleted = FALSE
+GROUP BY user_id
+ON DUPLICATE KEY UPDATE total_spent = VALUES(total_spent), successful_count = VALUES(successful_count),
+                        refunded_total = VALUES(refunded_total);
+
 -- 评价表
 CREATE TABLE IF NOT EXISTS reviews (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '评价唯一标识符',
@@ -122,14 +149,45 @@ CREATE TABLE IF NOT EXISTS reviews (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     deleted BOOLEAN DEFAULT FALSE COMMENT '是否已删除',
+    active_flag TINYINT AS (IF(deleted, NULL, 1)) STORED COMMENT '有效评价标记，已删除的评价为NULL，不参与唯一约束',
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     FOREIGN KEY (booking_id) REFERENCES bookings(id) ON DELETE SET NULL,
-    INDEX idx_user_id (user_id) COMMENT '用户ID索引',
-    INDEX idx_target (target_id, target_type) COMMENT '评价目标索引',
+    UNIQUE KEY uk_user_target (user_id, target_id, target_type, active_flag) COMMENT '同一用户对同一目标只能有一条有效评价',
+    INDEX idx_target_created (target_id, target_type, created_at) COMMENT '评价目标索引，评价流按(created_at, id)游标分页',
+    INDEX idx_target_rating_created (target_id, target_type, rating, created_at) COMMENT '评价目标星级索引，按星级筛选评价流',
     INDEX idx_booking_id (booking_id) COMMENT '预约ID索引',
     CONSTRAINT chk_rating CHECK (rating BETWEEN 1 AND 5)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='评价信息表';
 
+-- 评价星级分布表
+CREATE TABLE IF NOT EXISTS review_rating_stats (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '统计唯一标识符',
+    target_id BIGINT NOT NULL COMMENT '评价目标ID',
+    target_type VARCHAR(20) NOT NULL COMMENT '评价目标类型',
+    star1 BIGINT NOT NULL DEFAULT 0 COMMENT '1星评价数',
+    star2 BIGINT NOT NULL DEFAULT 0 COMMENT '2星评价数',
+    star3 BIGINT NOT NULL DEFAULT 0 COMMENT '3星评价数',
+    star4 BIGINT NOT NULL DEFAULT 0 COMMENT '4星评价数',
+    star5 BIGINT NOT NULL DEFAULT 0 COMMENT '5星评价数',
+    review_count BIGINT NOT NULL DEFAULT 0 COMMENT '评价总数',
+    rating_sum BIGINT NOT NULL DEFAULT 0 COMMENT '评分总和',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_target (target_id, target_type) COMMENT '评价目标唯一约束，星级分布按目标原子累加'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='评价星级分布表，由评价的创建、修改和删除增量维护';
+
+-- 根据已有评价重建星级分布，可重复执行
+INSERT INTO review_rating_stats (target_id, target_type, star1, star2, star3, star4, star5, review_count, rating_sum)
+SELECT target_id, target_type,
+       SUM(rating = 1), SUM(rating = 2), SUM(rating = 3), SUM(rating = 4), SUM(rating = 5),
+       COUNT(*), SUM(rating)
+FROM reviews
+WHERE deleted = FALSE
+GROUP BY target_id, target_type
+ON DUPLICATE KEY UPDATE star1 = VALUES(star1), star2 = VALUES(star2), star3 = VALUES(star3),
+                        star4 = VALUES(star4), star5 = VALUES(star5),
+                        review_count = VALUES(review_count), rating_sum = VALUES(rating_sum);
+
 -- 消息表
 CREATE TABLE IF NOT EXISTS messages (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '消息唯一标识符',
@@ -159,6 +217,8 @@ CREATE TABLE IF NOT EXISTS file_uploads (
     file_type VARCHAR(50) COMMENT '文件类型',
     file_size BIGINT COMMENT '文件大小',
     content_type VARCHAR(100) COMMENT '内容类型',
+    content_hash CHAR(64) COMMENT '文件内容SHA-256哈希',
+    derivatives VARCHAR(255) COMMENT '已生成的图片衍生尺寸',
     entity_type VARCHAR(50) COMMENT '关联实体类型',
     entity_id BIGINT COMMENT '关联实体ID',
     is_public BOOLEAN DEFAULT FALSE COMMENT '是否公开',
@@ -168,9 +228,41 @@ CREATE TABLE IF NOT EXISTS file_uploads (
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     INDEX idx_user_id (user_id) COMMENT '用户ID索引',
     INDEX idx_entity (entity_type, entity_id) COMMENT '实体索引',
-    INDEX idx_file_type (file_type) COMMENT '文件类型索引'
+    INDEX idx_file_type (file_type) COMMENT '文件类型索引',
+    INDEX idx_content_hash (content_hash) COMMENT '内容哈希索引，复用同一内容的衍生图片'
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件上传信息表';
 
+-- 文件数据表，内容相同的文件共用一份数据
+CREATE TABLE IF NOT EXISTS file_blobs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '文件数据唯一标识符',
+    content_hash CHAR(64) NOT NULL COMMENT '文件内容SHA-256哈希',
+    file_path VARCHAR(500) NOT NULL COMMENT '文件路径',
+    file_size BIGINT NOT NULL COMMENT '文件大小',
+    ref_count INT NOT NULL DEFAULT 1 COMMENT '引用该数据的文件记录数',
+    last_accessed_at TIMESTAMP NULL COMMENT '最近一次下载时间',
+    archive_segment VARCHAR(64) NULL COMMENT '归档段文件名',
+    archive_offset BIGINT NULL COMMENT '在归档段中的起始位置',
+    archive_length BIGINT NULL COMMENT '在归档段中压缩后的长度',
+    archived_at TIMESTAMP NULL COMMENT '移入归档的时间，原文件存在时为空',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_content_hash (content_hash) COMMENT '内容哈希唯一索引',
+    INDEX idx_archive_segment (archive_segment) COMMENT '归档段索引'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件数据表';
+
+-- 用户存储用量表
+CREATE TABLE IF NOT EXISTS user_storage_usage (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '用量唯一标识符',
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    file_type VARCHAR(50) NOT NULL COMMENT '文件类型',
+    file_count BIGINT NOT NULL DEFAULT 0 COMMENT '文件数',
+    total_bytes BIGINT NOT NULL DEFAULT 0 COMMENT '文件总大小',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_user_file_type (user_id, file_type) COMMENT '用户和文件类型唯一约束，计数按行覆盖写入'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户存储用量表，由Redis计数定期写入';
+
 -- 通知表
 CREATE TABLE IF NOT EXISTS notifications (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '通知唯一标识符',
@@ -181,15 +273,33 @@ CREATE TABLE IF NOT EXISTS notifications (
     is_read BOOLEAN DEFAULT FALSE COMMENT '是否已读',
     duration INT DEFAULT 5000 COMMENT '显示时长(毫秒)',
     target_url VARCHAR(500) COMMENT '点击通知后跳转的URL',
+    digest_count INT NOT NULL DEFAULT 1 COMMENT '合并的通知条数',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
-    INDEX idx_user_id (user_id) COMMENT '用户ID索引',
-    INDEX idx_is_read (is_read) COMMENT '是否已读索引',
-    INDEX idx_type (type) COMMENT '通知类型索引',
-    INDEX idx_created_at (created_at) COMMENT '创建时间索引'
+    INDEX idx_user_read_created (user_id, is_read, created_at) COMMENT '用户未读通知及按时间批量已读索引',
+    INDEX idx_user_created (user_id, created_at) COMMENT '用户通知列表索引',
+    INDEX idx_read_created (is_read, created_at) COMMENT '已读通知清理索引',
+    INDEX idx_type (type) COMMENT '通知类型索引'
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='通知信息表';
 
+-- 通知归档表（保留期清理开启归档时使用）
+CREATE TABLE IF NOT EXISTS notifications_archive (
+    id BIGINT PRIMARY KEY COMMENT '原通知ID',
+    user_id BIGINT NOT NULL COMMENT '接收通知的用户ID',
+    title VARCHAR(200) COMMENT '通知标题',
+    message TEXT NOT NULL COMMENT '通知内容',
+    type VARCHAR(20) NOT NULL COMMENT '通知类型',
+    is_read BOOLEAN DEFAULT TRUE COMMENT '是否已读',
+    duration INT COMMENT '显示时长(毫秒)',
+    target_url VARCHAR(500) COMMENT '点击通知后跳转的URL',
+    digest_count INT NOT NULL DEFAULT 1 COMMENT '合并的通知条数',
+    created_at TIMESTAMP NULL COMMENT '创建时间',
+    updated_at TIMESTAMP NULL COMMENT '更新时间',
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '归档时间',
+    INDEX idx_user_created (user_id, created_at) COMMENT '用户归档通知索引'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='通知归档表';
+
 -- 插入示例通知数据
 -- 注意：这里假设存在用户ID为1的用户，实际使用时请根据系统中的用户ID进行调整
 INSERT INTO notifications (user_id, title, message, type, is_read, duration, target_url, created_at)
@@ -0,0 +1,78 @@
+package org.backend.A_general.base.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * AhoCorasickMatcher与逐词字面替换的差分测试
+ */
+class AhoCorasickMatcherTest {
+
+    @Test
+    void masksLongerMatchOverlappingEarlierShorterOne() {
+        assertEquals("***", AhoCorasickMatcher.compile(List.of("b", "aba")).replace("aba", '*'));
+        assertEquals("***转账", AhoCorasickMatcher.compile(List.of("微信", "加微信")).replace("加微信转账", '*'));
+        assertEquals("我**转账", AhoCorasickMatcher.compile(List.of("微信")).replace("我微信转账", '*'));
+    }
+
+    @Test
+    void matchesSequentialLiteralReplacement() {
+        Random random = new Random(20261019L);
+        char[] alphabet = {'a', 'b', 'c', 'A', 'B', '微', '信', '转'};
+        for (int round = 0; round < 5000; round++) {
+            List<String> words = new ArrayList<>();
+            int wordCount = 1 + random.nextInt(6);
+            for (int i = 0; i < wordCount; i++) {
+                words.add(randomText(random, alphabet, 1 + random.nextInt(4)));
+            }
+            String text = randomText(random, alphabet, random.nextInt(30));
+            AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(words);
+
+            String expected = sequentialReplace(text, words, '*');
+            assertEquals(expected, matcher.replace(text, '*'), () -> "words=" + words + ", text=" + text);
+            assertEquals(!expected.equals(text), matcher.containsAny(text), () -> "words=" + words + ", text=" + text);
+            if (!text.isBlank()) {
+                assertEquals(expected, SecurityUtils.filterSensitiveWords(text, words, '*'));
+            }
+        }
+    }
+
+    /**
+     * 参照实现：逐个词条在原文中查找所有（可重叠的）出现位置并替换，不区分大小写
+     */
+    private static String sequentialReplace(String text, List<String> words, char replaceChar) {
+        char[] folded = fold(text).toCharArray();
+        char[] result = text.toCharArray();
+        for (String word : words) {
+            String target = fold(word);
+            String source = new String(folded);
+            for (int from = source.indexOf(target); from >= 0; from = source.indexOf(target, from + 1)) {
+                for (int j = from; j < from + target.length(); j++) {
+                    result[j] = replaceChar;
+                }
+            }
+        }
+        return new String(result);
+    }
+
+    private static String fold(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static String randomText(Random random, char[] alphabet, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,115 @@
+package org.backend.A_general.file.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * ContentSniffer按真实文件头识别类型的测试
+ */
+class ContentSnifferTest {
+
+    // 与application.yml中system.upload.allowed-types一致
+    private static final ContentSniffer SNIFFER = ContentSniffer.compile(List.of(
+            ".jpg", ".jpeg", ".png", ".gif", ".bmp", ".webp", ".pdf", ".doc", ".docx", ".xls", ".xlsx",
+            ".txt", ".csv", ".mp3", ".wav", ".ogg", ".flac", ".mp4", ".avi", ".mov", ".mkv", ".webm"));
+
+    static Stream<Arguments> headers() {
+        return Stream.of(
+                Arguments.of("PNG", hex("89 50 4E 47 0D 0A 1A 0A 00 00 00 0D 49 48 44 52"), null, "image/png"),
+                Arguments.of("JPEG JFIF", hex("FF D8 FF E0 00 10 4A 46 49 46 00 01"), "image/jpg", "image/jpeg"),
+                Arguments.of("JPEG Exif", hex("FF D8 FF E1 1C 45 45 78 69 66 00 00"), null, "image/jpeg"),
+                Arguments.of("GIF89a", hex("47 49 46 38 39 61 01 00 01 00"), null, "image/gif"),
+                Arguments.of("PDF", "%PDF-1.7\n%âã".getBytes(StandardCharsets.ISO_8859_1), null, "application/pdf"),
+                // RIFF容器的长度字段是通配字节，按第8-11字节区分
+                Arguments.of("RIFF WEBP", hex("52 49 46 46 24 1A 00 00 57 45 42 50 56 50 38 20"), null, "image/webp"),
+                Arguments.of("RIFF WAV", hex("52 49 46 46 24 08 00 00 57 41 56 45 66 6D 74 20"), null, "audio/wav"),
+                Arguments.of("RIFF AVI", hex("52 49 46 46 F8 7A 0F 00 41 56 49 20 4C 49 53 54"), null, "video/avi"),
+                Arguments.of("RIFF unknown", hex("52 49 46 46 24 08 00 00 41 43 4F 4E 00 01"), null, null),
+                // ftyp容器取最长的匹配：qt品牌识别为mov，其他品牌为mp4
+                Arguments.of("ftyp isom", hex("00 00 00 20 66 74 79 70 69 73 6F 6D 00 00 02 00"), null, "video/mp4"),
+                Arguments.of("ftyp qt", hex("00 00 00 14 66 74 79 70 71 74 20 20 00 00 02 00"), null, "video/mov"),
+                Arguments.of("ftyp qt declared mp4", hex("00 00 00 14 66 74 79 70 71 74 20 20 00 00 02 00"),
+                        "video/mp4", "video/mov"),
+                Arguments.of("moov", hex("00 00 12 34 6D 6F 6F 76 00 00 00 6C"), null, "video/mov"),
+                Arguments.of("MP3 ID3", hex("49 44 33 04 00 00 00 00 0F 76"), null, "audio/mpeg"),
+                Arguments.of("MP3 frame", hex("FF FB 90 64 00 0F F0 00"), null, "audio/mpeg"),
+                Arguments.of("FLAC", hex("66 4C 61 43 00 00 00 22"), null, "audio/flac"),
+                // OLE复合文档和ZIP同一签名对应多种类型，声明的类型在其中时采用声明的类型，否则取第一个
+                Arguments.of("OLE declared xls", hex("D0 CF 11 E0 A1 B1 1A E1 00 00"), "application/vnd.ms-excel",
+                        "application/vnd.ms-excel"),
+                Arguments.of("OLE declared doc", hex("D0 CF 11 E0 A1 B1 1A E1 00 00"), "application/msword",
+                        "application/msword"),
+                Arguments.of("OLE declared png", hex("D0 CF 11 E0 A1 B1 1A E1 00 00"), "image/png",
+                        "application/msword"),
+                Arguments.of("ZIP declared xlsx", hex("50 4B 03 04 14 00 06 00 08 00"),
+                        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+                Arguments.of("ZIP undeclared", hex("50 4B 03 04 14 00 06 00 08 00"), null,
+                        "application/vnd.openxmlformats-officedocument.wordprocessingml.document"),
+                // 以"BM"开头的文本声明为文本时按文本处理，声明为图片或内容不是文本时按BMP处理
+                Arguments.of("BM text declared text", utf8("BM25 算法说明\n第二行"), "text/plain", "text/plain"),
+                Arguments.of("BM text declared csv", utf8("BMI,height,weight\n22,170,64\n"), "text/csv", "text/csv"),
+                Arguments.of("BM text undeclared", utf8("BM25 算法说明\n"), null, "image/bmp"),
+                Arguments.of("BMP declared text", hex("42 4D 36 00 0C 00 00 00 00 00 36 00 00 00"), "text/plain",
+                        "image/bmp"),
+                // 没有签名的内容按UTF-8文本识别
+                Arguments.of("UTF-8 text", utf8("寄养须知：每天遛狗两次。"), null, "text/plain"),
+                Arguments.of("UTF-8 text declared csv", utf8("name,age\n小白,3\n"), "text/csv", "text/csv"),
+                Arguments.of("text cut inside character", Arrays.copyOf(utf8("宠物"), 4), "text/plain", "text/plain"),
+                Arguments.of("NUL byte", utf8("abc\0def"), "text/plain", null),
+                Arguments.of("invalid UTF-8", hex("61 62 C0 AF 63"), "text/plain", null),
+                Arguments.of("ELF executable", hex("7F 45 4C 46 02 01 01 00"), "application/pdf", null),
+                Arguments.of("empty", new byte[0], "text/plain", null)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("headers")
+    void detectsTypeFromHeader(String name, byte[] header, String declaredType, String expected) {
+        assertEquals(expected, SNIFFER.detect(header, header.length, declaredType));
+    }
+
+    @Test
+    void onlyRecognizesAllowedTypes() {
+        ContentSniffer imagesOnly = ContentSniffer.compile(List.of("png", " .JPG "));
+        assertEquals("image/png", imagesOnly.detect(hex("89 50 4E 47 0D 0A 1A 0A"), 8, null));
+        assertEquals("image/jpeg", imagesOnly.detect(hex("FF D8 FF E0"), 4, "image/jpeg"));
+        assertNull(imagesOnly.detect("%PDF-1.4".getBytes(StandardCharsets.US_ASCII), 8, "application/pdf"));
+        // 没有允许文本类型时，文本内容也不被接受
+        assertNull(imagesOnly.detect(utf8("hello"), 5, "text/plain"));
+        // RIFF中只允许WAV时，WEBP不被接受
+        ContentSniffer wavOnly = ContentSniffer.compile(List.of("wav"));
+        assertNull(wavOnly.detect(hex("52 49 46 46 24 1A 00 00 57 45 42 50"), 12, "image/webp"));
+    }
+
+    @Test
+    void onlyReadsValidLength() {
+        // 缓冲区后面的残留数据不参与识别
+        byte[] buffer = Arrays.copyOf(hex("89 50 4E 47 0D 0A 1A 0A"), ContentSniffer.HEADER_LENGTH);
+        assertNull(SNIFFER.detect(buffer, 4, "image/png"));
+        assertEquals("image/png", SNIFFER.detect(buffer, 8, "image/png"));
+    }
+
+    private static byte[] hex(String hex) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String part : hex.trim().split("\\s+")) {
+            out.write(Integer.parseInt(part, 16));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
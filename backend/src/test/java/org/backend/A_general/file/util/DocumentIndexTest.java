@@ -0,0 +1,150 @@
+package org.backend.A_general.file.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DocumentIndex的往返测试：同一文件建立索引前后，搜索、行数和预览的结果必须一致
+ */
+class DocumentIndexTest {
+
+    private static final int[] PREVIEW_LINES = {1, 2, 5, 99, 100, 101, 1000};
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void lastLineWithoutNewline() throws IOException {
+        assertSameResults("第一行\nsecond line\nthird", 8, List.of("third", "THIRD", "一行", "line\nthird", "ond"));
+        assertSameResults("only one line", 4096, List.of("one", "e l", "x"));
+        assertSameResults("a\n\nb\n", 1, List.of("a", "b"));
+        assertSameResults("crlf line\r\nnext\r\nlast", 6, List.of("line", "next", "ne\r", "last"));
+    }
+
+    @Test
+    void emptyDocument() throws IOException {
+        assertSameResults("", 64, List.of("abc"));
+        assertSameResults("\n", 64, List.of("abc"));
+    }
+
+    @Test
+    void previewStopsAtSizeCap() throws IOException {
+        // 每行200字节，100行超过16KB，预览只保存16KB以内的完整行
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 150; i++) {
+            text.append(String.format("%04d", i)).append("x".repeat(195)).append('\n');
+        }
+        Path document = assertSameResults(text.toString(), 1024, List.of("0081xxx", "0149"));
+        DocumentIndex index = DocumentIndex.open(document);
+        assertNotNull(index);
+        assertEquals(81 * 200, index.previewBytes(81));
+        assertEquals(-1, index.previewBytes(82));
+    }
+
+    @Test
+    void previewCapFallsOnNewline() throws IOException {
+        // 第16KB个字节恰好是换行符
+        int lineBytes = 256;
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 80; i++) {
+            text.append("y".repeat(lineBytes - 1)).append('\n');
+        }
+        Path document = assertSameResults(text.toString(), 4096, List.of("yyy"));
+        DocumentIndex index = DocumentIndex.open(document);
+        assertNotNull(index);
+        assertEquals(64 * lineBytes, index.previewBytes(64));
+        assertEquals(-1, index.previewBytes(65));
+    }
+
+    @Test
+    void keywordsNearBlockBoundaries() throws IOException {
+        // 块大小小于一行，每行结束都开始新的块，关键词位于行首和行尾
+        String text = "alpha beta\ngamma delta\nbeta gamma\nDELTA alpha\nepsilon";
+        for (int blockBytes : new int[]{1, 5, 11, 12, 23, 24, 100}) {
+            assertSameResults(text, blockBytes, List.of("alpha", "beta", "gamma", "delta", "ta\ngam", "a g", "lon"));
+        }
+    }
+
+    @Test
+    void randomDocumentsMatchUnindexedResults() throws IOException {
+        Random random = new Random(20261019L);
+        String[] words = {"Pet", "foster", "寄养", "猫", "dog", "DOG", "a", "bc", "abc", " "};
+        for (int round = 0; round < 200; round++) {
+            StringBuilder text = new StringBuilder();
+            int lines = random.nextInt(300);
+            for (int i = 0; i < lines; i++) {
+                int wordsInLine = random.nextInt(12);
+                for (int j = 0; j < wordsInLine; j++) {
+                    text.append(words[random.nextInt(words.length)]);
+                }
+                if (i < lines - 1 || random.nextBoolean()) {
+                    text.append(random.nextInt(4) == 0 ? "\r\n" : "\n");
+                }
+            }
+            List<String> keywords = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                StringBuilder keyword = new StringBuilder();
+                int parts = 1 + random.nextInt(3);
+                for (int j = 0; j < parts; j++) {
+                    keyword.append(words[random.nextInt(words.length)]);
+                }
+                keywords.add(keyword.toString());
+            }
+            assertSameResults(text.toString(), 1 + random.nextInt(256), keywords);
+        }
+    }
+
+    /**
+     * 先在没有索引时取结果，再建立索引比较，返回文档路径
+     */
+    private Path assertSameResults(String text, int blockBytes, List<String> keywords) throws IOException {
+        Path document = Files.createTempFile(tempDir, "doc", ".txt");
+        Files.writeString(document, text, StandardCharsets.UTF_8);
+        String file = document.toString();
+        assertFalse(DocumentIndex.isFresh(document));
+
+        List<List<String>> searches = new ArrayList<>();
+        for (String keyword : keywords) {
+            searches.add(DocumentUtils.searchInTextFile(file, keyword));
+        }
+        int lineCount = DocumentUtils.countLines(file);
+        List<String> previews = new ArrayList<>();
+        for (int maxLines : PREVIEW_LINES) {
+            previews.add(DocumentUtils.getDocumentPreview(file, maxLines));
+        }
+
+        DocumentIndex.build(document, blockBytes);
+        assertTrue(DocumentIndex.isFresh(document));
+
+        String context = "blockBytes=" + blockBytes + ", text=" + abbreviate(text);
+        for (int i = 0; i < keywords.size(); i++) {
+            String keyword = keywords.get(i);
+            assertEquals(searches.get(i), DocumentUtils.searchInTextFile(file, keyword),
+                    () -> "keyword=" + keyword + ", " + context);
+        }
+        assertEquals(lineCount, DocumentUtils.countLines(file), context);
+        for (int i = 0; i < PREVIEW_LINES.length; i++) {
+            int maxLines = PREVIEW_LINES[i];
+            assertEquals(previews.get(i), DocumentUtils.getDocumentPreview(file, maxLines),
+                    () -> "maxLines=" + maxLines + ", " + context);
+        }
+        return document;
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() <= 200 ? text : text.substring(0, 200) + "...";
+    }
+}
@@ -0,0 +1,167 @@
+package org.backend.A_general.file.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * RangeDownloadUtils的Range解析和条件请求测试
+ */
+class RangeDownloadUtilsTest {
+
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+    private static final Instant LAST_MODIFIED = Instant.parse("2026-01-01T00:00:00Z");
+    private static final String STRONG_ETAG = "\"abc\"";
+    private static final String WEAK_ETAG = "W/\"abc\"";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parsesSingleAndSuffixRanges() {
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=0-9", 100), new long[][]{{0, 9}});
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=90-", 100), new long[][]{{90, 99}});
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=90-500", 100), new long[][]{{90, 99}});
+        // 后缀形式取最后N个字节，超过文件长度时取整个文件
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=-10", 100), new long[][]{{90, 99}});
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=-500", 100), new long[][]{{0, 99}});
+    }
+
+    @Test
+    void mergesOverlappingAndAdjacentRanges() {
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=0-9, 5-14", 100), new long[][]{{0, 14}});
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=10-19,0-9", 100), new long[][]{{0, 19}});
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=0-9,11-19", 100), new long[][]{{0, 9}, {11, 19}});
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=50-59,-5,0-4", 100),
+                new long[][]{{0, 4}, {50, 59}, {95, 99}});
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=0-99,10-20", 100), new long[][]{{0, 99}});
+    }
+
+    @Test
+    void unsatisfiableRangesReturnEmptyList() {
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=100-", 100), new long[0][]);
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=200-300", 100), new long[0][]);
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=-0", 100), new long[0][]);
+        // 可满足的段保留，不可满足的段丢弃
+        assertRanges(RangeDownloadUtils.parseRanges("bytes=200-300,0-0", 100), new long[][]{{0, 0}});
+    }
+
+    @Test
+    void malformedHeadersAreIgnored() {
+        assertNull(RangeDownloadUtils.parseRanges("items=0-9", 100));
+        assertNull(RangeDownloadUtils.parseRanges("bytes=10", 100));
+        assertNull(RangeDownloadUtils.parseRanges("bytes=a-b", 100));
+        assertNull(RangeDownloadUtils.parseRanges("bytes=9-0", 100));
+        assertNull(RangeDownloadUtils.parseRanges("bytes=0-9,x", 100));
+    }
+
+    @Test
+    void rejectsTooManyRanges() {
+        StringBuilder sixteen = new StringBuilder("bytes=");
+        for (int i = 0; i < 16; i++) {
+            sixteen.append(i == 0 ? "" : ",").append(i * 4).append('-').append(i * 4 + 1);
+        }
+        assertEquals(16, RangeDownloadUtils.parseRanges(sixteen.toString(), 100).size());
+        assertNull(RangeDownloadUtils.parseRanges(sixteen + ",90-91", 100));
+    }
+
+    @Test
+    void servesPartialContent() throws IOException {
+        MockHttpServletResponse response = serve(request("bytes=-6", null, null), STRONG_ETAG);
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 30-35/36", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("uvwxyz", response.getContentAsString());
+
+        response = serve(request("bytes=0-1,4-5", null, null), STRONG_ETAG);
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        String body = response.getContentAsString();
+        assertTrue(body.contains("Content-Range: bytes 0-1/36\r\n\r\n01"));
+        assertTrue(body.contains("Content-Range: bytes 4-5/36\r\n\r\n45"));
+        assertEquals(body.length(), response.getContentLengthLong());
+    }
+
+    @Test
+    void unsatisfiableRangeReturns416() throws IOException {
+        MockHttpServletResponse response = serve(request("bytes=36-", null, null), STRONG_ETAG);
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */36", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("", response.getContentAsString());
+    }
+
+    @Test
+    void malformedRangeReturnsFullContent() throws IOException {
+        MockHttpServletResponse response = serve(request("bytes=9-0", null, null), STRONG_ETAG);
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    void ifRangeUsesStrongComparison() throws IOException {
+        // 强ETag匹配时返回片段
+        assertEquals(206, serve(request("bytes=0-1", STRONG_ETAG, null), STRONG_ETAG).getStatus());
+        // 弱ETag不能用于If-Range，无论请求还是资源一方是弱ETag都返回完整内容
+        assertEquals(200, serve(request("bytes=0-1", WEAK_ETAG, null), STRONG_ETAG).getStatus());
+        assertEquals(200, serve(request("bytes=0-1", WEAK_ETAG, null), WEAK_ETAG).getStatus());
+        assertEquals(200, serve(request("bytes=0-1", "\"other\"", null), STRONG_ETAG).getStatus());
+        // 日期形式要求与最后修改时间完全一致
+        String date = RangeDownloadUtils.formatHttpDate(LAST_MODIFIED);
+        assertEquals(206, serve(request("bytes=0-1", date, null), STRONG_ETAG).getStatus());
+        String earlier = RangeDownloadUtils.formatHttpDate(LAST_MODIFIED.minusSeconds(1));
+        assertEquals(200, serve(request("bytes=0-1", earlier, null), STRONG_ETAG).getStatus());
+    }
+
+    @Test
+    void ifNoneMatchUsesWeakComparison() throws IOException {
+        assertEquals(304, serve(request(null, null, STRONG_ETAG), STRONG_ETAG).getStatus());
+        assertEquals(304, serve(request(null, null, WEAK_ETAG), STRONG_ETAG).getStatus());
+        assertEquals(304, serve(request(null, null, STRONG_ETAG), WEAK_ETAG).getStatus());
+        assertEquals(304, serve(request(null, null, "\"x\", W/\"abc\""), STRONG_ETAG).getStatus());
+        assertEquals(304, serve(request(null, null, "*"), STRONG_ETAG).getStatus());
+        assertEquals(200, serve(request(null, null, "\"x\""), STRONG_ETAG).getStatus());
+    }
+
+    private MockHttpServletRequest request(String range, String ifRange, String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/1/download");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        if (ifRange != null) {
+            request.addHeader(HttpHeaders.IF_RANGE, ifRange);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request, String etag) throws IOException {
+        Path file = tempDir.resolve("content.txt");
+        Files.writeString(file, CONTENT, StandardCharsets.US_ASCII);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RangeDownloadUtils.serve(request, response, new RangeDownloadUtils.DownloadTarget(
+                file, CONTENT.length(), "text/plain", "content.txt", etag, LAST_MODIFIED, null));
+        return response;
+    }
+
+    private static void assertRanges(List<long[]> actual, long[][] expected) {
+        assertEquals(expected.length, actual.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], actual.get(i));
+        }
+    }
+}